@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.netty.common;
+
+import com.netflix.netty.common.metrics.EventLoopConnections;
+import com.netflix.netty.common.metrics.EventLoopGroupMetrics;
+import com.netflix.spectator.api.NoopRegistry;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory.EventExecutorChooser;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures choosing the event loop for a new connection, with connections already spread across the event loops.
+ */
+@State(Scope.Benchmark)
+public class LeastConnsEventLoopChooserBenchmark {
+
+    @Param({"8", "32", "96"})
+    public int eventLoops;
+
+    private EventExecutor[] executors;
+    private EventExecutorChooser chooser;
+
+    @Setup
+    public void setUp() {
+        executors = new EventExecutor[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            executors[i] = new DefaultEventLoop();
+        }
+        EventLoopGroupMetrics groupMetrics = new EventLoopGroupMetrics(new NoopRegistry());
+        chooser = new LeastConnsEventLoopChooserFactory(groupMetrics).newChooser(executors);
+        EventLoopConnections connections = groupMetrics.getEventLoopConnections();
+        for (int i = 0; i < eventLoops; i++) {
+            for (int conns = ThreadLocalRandom.current().nextInt(1000); conns > 0; conns--) {
+                connections.increment(i);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (EventExecutor executor : executors) {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public EventExecutor next() {
+        return chooser.next();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Threads(4)
+    public EventExecutor nextFromSeveralAcceptors() {
+        return chooser.next();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.zuul.context;
+
+import com.netflix.zuul.filters.FilterType;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Replays the per-request session context traffic of the filter runners, once through String keys and once through
+ * {@link SessionContext.Key}s.  Run with {@code -prof gc} to compare the allocation per request.
+ */
+@State(Scope.Thread)
+public class SessionContextBenchmark {
+
+    private static final FilterType[] STAGES = {FilterType.INBOUND, FilterType.ENDPOINT, FilterType.OUTBOUND};
+    private static final int FILTERS_PER_STAGE = 20;
+
+    private static final String[] RUNNING_FILTER_IDX_STRING_KEYS = new String[STAGES.length];
+    private static final String[] AWAITING_BODY_STRING_KEYS = new String[STAGES.length];
+    @SuppressWarnings("unchecked")
+    private static final SessionContext.Key<AtomicInteger>[] RUNNING_FILTER_IDX_KEYS =
+            new SessionContext.Key[STAGES.length];
+    @SuppressWarnings("unchecked")
+    private static final SessionContext.Key<Boolean>[] AWAITING_BODY_KEYS = new SessionContext.Key[STAGES.length];
+
+    static {
+        for (int i = 0; i < STAGES.length; i++) {
+            RUNNING_FILTER_IDX_STRING_KEYS[i] = STAGES[i] + "RunningFilterIndex";
+            AWAITING_BODY_STRING_KEYS[i] = STAGES[i] + "IsAwaitingBody";
+            RUNNING_FILTER_IDX_KEYS[i] = SessionContext.Key.newKey(RUNNING_FILTER_IDX_STRING_KEYS[i]);
+            AWAITING_BODY_KEYS[i] = SessionContext.Key.newKey(AWAITING_BODY_STRING_KEYS[i]);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int stringKeys() {
+        final SessionContext ctx = new SessionContext();
+        int total = 0;
+        for (int s = 0; s < STAGES.length; s++) {
+            ctx.put(RUNNING_FILTER_IDX_STRING_KEYS[s], new AtomicInteger());
+            for (int f = 0; f < FILTERS_PER_STAGE; f++) {
+                AtomicInteger idx = (AtomicInteger) ctx.get(RUNNING_FILTER_IDX_STRING_KEYS[s]);
+                if (!ctx.containsKey(AWAITING_BODY_STRING_KEYS[s])) {
+                    total += idx.incrementAndGet();
+                }
+            }
+            ctx.put(AWAITING_BODY_STRING_KEYS[s], Boolean.TRUE);
+            ctx.remove(AWAITING_BODY_STRING_KEYS[s]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int typedKeys() {
+        final SessionContext ctx = new SessionContext();
+        int total = 0;
+        for (int s = 0; s < STAGES.length; s++) {
+            ctx.set(RUNNING_FILTER_IDX_KEYS[s], new AtomicInteger());
+            for (int f = 0; f < FILTERS_PER_STAGE; f++) {
+                AtomicInteger idx = ctx.get(RUNNING_FILTER_IDX_KEYS[s]);
+                if (!ctx.containsKey(AWAITING_BODY_KEYS[s])) {
+                    total += idx.incrementAndGet();
+                }
+            }
+            ctx.set(AWAITING_BODY_KEYS[s], Boolean.TRUE);
+            ctx.remove(AWAITING_BODY_KEYS[s]);
+        }
+        return total;
+    }
+}
@@ -35,7 +35,7 @@ public class HeadersBenchmark {
 
     @State(Scope.Thread)
     public static class AddHeaders {
-        @Param({"0", "1", "5", "10", "30"})
+        @Param({"0", "1", "5", "10", "30", "80"})
         public int count;
 
         @Param({"10"})
@@ -87,7 +87,7 @@ public class HeadersBenchmark {
 
     @State(Scope.Thread)
     public static class GetSetHeaders {
-        @Param({"1", "5", "10", "30"})
+        @Param({"1", "5", "10", "30", "80"})
         public int count;
 
         @Param({"10"})
@@ -157,6 +157,85 @@ public class HeadersBenchmark {
 
     }
 
+    /**
+     * Approximates what a filter chain does to a request's headers: a handful of reads by name, some replacements and
+     * removals, and a few additions, on a copy of the inbound headers.
+     */
+    @State(Scope.Thread)
+    public static class MixedWorkload {
+        @Param({"10", "40", "80"})
+        public int count;
+
+        @Param({"16"})
+        public int nameLength;
+
+        private HeaderName[] names;
+        private String[] stringNames;
+        private HeaderName[] absentNames;
+        private Headers headers;
+
+        @Setup
+        public void setUp() {
+            headers = new Headers();
+            names = new HeaderName[count];
+            stringNames = new String[count];
+            absentNames = new HeaderName[8];
+            for (int i = 0; i < count; i++) {
+                stringNames[i] = randomName(nameLength);
+                names[i] = new HeaderName(stringNames[i]);
+                headers.add(names[i], stringNames[i]);
+                if (i % 4 == 0) {
+                    // Repeated names, like Cookie and Via.
+                    headers.add(names[i], stringNames[i]);
+                }
+            }
+            for (int i = 0; i < absentNames.length; i++) {
+                absentNames[i] = new HeaderName(randomName(nameLength));
+            }
+        }
+
+        @Benchmark
+        @BenchmarkMode(Mode.AverageTime)
+        @OutputTimeUnit(TimeUnit.NANOSECONDS)
+        public Headers mixed_headerName(Blackhole blackhole) {
+            Headers copy = Headers.copyOf(headers);
+            for (int i = 0; i < count; i += 3) {
+                blackhole.consume(copy.getFirst(names[i]));
+            }
+            for (HeaderName absentName : absentNames) {
+                blackhole.consume(copy.getFirst(absentName));
+            }
+            blackhole.consume(copy.getAll(names[0]));
+            copy.set(names[count / 2], "replaced");
+            copy.set(absentNames[0], "added");
+            blackhole.consume(copy.remove(names[count - 1]));
+            blackhole.consume(copy.remove(absentNames[1]));
+            copy.add(absentNames[2], "appended");
+            return copy;
+        }
+
+        @Benchmark
+        @BenchmarkMode(Mode.AverageTime)
+        @OutputTimeUnit(TimeUnit.NANOSECONDS)
+        public Headers mixed_string(Blackhole blackhole) {
+            Headers copy = Headers.copyOf(headers);
+            for (int i = 0; i < count; i += 3) {
+                blackhole.consume(copy.getFirst(stringNames[i]));
+            }
+            blackhole.consume(copy.getAll(stringNames[0]));
+            copy.set(stringNames[count / 2], "replaced");
+            blackhole.consume(copy.remove(stringNames[count - 1]));
+            return copy;
+        }
+
+        private static String randomName(int length) {
+            UUID uuid = new UUID(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong());
+            String name = uuid.toString();
+            assert name.length() >= length;
+            return name.substring(0, length);
+        }
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.AverageTime)
     @OutputTimeUnit(TimeUnit.NANOSECONDS)
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.zuul.message;
+
+import com.netflix.zuul.context.SessionContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.util.ByteProcessor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares copying the buffered body out with {@link ZuulMessage#getBody()} against reading it in place through
+ * {@link ZuulMessage#getBodyView()}.
+ */
+@State(Scope.Thread)
+public class ZuulMessageBodyBenchmark {
+
+    @Param({"1024", "65536", "4194304"})
+    public int bodySize;
+
+    @Param({"8192"})
+    public int chunkSize;
+
+    private ZuulMessage message;
+
+    @Setup
+    public void setUp() {
+        message = new ZuulMessageImpl(new SessionContext(), new Headers());
+        int remaining = bodySize;
+        while (remaining > 0) {
+            byte[] chunk = new byte[Math.min(chunkSize, remaining)];
+            for (int i = 0; i < chunk.length; i++) {
+                // Printable ASCII, so that the text benchmarks measure copying rather than decoding errors.
+                chunk[i] = (byte) ThreadLocalRandom.current().nextInt(' ', '~');
+            }
+            message.bufferBodyContents(new DefaultHttpContent(Unpooled.wrappedBuffer(chunk)));
+            remaining -= chunk.length;
+        }
+        message.bufferBodyContents(new DefaultLastHttpContent());
+    }
+
+    @TearDown
+    public void tearDown() {
+        message.disposeBufferedBody();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int getBody_scan() {
+        byte[] body = message.getBody();
+        for (int i = 0; i < body.length; i++) {
+            if (body[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int getBodyView_scan() {
+        ByteBuf body = message.getBodyView();
+        return body.forEachByte(ByteProcessor.FIND_LF);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String getBodyAsText() {
+        return message.getBodyAsText();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int getBodyLength() {
+        return message.getBodyLength();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.zuul.message.http;
+
+import com.netflix.zuul.context.SessionContext;
+import com.netflix.zuul.message.Headers;
+import io.netty.handler.codec.http.Cookie;
+import io.netty.handler.codec.http.CookieDecoder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reads one or two cookies out of a large Cookie header, as filters typically do, through
+ * {@link HttpRequestMessageImpl#reParseCookies()} and through the deprecated Netty decoder it used to be built on.
+ */
+@State(Scope.Thread)
+public class CookiesBenchmark {
+
+    @Param({"512", "2048", "4096"})
+    public int headerSize;
+
+    private String cookieHeader;
+    private HttpRequestMessageImpl request;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        StringBuilder sb = new StringBuilder();
+        int n = 0;
+        while (sb.length() < headerSize) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append("cookie_").append(n++).append('=');
+            int valueLength = 8 + random.nextInt(120);
+            for (int i = 0; i < valueLength; i++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        sb.append("; session=abcdef0123456789; lang=en-US");
+        cookieHeader = sb.toString();
+        Headers headers = new Headers();
+        headers.add(HttpHeaderNames.COOKIE, cookieHeader);
+        request = new HttpRequestMessageImpl(new SessionContext(), "HTTP/1.1", "GET", "/", new HttpQueryParams(),
+                headers, "127.0.0.1", "https", 443, "localhost");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String reParseCookies_twoLookups() {
+        Cookies cookies = request.reParseCookies();
+        return cookies.getFirstValue("session") + cookies.getFirstValue("lang");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int reParseCookies_getAll() {
+        return request.reParseCookies().getAll().size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @SuppressWarnings("deprecation")
+    public String cookieDecoder_twoLookups() {
+        Cookies cookies = new Cookies();
+        for (Cookie cookie : CookieDecoder.decode(cookieHeader, false)) {
+            cookies.add(cookie);
+        }
+        return cookies.getFirstValue("session") + cookies.getFirstValue("lang");
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.zuul.message.http;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Follows the query string of a proxied request from parsing to the outbound request line, for routes that ignore,
+ * read, or modify the query params.
+ */
+@State(Scope.Thread)
+public class HttpQueryParamsBenchmark {
+
+    @Param({
+            "",
+            "id=12345&country=US",
+            "id=12345&country=US&lang=en-US&q=hello%20world&fields=a%2Cb%2Cc&page=2&size=50&sort=-date&debug=",
+    })
+    public String query;
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String untouched() {
+        HttpQueryParams params = HttpQueryParams.parse(query);
+        HttpQueryParams inbound = params.immutableCopy();
+        return params.toEncodedString() + inbound.toEncodedString();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String read() {
+        HttpQueryParams params = HttpQueryParams.parse(query);
+        HttpQueryParams inbound = params.immutableCopy();
+        return params.getFirst("country") + params.toEncodedString() + inbound.toEncodedString();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String modified() {
+        HttpQueryParams params = HttpQueryParams.parse(query);
+        HttpQueryParams inbound = params.immutableCopy();
+        params.set("country", "CA");
+        return params.toEncodedString() + inbound.toEncodedString();
+    }
+}
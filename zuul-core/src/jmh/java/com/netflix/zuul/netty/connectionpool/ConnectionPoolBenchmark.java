@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.zuul.passport.CurrentPassport;
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.local.LocalChannel;
+import io.netty.util.concurrent.Future;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures acquiring and releasing pooled connections on 16 event loops at once, each with a few hundred idle
+ * connections in the pool, for {@link PerServerConnectionPool} and {@link EventLoopConfinedConnectionPool}.
+ */
+@State(Scope.Benchmark)
+public class ConnectionPoolBenchmark {
+
+    private static final int EVENT_LOOPS = 16;
+    private static final int OPS_PER_LOOP = 1000;
+
+    @Param({"perServer", "eventLoopConfined"})
+    public String pool;
+
+    @Param({"256"})
+    public int idleConnectionsPerLoop;
+
+    private final Registry registry = new NoopRegistry();
+    private DefaultEventLoopGroup group;
+    private EventLoop[] loops;
+    private List<List<Channel>> channelsPerLoop;
+    private PerServerConnectionPool connectionPool;
+
+    @Setup
+    public void setUp() throws Exception {
+        group = new DefaultEventLoopGroup(EVENT_LOOPS);
+        loops = new EventLoop[EVENT_LOOPS];
+        channelsPerLoop = new ArrayList<>();
+        connectionPool = newPool();
+
+        Server server = new Server("localhost", 7001);
+        ServerStats stats = new ServerStats();
+        for (int i = 0; i < EVENT_LOOPS; i++) {
+            EventLoop loop = group.next();
+            loops[i] = loop;
+            List<Channel> channels = new ArrayList<>();
+            for (int j = 0; j < idleConnectionsPerLoop; j++) {
+                Channel channel = new LocalChannel();
+                loop.register(channel).sync();
+                channels.add(channel);
+                PooledConnection conn = new PooledConnection(channel, server, null, null, stats,
+                        registry.counter("close"), registry.counter("closeBusy"));
+                loop.submit(() -> connectionPool.release(conn)).sync();
+            }
+            channelsPerLoop.add(channels);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(EVENT_LOOPS * OPS_PER_LOOP)
+    public void acquireRelease() throws Exception {
+        Future<?>[] futures = new Future<?>[EVENT_LOOPS];
+        for (int i = 0; i < EVENT_LOOPS; i++) {
+            final EventLoop loop = loops[i];
+            final List<Channel> channels = channelsPerLoop.get(i);
+            futures[i] = loop.submit(() -> {
+                for (int n = 0; n < OPS_PER_LOOP; n++) {
+                    PooledConnection conn = connectionPool.tryGettingFromConnectionPool(loop);
+                    connectionPool.release(conn);
+                }
+                // Releasing adds to the channel's passport, which would otherwise keep growing.
+                for (Channel channel : channels) {
+                    CurrentPassport.create().setOnChannel(channel);
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.sync();
+        }
+    }
+
+    private PerServerConnectionPool newPool() {
+        ConnectionPoolConfig config = new ConnectionPoolConfigImpl("origin", new DefaultClientConfigImpl()) {
+            @Override
+            public int perServerWaterline() {
+                return -1;
+            }
+        };
+        Server server = new Server("localhost", 7001);
+        ServerStats stats = new ServerStats();
+        InetSocketAddress addr = new InetSocketAddress("localhost", 7001);
+        AtomicInteger connsInPool = new AtomicInteger();
+        AtomicInteger connsInUse = new AtomicInteger();
+        if (pool.equals("perServer")) {
+            return new PerServerConnectionPool(server, stats, null, addr, null, null, config, null,
+                    registry.counter("create"), registry.counter("createSuccess"), registry.counter("createFail"),
+                    registry.counter("request"), registry.counter("reuse"), registry.counter("notOpen"),
+                    registry.counter("maxConns"), registry.timer("establish"), connsInPool, connsInUse) {
+                @Override
+                protected boolean isValidFromPool(PooledConnection conn) {
+                    // The channels aren't connected to anything.
+                    return true;
+                }
+            };
+        }
+        return new EventLoopConfinedConnectionPool(server, stats, null, addr, null, null, config, null,
+                registry.counter("create"), registry.counter("createSuccess"), registry.counter("createFail"),
+                registry.counter("request"), registry.counter("reuse"), registry.counter("notOpen"),
+                registry.counter("maxConns"), registry.timer("establish"), connsInPool, connsInUse, new AtomicInteger(), registry.timer("wait")) {
+            @Override
+            protected boolean isValidFromPool(PooledConnection conn) {
+                return true;
+            }
+        };
+    }
+}
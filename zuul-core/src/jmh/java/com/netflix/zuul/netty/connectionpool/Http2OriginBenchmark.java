@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import com.netflix.client.config.CommonClientConfigKey;
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.loadbalancer.ConfigurationBasedServerList;
+import com.netflix.loadbalancer.DynamicServerListLoadBalancer;
+import com.netflix.spectator.api.NoopRegistry;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures bursts of concurrent requests through a {@link DefaultClientChannelManager} to an in-process origin on the
+ * loopback interface, over HTTP/1 with a connection per request in flight, or over HTTP/2 with a stream per request
+ * on a shared connection.  Also reports the number of connections the origin has accepted.
+ */
+@State(Scope.Benchmark)
+public class Http2OriginBenchmark {
+
+    private static final int EVENT_LOOPS = 2;
+    private static final int REQUESTS = 64;
+
+    @Param({"http1", "http2"})
+    public String protocol;
+
+    private final AtomicInteger originConnections = new AtomicInteger();
+    private Class<? extends Channel> previousChannelType;
+    private NioEventLoopGroup originGroup;
+    private NioEventLoopGroup clientGroup;
+    private Channel originChannel;
+    private DefaultClientChannelManager channelManager;
+
+    @Setup
+    public void setUp() throws Exception {
+        previousChannelType = com.netflix.zuul.netty.server.Server.defaultOutboundChannelType.get();
+        com.netflix.zuul.netty.server.Server.defaultOutboundChannelType.set(NioSocketChannel.class);
+        originGroup = new NioEventLoopGroup(1);
+        clientGroup = new NioEventLoopGroup(EVENT_LOOPS);
+        final boolean http2 = protocol.equals("http2");
+        originChannel = startOrigin(http2);
+        final int port = ((InetSocketAddress) originChannel.localAddress()).getPort();
+
+        final String originName = "benchmark_" + protocol;
+        ConfigurationManager.getConfigInstance().setProperty(originName + ".netty.client.http2", http2);
+        ConfigurationManager.getConfigInstance().setProperty(originName + ".netty.client.AutoRead", true);
+        // Keep every HTTP/1 connection, rather than reconnect for each burst.
+        ConfigurationManager.getConfigInstance().setProperty(originName + ".netty.client.perServerWaterline", -1);
+
+        DefaultClientConfigImpl clientConfig = DefaultClientConfigImpl.getClientConfigWithDefaultValues(originName);
+        clientConfig.set(CommonClientConfigKey.NFLoadBalancerClassName, DynamicServerListLoadBalancer.class.getName());
+        clientConfig.set(CommonClientConfigKey.NIWSServerListClassName, ConfigurationBasedServerList.class.getName());
+        clientConfig.set(CommonClientConfigKey.ListOfServers, "127.0.0.1:" + port);
+        clientConfig.set(CommonClientConfigKey.MaxConnectionsPerHost, -1);
+        channelManager = new DefaultClientChannelManager(originName, originName, clientConfig, new NoopRegistry());
+        channelManager.init();
+    }
+
+    @TearDown
+    public void tearDown() {
+        channelManager.shutdown();
+        originChannel.close().syncUninterruptibly();
+        clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        originGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        com.netflix.zuul.netty.server.Server.defaultOutboundChannelType.set(previousChannelType);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Connections {
+        /** Connections accepted by the origin so far. */
+        public long originConnections;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(REQUESTS)
+    public void concurrentRequests(Connections connections) throws Exception {
+        Future<?>[] responses = new Future<?>[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            EventLoop loop = clientGroup.next();
+            Promise<Void> response = loop.newPromise();
+            responses[i] = response;
+            loop.execute(() -> request(loop, response));
+        }
+        for (Future<?> response : responses) {
+            response.sync();
+        }
+        connections.originConnections = originConnections.get();
+    }
+
+    private void request(EventLoop loop, Promise<Void> response) {
+        channelManager.acquire(loop).addListener((Future<PooledConnection> f) -> {
+            if (!f.isSuccess()) {
+                response.setFailure(f.cause());
+                return;
+            }
+            Channel ch = f.getNow().getChannel();
+            ch.pipeline().addBefore("connectionPoolHandler", "responseReceiver", new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    if (msg instanceof LastHttpContent) {
+                        ctx.pipeline().remove(this);
+                        response.setSuccess(null);
+                    }
+                    ReferenceCountUtil.release(msg);
+                }
+            });
+            FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+            request.headers().set(HttpHeaderNames.HOST, "origin");
+            ch.writeAndFlush(request);
+        });
+    }
+
+    private Channel startOrigin(boolean http2) throws InterruptedException {
+        return new ServerBootstrap()
+                .group(originGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        originConnections.incrementAndGet();
+                        if (!http2) {
+                            ch.pipeline().addLast(new HttpServerCodec());
+                            ch.pipeline().addLast(new HttpObjectAggregator(1024));
+                            ch.pipeline().addLast(new OkHandler());
+                            return;
+                        }
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forServer().build());
+                        ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+                            @Override
+                            protected void initChannel(Channel stream) {
+                                stream.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+                                stream.pipeline().addLast(new HttpObjectAggregator(1024));
+                                stream.pipeline().addLast(new OkHandler());
+                            }
+                        }));
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .sync()
+                .channel();
+    }
+
+    private static final class OkHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            DefaultFullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+            ctx.writeAndFlush(response);
+        }
+    }
+}
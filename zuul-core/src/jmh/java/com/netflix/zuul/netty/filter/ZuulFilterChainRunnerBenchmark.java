@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.zuul.netty.filter;
+
+import com.netflix.zuul.Filter;
+import com.netflix.zuul.context.SessionContext;
+import com.netflix.zuul.filters.ZuulFilter;
+import com.netflix.zuul.filters.http.HttpInboundSyncFilter;
+import com.netflix.zuul.message.Headers;
+import com.netflix.zuul.message.http.HttpQueryParams;
+import com.netflix.zuul.message.http.HttpRequestMessage;
+import com.netflix.zuul.message.http.HttpRequestMessageImpl;
+import io.netty.handler.codec.http.HttpContent;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Runs a 60 filter inbound chain, where 10 filters apply to every request and the other 50 are split evenly across
+ * 5 path prefixes, with and without filter chain plans.
+ */
+@State(Scope.Thread)
+public class ZuulFilterChainRunnerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean plansEnabled;
+
+    @Param({"/a/resource", "/unrouted"})
+    public String path;
+
+    private ZuulFilterChainRunner<HttpRequestMessage> runner;
+    private BlackholeStage terminal;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        @SuppressWarnings("unchecked")
+        ZuulFilter<HttpRequestMessage, HttpRequestMessage>[] filters = new ZuulFilter[60];
+        int i = 0;
+        while (i < 10) {
+            filters[i++] = new GlobalFilter();
+        }
+        while (i < 20) {
+            filters[i++] = new AFilter();
+        }
+        while (i < 30) {
+            filters[i++] = new BFilter();
+        }
+        while (i < 40) {
+            filters[i++] = new CFilter();
+        }
+        while (i < 50) {
+            filters[i++] = new DFilter();
+        }
+        while (i < 60) {
+            filters[i++] = new EFilter();
+        }
+        terminal = new BlackholeStage(blackhole);
+        runner = new ZuulFilterChainRunner<>(filters, (filter, status) -> {}, terminal, plansEnabled);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void runChain() {
+        HttpRequestMessage request = new HttpRequestMessageImpl(new SessionContext(), "HTTP/1.1", "get", path,
+                new HttpQueryParams(), new Headers(), "127.0.0.1", "http", 7001, "localhost");
+        runner.filter(request);
+    }
+
+    private static final class BlackholeStage implements FilterRunner<HttpRequestMessage, HttpRequestMessage> {
+        private final Blackhole blackhole;
+
+        BlackholeStage(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void filter(HttpRequestMessage zuulMesg) {
+            blackhole.consume(zuulMesg);
+        }
+
+        @Override
+        public void filter(HttpRequestMessage zuulMesg, HttpContent chunk) {
+            blackhole.consume(chunk);
+        }
+    }
+
+    private abstract static class PrefixFilter extends HttpInboundSyncFilter {
+        private final String prefix;
+
+        PrefixFilter(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public int filterOrder() {
+            return 0;
+        }
+
+        @Override
+        public boolean shouldFilter(HttpRequestMessage msg) {
+            return msg.getPath().startsWith(prefix);
+        }
+
+        @Override
+        public HttpRequestMessage apply(HttpRequestMessage input) {
+            return input;
+        }
+    }
+
+    private static final class GlobalFilter extends PrefixFilter {
+        GlobalFilter() {
+            super("/");
+        }
+    }
+
+    @Filter.AppliesTo(pathPrefixes = "/a/")
+    private static final class AFilter extends PrefixFilter {
+        AFilter() {
+            super("/a/");
+        }
+    }
+
+    @Filter.AppliesTo(pathPrefixes = "/b/")
+    private static final class BFilter extends PrefixFilter {
+        BFilter() {
+            super("/b/");
+        }
+    }
+
+    @Filter.AppliesTo(pathPrefixes = "/c/")
+    private static final class CFilter extends PrefixFilter {
+        CFilter() {
+            super("/c/");
+        }
+    }
+
+    @Filter.AppliesTo(pathPrefixes = "/d/")
+    private static final class DFilter extends PrefixFilter {
+        DFilter() {
+            super("/d/");
+        }
+    }
+
+    @Filter.AppliesTo(pathPrefixes = "/e/")
+    private static final class EFilter extends PrefixFilter {
+        EFilter() {
+            super("/e/");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.server;
+
+import com.netflix.netty.common.CloseOnIdleStateHandler;
+import com.netflix.netty.common.HttpRequestReadTimeoutHandler;
+import com.netflix.netty.common.HttpServerLifecycleChannelHandler;
+import com.netflix.netty.common.channel.config.ChannelConfig;
+import com.netflix.netty.common.metrics.EventLoopGroupMetrics;
+import com.netflix.netty.common.metrics.HttpBodySizeRecordingChannelHandler;
+import com.netflix.netty.common.proxyprotocol.ElbProxyProtocolChannelHandler;
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.zuul.netty.insights.PassportStateHttpServerHandler;
+import com.netflix.zuul.netty.insights.PassportStateServerHandler;
+import com.netflix.zuul.netty.ratelimiting.NullChannelHandlerProvider;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of setting up a server connection's pipeline, up to but not including the Zuul filters.  With
+ * {@code shared} off, the stateless handlers are created for every connection, as they were before they were made
+ * sharable.  The gc profiler's normalized allocation rate is the heap each connection's pipeline costs.
+ */
+@State(Scope.Thread)
+public class ChannelInitializerBenchmark {
+
+    // The passport handlers only take one registry per JVM.
+    private static final Registry REGISTRY = new NoopRegistry();
+
+    @Param({"true", "false"})
+    public boolean shared;
+
+    private SharedHandlersInitializer init;
+
+    @Setup
+    public void setUp() {
+        ChannelConfig channelConfig = new ChannelConfig();
+        ChannelConfig channelDependencies = new ChannelConfig();
+        channelDependencies.set(ZuulDependencyKeys.registry, REGISTRY);
+        channelDependencies.set(ZuulDependencyKeys.eventLoopGroupMetrics, new EventLoopGroupMetrics(REGISTRY));
+        channelDependencies.set(
+                ZuulDependencyKeys.rateLimitingChannelHandlerProvider, new NullChannelHandlerProvider());
+        channelDependencies.set(
+                ZuulDependencyKeys.sslClientCertCheckChannelHandlerProvider, new NullChannelHandlerProvider());
+        DefaultChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        init = shared
+                ? new SharedHandlersInitializer(channelConfig, channelDependencies, channels)
+                : new PerChannelHandlersInitializer(channelConfig, channelDependencies, channels);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Channel initChannel() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        init.initChannel(channel);
+        // Closing the channel would cost more than setting it up, so it's left for the garbage collector.
+        return channel;
+    }
+
+    private static class SharedHandlersInitializer extends BaseZuulChannelInitializer {
+
+        SharedHandlersInitializer(
+                ChannelConfig channelConfig, ChannelConfig channelDependencies, DefaultChannelGroup channels) {
+            super("benchmark", channelConfig, channelDependencies, channels);
+        }
+
+        @Override
+        protected void initChannel(Channel ch) {
+            ChannelPipeline pipeline = ch.pipeline();
+            addPassportHandler(pipeline);
+            addTcpRelatedHandlers(pipeline);
+            addHttp1Handlers(pipeline);
+            addHttpRelatedHandlers(pipeline);
+            addTimeoutHandlers(pipeline);
+        }
+    }
+
+    private static final class PerChannelHandlersInitializer extends SharedHandlersInitializer {
+
+        PerChannelHandlersInitializer(
+                ChannelConfig channelConfig, ChannelConfig channelDependencies, DefaultChannelGroup channels) {
+            super(channelConfig, channelDependencies, channels);
+        }
+
+        @Override
+        protected void addPassportHandler(ChannelPipeline pipeline) {
+            pipeline.addLast(new PassportStateServerHandler.InboundHandler());
+            pipeline.addLast(new PassportStateServerHandler.OutboundHandler());
+        }
+
+        @Override
+        protected void addTcpRelatedHandlers(ChannelPipeline pipeline) {
+            pipeline.addLast(sourceAddressChannelHandler);
+            pipeline.addLast("channelMetrics", channelMetrics);
+            pipeline.addLast(perEventLoopConnectionMetricsHandler);
+            new ElbProxyProtocolChannelHandler(registry, withProxyProtocol).addProxyProtocol(pipeline);
+            pipeline.addLast(maxConnectionsHandler);
+        }
+
+        @Override
+        protected void addHttpRelatedHandlers(ChannelPipeline pipeline) {
+            pipeline.addLast(new PassportStateHttpServerHandler.InboundHandler());
+            pipeline.addLast(new PassportStateHttpServerHandler.OutboundHandler());
+            if (httpRequestReadTimeout > -1) {
+                HttpRequestReadTimeoutHandler.addLast(
+                        pipeline, httpRequestReadTimeout, TimeUnit.MILLISECONDS, httpRequestReadTimeoutCounter);
+            }
+            pipeline.addLast(new HttpServerLifecycleChannelHandler.HttpServerLifecycleInboundChannelHandler());
+            pipeline.addLast(new HttpServerLifecycleChannelHandler.HttpServerLifecycleOutboundChannelHandler());
+            pipeline.addLast(new HttpBodySizeRecordingChannelHandler.InboundChannelHandler());
+            pipeline.addLast(new HttpBodySizeRecordingChannelHandler.OutboundChannelHandler());
+            pipeline.addLast(httpMetricsHandler);
+            pipeline.addLast(perEventLoopRequestsMetricsHandler);
+            pipeline.addLast(stripInboundProxyHeadersHandler);
+        }
+
+        @Override
+        protected void addTimeoutHandlers(ChannelPipeline pipeline) {
+            pipeline.addLast(new IdleStateHandler(0, 0, idleTimeout, TimeUnit.MILLISECONDS));
+            pipeline.addLast(new CloseOnIdleStateHandler());
+        }
+    }
+}
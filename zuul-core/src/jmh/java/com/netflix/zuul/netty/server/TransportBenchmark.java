@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.server;
+
+import com.netflix.netty.common.CategorizedThreadFactory;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares the transports the server can use, with an echo server on the loopback interface.  Measures the round trip
+ * time of a small message on one connection, and the time per message for bursts across many connections.  Transports
+ * that aren't available fail their runs.
+ */
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+
+    private static final int EVENT_LOOPS = 2;
+    private static final int CONNECTIONS = 64;
+    private static final int MESSAGE_BYTES = 128;
+
+    @Param({"nio", "epoll", "io_uring"})
+    public String transport;
+
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private Channel serverChannel;
+    private Channel[] clients;
+    private Receiver[] receivers;
+    private ByteBuf message;
+
+    @Setup
+    public void setUp() throws Exception {
+        final Class<? extends ServerChannel> serverChannelType;
+        final Class<? extends Channel> channelType;
+        switch (transport) {
+            case "nio":
+                serverGroup = new NioEventLoopGroup(EVENT_LOOPS);
+                clientGroup = new NioEventLoopGroup(EVENT_LOOPS);
+                serverChannelType = NioServerSocketChannel.class;
+                channelType = NioSocketChannel.class;
+                break;
+            case "epoll":
+                Epoll.ensureAvailability();
+                serverGroup = new EpollEventLoopGroup(EVENT_LOOPS);
+                clientGroup = new EpollEventLoopGroup(EVENT_LOOPS);
+                serverChannelType = EpollServerSocketChannel.class;
+                channelType = EpollSocketChannel.class;
+                break;
+            case "io_uring":
+                if (!IoUringTransport.isAvailable()) {
+                    throw new IllegalStateException("io_uring is unavailable");
+                }
+                serverGroup = IoUringTransport.newEventLoopGroup(EVENT_LOOPS, new CategorizedThreadFactory("server"));
+                clientGroup = IoUringTransport.newEventLoopGroup(EVENT_LOOPS, new CategorizedThreadFactory("client"));
+                serverChannelType = IoUringTransport.serverChannelType();
+                channelType = IoUringTransport.socketChannelType();
+                break;
+            default:
+                throw new IllegalArgumentException(transport);
+        }
+
+        serverChannel = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(serverChannelType)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                ctx.writeAndFlush(msg);
+                            }
+                        });
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .sync()
+                .channel();
+
+        message = Unpooled.unreleasableBuffer(Unpooled.directBuffer(MESSAGE_BYTES).writeZero(MESSAGE_BYTES));
+        clients = new Channel[CONNECTIONS];
+        receivers = new Receiver[CONNECTIONS];
+        for (int i = 0; i < CONNECTIONS; i++) {
+            Receiver receiver = new Receiver();
+            receivers[i] = receiver;
+            clients[i] = new Bootstrap()
+                    .group(clientGroup)
+                    .channel(channelType)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(receiver);
+                        }
+                    })
+                    .connect(serverChannel.localAddress())
+                    .sync()
+                    .channel();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (Channel client : clients) {
+            client.close().syncUninterruptibly();
+        }
+        serverChannel.close().syncUninterruptibly();
+        clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        serverGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void roundTrip() throws Exception {
+        send(0).sync();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(CONNECTIONS)
+    public void concurrentRoundTrips() throws Exception {
+        Promise<?>[] echoes = new Promise<?>[CONNECTIONS];
+        for (int i = 0; i < CONNECTIONS; i++) {
+            echoes[i] = send(i);
+        }
+        for (Promise<?> echo : echoes) {
+            echo.sync();
+        }
+    }
+
+    private Promise<Void> send(int connection) {
+        Channel ch = clients[connection];
+        Promise<Void> echo = ch.eventLoop().newPromise();
+        ch.eventLoop().execute(() -> {
+            receivers[connection].expect(echo);
+            ch.writeAndFlush(message.duplicate());
+        });
+        return echo;
+    }
+
+    /**
+     * Completes the expected echo once all of the message has come back, however it's split up.
+     */
+    private static final class Receiver extends ChannelInboundHandlerAdapter {
+        private Promise<Void> echo;
+        private int remaining;
+
+        void expect(Promise<Void> echo) {
+            this.echo = echo;
+            this.remaining = MESSAGE_BYTES;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            remaining -= ((ByteBuf) msg).readableBytes();
+            ReferenceCountUtil.release(msg);
+            if (remaining == 0) {
+                echo.setSuccess(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.zuul.passport;
+
+import static com.netflix.zuul.passport.PassportState.*;
+
+import com.google.common.base.Ticker;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Records the states of a typical proxied request and then runs the lookups done when logging it, once with
+ * {@link CurrentPassport} and once with the linked list of {@link PassportItem}s it used to be backed by.  Run with
+ * {@code -prof gc} to compare the allocation per request.
+ */
+@State(Scope.Thread)
+public class CurrentPassportBenchmark {
+
+    private static final PassportState[] REQUEST_STATES = {
+            SERVER_CH_ACTIVE, SERVER_CH_SSL_HANDSHAKE_COMPLETE,
+            IN_REQ_HEADERS_RECEIVED, IN_REQ_LAST_CONTENT_RECEIVED,
+            FILTERS_INBOUND_START, MISC_IO_START, MISC_IO_STOP, FILTERS_INBOUND_END,
+            ORIGIN_CONN_ACQUIRE_START, ORIGIN_CH_CONNECTING, ORIGIN_CH_CONNECTED, ORIGIN_CH_ACTIVE,
+            ORIGIN_CONN_ACQUIRE_END,
+            OUT_REQ_HEADERS_SENDING, OUT_REQ_HEADERS_SENT, OUT_REQ_LAST_CONTENT_SENDING, OUT_REQ_LAST_CONTENT_SENT,
+            IN_RESP_HEADERS_RECEIVED, IN_RESP_LAST_CONTENT_RECEIVED, ORIGIN_CH_POOL_RETURNED,
+            FILTERS_OUTBOUND_START, MISC_IO_START, MISC_IO_STOP, FILTERS_OUTBOUND_END,
+            OUT_RESP_HEADERS_SENDING, OUT_RESP_HEADERS_SENT, OUT_RESP_LAST_CONTENT_SENDING, OUT_RESP_LAST_CONTENT_SENT,
+    };
+
+    private final Ticker ticker = new Ticker() {
+        private long now;
+
+        @Override
+        public long read() {
+            return now += 1000;
+        }
+    };
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long currentPassport() {
+        CurrentPassport passport = new CurrentPassport(ticker);
+        for (PassportState state : REQUEST_STATES) {
+            passport.add(state);
+        }
+        passport.addIfNotAlready(IN_REQ_LAST_CONTENT_RECEIVED);
+
+        long total = passport.calculateTimeBetween(
+                passport.findStartAndEndStates(IN_REQ_HEADERS_RECEIVED, OUT_RESP_LAST_CONTENT_SENT));
+        total += passport.calculateTimeBetween(
+                passport.findFirstStartAndLastEndStates(FILTERS_INBOUND_START, FILTERS_OUTBOUND_END));
+        total += passport.calculateTimeBetweenFirstAnd(OUT_REQ_HEADERS_SENT);
+        total += passport.findEachPairOf(MISC_IO_START, MISC_IO_STOP).size();
+        return passport.wasProxyAttempt() ? total : -total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long linkedListPassport() {
+        LinkedListPassport passport = new LinkedListPassport(ticker);
+        for (PassportState state : REQUEST_STATES) {
+            passport.add(state);
+        }
+        passport.addIfNotAlready(IN_REQ_LAST_CONTENT_RECEIVED);
+
+        long total = passport.timeBetween(IN_REQ_HEADERS_RECEIVED, OUT_RESP_LAST_CONTENT_SENT, false);
+        total += passport.timeBetween(FILTERS_INBOUND_START, FILTERS_OUTBOUND_END, true);
+        total += passport.timeBetweenFirstAnd(OUT_REQ_HEADERS_SENT);
+        total += passport.countPairs(MISC_IO_START, MISC_IO_STOP);
+        return passport.findState(OUT_REQ_HEADERS_SENDING) != null ? total : -total;
+    }
+
+    /**
+     * The previous storage of {@link CurrentPassport}, reduced to the operations used above.
+     */
+    private static final class LinkedListPassport {
+        private final Ticker ticker;
+        private final LinkedList<PassportItem> history = new LinkedList<>();
+        private final HashSet<PassportState> statesAdded = new HashSet<>();
+
+        LinkedListPassport(Ticker ticker) {
+            this.ticker = ticker;
+        }
+
+        void add(PassportState state) {
+            history.addLast(new PassportItem(state, ticker.read()));
+            statesAdded.add(state);
+        }
+
+        void addIfNotAlready(PassportState state) {
+            if (!statesAdded.contains(state)) {
+                add(state);
+            }
+        }
+
+        PassportItem findState(PassportState state) {
+            for (PassportItem item : history) {
+                if (item.getState() == state) {
+                    return item;
+                }
+            }
+            return null;
+        }
+
+        long timeBetweenFirstAnd(PassportState endState) {
+            long startTime = history.getFirst().getTime();
+            for (PassportItem item : history) {
+                if (item.getState() == endState) {
+                    return item.getTime() - startTime;
+                }
+            }
+            return ticker.read() - startTime;
+        }
+
+        long timeBetween(PassportState startState, PassportState endState, boolean firstStart) {
+            StartAndEnd sae = new StartAndEnd();
+            for (PassportItem item : history) {
+                if (item.getState() == startState && (!firstStart || sae.startNotFound())) {
+                    sae.startTime = item.getTime();
+                } else if (item.getState() == endState) {
+                    sae.endTime = item.getTime();
+                }
+            }
+            return sae.startNotFound() || sae.endNotFound() ? 0 : sae.endTime - sae.startTime;
+        }
+
+        int countPairs(PassportState startState, PassportState endState) {
+            int pairs = 0;
+            boolean started = false;
+            for (PassportItem item : history) {
+                if (item.getState() == startState) {
+                    started = true;
+                } else if (item.getState() == endState && started) {
+                    pairs++;
+                    started = false;
+                }
+            }
+            return pairs;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.zuul.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Gzips 1MB of text-like content arriving in direct chunks, as response bodies do, with {@link Gzipper} and
+ * {@link GzipCompressor}.  Run with {@code -prof gc} to compare the allocation per MB.
+ */
+@State(Scope.Thread)
+public class GzipBenchmark {
+
+    private static final int BODY_SIZE = 1024 * 1024;
+
+    @Param({"8192", "65536"})
+    public int chunkSize;
+
+    @Param({"true", "false"})
+    public boolean flushEveryChunk;
+
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+    private ByteBuf[] chunks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        String[] words = {"zuul", "netflix", "gateway", "filter", "origin", "request", "response", "{\"id\":", "},"};
+        chunks = new ByteBuf[BODY_SIZE / chunkSize];
+        for (int i = 0; i < chunks.length; i++) {
+            ByteBuf chunk = alloc.directBuffer(chunkSize);
+            while (chunk.isWritable()) {
+                byte[] word = words[random.nextInt(words.length)].getBytes();
+                chunk.writeBytes(word, 0, Math.min(word.length, chunk.writableBytes()));
+            }
+            chunks[i] = chunk;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (ByteBuf chunk : chunks) {
+            chunk.release();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @SuppressWarnings("deprecation")
+    public long gzipper() {
+        // Gzipper always flushes every chunk.
+        Gzipper gzipper = new Gzipper();
+        long total = 0;
+        for (ByteBuf chunk : chunks) {
+            HttpContent content = new DefaultHttpContent(chunk.retainedDuplicate());
+            gzipper.write(content);
+            ByteBuf out = gzipper.getByteBuf();
+            total += out.readableBytes();
+            out.release();
+        }
+        gzipper.finish();
+        ByteBuf out = gzipper.getByteBuf();
+        total += out.readableBytes();
+        out.release();
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long gzipCompressor() {
+        GzipCompressor compressor = new GzipCompressor(alloc, Deflater.DEFAULT_COMPRESSION, flushEveryChunk);
+        long total = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            ByteBuf out = compressor.compress(chunks[i], i == chunks.length - 1);
+            total += out.readableBytes();
+            out.release();
+        }
+        return total;
+    }
+}
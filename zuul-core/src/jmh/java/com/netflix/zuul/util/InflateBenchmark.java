@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+package com.netflix.zuul.util;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Inflates a gzipped 1MB request body arriving in chunks, either by buffering the compressed body and reading it
+ * through a {@link GZIPInputStream} into a {@code byte[]}, or chunk by chunk with a {@link BoundedInflater}.  Run with
+ * {@code -prof gc} to compare the allocation per request.
+ */
+@State(Scope.Thread)
+public class InflateBenchmark {
+
+    private static final int BODY_SIZE = 1024 * 1024;
+
+    @Param({"8192", "65536"})
+    public int chunkSize;
+
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+    private ByteBuf[] chunks;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        String[] words = {"zuul", "netflix", "gateway", "filter", "origin", "request", "response", "{\"id\":", "},"};
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            int written = 0;
+            while (written < BODY_SIZE) {
+                byte[] word = words[random.nextInt(words.length)].getBytes();
+                gzip.write(word);
+                written += word.length;
+            }
+        }
+
+        byte[] bytes = compressed.toByteArray();
+        chunks = new ByteBuf[(bytes.length + chunkSize - 1) / chunkSize];
+        for (int i = 0; i < chunks.length; i++) {
+            int offset = i * chunkSize;
+            int length = Math.min(chunkSize, bytes.length - offset);
+            chunks[i] = alloc.directBuffer(length).writeBytes(bytes, offset, length);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (ByteBuf chunk : chunks) {
+            chunk.release();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int bufferAndGunzip() throws IOException {
+        CompositeByteBuf body = Unpooled.compositeBuffer(chunks.length);
+        for (ByteBuf chunk : chunks) {
+            body.addComponent(true, chunk.retainedDuplicate());
+        }
+        byte[] compressed = new byte[body.readableBytes()];
+        body.readBytes(compressed);
+        body.release();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+                ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray().length;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long boundedInflater() throws ZipException {
+        BoundedInflater inflater = new BoundedInflater(alloc, BoundedInflater.Format.GZIP, BODY_SIZE * 2);
+        long total = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            ByteBuf out = inflater.inflate(chunks[i], i == chunks.length - 1);
+            total += out.readableBytes();
+            out.release();
+        }
+        return total;
+    }
+}
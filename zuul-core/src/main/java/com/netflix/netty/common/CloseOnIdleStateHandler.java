@@ -15,6 +15,7 @@
  */
 package com.netflix.netty.common;
 
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.timeout.IdleStateEvent;
@@ -22,8 +23,11 @@ import io.netty.handler.timeout.IdleStateEvent;
 /**
  * Just listens for the IdleStateEvent and closes the channel if received.
  */
+@ChannelHandler.Sharable
 public class CloseOnIdleStateHandler extends ChannelInboundHandlerAdapter
 {
+    public static final CloseOnIdleStateHandler INSTANCE = new CloseOnIdleStateHandler();
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception
     {
@@ -17,6 +17,7 @@
 package com.netflix.netty.common;
 
 import com.netflix.zuul.passport.PassportState;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -31,6 +32,10 @@ import io.netty.handler.codec.http.LastHttpContent;
  */
 public final class HttpServerLifecycleChannelHandler extends HttpLifecycleChannelHandler
 {
+    public static final ChannelHandler INBOUND_CHANNEL_HANDLER = new HttpServerLifecycleInboundChannelHandler();
+    public static final ChannelHandler OUTBOUND_CHANNEL_HANDLER = new HttpServerLifecycleOutboundChannelHandler();
+
+    @ChannelHandler.Sharable
     public static final class HttpServerLifecycleInboundChannelHandler extends ChannelInboundHandlerAdapter
     {
         @Override
@@ -58,6 +63,7 @@ public final class HttpServerLifecycleChannelHandler extends HttpLifecycleChanne
 
     }
 
+    @ChannelHandler.Sharable
     public static final class HttpServerLifecycleOutboundChannelHandler extends ChannelOutboundHandlerAdapter
     {
         @Override
@@ -16,26 +16,27 @@
 
 package com.netflix.netty.common;
 
+import com.netflix.netty.common.metrics.EventLoopConnections;
 import com.netflix.netty.common.metrics.EventLoopGroupMetrics;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorChooserFactory;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
+ * Chooses the event loop for each new connection by picking two at random and taking the one with fewer connections.
+ * That keeps the connections about as even as always taking the least loaded event loop, but without scanning all of
+ * them, and without every acceptor piling onto the same one before its count catches up.
+ *
+ * <p>The counts are kept in {@link EventLoopConnections} by each event loop's position in the group, so choosing
+ * takes no locks and allocates nothing.
+ *
  * User: michaels@netflix.com
  * Date: 2/7/17
  * Time: 2:44 PM
  */
 public class LeastConnsEventLoopChooserFactory implements EventExecutorChooserFactory
 {
-    private static final Logger LOG = LoggerFactory.getLogger(LeastConnsEventLoopChooserFactory.class);
     private final EventLoopGroupMetrics groupMetrics;
 
     public LeastConnsEventLoopChooserFactory(EventLoopGroupMetrics groupMetrics)
@@ -46,58 +47,35 @@ public class LeastConnsEventLoopChooserFactory implements EventExecutorChooserFa
     @Override
     public EventExecutorChooser newChooser(EventExecutor[] executors)
     {
-        return new LeastConnsEventExecutorChooser(executors, groupMetrics);
+        return new LeastConnsEventExecutorChooser(groupMetrics.trackConnections(executors));
     }
 
     private static class LeastConnsEventExecutorChooser implements EventExecutorChooser
     {
-        private final List<EventExecutor> executors;
-        private final EventLoopGroupMetrics groupMetrics;
+        private final EventLoopConnections connections;
 
-        public LeastConnsEventExecutorChooser(EventExecutor[] executors, final EventLoopGroupMetrics groupMetrics)
+        public LeastConnsEventExecutorChooser(EventLoopConnections connections)
         {
-            this.executors = Arrays.asList(executors);
-            this.groupMetrics = groupMetrics;
+            this.connections = connections;
         }
 
         @Override
         public EventExecutor next()
         {
-            return chooseWithLeastConns();
+            return connections.executor(chooseWithLeastConns());
         }
 
-        private EventExecutor chooseWithLeastConns()
+        private int chooseWithLeastConns()
         {
-            EventExecutor leastExec = null;
-            int leastValue = Integer.MAX_VALUE;
-            
-            Map<Thread, Integer> connsPer = groupMetrics.connectionsPerEventLoop();
-
-            // Shuffle the list of executors each time so that if they all have the same number of connections, then
-            // we don't favour the 1st one.
-            Collections.shuffle(executors, ThreadLocalRandom.current());
-            
-            for (EventExecutor executor : executors)
-            {
-                int value = connsPer.getOrDefault(executor, 0);
-                if (value < leastValue) {
-                    leastValue = value;
-                    leastExec = executor;
-                }
-            }
-
-            // If none chosen, then just use first.
-            if (leastExec == null) {
-                leastExec = executors.get(0);
-            }
-
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Chose eventloop: " + String.valueOf(leastExec)
-                        + ", leastValue=" + leastValue
-                        + ", connsPer=" + String.valueOf(connsPer));
+            final int size = connections.size();
+            if (size == 1) {
+                return 0;
             }
-
-            return leastExec;
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int first = random.nextInt(size);
+            // Any of the others, so the two are never the same.
+            final int second = (first + 1 + random.nextInt(size - 1)) % size;
+            return (connections.get(second) < connections.get(first)) ? second : first;
         }
     }
 }
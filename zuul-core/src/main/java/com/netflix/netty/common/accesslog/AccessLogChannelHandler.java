@@ -17,6 +17,7 @@
 package com.netflix.netty.common.accesslog;
 
 import com.netflix.netty.common.SourceAddressChannelHandler;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -41,6 +42,9 @@ public final class AccessLogChannelHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(AccessLogChannelHandler.class);
 
+    public static final ChannelHandler OUTBOUND_CHANNEL_HANDLER = new AccessLogOutboundChannelHandler();
+
+    @ChannelHandler.Sharable
     public static final class AccessLogInboundChannelHandler extends ChannelInboundHandlerAdapter
     {
         private final AccessLogPublisher publisher;
@@ -100,6 +104,7 @@ public final class AccessLogChannelHandler {
         }
     }
 
+    @ChannelHandler.Sharable
     public static final class AccessLogOutboundChannelHandler extends ChannelOutboundHandlerAdapter
     {
         @Override
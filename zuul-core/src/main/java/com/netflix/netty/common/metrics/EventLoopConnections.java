@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.netty.common.metrics;
+
+import io.netty.util.concurrent.EventExecutor;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The number of connections on each event loop of a group, indexed by the event loop's position in the group.
+ *
+ * <p>Each count is written by its own event loop, and read by whichever thread is choosing an event loop for a new
+ * connection, so the counts are spaced a cache line apart to keep event loops from invalidating each other's.
+ */
+public final class EventLoopConnections
+{
+    // 128 bytes, so adjacent line prefetching doesn't share them either.
+    private static final int PADDING = 16;
+
+    private final EventExecutor[] executors;
+    private final AtomicLongArray counts;
+
+    public EventLoopConnections(EventExecutor[] executors)
+    {
+        this.executors = executors.clone();
+        this.counts = new AtomicLongArray((executors.length + 1) * PADDING);
+    }
+
+    public int size()
+    {
+        return executors.length;
+    }
+
+    public EventExecutor executor(int index)
+    {
+        return executors[index];
+    }
+
+    /**
+     * The index of the given event loop, or -1 if it isn't in the group.
+     */
+    public int indexOf(EventExecutor executor)
+    {
+        for (int i = 0; i < executors.length; i++) {
+            if (executors[i] == executor) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The index of the event loop running the current thread, or -1 if it isn't one of the group's.
+     */
+    public int indexOfCurrentEventLoop()
+    {
+        for (int i = 0; i < executors.length; i++) {
+            if (executors[i].inEventLoop()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long get(int index)
+    {
+        return counts.get(slot(index));
+    }
+
+    public void increment(int index)
+    {
+        counts.incrementAndGet(slot(index));
+    }
+
+    public void decrement(int index)
+    {
+        counts.decrementAndGet(slot(index));
+    }
+
+    private static int slot(int index)
+    {
+        return (index + 1) * PADDING;
+    }
+}
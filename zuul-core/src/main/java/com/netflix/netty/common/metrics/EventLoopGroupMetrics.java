@@ -17,11 +17,13 @@
 package com.netflix.netty.common.metrics;
 
 import com.netflix.spectator.api.Registry;
+import io.netty.util.concurrent.EventExecutor;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * User: michaels@netflix.com
@@ -32,8 +34,9 @@ import java.util.Map;
 public class EventLoopGroupMetrics
 {
     private final ThreadLocal<EventLoopMetrics> metricsForCurrentThread;
-    private final Map<Thread, EventLoopMetrics> byEventLoop = new HashMap<>();
+    private final Map<Thread, EventLoopMetrics> byEventLoop = new ConcurrentHashMap<>();
     private final Registry registry;
+    private volatile EventLoopConnections eventLoopConnections;
 
     @Inject
     public EventLoopGroupMetrics(Registry registry)
@@ -42,12 +45,33 @@ public class EventLoopGroupMetrics
         this.metricsForCurrentThread = ThreadLocal.withInitial(() ->
         {
             String name = nameForCurrentEventLoop();
-            EventLoopMetrics metrics = new EventLoopMetrics(registry, name);
+            EventLoopConnections connections = eventLoopConnections;
+            int index = (connections != null) ? connections.indexOfCurrentEventLoop() : -1;
+            EventLoopMetrics metrics = new EventLoopMetrics(registry, name, connections, index);
             byEventLoop.put(Thread.currentThread(), metrics);
             return metrics;
         });
     }
 
+    /**
+     * Starts counting the connections on each of the given event loops by their position in the group, for choosing
+     * between them without looking them up.
+     */
+    public EventLoopConnections trackConnections(EventExecutor[] executors)
+    {
+        EventLoopConnections connections = new EventLoopConnections(executors);
+        eventLoopConnections = connections;
+        return connections;
+    }
+
+    /**
+     * The connections counted since {@link #trackConnections}, or null if they aren't counted.
+     */
+    public EventLoopConnections getEventLoopConnections()
+    {
+        return eventLoopConnections;
+    }
+
     public Map<Thread, Integer> connectionsPerEventLoop()
     {
         Map<Thread, Integer> map = new HashMap<>(byEventLoop.size());
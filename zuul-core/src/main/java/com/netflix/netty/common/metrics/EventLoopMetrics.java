@@ -36,9 +36,23 @@ public class EventLoopMetrics implements EventLoopGroupMetrics.EventLoopInfo
     private final Id currentRequestsId;
     private final Id currentConnectionsId;
 
+    private final EventLoopConnections connections;
+    private final int connectionsIndex;
+
     public EventLoopMetrics(Registry registry, String eventLoopName)
+    {
+        this(registry, eventLoopName, null, -1);
+    }
+
+    /**
+     * @param connections to also count this event loop's connections in, if not null.
+     * @param connectionsIndex of this event loop in {@code connections}, or -1 if it isn't there.
+     */
+    public EventLoopMetrics(Registry registry, String eventLoopName, EventLoopConnections connections, int connectionsIndex)
     {
         this.name = eventLoopName;
+        this.connections = connections;
+        this.connectionsIndex = connectionsIndex;
 
         this.registry = registry;
         this.currentRequestsId = this.registry.createId("server.eventloop.http.requests.current");
@@ -72,12 +86,18 @@ public class EventLoopMetrics implements EventLoopGroupMetrics.EventLoopInfo
     public void incrementCurrentConnections()
     {
         int value = this.currentConnections.incrementAndGet();
+        if (connectionsIndex >= 0) {
+            connections.increment(connectionsIndex);
+        }
         updateGauge(currentConnectionsId, value);
     }
 
     public void decrementCurrentConnections()
     {
         int value = this.currentConnections.decrementAndGet();
+        if (connectionsIndex >= 0) {
+            connections.decrement(connectionsIndex);
+        }
         updateGauge(currentConnectionsId, value);
     }
 
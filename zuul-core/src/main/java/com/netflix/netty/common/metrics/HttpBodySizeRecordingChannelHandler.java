@@ -18,6 +18,7 @@ package com.netflix.netty.common.metrics;
 
 import com.netflix.netty.common.HttpLifecycleChannelHandler;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -34,6 +35,9 @@ import javax.inject.Provider;
  * Time: 3:51 PM
  */
 public final class HttpBodySizeRecordingChannelHandler {
+    public static final ChannelHandler INBOUND_CHANNEL_HANDLER = new InboundChannelHandler();
+    public static final ChannelHandler OUTBOUND_CHANNEL_HANDLER = new OutboundChannelHandler();
+
     private static final AttributeKey<State> ATTR_STATE = AttributeKey.newInstance("_http_body_size_state");
 
     public static Provider<Long> getCurrentInboundBodySize(Channel ch)
@@ -62,6 +66,7 @@ public final class HttpBodySizeRecordingChannelHandler {
         return state;
     }
 
+    @ChannelHandler.Sharable
     public static final class InboundChannelHandler extends ChannelInboundHandlerAdapter
     {
         @Override
@@ -99,6 +104,7 @@ public final class HttpBodySizeRecordingChannelHandler {
         }
     }
 
+    @ChannelHandler.Sharable
     public static final class OutboundChannelHandler extends ChannelOutboundHandlerAdapter
     {
         @Override
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.netty.common.metrics;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * Counts the connections accepted by a listening server channel.  When several listeners share a port, each has its
+ * own count, which shows how evenly the kernel spreads connections across them.
+ */
+public class ListenerMetrics extends ChannelInboundHandlerAdapter
+{
+    private final Counter accepted;
+
+    public ListenerMetrics(String id, int listener, Registry registry)
+    {
+        accepted = registry.counter("server.listener.accepts", "id", id, "listener", Integer.toString(listener));
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+    {
+        // Reads on a server channel are the channels it has accepted.
+        accepted.increment();
+        super.channelRead(ctx, msg);
+    }
+}
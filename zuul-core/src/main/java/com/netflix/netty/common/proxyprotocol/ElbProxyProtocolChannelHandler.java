@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
@@ -30,7 +31,10 @@ import javax.annotation.Nullable;
 /**
  * Decides if we need to decode a HAProxyMessage. If so, adds the decoder followed by the handler.
  * Else, removes itself from the pipeline.
+ *
+ * <p>One instance can be shared by all of a server's channels, as it only ever changes the pipeline it's called from.
  */
+@ChannelHandler.Sharable
 public final class ElbProxyProtocolChannelHandler extends ChannelInboundHandlerAdapter {
 
     public static final String NAME = ElbProxyProtocolChannelHandler.class.getSimpleName();
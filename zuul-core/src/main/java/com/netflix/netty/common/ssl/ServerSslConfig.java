@@ -16,7 +16,9 @@
 
 package com.netflix.netty.common.ssl;
 
+import com.netflix.config.DynamicIntProperty;
 import com.netflix.config.DynamicLongProperty;
+import com.netflix.config.DynamicStringProperty;
 import io.netty.handler.ssl.ClientAuth;
 import java.io.File;
 import java.security.NoSuchAlgorithmException;
@@ -33,6 +35,16 @@ import javax.net.ssl.SSLSocketFactory;
 public class ServerSslConfig {
     private static final DynamicLongProperty DEFAULT_SESSION_TIMEOUT =
             new DynamicLongProperty("server.ssl.session.timeout", (18 * 60));  // 18 hours
+    // 0 uses the SslProvider's default.
+    private static final DynamicIntProperty DEFAULT_SESSION_CACHE_SIZE =
+            new DynamicIntProperty("server.ssl.session.cache.size", 0);
+    // A file or directory of session ticket keys shared with the other servers.  Unset generates keys locally.
+    private static final DynamicStringProperty DEFAULT_SESSION_TICKET_KEYS =
+            new DynamicStringProperty("server.ssl.session.tickets.keys", null);
+    private static final DynamicLongProperty DEFAULT_SESSION_TICKET_KEY_ROTATION =
+            new DynamicLongProperty("server.ssl.session.tickets.rotation", 60 * 60);  // 1 hour
+    private static final DynamicLongProperty DEFAULT_SESSION_TICKET_KEY_GRACE =
+            new DynamicLongProperty("server.ssl.session.tickets.grace", 2 * 60 * 60);  // 2 hours
 
     private static final String[] DEFAULT_CIPHERS;
     static {
@@ -57,7 +69,11 @@ public class ServerSslConfig {
     private final File clientAuthTrustStorePasswordFile;
 
     private final long sessionTimeout;
+    private final int sessionCacheSize;
     private final boolean sessionTicketsEnabled;
+    private final File sessionTicketKeysFile;
+    private final long sessionTicketKeyRotation;
+    private final long sessionTicketKeyGrace;
 
     public ServerSslConfig(String[] protocols, String[] ciphers, File certChainFile, File keyFile) {
         this(protocols, ciphers, certChainFile, keyFile, ClientAuth.NONE, null, (File) null, false);
@@ -80,7 +96,13 @@ public class ServerSslConfig {
         this.clientAuthTrustStorePassword = null;
         this.clientAuthTrustStorePasswordFile = clientAuthTrustStorePasswordFile;
         this.sessionTimeout = DEFAULT_SESSION_TIMEOUT.get();
+        this.sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE.get();
         this.sessionTicketsEnabled = sessionTicketsEnabled;
+        this.sessionTicketKeysFile = DEFAULT_SESSION_TICKET_KEYS.get() != null
+                ? new File(DEFAULT_SESSION_TICKET_KEYS.get())
+                : null;
+        this.sessionTicketKeyRotation = DEFAULT_SESSION_TICKET_KEY_ROTATION.get();
+        this.sessionTicketKeyGrace = DEFAULT_SESSION_TICKET_KEY_GRACE.get();
     }
 
     public ServerSslConfig(
@@ -95,7 +117,13 @@ public class ServerSslConfig {
         this.clientAuthTrustStorePassword = clientAuthTrustStorePassword;
         this.clientAuthTrustStorePasswordFile = null;
         this.sessionTimeout = DEFAULT_SESSION_TIMEOUT.get();
+        this.sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE.get();
         this.sessionTicketsEnabled = sessionTicketsEnabled;
+        this.sessionTicketKeysFile = DEFAULT_SESSION_TICKET_KEYS.get() != null
+                ? new File(DEFAULT_SESSION_TICKET_KEYS.get())
+                : null;
+        this.sessionTicketKeyRotation = DEFAULT_SESSION_TICKET_KEY_ROTATION.get();
+        this.sessionTicketKeyGrace = DEFAULT_SESSION_TICKET_KEY_GRACE.get();
     }
 
     public static String[] getDefaultCiphers()
@@ -153,11 +181,40 @@ public class ServerSslConfig {
         return sessionTimeout;
     }
 
+    public int getSessionCacheSize()
+    {
+        return sessionCacheSize;
+    }
+
     public boolean sessionTicketsEnabled()
     {
         return sessionTicketsEnabled;
     }
 
+    /**
+     * The file or directory to read session ticket keys from, or null to generate them.
+     */
+    public File getSessionTicketKeysFile()
+    {
+        return sessionTicketKeysFile;
+    }
+
+    /**
+     * How often, in seconds, to reread or regenerate the session ticket keys.
+     */
+    public long getSessionTicketKeyRotation()
+    {
+        return sessionTicketKeyRotation;
+    }
+
+    /**
+     * How long, in seconds, a replaced session ticket key still decrypts tickets for.
+     */
+    public long getSessionTicketKeyGrace()
+    {
+        return sessionTicketKeyGrace;
+    }
+
     @Override
     public String toString()
     {
@@ -169,7 +226,9 @@ public class ServerSslConfig {
                 ", clientAuth=" + clientAuth +
                 ", clientAuthTrustStoreFile=" + clientAuthTrustStoreFile +
                 ", sessionTimeout=" + sessionTimeout +
+                ", sessionCacheSize=" + sessionCacheSize +
                 ", sessionTicketsEnabled=" + sessionTicketsEnabled +
+                ", sessionTicketKeysFile=" + sessionTicketKeysFile +
                 '}';
     }
 }
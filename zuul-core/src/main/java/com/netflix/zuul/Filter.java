@@ -90,4 +90,32 @@ public @interface Filter {
     @interface ApplyBefore {
         Class<? extends ZuulFilter<?, ?>>[] value();
     }
+
+    /**
+     * Declares which requests the annotated filter can apply to, so that filter chains with planning enabled can leave
+     * it out entirely for other requests, without calling {@link ZuulFilter#shouldFilter}.  A request must match every
+     * non-empty attribute.  For outbound filters, the attributes are matched against the inbound request.
+     *
+     * <p>Filters using this annotation should not depend on being invoked, or being reported as skipped, for requests
+     * outside of the declared scope.
+     */
+    @Target({TYPE})
+    @Retention(RUNTIME)
+    @Documented
+    @interface AppliesTo {
+        /**
+         * The HTTP methods, compared case insensitively.  Empty means any method.
+         */
+        String[] methods() default {};
+
+        /**
+         * The request path prefixes.  Empty means any path.
+         */
+        String[] pathPrefixes() default {};
+
+        /**
+         * The local server ports.  Empty means any port.
+         */
+        int[] ports() default {};
+    }
 }
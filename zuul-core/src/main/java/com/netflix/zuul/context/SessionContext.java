@@ -30,6 +30,8 @@ import com.netflix.zuul.util.DeepCopy;
 import java.io.NotSerializableException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 
 /**
  * Represents the context between client and origin server for the duration of the dedicated connection/session
@@ -53,6 +55,9 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
 
     private Timings timings = new Timings();
 
+    /** Values stored under {@link Key}s, indexed by {@link Key#index}.  Allocated on first use. */
+    private Object[] slots;
+
 
     private static final String KEY_UUID = "_uuid";
     private static final String KEY_VIP = "routeVIP";
@@ -80,7 +85,88 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
     @Override
     public SessionContext clone()
     {
-        return (SessionContext) super.clone();
+        SessionContext clone = (SessionContext) super.clone();
+        if (slots != null) {
+            clone.slots = slots.clone();
+        }
+        return clone;
+    }
+
+    /**
+     * A typed key for values stored in a SessionContext.  Each key is assigned a fixed slot when it is created, so
+     * values are read and written by array index rather than by hashing a String.  Values stored under a Key are
+     * not visible through the Map view of the context.
+     *
+     * Slots are never reclaimed, so keys should be created once and held in static fields.
+     */
+    public static final class Key<T> {
+        private static final AtomicInteger nextIndex = new AtomicInteger();
+
+        private final String name;
+        private final int index;
+
+        private Key(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.index = nextIndex.getAndIncrement();
+        }
+
+        public static <T> Key<T> newKey(String name) {
+            return new Key<>(name);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return "SessionContext.Key{" + name + "}";
+        }
+    }
+
+    /**
+     * Returns the value stored under the given key, or null if there is none.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked") // Only ever set through set(Key<T>, T)
+    public <T> T get(Key<T> key) {
+        final Object[] s = slots;
+        final int idx = key.index;
+        return s != null && idx < s.length ? (T) s[idx] : null;
+    }
+
+    public boolean containsKey(Key<?> key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Stores the value under the given key.  A null value removes the key.
+     */
+    public <T> void set(Key<T> key, @Nullable T value) {
+        final int idx = key.index;
+        Object[] s = slots;
+        if (s == null || idx >= s.length) {
+            if (value == null) {
+                return;
+            }
+            // Size for every key created so far, so that the array is normally allocated once per context.
+            s = slots = s == null
+                    ? new Object[Math.max(Key.nextIndex.get(), idx + 1)]
+                    : Arrays.copyOf(s, Math.max(Key.nextIndex.get(), idx + 1));
+        }
+        s[idx] = value;
+    }
+
+    /**
+     * Removes the value stored under the given key, returning it if it was present.
+     */
+    @Nullable
+    public <T> T remove(Key<T> key) {
+        final T value = get(key);
+        if (value != null) {
+            slots[key.index] = null;
+        }
+        return value;
     }
 
     public String getString(String key)
@@ -146,26 +232,34 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
         Iterator<String> it = keySet().iterator();
         String key = it.next();
         while (key != null) {
-            Object orig = get(key);
-            try {
-                Object copyValue = DeepCopy.copy(orig);
-                if (copyValue != null) {
-                    copy.set(key, copyValue);
-                } else {
-                    copy.set(key, orig);
-                }
-            } catch (NotSerializableException e) {
-                copy.set(key, orig);
-            }
+            copy.set(key, deepCopyOrSame(get(key)));
             if (it.hasNext()) {
                 key = it.next();
             } else {
                 key = null;
             }
         }
+        if (slots != null) {
+            copy.slots = new Object[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                copy.slots[i] = deepCopyOrSame(slots[i]);
+            }
+        }
         return copy;
     }
 
+    private static Object deepCopyOrSame(Object orig) {
+        if (orig == null) {
+            return null;
+        }
+        try {
+            Object copyValue = DeepCopy.copy(orig);
+            return copyValue != null ? copyValue : orig;
+        } catch (NotSerializableException e) {
+            return orig;
+        }
+    }
+
     public String getUUID()
     {
         return getString(KEY_UUID);
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.filters.common;
+
+import com.netflix.config.CachedDynamicBooleanProperty;
+import com.netflix.zuul.Filter;
+import com.netflix.zuul.context.SessionContext;
+import com.netflix.zuul.exception.ZuulException;
+import com.netflix.zuul.filters.FilterType;
+import com.netflix.zuul.filters.http.HttpInboundSyncFilter;
+import com.netflix.zuul.message.Headers;
+import com.netflix.zuul.message.ZuulMessage;
+import com.netflix.zuul.message.http.HttpHeaderNames;
+import com.netflix.zuul.message.http.HttpRequestMessage;
+import com.netflix.zuul.stats.status.StatusCategoryUtils;
+import com.netflix.zuul.stats.status.ZuulStatusCategory;
+import com.netflix.zuul.util.BoundedInflater;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import java.util.zip.ZipException;
+import javax.annotation.Nullable;
+
+/**
+ * General-purpose filter for inflating gzip or deflate encoded request bodies, so that later inbound filters see the
+ * plain body.  The body is inflated a chunk at a time as it streams through, and the request is failed with a 413 as
+ * soon as the inflated size goes over {@link HttpRequestMessage#getMaxBodySize()}.
+ *
+ * <p>The request goes on to the origin uncompressed, unless {@link RecompressRequestFilter} is also used.  This should
+ * be run as early as possible, before any filter that reads the body.
+ *
+ * <p>You can just subclass this in your project, and use as-is.
+ */
+@Filter(order = 5, type = FilterType.INBOUND)
+public class DecompressRequestFilter extends HttpInboundSyncFilter {
+
+    private static final CachedDynamicBooleanProperty ENABLED =
+            new CachedDynamicBooleanProperty("zuul.request.decompress.filter.enabled", true);
+
+    static final SessionContext.Key<BoundedInflater> INFLATER = SessionContext.Key.newKey("requestInflater");
+
+    /** The encoding the request body arrived with, for {@link RecompressRequestFilter}. */
+    static final SessionContext.Key<BoundedInflater.Format> ORIGINAL_ENCODING =
+            SessionContext.Key.newKey("requestOriginalEncoding");
+
+    @Override
+    public boolean shouldFilter(HttpRequestMessage request) {
+        final SessionContext context = request.getContext();
+        if (context.containsKey(INFLATER)) {
+            // Already decided, and the headers no longer say the body is compressed.
+            return true;
+        }
+        if (!ENABLED.get() || !request.hasBody()) {
+            return false;
+        }
+
+        final BoundedInflater.Format format = encodingOf(request.getHeaders());
+        if (format == null) {
+            return false;
+        }
+        context.set(INFLATER, newInflater(format, request.getMaxBodySize()));
+        context.set(ORIGINAL_ENCODING, format);
+        return true;
+    }
+
+    protected BoundedInflater newInflater(BoundedInflater.Format format, int maxBodySize) {
+        return new BoundedInflater(ByteBufAllocator.DEFAULT, format, maxBodySize);
+    }
+
+    /**
+     * Returns the format of a body with the given headers, or null if it is not a single gzip or deflate encoding.
+     */
+    @Nullable
+    static BoundedInflater.Format encodingOf(Headers headers) {
+        final String ce = headers.getFirst(HttpHeaderNames.CONTENT_ENCODING);
+        if (ce == null) {
+            return null;
+        }
+        final String encoding = ce.trim();
+        if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+            return BoundedInflater.Format.GZIP;
+        }
+        if (encoding.equalsIgnoreCase("deflate")) {
+            return BoundedInflater.Format.DEFLATE;
+        }
+        return null;
+    }
+
+    @Override
+    public HttpRequestMessage apply(HttpRequestMessage request) {
+        final Headers headers = request.getHeaders();
+        headers.remove(HttpHeaderNames.CONTENT_ENCODING);
+        headers.remove(HttpHeaderNames.CONTENT_LENGTH);
+        headers.set(HttpHeaderNames.TRANSFER_ENCODING, "chunked");
+        return request;
+    }
+
+    @Override
+    public HttpContent processContentChunk(ZuulMessage request, HttpContent chunk) {
+        final BoundedInflater inflater = request.getContext().get(INFLATER);
+        if (inflater == null) {
+            return chunk;
+        }
+
+        final boolean last = chunk instanceof LastHttpContent;
+        final ByteBuf inflated;
+        try {
+            if (inflater.hasFailed()) {
+                // The request has already been failed, so just drop the rest of the body.
+                inflated = Unpooled.EMPTY_BUFFER;
+            }
+            else {
+                inflated = inflater.inflate(chunk.content(), last);
+            }
+        }
+        catch (ZipException e) {
+            throw requestFailed(request, e);
+        }
+        finally {
+            chunk.release();
+        }
+        return last ? new DefaultLastHttpContent(inflated) : new DefaultHttpContent(inflated);
+    }
+
+    private static ZuulException requestFailed(ZuulMessage request, ZipException cause) {
+        final boolean tooLarge = cause instanceof BoundedInflater.SizeLimitExceededException;
+        final String errorMsg = tooLarge ? "Request too large when decompressed" : "Invalid compressed request body";
+        final ZuulException ze = new ZuulException(cause, errorMsg + ": " + cause.getMessage(), true);
+        ze.setStatusCode(tooLarge
+                ? HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code()
+                : HttpResponseStatus.BAD_REQUEST.code());
+
+        final SessionContext context = request.getContext();
+        StatusCategoryUtils.setStatusCategory(context, ZuulStatusCategory.FAILURE_CLIENT_BAD_REQUEST);
+        context.setError(ze);
+        context.setShouldSendErrorResponse(true);
+        return ze;
+    }
+}
@@ -29,12 +29,16 @@ import com.netflix.zuul.message.ZuulMessage;
 import com.netflix.zuul.message.http.HttpHeaderNames;
 import com.netflix.zuul.message.http.HttpRequestInfo;
 import com.netflix.zuul.message.http.HttpResponseMessage;
+import com.netflix.zuul.util.GzipCompressor;
 import com.netflix.zuul.util.Gzipper;
 import com.netflix.zuul.util.HttpUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.LastHttpContent;
+import java.util.zip.Deflater;
 
 /**
  * General-purpose filter for gzipping/ungzipping response bodies if requested/needed.  This should be run as late as
@@ -60,6 +64,16 @@ public class GZipResponseFilter extends HttpOutboundSyncFilter
     private static final CachedDynamicBooleanProperty ENABLED =
             new CachedDynamicBooleanProperty("zuul.response.gzip.filter.enabled", true);
 
+    private static final CachedDynamicIntProperty COMPRESSION_LEVEL =
+            new CachedDynamicIntProperty("zuul.gzip.compression.level", Deflater.DEFAULT_COMPRESSION);
+
+    /** Whether each compressed chunk is flushed on to the client, or can be held back for a better ratio. */
+    private static final CachedDynamicBooleanProperty FLUSH_EVERY_CHUNK =
+            new CachedDynamicBooleanProperty("zuul.gzip.flush.every.chunk", true);
+
+    /** Subclasses that still override {@link #getGzipper()} keep getting their own {@link Gzipper}. */
+    private final boolean overridesGetGzipper = overridesGetGzipper(getClass());
+
     @Override
     public boolean shouldFilter(HttpResponseMessage response) {
         if (!ENABLED.get() || !response.hasBody() || response.getContext().isInBrownoutMode()) {
@@ -83,15 +97,37 @@ public class GZipResponseFilter extends HttpOutboundSyncFilter
         // Decide what to do.;
         final boolean shouldGzip = isGzippableContentType(response) && isGzipRequested && !isResponseGzipped && isRightSizeForGzip(response);
         if (shouldGzip) {
-            response.getContext().set(CommonContextKeys.GZIPPER, getGzipper());
+            response.getContext().set(
+                    CommonContextKeys.GZIPPER, overridesGetGzipper ? getGzipper() : newGzipCompressor());
         }
         return shouldGzip;
     }
 
+    protected GzipCompressor newGzipCompressor() {
+        return new GzipCompressor(ByteBufAllocator.DEFAULT, COMPRESSION_LEVEL.get(), FLUSH_EVERY_CHUNK.get());
+    }
+
+    /**
+     * @deprecated override {@link #newGzipCompressor()} instead.  This is only called if a subclass overrides it.
+     */
+    @Deprecated
     protected Gzipper getGzipper() {
         return new Gzipper();
     }
 
+    private static boolean overridesGetGzipper(Class<?> filterClass) {
+        for (Class<?> c = filterClass; c != GZipResponseFilter.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("getGzipper");
+                return true;
+            }
+            catch (NoSuchMethodException e) {
+                // Keep looking up the hierarchy.
+            }
+        }
+        return false;
+    }
+
     @VisibleForTesting
     boolean isRightSizeForGzip(HttpResponseMessage response) {
         final Integer bodySize = HttpUtils.getBodySizeIfKnown(response);
@@ -122,7 +158,24 @@ public class GZipResponseFilter extends HttpOutboundSyncFilter
 
     @Override
     public HttpContent processContentChunk(ZuulMessage resp, HttpContent chunk) {
-        final Gzipper gzipper = (Gzipper) resp.getContext().get(CommonContextKeys.GZIPPER);
+        final Object gzipper = resp.getContext().get(CommonContextKeys.GZIPPER);
+        if (gzipper instanceof Gzipper) {
+            return processContentChunk((Gzipper) gzipper, chunk);
+        }
+
+        final GzipCompressor compressor = (GzipCompressor) gzipper;
+        final boolean last = chunk instanceof LastHttpContent;
+        final ByteBuf compressed;
+        try {
+            compressed = compressor.compress(chunk.content(), last);
+        }
+        finally {
+            chunk.release();
+        }
+        return last ? new DefaultLastHttpContent(compressed) : new DefaultHttpContent(compressed);
+    }
+
+    private static HttpContent processContentChunk(Gzipper gzipper, HttpContent chunk) {
         gzipper.write(chunk);
         if (chunk instanceof LastHttpContent) {
             gzipper.finish();
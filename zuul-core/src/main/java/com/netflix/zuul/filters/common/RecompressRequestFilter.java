@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.filters.common;
+
+import com.netflix.config.CachedDynamicBooleanProperty;
+import com.netflix.config.CachedDynamicIntProperty;
+import com.netflix.zuul.Filter;
+import com.netflix.zuul.context.SessionContext;
+import com.netflix.zuul.filters.FilterType;
+import com.netflix.zuul.filters.http.HttpInboundSyncFilter;
+import com.netflix.zuul.message.Headers;
+import com.netflix.zuul.message.ZuulMessage;
+import com.netflix.zuul.message.http.HttpHeaderNames;
+import com.netflix.zuul.message.http.HttpRequestMessage;
+import com.netflix.zuul.util.BoundedInflater;
+import com.netflix.zuul.util.GzipCompressor;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import java.util.zip.Deflater;
+
+/**
+ * Gzips request bodies again on their way to the origin, after {@link DecompressRequestFilter} has inflated them for
+ * the inbound filters.  Only requests that arrived gzipped are compressed again, since an origin that accepted a
+ * deflate encoded body can't be assumed to accept a gzipped one.  This should be run as late as possible, after any
+ * filter that reads or replaces the body.
+ *
+ * <p>You can just subclass this in your project, and use as-is.
+ */
+@Filter(order = 1000, type = FilterType.INBOUND)
+public class RecompressRequestFilter extends HttpInboundSyncFilter {
+
+    private static final CachedDynamicBooleanProperty ENABLED =
+            new CachedDynamicBooleanProperty("zuul.request.recompress.filter.enabled", false);
+
+    private static final CachedDynamicIntProperty COMPRESSION_LEVEL =
+            new CachedDynamicIntProperty("zuul.request.recompress.level", Deflater.BEST_SPEED);
+
+    private static final SessionContext.Key<GzipCompressor> COMPRESSOR = SessionContext.Key.newKey("requestCompressor");
+
+    @Override
+    public boolean shouldFilter(HttpRequestMessage request) {
+        final SessionContext context = request.getContext();
+        if (context.containsKey(COMPRESSOR)) {
+            return true;
+        }
+        if (!ENABLED.get() || context.isInBrownoutMode()
+                || context.get(DecompressRequestFilter.ORIGINAL_ENCODING) != BoundedInflater.Format.GZIP) {
+            return false;
+        }
+        context.set(COMPRESSOR, newGzipCompressor());
+        return true;
+    }
+
+    /**
+     * The origin is usually close by, so by default this favours speed over ratio, and lets the compressor hold back
+     * input between chunks for a better ratio rather than flushing each one.
+     */
+    protected GzipCompressor newGzipCompressor() {
+        return new GzipCompressor(ByteBufAllocator.DEFAULT, COMPRESSION_LEVEL.get(), false);
+    }
+
+    @Override
+    public HttpRequestMessage apply(HttpRequestMessage request) {
+        final Headers headers = request.getHeaders();
+        headers.set(HttpHeaderNames.CONTENT_ENCODING, "gzip");
+        headers.remove(HttpHeaderNames.CONTENT_LENGTH);
+        headers.set(HttpHeaderNames.TRANSFER_ENCODING, "chunked");
+        return request;
+    }
+
+    @Override
+    public HttpContent processContentChunk(ZuulMessage request, HttpContent chunk) {
+        final GzipCompressor compressor = request.getContext().get(COMPRESSOR);
+        if (compressor == null) {
+            return chunk;
+        }
+        final boolean last = chunk instanceof LastHttpContent;
+        final ByteBuf compressed;
+        try {
+            compressed = compressor.compress(chunk.content(), last);
+        }
+        finally {
+            chunk.release();
+        }
+        return last ? new DefaultLastHttpContent(compressed) : new DefaultHttpContent(compressed);
+    }
+}
@@ -17,10 +17,15 @@
 package com.netflix.zuul.filters.endpoint;
 
 import static com.netflix.client.config.CommonClientConfigKey.ReadTimeout;
+import static com.netflix.netty.common.HttpLifecycleChannelHandler.CompleteEvent;
+import static com.netflix.netty.common.HttpLifecycleChannelHandler.CompleteReason.SESSION_COMPLETE;
 import static com.netflix.zuul.context.CommonContextKeys.ORIGIN_CHANNEL;
 import static com.netflix.zuul.netty.server.ClientRequestReceiver.ATTR_ZUUL_RESP;
 import static com.netflix.zuul.passport.PassportState.ORIGIN_CONN_ACQUIRE_END;
 import static com.netflix.zuul.passport.PassportState.ORIGIN_CONN_ACQUIRE_FAILED;
+import static com.netflix.zuul.passport.PassportState.ORIGIN_HEDGE_CANCELLED;
+import static com.netflix.zuul.passport.PassportState.ORIGIN_HEDGE_START;
+import static com.netflix.zuul.passport.PassportState.ORIGIN_HEDGE_WON;
 import static com.netflix.zuul.passport.PassportState.ORIGIN_RETRY_START;
 import static com.netflix.zuul.stats.status.ZuulStatusCategory.FAILURE_ORIGIN;
 import static com.netflix.zuul.stats.status.ZuulStatusCategory.FAILURE_ORIGIN_THROTTLED;
@@ -35,7 +40,6 @@ import com.netflix.client.ClientException;
 import com.netflix.client.config.IClientConfig;
 import com.netflix.client.config.IClientConfigKey;
 import com.netflix.config.CachedDynamicIntProperty;
-import com.netflix.config.DynamicBooleanProperty;
 import com.netflix.config.DynamicIntegerSetProperty;
 import com.netflix.loadbalancer.Server;
 import com.netflix.loadbalancer.reactive.ExecutionContext;
@@ -63,6 +67,7 @@ import com.netflix.zuul.netty.NettyRequestAttemptFactory;
 import com.netflix.zuul.netty.SpectatorUtils;
 import com.netflix.zuul.netty.connectionpool.BasicRequestStat;
 import com.netflix.zuul.netty.connectionpool.ClientTimeoutHandler;
+import com.netflix.zuul.netty.connectionpool.OriginConnectException;
 import com.netflix.zuul.netty.connectionpool.PooledConnection;
 import com.netflix.zuul.netty.connectionpool.RequestStat;
 import com.netflix.zuul.netty.filter.FilterRunner;
@@ -84,15 +89,19 @@ import com.netflix.zuul.util.VipUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
@@ -102,6 +111,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -142,21 +152,27 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
     protected RequestAttempt currentRequestAttempt;
     protected List<RequestStat> requestStats = new ArrayList<>();
     protected RequestStat currentRequestStat;
-    private final byte[] sslRetryBodyCache;
+    private final ReplayBuffer replayBuffer = new ReplayBuffer();
+
+    /* Hedging related state */
+    private final RequestHedging hedging;
+    private volatile Promise<PooledConnection> pendingConnect;
+    private ScheduledFuture<?> hedgeTimer;
+    private Hedge hedge;
+    private int hedgeAttemptNum;
 
     public static final Set<String> IDEMPOTENT_HTTP_METHODS = Sets.newHashSet("GET", "HEAD", "OPTIONS");
     private static final DynamicIntegerSetProperty RETRIABLE_STATUSES_FOR_IDEMPOTENT_METHODS = new DynamicIntegerSetProperty("zuul.retry.allowed.statuses.idempotent", "500");
-    private static final DynamicBooleanProperty ENABLE_CACHING_SSL_BODIES = new DynamicBooleanProperty("zuul.cache.ssl.bodies", true);
 
     private static final CachedDynamicIntProperty MAX_OUTBOUND_READ_TIMEOUT = new CachedDynamicIntProperty("zuul.origin.readtimeout.max", 90 * 1000);
 
     private static final Set<HeaderName> REQUEST_HEADERS_TO_REMOVE = Sets.newHashSet(HttpHeaderNames.CONNECTION, HttpHeaderNames.KEEP_ALIVE);
     private static final Set<HeaderName> RESPONSE_HEADERS_TO_REMOVE = Sets.newHashSet(HttpHeaderNames.CONNECTION, HttpHeaderNames.KEEP_ALIVE);
     public static final String POOLED_ORIGIN_CONNECTION_KEY =    "_origin_pooled_conn";
+    private static final String HEDGE_WATCHER_HANDLER_NAME = "_origin_hedge_watcher";
     private static final Logger LOG = LoggerFactory.getLogger(ProxyEndpoint.class);
     private static final Counter NO_RETRY_INCOMPLETE_BODY = SpectatorUtils.newCounter("zuul.no.retry","incomplete_body");
     private static final Counter NO_RETRY_RESP_STARTED = SpectatorUtils.newCounter("zuul.no.retry","resp_started");
-    private final Counter populatedSslRetryBody;
 
 
     public ProxyEndpoint(final HttpRequestMessage inMesg, final ChannelHandlerContext ctx,
@@ -177,8 +193,7 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
         chosenServer = new AtomicReference<>();
         chosenHostAddr = new AtomicReference<>();
 
-        this.sslRetryBodyCache = preCacheBodyForRetryingSslRequests();
-        this.populatedSslRetryBody = SpectatorUtils.newCounter("zuul.populated.ssl.retry.body", origin == null ? "null" : origin.getVip());
+        this.hedging = (origin == null) ? null : RequestHedging.forOrigin(origin.getName());
 
         this.methodBinding = methodBinding;
         this.requestAttemptFactory = requestAttemptFactory;
@@ -229,6 +244,8 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
     }
 
     public void finish(boolean error) {
+        cancelHedge();
+        replayBuffer.release();
         final Channel origCh = unlinkFromOrigin();
 
         while (concurrentReqCount > 0) {
@@ -298,6 +315,7 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
         if (originConn != null) {
             //Connected to origin, stream request body without buffering
             proxiedRequestWithoutBuffering = true;
+            replayBuffer.addStreamed(chunk);
             originConn.getChannel().writeAndFlush(chunk);
             return null;
         }
@@ -352,6 +370,10 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
     }
 
     private void storeAndLogOriginRequestInfo() {
+        storeAndLogOriginRequestInfo(attemptNum, chosenServer.get(), chosenHostAddr.get());
+    }
+
+    private void storeAndLogOriginRequestInfo(int attempt, Server server, String hostAddr) {
         final Map<String, Object> eventProps = context.getEventProperties();
         Map<Integer, String> attempToIpAddressMap = (Map) eventProps.get(CommonContextKeys.ZUUL_ORIGIN_ATTEMPT_IPADDR_MAP_KEY);
         Map<Integer, String> attempToChosenHostMap = (Map) eventProps.get(CommonContextKeys.ZUUL_ORIGIN_CHOSEN_HOST_ADDR_MAP_KEY);
@@ -361,14 +383,14 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
         if (attempToChosenHostMap == null) {
             attempToChosenHostMap = new HashMap<>();
         }
-        String ipAddr = origin.getIpAddrFromServer(chosenServer.get());
+        String ipAddr = origin.getIpAddrFromServer(server);
         if (ipAddr != null) {
-            attempToIpAddressMap.put(attemptNum, ipAddr);
+            attempToIpAddressMap.put(attempt, ipAddr);
             eventProps.put(CommonContextKeys.ZUUL_ORIGIN_ATTEMPT_IPADDR_MAP_KEY, attempToIpAddressMap);
             context.put(CommonContextKeys.ZUUL_ORIGIN_ATTEMPT_IPADDR_MAP_KEY, attempToIpAddressMap);
         }
-        if (chosenHostAddr.get() != null) {
-            attempToChosenHostMap.put(attemptNum, chosenHostAddr.get());
+        if (hostAddr != null) {
+            attempToChosenHostMap.put(attempt, hostAddr);
             eventProps.put(CommonContextKeys.ZUUL_ORIGIN_CHOSEN_HOST_ADDR_MAP_KEY, attempToChosenHostMap);
             context.put(CommonContextKeys.ZUUL_ORIGIN_CHOSEN_HOST_ADDR_MAP_KEY, attempToChosenHostMap);
         }
@@ -398,12 +420,17 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
             // We pass this AtomicReference<Server> here and the origin impl will assign the chosen server to it.
             promise = origin.connectToOrigin(
                     zuulRequest, channelCtx.channel().eventLoop(), attemptNum, passport, chosenServer, chosenHostAddr);
+            pendingConnect = promise;
 
             storeAndLogOriginRequestInfo();
             currentRequestAttempt = origin.newRequestAttempt(chosenServer.get(), context, attemptNum);
             requestAttempts.add(currentRequestAttempt);
             passport.add(PassportState.ORIGIN_CONN_ACQUIRE_START);
 
+            if (attemptNum == 1) {
+                scheduleHedge();
+            }
+
             if (promise.isDone()) {
                 operationComplete(promise);
             } else {
@@ -440,6 +467,12 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
 
     @Override
     public void operationComplete(final Future<PooledConnection> connectResult) {
+        if (connectResult != pendingConnect) {
+            // A hedge won while this attempt was still waiting for a connection.
+            releaseUnusedConnection(connectResult);
+            return;
+        }
+
         // MUST run this within bindingcontext because RequestExpiryProcessor (and probably other things) depends on ThreadVariables.
         try {
             methodBinding.bind(() -> {
@@ -557,25 +590,6 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
         }
     }
 
-    private byte[] preCacheBodyForRetryingSslRequests() {
-        // Netty SSL handler clears body ByteBufs, so we need to cache the body if we want to retry POSTs
-        if (ENABLE_CACHING_SSL_BODIES.get() && origin != null &&
-                // only cache requests if already buffered
-                origin.getClientConfig().get(IClientConfigKey.Keys.IsSecure, false) && zuulRequest.hasCompleteBody()) {
-            return zuulRequest.getBody();
-        }
-        return null;
-    }
-
-    private void repopulateRetryBody() {
-        // if SSL origin request body is cached and has been cleared by Netty SslHandler, set it from cache
-        // note: it's not null but is empty because the content chunks exist but the actual readable bytes are 0
-        if (sslRetryBodyCache != null && attemptNum > 1 && zuulRequest.getBody() != null && zuulRequest.getBody().length == 0) {
-            zuulRequest.setBody(sslRetryBodyCache);
-            populatedSslRetryBody.increment();
-        }
-    }
-
     private void writeClientRequestToOrigin(final PooledConnection conn, int readTimeout) {
         final Channel ch = conn.getChannel();
         passport.setOnChannel(ch);
@@ -592,11 +606,9 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
         originResponseReceiver = getOriginResponseReceiver();
         pipeline.addBefore("connectionPoolHandler", OriginResponseReceiver.CHANNEL_HANDLER_NAME, originResponseReceiver);
 
-        // check if body needs to be repopulated for retry
-        repopulateRetryBody();
-
         ch.write(zuulRequest);
-        writeBufferedBodyContent(zuulRequest, ch);
+        // For a retry, this includes any of the body that was streamed to the previous attempt.
+        replayBuffer.writeBody(zuulRequest.getBodyContents(), ch);
         ch.flush();
 
         //Get ready to read origin's response
@@ -614,12 +626,6 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
         // override for custom metrics or processing
     }
 
-    private static void writeBufferedBodyContent(final HttpRequestMessage zuulRequest, final Channel channel) {
-        zuulRequest.getBodyContents().forEach((chunk) -> {
-            channel.write(chunk.retain());
-        });
-    }
-
     protected boolean isRemoteZuulRetriesBelowRetryLimit(int maxAllowedRetries) {
         // override for custom header checking..
         return true;
@@ -633,6 +639,8 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
 
     public void errorFromOrigin(final Throwable ex) {
         try {
+            cancelHedge();
+
             // Flag that there was an origin server related error for the loadbalancer to choose
             // whether to circuit-trip this server.
             if (originConn != null) {
@@ -690,7 +698,8 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
                 origin.onRequestExceptionWithServer(zuulRequest, chosenServer.get(), attemptNum, niwsEx);
             }
 
-            if ((isBelowRetryLimit()) && (isRetryable(err))) {
+            countHedgedAttempt();
+            if (isBelowRetryLimit() && isRetryable(err) && tryAcquireRetry()) {
                 //retry request with different origin
                 passport.add(ORIGIN_RETRY_START);
                 origin.adjustRetryPolicyIfNeeded(zuulRequest);
@@ -719,6 +728,19 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
         // override for custom processing
     }
 
+    /**
+     * Checks the origin's retry budget before a retry.  When it's used up the request fails with the error or response
+     * it would have been retried for, and the passport records why it wasn't retried.
+     */
+    private boolean tryAcquireRetry() {
+        if (origin.tryAcquireRetry()) {
+            return true;
+        }
+        LOG.debug("Not retrying as the retry budget is used up, origin = {}, attemptNum = {}", origin.getName(), attemptNum);
+        passport.add(PassportState.ORIGIN_RETRY_BUDGET_EXHAUSTED);
+        return false;
+    }
+
     private void handleError(final Throwable cause) {
         final ZuulException ze = (cause instanceof  ZuulException) ?
                 (ZuulException) cause : requestAttemptFactory.mapNettyToOutboundException(cause, context);
@@ -761,7 +783,7 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
             NO_RETRY_RESP_STARTED.increment();
             return false;
         }
-        if (proxiedRequestWithoutBuffering) {
+        if (proxiedRequestWithoutBuffering && !replayBuffer.isReplayable()) {
             NO_RETRY_INCOMPLETE_BODY.increment();
             return false;
         }
@@ -779,6 +801,11 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
     }
 
     private void processResponseFromOrigin(final HttpResponse originResponse) {
+        cancelHedge();
+        if (currentRequestStat != null && hedging.isEnabled()) {
+            hedging.recordResponseTime(currentRequestStat.duration());
+        }
+
         if (originResponse.status().code() >= 500) {
             handleOriginNonSuccessResponse(originResponse, chosenServer.get());
         } else {
@@ -808,6 +835,8 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
 
     private HttpResponseMessage buildZuulHttpResponse(final HttpResponse httpResponse, final StatusCategory statusCategory, final Throwable ex) {
         startedSendingResponseToClient = true;
+        // There won't be any more retries.
+        replayBuffer.release();
 
         // Translate the netty HttpResponse into a zuul HttpResponseMessage.
         final SessionContext zuulCtx = context;
@@ -908,7 +937,8 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
         origin.onRequestExceptionWithServer(zuulRequest, chosenServer, attemptNum,
                 new ClientException(niwsErrorType));
 
-        if ((isBelowRetryLimit()) && (isRetryable5xxResponse(zuulRequest, originResponse))) {
+        countHedgedAttempt();
+        if (isBelowRetryLimit() && isRetryable5xxResponse(zuulRequest, originResponse) && tryAcquireRetry()) {
             LOG.debug("Retrying: status={}, attemptNum={}, maxRetries={}, startedSendingResponseToClient={}, hasCompleteBody={}, method={}",
                     respStatus, attemptNum, origin.getMaxRetriesForRequest(context),
                     startedSendingResponseToClient, zuulRequest.hasCompleteBody(), zuulRequest.getMethod());
@@ -949,6 +979,304 @@ public class ProxyEndpoint extends SyncZuulFilterAdapter<HttpRequestMessage, Htt
     }
 
 
+    /* hedging */
+
+    /**
+     * Hedging sends a second attempt to another server if the first hasn't got response headers after a delay, which
+     * is a percentile of the origin's recent response times (see {@link RequestHedging}).  The first to get response
+     * headers wins, and the other is cancelled, closing its connection.  A hedge uses up a retry, and is cancelled if
+     * the first attempt fails, as the usual retry handling takes over then.
+     *
+     * <p>Until it wins, the hedge's {@link OriginResponseReceiver} is unlinked from this endpoint, so it only writes the
+     * request, and a {@link HedgeWatcher} in front of it looks out for the response.
+     */
+    private void scheduleHedge() {
+        if (!hedging.isEnabled() || !IDEMPOTENT_HTTP_METHODS.contains(zuulRequest.getMethod().toUpperCase())) {
+            return;
+        }
+        hedging.recordRequest();
+        final long delay = hedging.hedgeDelayMillis();
+        if (delay >= 0) {
+            hedgeTimer = channelCtx.channel().eventLoop().schedule(this::onHedgeDelayExpired, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void onHedgeDelayExpired() {
+        hedgeTimer = null;
+        try {
+            methodBinding.bind(() -> {
+                if (isHedgeable() && hedging.tryAcquireHedge()) {
+                    startHedge();
+                }
+            });
+        } catch (Exception ex) {
+            LOG.warn("Error hedging request to origin {}, UUID {}", origin.getName(), context.getUUID(), ex);
+        }
+    }
+
+    /**
+     * Only hedge the first attempt, and only once the whole request has been buffered.
+     */
+    protected boolean isHedgeable() {
+        return attemptNum == 1 && hedgeAttemptNum == 0
+                && !startedSendingResponseToClient
+                && !proxiedRequestWithoutBuffering
+                && !context.isCancelled()
+                && zuulRequest.hasCompleteBody()
+                && isBelowRetryLimit();
+    }
+
+    private void startHedge() {
+        try {
+            origin.preRequestChecks(zuulRequest);
+        } catch (Exception ex) {
+            LOG.debug("Not hedging request to origin {}", origin.getName(), ex);
+            return;
+        }
+        concurrentReqCount++;
+
+        final Hedge h = new Hedge(attemptNum + 1);
+        hedge = h;
+        hedgeAttemptNum = h.attemptNum;
+        try {
+            h.stat = createRequestStat();
+            // The first attempt's stat is still the current one.
+            RequestStat.putInSessionContext(currentRequestStat, context);
+            updateOriginRpsTrackers(origin, h.attemptNum);
+
+            final Promise<PooledConnection> promise = origin.connectToOrigin(
+                    zuulRequest, channelCtx.channel().eventLoop(), h.attemptNum, passport, h.server, h.hostAddr);
+
+            storeAndLogOriginRequestInfo(h.attemptNum, h.server.get(), h.hostAddr.get());
+            h.attempt = origin.newRequestAttempt(h.server.get(), context, h.attemptNum);
+            h.attempt.setHedge(true);
+            requestAttempts.add(h.attempt);
+            passport.add(ORIGIN_HEDGE_START);
+
+            promise.addListener((Future<PooledConnection> connectResult) -> onHedgeConnectComplete(h, connectResult));
+        } catch (Exception ex) {
+            LOG.warn("Error while hedging request to origin {}, UUID {}", origin.getName(), context.getUUID(), ex);
+            endHedge(h, ex);
+        }
+    }
+
+    private void onHedgeConnectComplete(Hedge h, Future<PooledConnection> connectResult) {
+        try {
+            methodBinding.bind(() -> {
+                if (hedge != h) {
+                    releaseUnusedConnection(connectResult);
+                }
+                else if (!connectResult.isSuccess()) {
+                    endHedge(h, connectResult.cause());
+                }
+                else if (Objects.equals(h.server.get(), chosenServer.get())) {
+                    // The load balancer chose the same server as for the first attempt, which won't be any quicker.
+                    releaseUnusedConnection(connectResult);
+                    endHedge(h, null);
+                }
+                else {
+                    h.conn = connectResult.getNow();
+                    writeHedgeToOrigin(h);
+                }
+            });
+        } catch (Throwable ex) {
+            LOG.warn("Error while hedging request to origin {}, UUID {}", origin.getName(), context.getUUID(), ex);
+            releaseUnusedConnection(connectResult);
+            endHedge(h, ex);
+        }
+    }
+
+    private void writeHedgeToOrigin(Hedge h) {
+        final Channel ch = h.conn.getChannel();
+        final int readTimeout = getReadTimeout(origin.getExecutionContext(zuulRequest).getRequestConfig(), h.attemptNum);
+        h.attempt.setReadTimeout(readTimeout);
+        h.stat.server(h.server.get());
+        ch.attr(ClientTimeoutHandler.ORIGIN_RESPONSE_READ_TIMEOUT).set(readTimeout);
+        passport.setOnChannel(ch);
+
+        preWriteToOrigin(h.server.get(), zuulRequest);
+
+        final ChannelPipeline pipeline = ch.pipeline();
+        final OriginResponseReceiver receiver = getOriginResponseReceiver();
+        receiver.unlinkFromClientRequest();
+        pipeline.addBefore("connectionPoolHandler", OriginResponseReceiver.CHANNEL_HANDLER_NAME, receiver);
+        pipeline.addBefore(OriginResponseReceiver.CHANNEL_HANDLER_NAME, HEDGE_WATCHER_HANDLER_NAME, new HedgeWatcher(h));
+
+        ch.write(zuulRequest);
+        replayBuffer.writeBody(zuulRequest.getBodyContents(), ch);
+        ch.flush();
+        ch.read();
+    }
+
+    /**
+     * The hedge got response headers first, so it becomes the current attempt and the first attempt is cancelled.
+     */
+    private void hedgeWon(Hedge h) {
+        hedge = null;
+        passport.add(ORIGIN_HEDGE_WON);
+
+        pendingConnect = null;
+        if (currentRequestAttempt != null) {
+            currentRequestAttempt.complete(-1, currentRequestStat.duration(), null);
+            currentRequestAttempt.setError("CANCELLED");
+        }
+        final PooledConnection firstConn = originConn;
+        final Channel firstCh = unlinkFromOrigin();
+        if (firstCh != null) {
+            // It's still waiting on a response, so can't go back in the pool.
+            firstConn.flagShouldClose();
+            firstCh.close();
+        }
+
+        attemptNum = h.attemptNum;
+        chosenServer.set(h.server.get());
+        chosenHostAddr.set(h.hostAddr.get());
+        currentRequestAttempt = h.attempt;
+        currentRequestStat = h.stat;
+        RequestStat.putInSessionContext(h.stat, context);
+
+        final Channel ch = h.conn.getChannel();
+        context.set(ORIGIN_CHANNEL, ch);
+        context.set(POOLED_ORIGIN_CONNECTION_KEY, h.conn);
+        originResponseReceiver = getOriginResponseReceiver();
+        ch.pipeline().replace(
+                OriginResponseReceiver.CHANNEL_HANDLER_NAME, OriginResponseReceiver.CHANNEL_HANDLER_NAME,
+                originResponseReceiver);
+        originConn = h.conn;
+    }
+
+    private void cancelHedge() {
+        if (hedgeTimer != null) {
+            hedgeTimer.cancel(false);
+            hedgeTimer = null;
+        }
+        if (hedge != null) {
+            endHedge(hedge, null);
+        }
+    }
+
+    /**
+     * Ends a hedge that didn't win, either because it failed or, if there's no cause, because it was cancelled.
+     */
+    private void endHedge(Hedge h, @Nullable Throwable cause) {
+        if (hedge != h) {
+            return;
+        }
+        hedge = null;
+        passport.add(ORIGIN_HEDGE_CANCELLED);
+
+        if (h.attempt != null) {
+            h.attempt.complete(-1, h.stat.duration(), cause);
+            if (cause == null) {
+                h.attempt.setError("CANCELLED");
+            }
+        }
+        if (h.stat != null) {
+            // Keep the current attempt's stat last, as that's the one tagged as the final attempt.
+            requestStats.remove(h.stat);
+            final int current = requestStats.indexOf(currentRequestStat);
+            requestStats.add((current >= 0) ? current : requestStats.size(), h.stat);
+        }
+        if (h.conn != null) {
+            h.conn.flagShouldClose();
+            h.conn.getChannel().close();
+        }
+        if (concurrentReqCount > 0) {
+            origin.recordProxyRequestEnd();
+            concurrentReqCount--;
+        }
+    }
+
+    /**
+     * A hedge that was sent counts as an attempt even if it was cancelled, so any retry is numbered after it.
+     */
+    private void countHedgedAttempt() {
+        if (hedgeAttemptNum > attemptNum) {
+            attemptNum = hedgeAttemptNum;
+        }
+    }
+
+    private static void releaseUnusedConnection(Future<PooledConnection> connectResult) {
+        if (connectResult.isSuccess()) {
+            final PooledConnection conn = connectResult.getNow();
+            // Nothing was written, so it can go back in the pool.
+            conn.setConnectionState(PooledConnection.ConnectionState.WRITE_READY);
+            conn.release();
+        }
+    }
+
+    private static final class Hedge {
+        final int attemptNum;
+        final AtomicReference<Server> server = new AtomicReference<>();
+        final AtomicReference<String> hostAddr = new AtomicReference<>();
+        RequestStat stat;
+        RequestAttempt attempt;
+        PooledConnection conn;
+
+        Hedge(int attemptNum) {
+            this.attemptNum = attemptNum;
+        }
+    }
+
+    /**
+     * Watches the hedge's origin channel until either its response headers arrive, which makes it the winner, or it
+     * fails.  Either way it's only interested in the hedge that's still in flight.
+     */
+    private final class HedgeWatcher extends ChannelInboundHandlerAdapter {
+        private final Hedge h;
+
+        HedgeWatcher(Hedge h) {
+            this.h = h;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpResponse && hedge == h) {
+                final int status = ((HttpResponse) msg).status().code();
+                if (status >= 500) {
+                    // Leave it to the first attempt, rather than retrying.
+                    ReferenceCountUtil.release(msg);
+                    h.attempt.setStatus(status);
+                    endHedge(h, new OutboundException(OutboundErrorType.ERROR_STATUS_RESPONSE, requestAttempts));
+                    return;
+                }
+                ctx.pipeline().remove(this);
+                hedgeWon(h);
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            if (hedge == h) {
+                if (evt instanceof IdleStateEvent) {
+                    endHedge(h, new OutboundException(OutboundErrorType.READ_TIMEOUT, requestAttempts));
+                }
+                else if (evt instanceof CompleteEvent && ((CompleteEvent) evt).getReason() != SESSION_COMPLETE) {
+                    endHedge(h, new ZuulException("CompleteEvent", ((CompleteEvent) evt).getReason().name(), true));
+                }
+            }
+            ctx.fireUserEventTriggered(evt);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (hedge == h) {
+                endHedge(h, cause);
+            }
+            ctx.fireExceptionCaught(cause);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (hedge == h) {
+                endHedge(h, new OriginConnectException("Origin server inactive", OutboundErrorType.RESET_CONNECTION));
+            }
+            ctx.fireChannelInactive();
+        }
+    }
+
+
     /* static utility methods */
 
     protected HttpRequestMessage transformRequest(HttpRequestMessage requestMsg) {
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.filters.endpoint;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.config.CachedDynamicIntProperty;
+import com.netflix.config.CachedDynamicLongProperty;
+import com.netflix.zuul.netty.SpectatorUtils;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpContent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The request body sent to the origin so far, in order, so it can be sent again to retry the request.
+ *
+ * <p>Chunks are kept as retained duplicates of the ones written, so nothing is copied and the SSL handler consuming the
+ * written chunks doesn't empty them.  Chunks from the request's buffered body cost nothing extra, as the request holds
+ * on to them anyway, but chunks streamed to the origin without buffering would otherwise have been freed.  Those are
+ * limited to {@code zuul.retry.replay.buffer.max.bytes} per request and {@code zuul.retry.replay.buffer.global.max.bytes}
+ * across all requests; past either limit the buffer gives up and the request can't be retried.
+ *
+ * <p>Not thread safe, like the {@link ProxyEndpoint} that owns it.
+ */
+final class ReplayBuffer {
+
+    private static final CachedDynamicIntProperty MAX_BYTES =
+            new CachedDynamicIntProperty("zuul.retry.replay.buffer.max.bytes", 64 * 1024);
+    private static final CachedDynamicLongProperty GLOBAL_MAX_BYTES =
+            new CachedDynamicLongProperty("zuul.retry.replay.buffer.global.max.bytes", 64 * 1024 * 1024);
+    private static final AtomicLong GLOBAL_BYTES =
+            SpectatorUtils.newGauge("zuul.retry.replay.buffer.bytes", "streamed", new AtomicLong());
+
+    private final List<HttpContent> chunks = new ArrayList<>();
+    private int bufferedChunks;
+    private long streamedBytes;
+    private boolean overflowed;
+    private boolean released;
+
+    /**
+     * Writes the body sent to earlier attempts, followed by any of the request's buffered body that hasn't been sent
+     * yet, which is kept too.
+     */
+    void writeBody(Iterable<HttpContent> bufferedBody, Channel ch) {
+        if (!released) {
+            for (HttpContent chunk : chunks) {
+                ch.write(chunk.retainedDuplicate());
+            }
+        }
+        int i = 0;
+        for (HttpContent chunk : bufferedBody) {
+            if (i++ < bufferedChunks) {
+                continue;
+            }
+            bufferedChunks++;
+            if (!released) {
+                chunks.add(chunk.retainedDuplicate());
+            }
+            ch.write(chunk.retainedDuplicate());
+        }
+    }
+
+    /**
+     * Keeps a chunk that is about to be streamed to the origin without being buffered, unless that's over the limits.
+     */
+    void addStreamed(HttpContent chunk) {
+        if (released) {
+            return;
+        }
+        final int bytes = chunk.content().readableBytes();
+        if (streamedBytes + bytes > MAX_BYTES.get()) {
+            overflow();
+            return;
+        }
+        if (GLOBAL_BYTES.addAndGet(bytes) > GLOBAL_MAX_BYTES.get()) {
+            GLOBAL_BYTES.addAndGet(-bytes);
+            overflow();
+            return;
+        }
+        streamedBytes += bytes;
+        chunks.add(chunk.retainedDuplicate());
+    }
+
+    /**
+     * Whether all of the body sent so far can be sent again.
+     */
+    boolean isReplayable() {
+        return !overflowed;
+    }
+
+    /**
+     * Frees the chunks, once there won't be any more retries.
+     */
+    void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (HttpContent chunk : chunks) {
+            chunk.release();
+        }
+        chunks.clear();
+        GLOBAL_BYTES.addAndGet(-streamedBytes);
+        streamedBytes = 0;
+    }
+
+    @VisibleForTesting
+    long streamedBytes() {
+        return streamedBytes;
+    }
+
+    @VisibleForTesting
+    static long globalBytes() {
+        return GLOBAL_BYTES.get();
+    }
+
+    private void overflow() {
+        overflowed = true;
+        release();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.filters.endpoint;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.config.CachedDynamicBooleanProperty;
+import com.netflix.config.CachedDynamicIntProperty;
+import com.netflix.spectator.api.histogram.PercentileBuckets;
+import com.netflix.zuul.origins.AttemptBudget;
+import com.netflix.zuul.util.WindowedCounters;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * When to hedge requests to an origin, that is to send a second attempt to another server if the first hasn't answered
+ * yet, and the first answer wins.  The delay is a percentile of the time the origin took to send response headers over
+ * the last ten to twenty seconds, so only the slowest requests are hedged.  Nothing is hedged until there have been
+ * enough responses to tell.
+ *
+ * <p>Hedges across all origins are limited to a percentage of the requests that could have been hedged, by a shared
+ * {@link AttemptBudget}, so that a slow origin doesn't get its load doubled.
+ */
+public class RequestHedging {
+
+    private static final ConcurrentHashMap<String, RequestHedging> ORIGINS = new ConcurrentHashMap<>();
+
+    private static final CachedDynamicIntProperty BUDGET_PERCENT =
+            new CachedDynamicIntProperty("zuul.origin.hedge.budget.percent", 5);
+    private static final CachedDynamicIntProperty BUDGET_ALLOWANCE =
+            new CachedDynamicIntProperty("zuul.origin.hedge.budget.allowance", 10);
+    private static final AttemptBudget BUDGET =
+            new AttemptBudget(() -> BUDGET_PERCENT.get() / 100.0, BUDGET_ALLOWANCE::get);
+
+    private static final long WINDOW_MILLIS = 10_000;
+    private static final long MIN_SAMPLES = 100;
+    private static final long DELAY_REFRESH_MILLIS = 1000;
+
+    private final CachedDynamicBooleanProperty enabled;
+    private final CachedDynamicIntProperty percentile;
+    private final CachedDynamicIntProperty minDelay;
+    private final LongSupplier clock;
+    private final WindowedCounters<Counts> windows;
+
+    private volatile long delayMillis = -1;
+    private volatile long delayExpiresAt;
+
+    public static RequestHedging forOrigin(String originName) {
+        RequestHedging hedging = ORIGINS.get(originName);
+        if (hedging == null) {
+            hedging = ORIGINS.computeIfAbsent(originName, RequestHedging::new);
+        }
+        return hedging;
+    }
+
+    private RequestHedging(String originName) {
+        this(originName, System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    RequestHedging(String originName, LongSupplier clock) {
+        this.enabled = new CachedDynamicBooleanProperty("zuul.origin." + originName + ".hedge.enabled", false);
+        this.percentile = new CachedDynamicIntProperty("zuul.origin." + originName + ".hedge.percentile", 95);
+        this.minDelay = new CachedDynamicIntProperty("zuul.origin." + originName + ".hedge.delay.min", 5);
+        this.clock = clock;
+        this.windows = new WindowedCounters<>(WINDOW_MILLIS, Counts::new, clock);
+    }
+
+    public boolean isEnabled() {
+        return enabled.get();
+    }
+
+    /**
+     * Records how long an attempt took to get response headers from the origin.
+     */
+    public void recordResponseTime(long millis) {
+        final Counts counts = windows.current().counters();
+        counts.buckets.incrementAndGet(PercentileBuckets.indexOf(Math.max(millis, 0)));
+        counts.total.increment();
+    }
+
+    /**
+     * Milliseconds to wait for response headers before hedging, or -1 if there haven't been enough responses lately.
+     */
+    public long hedgeDelayMillis() {
+        final long now = clock.getAsLong();
+        if (now >= delayExpiresAt) {
+            delayMillis = computeDelayMillis();
+            delayExpiresAt = now + DELAY_REFRESH_MILLIS;
+        }
+        return delayMillis;
+    }
+
+    /**
+     * Counts a request that could be hedged towards the budget.
+     */
+    public void recordRequest() {
+        BUDGET.recordRequest();
+    }
+
+    /**
+     * Takes a hedge out of the budget, if there's one left.
+     */
+    public boolean tryAcquireHedge() {
+        return BUDGET.tryAcquire();
+    }
+
+    private long computeDelayMillis() {
+        final WindowedCounters.Window<Counts> window = windows.current();
+        final Counts current = window.counters();
+        final Counts previous = window.previousCounters();
+        long total = current.total.sum() + ((previous != null) ? previous.total.sum() : 0);
+        if (total < MIN_SAMPLES) {
+            return -1;
+        }
+        final long[] counts = new long[PercentileBuckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = current.buckets.get(i) + ((previous != null) ? previous.buckets.get(i) : 0);
+        }
+        return Math.max((long) PercentileBuckets.percentile(counts, percentile.get()), minDelay.get());
+    }
+
+    private static final class Counts {
+        final AtomicLongArray buckets = new AtomicLongArray(PercentileBuckets.length());
+        final LongAdder total = new LongAdder();
+    }
+}
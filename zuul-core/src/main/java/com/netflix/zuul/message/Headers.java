@@ -20,10 +20,13 @@ import static java.util.Objects.requireNonNull;
 import com.google.common.annotations.VisibleForTesting;
 import com.netflix.spectator.api.Spectator;
 import com.netflix.zuul.exception.ZuulException;
+import io.netty.handler.codec.http.HttpHeaders;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -39,28 +42,93 @@ import javax.annotation.Nullable;
  *
  * There are methods for getting and setting headers by String AND by HeaderName. When possible, use the HeaderName
  * variants and cache the HeaderName instances somewhere, to avoid case-insensitive String comparisons.
+ *
+ * Entries are kept in insertion order in packed parallel arrays, along with the hash of each normalised name so that
+ * most non-matching entries are skipped without a String comparison.  Once there are enough entries, lookups go
+ * through a small open-addressed index keyed on that hash instead of scanning.
+ *
+ * Headers created with {@link #lazyCopyOf(HttpHeaders)} defer copying the Netty headers they were created from until
+ * they are first modified or iterated, which lets unmodified request headers pass through without being rebuilt.
  */
 public final class Headers {
     private static final int ABSENT = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+    /**
+     * Headers with fewer entries than this are scanned linearly, which is faster than maintaining the index.
+     */
+    private static final int INDEX_THRESHOLD = 16;
+    private static final String[] EMPTY_STRINGS = new String[0];
+    private static final int[] EMPTY_HASHES = new int[0];
 
-    private final List<String> originalNames;
-    private final List<String> names;
-    private final List<String> values;
+    private String[] originalNames;
+    private String[] names;
+    private String[] values;
+    private int[] hashes;
+    private int size;
+
+    /**
+     * Open-addressed table from normalised name hash to the position of the first entry with that name.  Slots hold
+     * the position plus one, so that zero means empty.  Built lazily, and dropped whenever entries move.
+     */
+    @Nullable
+    private int[] index;
+
+    /**
+     * Netty headers whose entries have not been copied in yet.  While this is set, the arrays above are empty and
+     * lookups by name are answered from these instead.
+     */
+    @Nullable
+    private HttpHeaders nettyHeaders;
 
     public static Headers copyOf(Headers original) {
-        return new Headers(requireNonNull(original, "original"));
+        requireNonNull(original, "original");
+        if (original.nettyHeaders != null) {
+            // Neither copy ever modifies the Netty headers, so they can be shared until each copy is materialized.
+            return new Headers(original.nettyHeaders);
+        }
+        return new Headers(original);
+    }
+
+    /**
+     * Returns headers with the same entries as the given Netty headers.  The entries are copied on the first
+     * modification or iteration, so the Netty headers must not be modified after calling this method.
+     */
+    public static Headers lazyCopyOf(HttpHeaders nettyHeaders) {
+        return new Headers(requireNonNull(nettyHeaders, "nettyHeaders"));
     }
 
     public Headers() {
-        originalNames = new ArrayList<>();
-        names = new ArrayList<>();
-        values = new ArrayList<>();
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty headers object, sized to hold the given number of entries without resizing.
+     */
+    public Headers(int initialSize) {
+        if (initialSize < 0) {
+            throw new IllegalArgumentException("initialSize < 0: " + initialSize);
+        }
+        originalNames = new String[initialSize];
+        names = new String[initialSize];
+        values = new String[initialSize];
+        hashes = new int[initialSize];
+    }
+
+    private Headers(HttpHeaders nettyHeaders) {
+        originalNames = EMPTY_STRINGS;
+        names = EMPTY_STRINGS;
+        values = EMPTY_STRINGS;
+        hashes = EMPTY_HASHES;
+        this.nettyHeaders = nettyHeaders;
     }
 
     private Headers(Headers original) {
-        originalNames = new ArrayList<>(original.originalNames);
-        names = new ArrayList<>(original.names);
-        values = new ArrayList<>(original.values);
+        int capacity = Math.max(original.size, DEFAULT_CAPACITY);
+        originalNames = Arrays.copyOf(original.originalNames, capacity);
+        names = Arrays.copyOf(original.names, capacity);
+        values = Arrays.copyOf(original.values, capacity);
+        hashes = Arrays.copyOf(original.hashes, capacity);
+        size = original.size;
     }
 
     /**
@@ -70,7 +138,7 @@ public final class Headers {
     @Nullable
     public String getFirst(String headerName) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
-        return getFirstNormal(normalName);
+        return getFirstNormal(normalName, normalName.hashCode());
     }
 
     /**
@@ -80,17 +148,16 @@ public final class Headers {
     @Nullable
     public String getFirst(HeaderName headerName) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
-        return getFirstNormal(normalName);
+        return getFirstNormal(normalName, headerName.hashCode());
     }
 
     @Nullable
-    private String getFirstNormal(String name) {
-        for (int i = 0; i < size(); i++) {
-            if (name(i).equals(name)) {
-                return value(i);
-            }
+    private String getFirstNormal(String normalName, int hash) {
+        if (nettyHeaders != null) {
+            return nettyHeaders.get(normalName);
         }
-        return null;
+        int i = findNormal(normalName, hash);
+        return i != ABSENT ? value(i) : null;
     }
 
     /**
@@ -124,7 +191,7 @@ public final class Headers {
      */
     public List<String> getAll(String headerName) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
-        return getAllNormal(normalName);
+        return getAllNormal(normalName, normalName.hashCode());
     }
 
     /**
@@ -132,21 +199,31 @@ public final class Headers {
      */
     public List<String> getAll(HeaderName headerName) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
-        return getAllNormal(normalName);
+        return getAllNormal(normalName, headerName.hashCode());
     }
 
-    private List<String> getAllNormal(String normalName) {
+    private List<String> getAllNormal(String normalName, int hash) {
+        if (nettyHeaders != null) {
+            List<String> all = nettyHeaders.getAll(normalName);
+            return all.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(all);
+        }
+        int first = findNormal(normalName, hash);
+        if (first == ABSENT) {
+            return Collections.emptyList();
+        }
+        String firstValue = value(first);
         List<String> results = null;
-        for (int i = 0; i < size(); i++) {
-            if (name(i).equals(normalName)) {
+        for (int i = first + 1; i < size; i++) {
+            if (matches(i, normalName, hash)) {
                 if (results == null) {
-                    results = new ArrayList<>(1);
+                    results = new ArrayList<>(2);
+                    results.add(firstValue);
                 }
                 results.add(value(i));
             }
         }
         if (results == null) {
-            return Collections.emptyList();
+            return Collections.singletonList(firstValue);
         } else {
             return Collections.unmodifiableList(results);
         }
@@ -158,7 +235,8 @@ public final class Headers {
      * the headers during iteration.
      */
     public void forEachNormalised(BiConsumer<? super String, ? super String> entryConsumer) {
-        for (int i = 0; i < size(); i++) {
+        materialize();
+        for (int i = 0; i < size; i++) {
             entryConsumer.accept(name(i), value(i));
         }
     }
@@ -170,7 +248,7 @@ public final class Headers {
      */
     public void set(String headerName, @Nullable String value) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
-        setNormal(headerName, normalName, value);
+        setNormal(headerName, normalName, normalName.hashCode(), value);
     }
 
     /**
@@ -180,7 +258,7 @@ public final class Headers {
      */
     public void set(HeaderName headerName, String value) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
-        setNormal(headerName.getName(), normalName, value);
+        setNormal(headerName.getName(), normalName, headerName.hashCode(), value);
     }
 
     /**
@@ -192,7 +270,7 @@ public final class Headers {
      */
     public void setAndValidate(String headerName, @Nullable String value) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
-        setNormal(validateField(headerName), validateField(normalName), validateField(value));
+        setNormal(validateField(headerName), validateField(normalName), normalName.hashCode(), validateField(value));
     }
 
     /**
@@ -204,14 +282,17 @@ public final class Headers {
      */
     public void setAndValidate(HeaderName headerName, String value) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
-        setNormal(validateField(headerName.getName()), validateField(normalName), validateField(value));
+        setNormal(
+                validateField(headerName.getName()), validateField(normalName), headerName.hashCode(),
+                validateField(value));
     }
 
-    private void setNormal(String originalName, String normalName, @Nullable String value) {
-        int i = findNormal(normalName);
+    private void setNormal(String originalName, String normalName, int hash, @Nullable String value) {
+        materialize();
+        int i = findNormal(normalName, hash);
         if (i == ABSENT) {
             if (value != null) {
-                addNormal(originalName, normalName, value);
+                addNormal(originalName, normalName, hash, value);
             }
             return;
         }
@@ -220,34 +301,40 @@ public final class Headers {
             originalName(i, originalName);
             i++;
         }
-        clearMatchingStartingAt(i, normalName, /* removed= */ null);
+        clearMatchingStartingAt(i, normalName, hash, /* removed= */ null);
     }
 
     /**
      * Returns the first index entry that has a matching name.  Returns {@link #ABSENT} if absent.
      */
-    private int findNormal(String normalName) {
-        for (int i = 0; i < size(); i++) {
-            if (name(i).equals(normalName)) {
+    private int findNormal(String normalName, int hash) {
+        if (size >= INDEX_THRESHOLD) {
+            return indexLookup(normalName, hash);
+        }
+        for (int i = 0; i < size; i++) {
+            if (matches(i, normalName, hash)) {
                 return i;
             }
         }
-        return -1;
+        return ABSENT;
+    }
+
+    private boolean matches(int i, String normalName, int hash) {
+        return hashes[i] == hash && names[i].equals(normalName);
     }
 
     /**
      * Removes entries that match the name, starting at the given index.
      */
-    private void clearMatchingStartingAt(int i, String normalName, @Nullable Collection<? super String> removed) {
+    private void clearMatchingStartingAt(
+            int i, String normalName, int hash, @Nullable Collection<? super String> removed) {
         // This works by having separate read and write indexes, that iterate along the list.
         // Values that don't match are moved to the front, leaving garbage values in place.
         // At the end, all values at and values are garbage and are removed.
         int w = i;
-        for (int r = i; r < size(); r++) {
-            if (!name(r).equals(normalName)) {
-                originalName(w, originalName(r));
-                name(w, name(r));
-                value(w, value(r));
+        for (int r = i; r < size; r++) {
+            if (!matches(r, normalName, hash)) {
+                move(r, w);
                 w++;
             } else if (removed != null) {
                 removed.add(value(r));
@@ -265,7 +352,7 @@ public final class Headers {
     public boolean setIfAbsent(String headerName, String value) {
         requireNonNull(value, "value");
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
-        return setIfAbsentNormal(headerName, normalName, value);
+        return setIfAbsentNormal(headerName, normalName, normalName.hashCode(), value);
     }
 
     /**
@@ -277,15 +364,16 @@ public final class Headers {
     public boolean setIfAbsent(HeaderName headerName, String value) {
         requireNonNull(value, "value");
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
-        return setIfAbsentNormal(headerName.getName(), normalName, value);
+        return setIfAbsentNormal(headerName.getName(), normalName, headerName.hashCode(), value);
     }
 
-    private boolean setIfAbsentNormal(String originalName, String normalName, String value) {
-        int i = findNormal(normalName);
+    private boolean setIfAbsentNormal(String originalName, String normalName, int hash, String value) {
+        materialize();
+        int i = findNormal(normalName, hash);
         if (i != ABSENT) {
             return false;
         }
-        addNormal(originalName, normalName, value);
+        addNormal(originalName, normalName, hash, value);
         return true;
     }
 
@@ -295,7 +383,7 @@ public final class Headers {
     public void add(String headerName, String value) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
         requireNonNull(value, "value");
-        addNormal(headerName, normalName, value);
+        addNormal(headerName, normalName, normalName.hashCode(), value);
     }
 
     /**
@@ -304,7 +392,7 @@ public final class Headers {
     public void add(HeaderName headerName, String value) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
         requireNonNull(value, "value");
-        addNormal(headerName.getName(), normalName, value);
+        addNormal(headerName.getName(), normalName, headerName.hashCode(), value);
     }
 
     /**
@@ -315,7 +403,7 @@ public final class Headers {
     public void addAndValidate(String headerName, String value) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
         requireNonNull(value, "value");
-        addNormal(validateField(headerName), validateField(normalName), validateField(value));
+        addNormal(validateField(headerName), validateField(normalName), normalName.hashCode(), validateField(value));
     }
 
     /**
@@ -326,15 +414,19 @@ public final class Headers {
     public void addAndValidate(HeaderName headerName, String value) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
         requireNonNull(value, "value");
-        addNormal(validateField(headerName.getName()), validateField(normalName), validateField(value));
+        addNormal(
+                validateField(headerName.getName()), validateField(normalName), headerName.hashCode(),
+                validateField(value));
     }
 
     /**
      * Adds all the headers into this headers object.
      */
     public void putAll(Headers headers) {
-        for (int i = 0; i < headers.size(); i++) {
-            addNormal(headers.originalName(i), headers.name(i), headers.value(i));
+        materialize();
+        headers.materialize();
+        for (int i = 0; i < headers.size; i++) {
+            addNormal(headers.originalName(i), headers.name(i), headers.hashes[i], headers.value(i));
         }
     }
 
@@ -343,7 +435,7 @@ public final class Headers {
      */
     public List<String> remove(String headerName) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
-        return removeNormal(normalName);
+        return removeNormal(normalName, normalName.hashCode());
     }
 
     /**
@@ -351,12 +443,17 @@ public final class Headers {
      */
     public List<String> remove(HeaderName headerName) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
-        return removeNormal(normalName);
+        return removeNormal(normalName, headerName.hashCode());
     }
 
-    private List<String> removeNormal(String normalName) {
-        List<String> removed = new ArrayList<>();
-        clearMatchingStartingAt(0, normalName, removed);
+    private List<String> removeNormal(String normalName, int hash) {
+        materialize();
+        int first = findNormal(normalName, hash);
+        if (first == ABSENT) {
+            return Collections.emptyList();
+        }
+        List<String> removed = new ArrayList<>(1);
+        clearMatchingStartingAt(first, normalName, hash, removed);
         return Collections.unmodifiableList(removed);
     }
 
@@ -368,15 +465,14 @@ public final class Headers {
      */
     public boolean removeIf(Predicate<? super Map.Entry<HeaderName, String>> filter) {
         requireNonNull(filter, "filter");
+        materialize();
         boolean removed = false;
         int w = 0;
-        for (int r = 0; r < size(); r++) {
+        for (int r = 0; r < size; r++) {
             if (filter.test(new SimpleImmutableEntry<>(new HeaderName(originalName(r), name(r)), value(r)))) {
                 removed = true;
             } else {
-                originalName(w, originalName(r));
-                name(w, name(r));
-                value(w, value(r));
+                move(r, w);
                 w++;
             }
         }
@@ -388,8 +484,9 @@ public final class Headers {
      * Returns the collection of headers.
      */
     public Collection<Header> entries() {
+        materialize();
         List<Header> entries = new ArrayList<>(size());
-        for (int i = 0; i < size(); i++) {
+        for (int i = 0; i < size; i++) {
             entries.add(new Header(new HeaderName(originalName(i), name(i)), value(i)));
         }
         return Collections.unmodifiableList(entries);
@@ -400,8 +497,9 @@ public final class Headers {
      * one present takes precedence.
      */
     public Set<HeaderName> keySet() {
+        materialize();
         Set<HeaderName> headerNames = new LinkedHashSet<>(size());
-        for (int i = 0 ; i < size(); i++) {
+        for (int i = 0 ; i < size; i++) {
             HeaderName headerName = new HeaderName(originalName(i), name(i));
             // We actually do need to check contains before adding to the set because the original name may change.
             // In this case, the first name wins.
@@ -417,7 +515,7 @@ public final class Headers {
      */
     public boolean contains(String headerName) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
-        return findNormal(normalName) != ABSENT;
+        return containsNormal(normalName, normalName.hashCode());
     }
 
     /**
@@ -425,7 +523,7 @@ public final class Headers {
      */
     public boolean contains(HeaderName headerName) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
-        return findNormal(normalName) != ABSENT;
+        return containsNormal(normalName, headerName.hashCode());
     }
 
     /**
@@ -434,7 +532,7 @@ public final class Headers {
     public boolean contains(String headerName, String value) {
         String normalName = HeaderName.normalize(requireNonNull(headerName, "headerName"));
         requireNonNull(value, "value");
-        return containsNormal(normalName, value);
+        return containsNormal(normalName, normalName.hashCode(), value);
     }
 
     /**
@@ -443,12 +541,26 @@ public final class Headers {
     public boolean contains(HeaderName headerName, String value) {
         String normalName = requireNonNull(headerName, "headerName").getNormalised();
         requireNonNull(value, "value");
-        return containsNormal(normalName, value);
+        return containsNormal(normalName, headerName.hashCode(), value);
+    }
+
+    private boolean containsNormal(String normalName, int hash) {
+        if (nettyHeaders != null) {
+            return nettyHeaders.contains(normalName);
+        }
+        return findNormal(normalName, hash) != ABSENT;
     }
 
-    private boolean containsNormal(String normalName, String value) {
-        for (int i = 0; i < size(); i++) {
-            if (name(i).equals(normalName) && value(i).equals(value)) {
+    private boolean containsNormal(String normalName, int hash, String value) {
+        if (nettyHeaders != null) {
+            return nettyHeaders.contains(normalName, value, /* ignoreCase= */ false);
+        }
+        int first = findNormal(normalName, hash);
+        if (first == ABSENT) {
+            return false;
+        }
+        for (int i = first; i < size; i++) {
+            if (matches(i, normalName, hash) && value(i).equals(value)) {
                 return true;
             }
         }
@@ -459,7 +571,26 @@ public final class Headers {
      * Returns the number of header entries.
      */
     public int size() {
-        return names.size();
+        if (nettyHeaders != null) {
+            return nettyHeaders.size();
+        }
+        return size;
+    }
+
+    /**
+     * Adds every header entry to the given Netty headers, keeping the original case of the names.  Headers that have
+     * not been modified since {@link #lazyCopyOf(HttpHeaders)} are added straight from the Netty headers they were
+     * created from.
+     */
+    public void copyInto(HttpHeaders target) {
+        requireNonNull(target, "target");
+        if (nettyHeaders != null) {
+            target.add(nettyHeaders);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            target.add(originalName(i), value(i));
+        }
     }
 
     /**
@@ -491,8 +622,9 @@ public final class Headers {
     }
 
     private Map<String, List<String>> asMap() {
+        materialize();
         Map<String, List<String>> map = new LinkedHashMap<>(size());
-        for (int i = 0; i < size(); i++) {
+        for (int i = 0; i < size; i++) {
             map.computeIfAbsent(name(i), k -> new ArrayList<>(1)).add(value(i));
         }
         // Return an unwrapped collection since it should not ever be returned on the API.
@@ -508,46 +640,150 @@ public final class Headers {
     }
 
     private String originalName(int i) {
-        return originalNames.get(i);
+        return originalNames[i];
     }
 
     private void originalName(int i, String originalName) {
-        originalNames.set(i, originalName);
+        originalNames[i] = originalName;
     }
 
     private String name(int i) {
-        return names.get(i);
-    }
-
-    private void name(int i, String name) {
-        names.set(i, name);
+        return names[i];
     }
 
     private String value(int i) {
-        return values.get(i);
+        return values[i];
     }
 
     private void value(int i, String val) {
-        values.set(i, val);
+        values[i] = val;
     }
 
-    private void addNormal(String originalName, String normalName, String value) {
-        originalNames.add(originalName);
-        names.add(normalName);
-        values.add(value);
+    /**
+     * Moves the entry at position {@code from} to position {@code to}.  Callers must drop the index if any entry ends
+     * up at a different position.
+     */
+    private void move(int from, int to) {
+        if (from != to) {
+            originalNames[to] = originalNames[from];
+            names[to] = names[from];
+            values[to] = values[from];
+            hashes[to] = hashes[from];
+        }
+    }
+
+    /**
+     * Copies in the entries of the Netty headers this object was lazily created from, if that has not happened yet.
+     */
+    private void materialize() {
+        HttpHeaders source = nettyHeaders;
+        if (source == null) {
+            return;
+        }
+        nettyHeaders = null;
+        int capacity = Math.max(source.size(), DEFAULT_CAPACITY);
+        originalNames = new String[capacity];
+        names = new String[capacity];
+        values = new String[capacity];
+        hashes = new int[capacity];
+        Iterator<Map.Entry<CharSequence, CharSequence>> it = source.iteratorCharSequence();
+        while (it.hasNext()) {
+            Map.Entry<CharSequence, CharSequence> entry = it.next();
+            String originalName = entry.getKey().toString();
+            String normalName = HeaderName.normalize(originalName);
+            addNormal(originalName, normalName, normalName.hashCode(), entry.getValue().toString());
+        }
+    }
+
+    private void addNormal(String originalName, String normalName, int hash, String value) {
+        materialize();
+        if (size == names.length) {
+            int newCapacity = Math.max(DEFAULT_CAPACITY, size << 1);
+            originalNames = Arrays.copyOf(originalNames, newCapacity);
+            names = Arrays.copyOf(names, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            hashes = Arrays.copyOf(hashes, newCapacity);
+        }
+        int i = size++;
+        originalNames[i] = originalName;
+        names[i] = normalName;
+        values[i] = value;
+        hashes[i] = hash;
+        if (index != null) {
+            if (size << 1 > index.length) {
+                // Let the next lookup rebuild it at a larger size.
+                index = null;
+            } else {
+                indexInsertIfAbsent(i);
+            }
+        }
     }
 
     /**
      * Removes all elements at and after the given index.
      */
     private void truncate(int i) {
-        for (int k = size() - 1; k >= i; k--) {
-            originalNames.remove(k);
-            names.remove(k);
-            values.remove(k);
+        if (i == size) {
+            return;
+        }
+        Arrays.fill(originalNames, i, size, null);
+        Arrays.fill(names, i, size, null);
+        Arrays.fill(values, i, size, null);
+        size = i;
+        // Entries after the first removed one may have moved, so positions in the index can no longer be trusted.
+        index = null;
+    }
+
+    private int indexLookup(String normalName, int hash) {
+        int[] idx = index;
+        if (idx == null) {
+            idx = buildIndex();
+        }
+        int mask = idx.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = idx[slot];
+            if (entry == 0) {
+                return ABSENT;
+            }
+            if (matches(entry - 1, normalName, hash)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int[] buildIndex() {
+        // Keep the table at most half full, so probe sequences stay short.
+        int capacity = Integer.highestOneBit(Math.max(size, INDEX_THRESHOLD) << 2);
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            indexInsertIfAbsent(i);
+        }
+        return index;
+    }
+
+    /**
+     * Records the entry at the given position, unless an earlier entry with the same name is already indexed.
+     */
+    private void indexInsertIfAbsent(int i) {
+        int[] idx = index;
+        int mask = idx.length - 1;
+        int hash = hashes[i];
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = idx[slot];
+            if (entry == 0) {
+                idx[slot] = i + 1;
+                return;
+            }
+            if (matches(entry - 1, names[i], hash)) {
+                return;
+            }
         }
     }
 
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
     private String validateField(String value) {
         if (value != null) {
             int l = value.length();
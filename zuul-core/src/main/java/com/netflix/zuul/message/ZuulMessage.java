@@ -18,6 +18,9 @@ package com.netflix.zuul.message;
 
 import com.netflix.zuul.context.SessionContext;
 import com.netflix.zuul.filters.ZuulFilter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.LastHttpContent;
 import javax.annotation.Nullable;
@@ -65,6 +68,27 @@ public interface ZuulMessage extends Cloneable {
     @Nullable
     byte[] getBody();
 
+    /**
+     * Returns a read-only view of the buffered message body, without copying the underlying content chunks.  If there
+     * is no message body, this returns {@code null}.  The view shares its reference count with the buffered chunks, so
+     * callers must NOT release it, and should not use it after the body is mutated or disposed.  Prefer this method to
+     * {@link #getBody()} when inspecting large bodies.
+     */
+    @Nullable
+    default ByteBuf getBodyView() {
+        CompositeByteBuf body = null;
+        for (HttpContent chunk : getBodyContents()) {
+            if (body == null) {
+                body = Unpooled.compositeBuffer();
+            }
+            ByteBuf content = chunk.content();
+            if (content.isReadable()) {
+                body.addComponent(true, content.duplicate());
+            }
+        }
+        return body != null ? body.asReadOnly() : null;
+    }
+
     /**
      * Returns the length of the message body, or {@code 0} if there isn't a message present.
      */
@@ -139,29 +139,35 @@ public class ZuulMessageImpl implements ZuulMessage
 
     @Override
     public String getBodyAsText() {
-        final byte[] body = getBody();
-        return (body != null && body.length > 0) ? new String(getBody(), Charsets.UTF_8) : null;
+        final ByteBuf body = getBodyView();
+        return (body != null && body.isReadable()) ? body.toString(Charsets.UTF_8) : null;
     }
 
     @Override
     public byte[] getBody() {
-        if (bodyChunks.size() == 0) {
+        final ByteBuf body = getBodyView();
+        return body != null ? ByteBufUtil.getBytes(body) : null;
+    }
+
+    @Override
+    public ByteBuf getBodyView() {
+        final int chunkCount = bodyChunks.size();
+        if (chunkCount == 0) {
             return null;
         }
-
-        int size = 0;
-        for (final HttpContent chunk : bodyChunks) {
-            size += chunk.content().readableBytes();
+        if (chunkCount == 1) {
+            return bodyChunks.get(0).content().asReadOnly();
         }
-        final byte[] body = new byte[size];
-        int offset = 0;
+
+        // The components are duplicates, so the chunks are neither copied nor retained by the composite.
+        final CompositeByteBuf body = Unpooled.compositeBuffer(chunkCount);
         for (final HttpContent chunk : bodyChunks) {
             final ByteBuf content = chunk.content();
-            final int len = content.readableBytes();
-            content.getBytes(content.readerIndex(), body, offset, len);
-            offset += len;
+            if (content.isReadable()) {
+                body.addComponent(true, content.duplicate());
+            }
         }
-        return body;
+        return body.asReadOnly();
     }
 
     @Override
@@ -17,11 +17,14 @@
 package com.netflix.zuul.message.http;
 
 import io.netty.handler.codec.http.Cookie;
+import io.netty.handler.codec.http.DefaultCookie;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * User: Mike Smith
@@ -30,10 +33,191 @@ import java.util.Map;
  */
 public class Cookies
 {
+    private static final String RFC2965_VERSION = "$Version";
+    private static final String RFC2965_PATH = "$Path";
+    private static final String RFC2965_DOMAIN = "$Domain";
+    private static final String RFC2965_PORT = "$Port";
+
+    /** The fields of {@link #offsets} for each indexed cookie. */
+    private static final int HEADER = 0, NAME_BEGIN = 1, NAME_END = 2, VALUE_BEGIN = 3, VALUE_END = 4, FIELDS = 5;
+
     private Map<String, List<Cookie>> map = new HashMap<>();
     private List<Cookie> all = new ArrayList<>();
 
+    /** Cookie headers that have been indexed but not decoded, or null once everything has been decoded. */
+    private String[] headers;
+    private int[] offsets;
+    private int count;
+    /** The cookies created so far for lookups by name, by position in the index. */
+    private Cookie[] created;
+
+    public Cookies()
+    {
+    }
+
+    /**
+     * Indexes the given request Cookie headers, following the lax rules of Netty's ServerCookieDecoder.  Only the
+     * name and value offsets are recorded; looking a cookie up by name creates just the cookies with that name, and
+     * anything else decodes all of them.
+     *
+     * As with the decoder, only the first cookie of each name is kept from each header.
+     */
+    Cookies(List<String> cookieHeaders)
+    {
+        headers = cookieHeaders.toArray(new String[0]);
+        offsets = new int[FIELDS * 8];
+        for (int h = 0; h < headers.length; h++) {
+            index(h, headers[h]);
+        }
+        created = new Cookie[count];
+    }
+
+    private void index(int h, String header)
+    {
+        final int length = header.length();
+        int i = 0;
+        boolean rfc2965Style = false;
+        if (header.regionMatches(true, 0, RFC2965_VERSION, 0, RFC2965_VERSION.length())) {
+            // RFC 2965 style cookie, move to after version value
+            i = header.indexOf(';') + 1;
+            rfc2965Style = true;
+        }
+
+        while (true) {
+            // Skip spaces and separators.
+            while (i < length && isSeparator(header.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                return;
+            }
+
+            final int nameBegin = i;
+            int nameEnd = -1;
+            int valueBegin = -1;
+            int valueEnd = -1;
+            while (i < length) {
+                final char c = header.charAt(i);
+                if (c == ';') {
+                    nameEnd = i;
+                    break;
+                }
+                if (c == '=') {
+                    nameEnd = i++;
+                    final int semi = header.indexOf(';', i);
+                    valueBegin = i;
+                    valueEnd = i = semi > 0 ? semi : length;
+                    break;
+                }
+                i++;
+            }
+            if (nameEnd == -1) {
+                nameEnd = length;
+            }
+
+            if (rfc2965Style && (header.startsWith(RFC2965_PATH, nameBegin)
+                    || header.startsWith(RFC2965_DOMAIN, nameBegin)
+                    || header.startsWith(RFC2965_PORT, nameBegin))) {
+                continue;
+            }
+            if (valueBegin == -1) {
+                // Skipping cookie with no value.
+                continue;
+            }
+            if (valueBegin < valueEnd && header.charAt(valueBegin) == '"'
+                    && (valueEnd - valueBegin < 2 || header.charAt(valueEnd - 1) != '"')) {
+                // Skipping cookie because starting quotes are not properly balanced.
+                continue;
+            }
+
+            // Cookie names are trimmed.
+            int trimmedBegin = nameBegin;
+            int trimmedEnd = nameEnd;
+            while (trimmedBegin < trimmedEnd && header.charAt(trimmedBegin) <= ' ') {
+                trimmedBegin++;
+            }
+            while (trimmedEnd > trimmedBegin && header.charAt(trimmedEnd - 1) <= ' ') {
+                trimmedEnd--;
+            }
+            if (trimmedBegin == trimmedEnd) {
+                continue;
+            }
+
+            if ((count + 1) * FIELDS > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            final int o = count++ * FIELDS;
+            offsets[o + HEADER] = h;
+            offsets[o + NAME_BEGIN] = trimmedBegin;
+            offsets[o + NAME_END] = trimmedEnd;
+            offsets[o + VALUE_BEGIN] = valueBegin;
+            offsets[o + VALUE_END] = valueEnd;
+        }
+    }
+
+    private static boolean isSeparator(char c)
+    {
+        return c == '\t' || c == '\n' || c == 0x0b || c == '\f' || c == '\r' || c == ' ' || c == ',' || c == ';';
+    }
+
+    private boolean nameEquals(int n, String name)
+    {
+        final int o = n * FIELDS;
+        final int nameBegin = offsets[o + NAME_BEGIN];
+        final int nameLength = offsets[o + NAME_END] - nameBegin;
+        return nameLength == name.length() && headers[offsets[o + HEADER]].regionMatches(nameBegin, name, 0, nameLength);
+    }
+
+    private Cookie cookieAt(int n)
+    {
+        Cookie cookie = created[n];
+        if (cookie == null) {
+            final int o = n * FIELDS;
+            final String header = headers[offsets[o + HEADER]];
+            final String name = header.substring(offsets[o + NAME_BEGIN], offsets[o + NAME_END]);
+            final int valueBegin = offsets[o + VALUE_BEGIN];
+            final int valueEnd = offsets[o + VALUE_END];
+            final boolean wrap = valueEnd - valueBegin >= 2 && header.charAt(valueBegin) == '"';
+            final String value = wrap
+                    ? header.substring(valueBegin + 1, valueEnd - 1)
+                    : header.substring(valueBegin, valueEnd);
+            cookie = new DefaultCookie(name, value);
+            cookie.setWrap(wrap);
+            created[n] = cookie;
+        }
+        return cookie;
+    }
+
+    /**
+     * Decodes all indexed cookies, in the order that the decoder would have returned them.
+     */
+    private void decodeAll()
+    {
+        if (headers == null) {
+            return;
+        }
+        int n = 0;
+        for (int h = 0; h < headers.length; h++) {
+            final TreeSet<Cookie> decoded = new TreeSet<>();
+            for (; n < count && offsets[n * FIELDS + HEADER] == h; n++) {
+                decoded.add(cookieAt(n));
+            }
+            for (Cookie cookie : decoded) {
+                addDecoded(cookie);
+            }
+        }
+        headers = null;
+        offsets = null;
+        created = null;
+    }
+
     public void add(Cookie cookie)
+    {
+        decodeAll();
+        addDecoded(cookie);
+    }
+
+    private void addDecoded(Cookie cookie)
     {
         List<Cookie> existing = map.get(cookie.getName());
         if (existing == null) {
@@ -46,16 +230,40 @@ public class Cookies
 
     public List<Cookie> getAll()
     {
+        decodeAll();
         return all;
     }
 
     public List<Cookie> get(String name)
     {
+        if (headers != null) {
+            List<Cookie> found = null;
+            int lastHeader = -1;
+            for (int n = 0; n < count; n++) {
+                final int h = offsets[n * FIELDS + HEADER];
+                if (h != lastHeader && nameEquals(n, name)) {
+                    if (found == null) {
+                        found = new ArrayList<>(headers.length);
+                    }
+                    found.add(cookieAt(n));
+                    lastHeader = h;
+                }
+            }
+            return found;
+        }
         return map.get(name);
     }
 
     public Cookie getFirst(String name)
     {
+        if (headers != null) {
+            for (int n = 0; n < count; n++) {
+                if (nameEquals(n, name)) {
+                    return cookieAt(n);
+                }
+            }
+            return null;
+        }
         List<Cookie> found = map.get(name);
         if (found == null || found.size() == 0) {
             return null;
@@ -23,86 +23,188 @@ import com.google.common.collect.ListMultimap;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.util.AbstractList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.StringTokenizer;
+import javax.annotation.Nullable;
 
 /**
+ * The query params of a request.
+ *
+ * Params created by {@link #parse(String)} are not parsed until they are first read or modified, and while they are
+ * unmodified {@link #toEncodedString()} returns the original query string rather than re-encoding it.
+ *
  * User: michaels
  * Date: 2/24/15
  * Time: 10:58 AM
  */
 public class HttpQueryParams implements Cloneable
 {
-    private final ListMultimap<String, String> delegate;
+    /**
+     * Null until {@link #rawQuery} has been parsed.  Volatile, and written after {@link #trailingEquals}, so that a
+     * lazily parsed immutable copy can be read from more than one thread.
+     */
+    private volatile ListMultimap<String, String> delegate;
     private final boolean immutable;
-    private final HashMap<String, Boolean> trailingEquals;
+    private HashMap<String, Boolean> trailingEquals;
+
+    /**
+     * The query string these params were parsed from.  Cleared when the params are modified.
+     */
+    @Nullable
+    private String rawQuery;
+    /**
+     * The number of params parsed from {@link #rawQuery}, used to detect removals through the {@link #entries()} and
+     * {@link #keySet()} views, which can't otherwise modify the params.  Changes through {@link #get(String)} are
+     * tracked by the list it returns.
+     */
+    private int rawQuerySize;
 
     public HttpQueryParams()
     {
+        trailingEquals = new HashMap<>();
         delegate = ArrayListMultimap.create();
         immutable = false;
-        trailingEquals = new HashMap<>();
     }
 
-    private HttpQueryParams(ListMultimap<String, String> delegate)
+    private HttpQueryParams(ListMultimap<String, String> delegate, HashMap<String, Boolean> trailingEquals)
     {
+        this.trailingEquals = trailingEquals;
         this.delegate = delegate;
         immutable = ImmutableListMultimap.class.isAssignableFrom(delegate.getClass());
-        trailingEquals = new HashMap<>();
+    }
+
+    private HttpQueryParams(String rawQuery, boolean immutable)
+    {
+        this.rawQuery = rawQuery;
+        this.immutable = immutable;
     }
 
     public static HttpQueryParams parse(String queryString) {
-        HttpQueryParams queryParams = new HttpQueryParams();
         if (queryString == null) {
-            return queryParams;
+            return new HttpQueryParams();
         }
+        return new HttpQueryParams(queryString, false);
+    }
 
-        StringTokenizer st = new StringTokenizer(queryString, "&");
-        int i;
-        while (st.hasMoreTokens()) {
-            String s = st.nextToken();
-            i = s.indexOf("=");
-            // key-value query param
-            if (i > 0) {
-                String name = s.substring(0, i);
-                String value = s.substring(i + 1);
-
-                try {
-                    name = URLDecoder.decode(name, "UTF-8");
-                    value = URLDecoder.decode(value, "UTF-8");
+    private ListMultimap<String, String> params()
+    {
+        ListMultimap<String, String> params = delegate;
+        if (params == null) {
+            params = parseRawQuery();
+        }
+        return params;
+    }
+
+    /**
+     * Splits the raw query in a single pass.  Only names and values that contain escapes are run through the
+     * {@link URLDecoder}.
+     */
+    private ListMultimap<String, String> parseRawQuery()
+    {
+        final String query = rawQuery;
+        final ListMultimap<String, String> params = ArrayListMultimap.create();
+        final HashMap<String, Boolean> trailing = new HashMap<>();
+
+        final int length = query.length();
+        int start = 0;
+        while (start < length) {
+            int end = query.indexOf('&', start);
+            if (end == -1) {
+                end = length;
+            }
+            if (end > start) {
+                int eq = start;
+                while (eq < end && query.charAt(eq) != '=') {
+                    eq++;
                 }
-                catch (Exception e) {
-                    // do nothing
+                // key-value query param
+                if (eq > start && eq < end) {
+                    String name = query.substring(start, eq);
+                    String value = query.substring(eq + 1, end);
+                    try {
+                        name = decode(name);
+                        value = decode(value);
+                    }
+                    catch (Exception e) {
+                        // do nothing
+                    }
+
+                    params.put(name, value);
+
+                    // respect trailing equals for key-only params
+                    if (value.isEmpty() && eq == end - 1) {
+                        trailing.put(name, true);
+                    }
                 }
-
-                queryParams.add(name, value);
-
-                // respect trailing equals for key-only params
-                if (s.endsWith("=") && value.isEmpty()) {
-                    queryParams.setTrailingEquals(name, true);
+                // key only
+                else {
+                    String name = query.substring(start, end);
+                    try {
+                        name = decode(name);
+                    }
+                    catch (Exception e) {
+                        // do nothing
+                    }
+
+                    params.put(name, "");
                 }
             }
-            // key only
-            else if (s.length() > 0) {
-                String name = s;
+            start = end + 1;
+        }
 
-                try {
-                    name = URLDecoder.decode(name, "UTF-8");
-                }
-                catch (Exception e) {
-                    // do nothing
-                }
+        rawQuerySize = params.size();
+        final ListMultimap<String, String> parsed = immutable ? ImmutableListMultimap.copyOf(params) : params;
+        trailingEquals = trailing;
+        delegate = parsed;
+        return parsed;
+    }
 
-                queryParams.add(name, "");
-            }
+    private static String decode(String s) throws UnsupportedEncodingException
+    {
+        if (s.indexOf('%') == -1 && s.indexOf('+') == -1) {
+            return s;
+        }
+        return URLDecoder.decode(s, "UTF-8");
+    }
+
+    /**
+     * Called after every modification, since the raw query no longer represents these params.
+     */
+    private void modified()
+    {
+        rawQuery = null;
+    }
+
+    /**
+     * Whether {@link #rawQuery} can be emitted as is.  That requires the params to be unmodified, and the raw query to
+     * have none of the empty or nameless params that parsing drops or re-encodes.
+     */
+    private boolean canUseRawQuery()
+    {
+        final String query = rawQuery;
+        if (query == null) {
+            return false;
+        }
+        final ListMultimap<String, String> params = delegate;
+        if (params != null && params.size() != rawQuerySize) {
+            return false;
         }
 
-        return queryParams;
+        final int length = query.length();
+        boolean segmentStart = true;
+        for (int i = 0; i < length; i++) {
+            final char c = query.charAt(i);
+            if (segmentStart && (c == '&' || c == '=')) {
+                return false;
+            }
+            segmentStart = c == '&';
+        }
+        return !segmentStart || length == 0;
     }
 
     /**
@@ -111,7 +213,7 @@ public class HttpQueryParams implements Cloneable
      */
     public String getFirst(String name)
     {
-        List<String> values = delegate.get(name);
+        List<String> values = params().get(name);
         if (values != null) {
             if (values.size() > 0) {
                 return values.get(0);
@@ -120,14 +222,18 @@ public class HttpQueryParams implements Cloneable
         return null;
     }
 
+    /**
+     * Returns the values for this key.  The list is a live view, so changes to it change these params.
+     */
     public List<String> get(String name)
     {
-        return delegate.get(name.toLowerCase());
+        final List<String> values = params().get(name.toLowerCase());
+        return immutable ? values : new ValuesView(values);
     }
 
     public boolean contains(String name)
     {
-        return delegate.containsKey(name);
+        return params().containsKey(name);
     }
 
     /**
@@ -135,12 +241,13 @@ public class HttpQueryParams implements Cloneable
      * However, as an utility, this exists to allow us to do a case insensitive match on demand.
      */
     public boolean containsIgnoreCase(String name) {
-        return delegate.containsKey(name) || delegate.containsKey(name.toLowerCase(Locale.ROOT));
+        final ListMultimap<String, String> params = params();
+        return params.containsKey(name) || params.containsKey(name.toLowerCase(Locale.ROOT));
     }
 
     public boolean contains(String name, String value)
     {
-        return delegate.containsEntry(name, value);
+        return params().containsEntry(name, value);
     }
 
     /**
@@ -148,36 +255,49 @@ public class HttpQueryParams implements Cloneable
      */
     public void set(String name, String value)
     {
-        delegate.removeAll(name);
-        delegate.put(name,  value);
+        final ListMultimap<String, String> params = params();
+        params.removeAll(name);
+        params.put(name,  value);
+        modified();
     }
 
     public void add(String name, String value)
     {
-        delegate.put(name, value);
+        params().put(name, value);
+        modified();
     }
 
     public void removeAll(String name)
     {
-        delegate.removeAll(name);
+        params().removeAll(name);
+        modified();
     }
 
     public void clear()
     {
-        delegate.clear();
+        params().clear();
+        modified();
     }
 
     public Collection<Map.Entry<String, String>> entries()
     {
-        return delegate.entries();
+        return params().entries();
     }
 
     public Set<String> keySet() {
-        return delegate.keySet();
+        return params().keySet();
     }
 
+    /**
+     * Returns the params as a query string.  If these params were parsed and have not been modified since, this is
+     * the original query string.
+     */
     public String toEncodedString()
     {
+        if (canUseRawQuery()) {
+            return rawQuery;
+        }
+
         StringBuilder sb = new StringBuilder();
         try {
             for (Map.Entry<String, String> entry : entries()) {
@@ -227,14 +347,28 @@ public class HttpQueryParams implements Cloneable
     @Override
     protected HttpQueryParams clone()
     {
+        final ListMultimap<String, String> params = delegate;
+        if (params == null) {
+            return new HttpQueryParams(rawQuery, false);
+        }
         HttpQueryParams copy = new HttpQueryParams();
-        copy.delegate.putAll(this.delegate);
+        copy.delegate.putAll(params);
+        copy.trailingEquals.putAll(trailingEquals);
+        copy.rawQuery = rawQuery;
+        copy.rawQuerySize = rawQuerySize;
         return copy;
     }
 
     public HttpQueryParams immutableCopy()
     {
-        return new HttpQueryParams(ImmutableListMultimap.copyOf(delegate));
+        final ListMultimap<String, String> params = delegate;
+        if (params == null) {
+            return new HttpQueryParams(rawQuery, true);
+        }
+        HttpQueryParams copy = new HttpQueryParams(ImmutableListMultimap.copyOf(params), new HashMap<>(trailingEquals));
+        copy.rawQuery = rawQuery;
+        copy.rawQuerySize = rawQuerySize;
+        return copy;
     }
 
     public boolean isImmutable()
@@ -243,17 +377,20 @@ public class HttpQueryParams implements Cloneable
     }
 
     public boolean isTrailingEquals(String key) {
+        params();
         return trailingEquals.getOrDefault(key, false);
     }
 
     public void setTrailingEquals(String key, boolean trailingEquals) {
+        params();
         this.trailingEquals.put(key, trailingEquals);
+        modified();
     }
 
     @Override
     public int hashCode()
     {
-        return delegate.hashCode();
+        return params().hashCode();
     }
 
     @Override
@@ -265,6 +402,55 @@ public class HttpQueryParams implements Cloneable
             return false;
 
         HttpQueryParams hqp2 = (HttpQueryParams) obj;
-        return Iterables.elementsEqual(delegate.entries(), hqp2.delegate.entries());
+        return Iterables.elementsEqual(params().entries(), hqp2.params().entries());
+    }
+
+    /**
+     * The values for one key, marking the params modified whenever they change.  Every other mutation that
+     * {@link AbstractList} supports, including through iterators and sub lists, goes through these methods.
+     */
+    private final class ValuesView extends AbstractList<String>
+    {
+        private final List<String> values;
+
+        ValuesView(List<String> values)
+        {
+            this.values = values;
+        }
+
+        @Override
+        public String get(int index)
+        {
+            return values.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return values.size();
+        }
+
+        @Override
+        public String set(int index, String value)
+        {
+            final String previous = values.set(index, value);
+            modified();
+            return previous;
+        }
+
+        @Override
+        public void add(int index, String value)
+        {
+            values.add(index, value);
+            modified();
+        }
+
+        @Override
+        public String remove(int index)
+        {
+            final String previous = values.remove(index);
+            modified();
+            return previous;
+        }
     }
 }
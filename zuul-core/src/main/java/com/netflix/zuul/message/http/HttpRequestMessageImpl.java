@@ -27,8 +27,7 @@ import com.netflix.zuul.message.Headers;
 import com.netflix.zuul.message.ZuulMessage;
 import com.netflix.zuul.message.ZuulMessageImpl;
 import com.netflix.zuul.util.HttpUtils;
-import io.netty.handler.codec.http.Cookie;
-import io.netty.handler.codec.http.CookieDecoder;
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.HttpContent;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -38,7 +37,6 @@ import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
@@ -213,6 +211,11 @@ public class HttpRequestMessageImpl implements HttpRequestMessage
         return message.getBody();
     }
 
+    @Override
+    public ByteBuf getBodyView() {
+        return message.getBodyView();
+    }
+
     @Override
     public int getBodyLength() {
         return message.getBodyLength();
@@ -288,8 +291,9 @@ public class HttpRequestMessageImpl implements HttpRequestMessage
 
     protected String generatePathAndQuery()
     {
-        if (queryParams != null && queryParams.entries().size() > 0) {
-            return getPath() + "?" + queryParams.toEncodedString();
+        final String query = queryParams != null ? queryParams.toEncodedString() : null;
+        if (query != null && !query.isEmpty()) {
+            return getPath() + "?" + query;
         }
         else {
             return getPath();
@@ -358,25 +362,17 @@ public class HttpRequestMessageImpl implements HttpRequestMessage
     @Override
     public Cookies reParseCookies()
     {
-        Cookies cookies = new Cookies();
-        for (String aCookieHeader : getHeaders().getAll(HttpHeaderNames.COOKIE))
-        {
-            try {
-                if (CLEAN_COOKIES.get()) {
-                    aCookieHeader = cleanCookieHeader(aCookieHeader);
-                }
-
-                Set<Cookie> decoded = CookieDecoder.decode(aCookieHeader, false);
-                for (Cookie cookie : decoded) {
-                    cookies.add(cookie);
-                }
+        List<String> cookieHeaders = getHeaders().getAll(HttpHeaderNames.COOKIE);
+        if (CLEAN_COOKIES.get()) {
+            List<String> cleaned = new ArrayList<>(cookieHeaders.size());
+            for (String aCookieHeader : cookieHeaders) {
+                cleaned.add(cleanCookieHeader(aCookieHeader));
             }
-            catch (Exception e) {
-                LOG.error(String.format("Error parsing request Cookie header. cookie=%s, request-info=%s",
-                        aCookieHeader, getInfoForLogging()));
-            }
-
+            cookieHeaders = cleaned;
         }
+
+        // Cookie values are only decoded when they are asked for.
+        Cookies cookies = new Cookies(cookieHeaders);
         parsedCookies = cookies;
         return cookies;
     }
@@ -23,6 +23,7 @@ import com.netflix.zuul.message.Header;
 import com.netflix.zuul.message.Headers;
 import com.netflix.zuul.message.ZuulMessage;
 import com.netflix.zuul.message.ZuulMessageImpl;
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.Cookie;
 import io.netty.handler.codec.http.CookieDecoder;
 import io.netty.handler.codec.http.HttpContent;
@@ -123,6 +124,11 @@ public class HttpResponseMessageImpl implements HttpResponseMessage
         return message.getBody();
     }
 
+    @Override
+    public ByteBuf getBodyView() {
+        return message.getBodyView();
+    }
+
     @Override
     public int getBodyLength() {
         return message.getBodyLength();
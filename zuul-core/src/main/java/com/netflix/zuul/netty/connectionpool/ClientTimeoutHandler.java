@@ -16,6 +16,7 @@
 
 package com.netflix.zuul.netty.connectionpool;
 
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -32,10 +33,14 @@ import org.slf4j.LoggerFactory;
  * Date: July 01, 2019
  */
 public final class ClientTimeoutHandler {
+    public static final ChannelHandler INBOUND_CHANNEL_HANDLER = new InboundHandler();
+    public static final ChannelHandler OUTBOUND_CHANNEL_HANDLER = new OutboundHandler();
+
     private static final Logger LOG = LoggerFactory.getLogger(ClientTimeoutHandler.class);
 
     public static final AttributeKey<Integer> ORIGIN_RESPONSE_READ_TIMEOUT = AttributeKey.newInstance("originResponseReadTimeout");
 
+    @ChannelHandler.Sharable
     public static final class InboundHandler extends ChannelInboundHandlerAdapter {
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
@@ -51,6 +56,7 @@ public final class ClientTimeoutHandler {
         }
     }
 
+    @ChannelHandler.Sharable
     public static final class OutboundHandler extends ChannelOutboundHandlerAdapter {
         @Override
         public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
@@ -32,6 +32,65 @@ public interface ConnectionPoolConfig {
 
     int perServerWaterline();
 
+    /* Number of idle connections per event loop to open to each server ahead of demand, capped at perServerWaterline */
+    default int perServerWarmTarget() {
+        return 0;
+    }
+
+    /* Max number of connections per second opened to warm up the pool, or 0 for no limit */
+    default int getWarmUpConnectsPerSecond() {
+        return 0;
+    }
+
+    /* number of milliseconds between passes over the idle connections in the pool, or -1 for none */
+    default int getPoolMaintenanceInterval() {
+        return -1;
+    }
+
+    /* number of milliseconds an idle connection can go unused before it is trimmed from the pool, or -1 for never */
+    default int getIdleTrimWindow() {
+        return -1;
+    }
+
+    /* number of milliseconds a connection can be kept open, or -1 for no limit */
+    default int getMaxConnectionAge() {
+        return -1;
+    }
+
+    /* percentage by which the max connection age is randomly shortened per connection, so they don't all expire at once */
+    default int getMaxConnectionAgeJitterPercent() {
+        return 0;
+    }
+
+    /* Whether to talk to the origin over HTTP/2, with requests multiplexed as streams over a few connections per server
+       and event loop.  Read once when the origin is set up */
+    default boolean isHttp2() {
+        return false;
+    }
+
+    /* Max number of concurrent streams per HTTP/2 connection, on top of the limit the origin sets, which is all that
+       applies by default */
+    default int getHttp2MaxConcurrentStreams() {
+        return Integer.MAX_VALUE;
+    }
+
+    /* Whether to choose servers by the power of two random choices, preferring the one with fewer requests in flight
+       weighted by its recent response times, rather than with the load balancer's rule */
+    default boolean usePowerOfTwoChoices() {
+        return false;
+    }
+
+    /* Max number of requests per event loop and server that wait for a connection when at maxConnectionsPerHost, rather
+       than fail straight away.  0 to not wait */
+    default int getMaxConnectionWaiters() {
+        return 0;
+    }
+
+    /* Number of milliseconds a request waits for a connection when at maxConnectionsPerHost before failing */
+    default int getConnectionWaitTimeout() {
+        return 0;
+    }
+
     /* Origin client TCP configuration options */
     int getConnectTimeout();
 
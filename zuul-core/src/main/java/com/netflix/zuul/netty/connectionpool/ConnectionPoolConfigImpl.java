@@ -36,6 +36,17 @@ public class ConnectionPoolConfigImpl implements ConnectionPoolConfig {
 
     private final CachedDynamicIntProperty MAX_REQUESTS_PER_CONNECTION;
     private final CachedDynamicIntProperty PER_SERVER_WATERLINE;
+    private final CachedDynamicIntProperty PER_SERVER_WARM_TARGET;
+    private final CachedDynamicIntProperty WARM_UP_CONNECTS_PER_SECOND;
+    private final CachedDynamicIntProperty POOL_MAINTENANCE_INTERVAL;
+    private final CachedDynamicIntProperty IDLE_TRIM_WINDOW;
+    private final CachedDynamicIntProperty MAX_CONNECTION_AGE;
+    private final CachedDynamicIntProperty MAX_CONNECTION_AGE_JITTER_PERCENT;
+    private final CachedDynamicBooleanProperty HTTP2;
+    private final CachedDynamicIntProperty HTTP2_MAX_CONCURRENT_STREAMS;
+    private final CachedDynamicBooleanProperty POWER_OF_TWO_CHOICES;
+    private final CachedDynamicIntProperty MAX_CONNECTION_WAITERS;
+    private final CachedDynamicIntProperty CONNECTION_WAIT_TIMEOUT;
 
     private final CachedDynamicBooleanProperty SOCKET_KEEP_ALIVE;
     private final CachedDynamicBooleanProperty TCP_NO_DELAY;
@@ -52,6 +63,20 @@ public class ConnectionPoolConfigImpl implements ConnectionPoolConfig {
 
         // NOTE that the each eventloop has it's own connection pool per host, and this is applied per event-loop.
         this.PER_SERVER_WATERLINE = new CachedDynamicIntProperty(originName+".netty.client.perServerWaterline", 4);
+        // Also per event-loop.  Disabled by default.
+        this.PER_SERVER_WARM_TARGET = new CachedDynamicIntProperty(originName+".netty.client.perServerWarmTarget", 0);
+        this.WARM_UP_CONNECTS_PER_SECOND = new CachedDynamicIntProperty(originName+".netty.client.warmUpConnectsPerSecond", 50);
+
+        this.POOL_MAINTENANCE_INTERVAL = new CachedDynamicIntProperty(originName+".netty.client.poolMaintenanceInterval", -1);
+        this.IDLE_TRIM_WINDOW = new CachedDynamicIntProperty(originName+".netty.client.idleTrimWindow", -1);
+        this.MAX_CONNECTION_AGE = new CachedDynamicIntProperty(originName+".netty.client.maxConnectionAge", -1);
+        this.MAX_CONNECTION_AGE_JITTER_PERCENT = new CachedDynamicIntProperty(originName+".netty.client.maxConnectionAgeJitterPercent", 10);
+
+        this.HTTP2 = new CachedDynamicBooleanProperty(originName+".netty.client.http2", false);
+        this.HTTP2_MAX_CONCURRENT_STREAMS = new CachedDynamicIntProperty(originName+".netty.client.http2MaxConcurrentStreams", 100);
+        this.POWER_OF_TWO_CHOICES = new CachedDynamicBooleanProperty(originName+".netty.client.powerOfTwoChoices", false);
+        this.MAX_CONNECTION_WAITERS = new CachedDynamicIntProperty(originName+".netty.client.maxConnectionWaiters", 0);
+        this.CONNECTION_WAIT_TIMEOUT = new CachedDynamicIntProperty(originName+".netty.client.connectionWaitTimeout", 500);
 
         this.SOCKET_KEEP_ALIVE = new CachedDynamicBooleanProperty(originName+".netty.client.TcpKeepAlive", false);
         this.TCP_NO_DELAY = new CachedDynamicBooleanProperty(originName+".netty.client.TcpNoDelay", false);
@@ -87,6 +112,63 @@ public class ConnectionPoolConfigImpl implements ConnectionPoolConfig {
         return PER_SERVER_WATERLINE.get();
     }
 
+    @Override
+    public int perServerWarmTarget()
+    {
+        return PER_SERVER_WARM_TARGET.get();
+    }
+
+    @Override
+    public int getWarmUpConnectsPerSecond()
+    {
+        return WARM_UP_CONNECTS_PER_SECOND.get();
+    }
+
+    @Override
+    public int getPoolMaintenanceInterval() {
+        return POOL_MAINTENANCE_INTERVAL.get();
+    }
+
+    @Override
+    public int getIdleTrimWindow() {
+        return IDLE_TRIM_WINDOW.get();
+    }
+
+    @Override
+    public int getMaxConnectionAge() {
+        return MAX_CONNECTION_AGE.get();
+    }
+
+    @Override
+    public int getMaxConnectionAgeJitterPercent() {
+        return MAX_CONNECTION_AGE_JITTER_PERCENT.get();
+    }
+
+    @Override
+    public boolean isHttp2() {
+        return HTTP2.get();
+    }
+
+    @Override
+    public int getHttp2MaxConcurrentStreams() {
+        return HTTP2_MAX_CONCURRENT_STREAMS.get();
+    }
+
+    @Override
+    public boolean usePowerOfTwoChoices() {
+        return POWER_OF_TWO_CHOICES.get();
+    }
+
+    @Override
+    public int getMaxConnectionWaiters() {
+        return MAX_CONNECTION_WAITERS.get();
+    }
+
+    @Override
+    public int getConnectionWaitTimeout() {
+        return CONNECTION_WAIT_TIMEOUT.get();
+    }
+
     @Override
     public int getIdleTimeout() {
         return clientConfig.getPropertyAsInteger(IClientConfigKey.Keys.ConnIdleEvictTimeMilliSeconds, DEFAULT_IDLE_TIMEOUT);
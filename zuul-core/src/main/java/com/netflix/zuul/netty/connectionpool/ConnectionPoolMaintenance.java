@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import com.netflix.zuul.netty.SpectatorUtils;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically goes over the idle connections of an origin, on each event loop they belong to, and closes those that
+ * are stale, too old, or beyond recent demand.  See {@link PerServerConnectionPool#maintainIdleConnections}.
+ *
+ * <p>The number of connections closed for each reason in the last pass is reported in gauges, along with the number
+ * of connections left idle.
+ */
+final class ConnectionPoolMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPoolMaintenance.class);
+
+    private final ConnectionPoolConfig config;
+    private final Supplier<Collection<EventLoop>> eventLoops;
+    private final Supplier<Collection<IConnectionPool>> pools;
+    private final AtomicInteger connsInPool;
+
+    private final AtomicInteger trimmedGauge;
+    private final AtomicInteger expiredGauge;
+    private final AtomicInteger staleGauge;
+    private final AtomicInteger idleAfterGauge;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile ScheduledFuture<?> next;
+    private volatile boolean shutdown;
+
+    ConnectionPoolMaintenance(
+            ConnectionPoolConfig config,
+            Supplier<Collection<EventLoop>> eventLoops,
+            Supplier<Collection<IConnectionPool>> pools,
+            AtomicInteger connsInPool,
+            String metricPrefix) {
+        this.config = config;
+        this.eventLoops = eventLoops;
+        this.pools = pools;
+        this.connsInPool = connsInPool;
+
+        final String originName = config.getOriginName();
+        this.trimmedGauge = SpectatorUtils.newGauge(metricPrefix + "_maintenance_trimmed", originName, new AtomicInteger());
+        this.expiredGauge = SpectatorUtils.newGauge(metricPrefix + "_maintenance_expired", originName, new AtomicInteger());
+        this.staleGauge = SpectatorUtils.newGauge(metricPrefix + "_maintenance_stale", originName, new AtomicInteger());
+        this.idleAfterGauge = SpectatorUtils.newGauge(metricPrefix + "_maintenance_idle", originName, new AtomicInteger());
+    }
+
+    /**
+     * Starts the periodic passes on the given event loop, unless they have already been started.
+     */
+    void start(EventLoop scheduler) {
+        if (started.compareAndSet(false, true)) {
+            scheduleNext(scheduler);
+        }
+    }
+
+    void shutdown() {
+        shutdown = true;
+        final ScheduledFuture<?> scheduled = next;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    private void scheduleNext(EventLoop scheduler) {
+        if (shutdown) {
+            return;
+        }
+        // Read every time, so the interval can be changed at runtime.  Check again later if it's turned off.
+        final int interval = config.getPoolMaintenanceInterval();
+        final long delay = (interval > 0) ? interval : TimeUnit.MINUTES.toMillis(1);
+        try {
+            next = scheduler.schedule(() -> {
+                if (config.getPoolMaintenanceInterval() > 0) {
+                    runOnce(() -> scheduleNext(scheduler));
+                }
+                else {
+                    scheduleNext(scheduler);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            LOG.debug("Stopped connection pool maintenance, as the event loop is shutting down. origin={}",
+                    config.getOriginName());
+        }
+    }
+
+    /**
+     * Runs a pass over the idle connections on every event loop, and calls {@code onDone} once they have all finished.
+     */
+    void runOnce(Runnable onDone) {
+        final List<EventLoop> loops = new ArrayList<>(eventLoops.get());
+        final Evictions evictions = new Evictions();
+        final AtomicInteger remaining = new AtomicInteger(loops.size() + 1);
+        final Runnable loopDone = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                publish(evictions);
+                onDone.run();
+            }
+        };
+
+        final long nowMillis = System.currentTimeMillis();
+        for (EventLoop eventLoop : loops) {
+            try {
+                eventLoop.execute(() -> {
+                    try {
+                        maintain(eventLoop, nowMillis, evictions);
+                    }
+                    finally {
+                        loopDone.run();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                loopDone.run();
+            }
+        }
+        loopDone.run();
+    }
+
+    private void maintain(EventLoop eventLoop, long nowMillis, Evictions evictions) {
+        for (IConnectionPool pool : pools.get()) {
+            if (pool instanceof PerServerConnectionPool) {
+                try {
+                    ((PerServerConnectionPool) pool).maintainIdleConnections(eventLoop, nowMillis, evictions);
+                }
+                catch (RuntimeException e) {
+                    LOG.warn("Failed maintaining connection pool. origin={}", config.getOriginName(), e);
+                }
+            }
+        }
+    }
+
+    private void publish(Evictions evictions) {
+        trimmedGauge.set(evictions.trimmed.get());
+        expiredGauge.set(evictions.expired.get());
+        staleGauge.set(evictions.stale.get());
+        idleAfterGauge.set(connsInPool.get());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Maintained connection pool. origin={}, trimmed={}, expired={}, stale={}, idle={}",
+                    config.getOriginName(), evictions.trimmed, evictions.expired, evictions.stale, connsInPool);
+        }
+    }
+
+    /**
+     * Connections closed in a single pass, by reason.  Updated from every event loop.
+     */
+    static final class Evictions {
+        /** Unused for longer than the idle trim window. */
+        final AtomicInteger trimmed = new AtomicInteger();
+        /** Older than the max connection age. */
+        final AtomicInteger expired = new AtomicInteger();
+        /** Closed while idle in the pool. */
+        final AtomicInteger stale = new AtomicInteger();
+    }
+}
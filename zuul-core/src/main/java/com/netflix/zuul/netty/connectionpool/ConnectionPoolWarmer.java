@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import com.netflix.loadbalancer.Server;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.Future;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills the connection pools of an origin ahead of demand, up to {@link ConnectionPoolConfig#perServerWarmTarget()}
+ * idle connections per server on each event loop.
+ *
+ * <p>Event loops are learned as they acquire connections, and each one is warmed up for every server when it's added.
+ * Servers added to the server list later are warmed up on every known event loop.  Connections are opened one at a
+ * time per server and event loop, and no faster than {@link ConnectionPoolConfig#getWarmUpConnectsPerSecond()} across
+ * the origin, so that a new instance isn't hit by a burst of connects from every event loop at once.
+ */
+final class ConnectionPoolWarmer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPoolWarmer.class);
+
+    private static final int PUMPS_PER_SECOND = 10;
+
+    /**
+     * What the warmer needs from the channel manager.
+     */
+    interface Origin {
+        Collection<EventLoop> eventLoops();
+
+        Collection<Server> warmableServers();
+
+        boolean isWarmable(Server server);
+
+        /** Only called from the given event loop. */
+        int idleConnections(Server server, EventLoop eventLoop);
+
+        /** Opens a connection on the given event loop and adds it to the pool.  Only called from that event loop. */
+        Future<?> openIdleConnection(Server server, EventLoop eventLoop);
+    }
+
+    private final Origin origin;
+    private final ConnectionPoolConfig config;
+    private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+    /** Tasks queued or in progress. */
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean pumping = new AtomicBoolean();
+    /**
+     * Connects that may be started right away, earned at the configured rate since the last pump.  Only touched by the
+     * pump, which never runs concurrently with itself.
+     */
+    private double credit;
+    private long lastPumpNanos = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+    private volatile boolean shutdown;
+
+    ConnectionPoolWarmer(Origin origin, ConnectionPoolConfig config) {
+        this.origin = origin;
+        this.config = config;
+    }
+
+    /**
+     * Called the first time a connection is acquired on an event loop.
+     */
+    void eventLoopAdded(EventLoop eventLoop) {
+        final int target = warmTarget();
+        if (target > 0) {
+            for (Server server : origin.warmableServers()) {
+                enqueue(new Task(server, eventLoop, target));
+            }
+        }
+    }
+
+    /**
+     * Called when servers are added to the server list.
+     */
+    void serversAdded(Collection<Server> servers) {
+        final int target = warmTarget();
+        if (target <= 0 || servers.isEmpty()) {
+            return;
+        }
+        for (EventLoop eventLoop : origin.eventLoops()) {
+            for (Server server : servers) {
+                enqueue(new Task(server, eventLoop, target));
+            }
+        }
+    }
+
+    /**
+     * Whether any connection pools are still being warmed up.
+     */
+    boolean isWarming() {
+        return pending.get() > 0;
+    }
+
+    void shutdown() {
+        shutdown = true;
+    }
+
+    private int warmTarget() {
+        final int target = config.perServerWarmTarget();
+        final int waterline = config.perServerWaterline();
+        // Anything above the waterline would be closed as soon as it's released into the pool.
+        return (waterline > -1) ? Math.min(target, waterline) : target;
+    }
+
+    private void enqueue(Task task) {
+        pending.incrementAndGet();
+        requeue(task);
+    }
+
+    private void requeue(Task task) {
+        tasks.offer(task);
+        if (pumping.compareAndSet(false, true)) {
+            task.eventLoop.execute(() -> pump(task.eventLoop));
+        }
+    }
+
+    /**
+     * Starts as many of the queued tasks as the rate limit allows, and runs again a little later if there are more.
+     */
+    private void pump(EventLoop eventLoop) {
+        final int connectsPerSecond = config.getWarmUpConnectsPerSecond();
+        final long now = System.nanoTime();
+        if (connectsPerSecond > 0) {
+            final double burst = Math.max(1, (double) connectsPerSecond / PUMPS_PER_SECOND);
+            final double earned = (now - lastPumpNanos) * connectsPerSecond / 1e9;
+            credit = Math.min(credit + earned, burst);
+        }
+        else {
+            credit = Double.MAX_VALUE;
+        }
+        lastPumpNanos = now;
+
+        Task task;
+        while (credit >= 1 && (task = tasks.poll()) != null) {
+            credit--;
+            final Task next = task;
+            next.eventLoop.execute(() -> warm(next));
+        }
+
+        if (!tasks.isEmpty()) {
+            eventLoop.schedule(() -> pump(eventLoop), 1000 / PUMPS_PER_SECOND, TimeUnit.MILLISECONDS);
+            return;
+        }
+        pumping.set(false);
+        // Something may have been queued after the last poll, but before the pump stopped.
+        if (!tasks.isEmpty() && pumping.compareAndSet(false, true)) {
+            eventLoop.schedule(() -> pump(eventLoop), 1000 / PUMPS_PER_SECOND, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens one connection for the task if it's still below the target, then queues it again for the next one.
+     */
+    private void warm(Task task) {
+        final int target = warmTarget();
+        if (shutdown
+                || task.attemptsLeft <= 0
+                || !origin.isWarmable(task.server)
+                || origin.idleConnections(task.server, task.eventLoop) >= target) {
+            pending.decrementAndGet();
+            return;
+        }
+        // Bounds the work for a server whose connections don't stay open, e.g. one that closes them when idle.
+        task.attemptsLeft--;
+
+        final Future<?> opened;
+        try {
+            opened = origin.openIdleConnection(task.server, task.eventLoop);
+        }
+        catch (RuntimeException e) {
+            LOG.warn("Failed warming up connection pool. origin={}, server={}", config.getOriginName(), task.server, e);
+            pending.decrementAndGet();
+            return;
+        }
+        opened.addListener(f -> {
+            if (f.isSuccess()) {
+                requeue(task);
+            }
+            else {
+                LOG.debug("Stopped warming up connection pool. origin={}, server={}", config.getOriginName(),
+                        task.server, f.cause());
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private static final class Task {
+        final Server server;
+        final EventLoop eventLoop;
+        int attemptsLeft;
+
+        Task(Server server, EventLoop eventLoop, int attempts) {
+            this.server = server;
+            this.eventLoop = eventLoop;
+            this.attemptsLeft = attempts;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.google.common.collect.Sets;
 import com.google.common.net.InetAddresses;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.client.config.IClientConfig;
+import com.netflix.config.CachedDynamicBooleanProperty;
 import com.netflix.loadbalancer.DynamicServerListLoadBalancer;
 import com.netflix.loadbalancer.LoadBalancerStats;
 import com.netflix.loadbalancer.Server;
@@ -44,10 +45,12 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoop;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.Promise;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -69,6 +72,9 @@ public class DefaultClientChannelManager implements ClientChannelManager {
 
     public static final String METRIC_PREFIX = "connectionpool";
 
+    private static final CachedDynamicBooleanProperty EVENT_LOOP_CONFINED_POOLS =
+            new CachedDynamicBooleanProperty("zuul.connectionpool.eventloop.confined", false);
+
     private final DynamicServerListLoadBalancer<?> loadBalancer;
     private final ConnectionPoolConfig connPoolConfig;
     private final IClientConfig clientConfig;
@@ -95,8 +101,15 @@ public class DefaultClientChannelManager implements ClientChannelManager {
     private final PercentileTimer connEstablishTimer;
     private final AtomicInteger connsInPool;
     private final AtomicInteger connsInUse;
+    private final AtomicInteger connsWaiting;
+    private final PercentileTimer connWaitTimer;
 
     private final ConcurrentHashMap<Server, IConnectionPool> perServerPools;
+    private final Set<EventLoop> eventLoops = ConcurrentHashMap.newKeySet();
+    private final ConnectionPoolWarmer warmer;
+    private final ConnectionPoolMaintenance maintenance;
+    private final PowerOfTwoChoicesServerChooser serverChooser;
+    private final boolean http2;
 
     private NettyClientConnectionFactory clientConnFactory;
     private OriginChannelInitializer channelInitializer;
@@ -113,8 +126,11 @@ public class DefaultClientChannelManager implements ClientChannelManager {
 
         // Setup a listener for Discovery serverlist changes.
         this.loadBalancer.addServerListChangeListener(this::removeMissingServerConnectionPools);
+        this.loadBalancer.addServerListChangeListener(this::warmUpAddedServerConnectionPools);
 
         this.connPoolConfig = new ConnectionPoolConfigImpl(originName, this.clientConfig);
+        this.http2 = connPoolConfig.isHttp2();
+        this.warmer = new ConnectionPoolWarmer(new WarmableOrigin(), connPoolConfig);
 
         this.createNewConnCounter = SpectatorUtils.newCounter(METRIC_PREFIX + "_create", originName);
         this.createConnSucceededCounter = SpectatorUtils.newCounter(METRIC_PREFIX + "_create_success", originName);
@@ -131,6 +147,11 @@ public class DefaultClientChannelManager implements ClientChannelManager {
         this.connEstablishTimer = PercentileTimer.get(spectatorRegistry, spectatorRegistry.createId(METRIC_PREFIX + "_createTiming", "id", originName));
         this.connsInPool = SpectatorUtils.newGauge(METRIC_PREFIX + "_inPool", originName, new AtomicInteger());
         this.connsInUse = SpectatorUtils.newGauge(METRIC_PREFIX + "_inUse", originName, new AtomicInteger());
+        this.connsWaiting = SpectatorUtils.newGauge(METRIC_PREFIX + "_waiting", originName, new AtomicInteger());
+        this.connWaitTimer = PercentileTimer.get(spectatorRegistry, spectatorRegistry.createId(METRIC_PREFIX + "_waitTiming", "id", originName));
+        this.maintenance = new ConnectionPoolMaintenance(
+                connPoolConfig, () -> eventLoops, perServerPools::values, connsInPool, METRIC_PREFIX);
+        this.serverChooser = new PowerOfTwoChoicesServerChooser(loadBalancer.getLoadBalancerStats()::getSingleServerStat);
     }
 
     @Override
@@ -178,6 +199,7 @@ public class DefaultClientChannelManager implements ClientChannelManager {
                     + ". " + removedSet.size() + " servers gone.");
 
             for (Server s : removedSet) {
+                serverChooser.removeServer(s);
                 IConnectionPool pool = perServerPools.remove(s);
                 if (pool != null) {
                     pool.shutdown();
@@ -186,6 +208,13 @@ public class DefaultClientChannelManager implements ClientChannelManager {
         }
     }
 
+    protected void warmUpAddedServerConnectionPools(List<Server> oldList, List<Server> newList) {
+        Set<Server> addedSet = Sets.difference(new HashSet<>(newList), new HashSet<>(oldList));
+        if (!addedSet.isEmpty()) {
+            warmer.serversAdded(addedSet);
+        }
+    }
+
     @Override
     public ConnectionPoolConfig getConfig() {
         return connPoolConfig;
@@ -198,7 +227,7 @@ public class DefaultClientChannelManager implements ClientChannelManager {
 
     @Override
     public boolean isCold() {
-        return false;
+        return warmer.isWarming();
     }
 
     @Override
@@ -211,6 +240,8 @@ public class DefaultClientChannelManager implements ClientChannelManager {
         this.shuttingDown = true;
 
         loadBalancer.shutdown();
+        warmer.shutdown();
+        maintenance.shutdown();
 
         for (IConnectionPool pool : perServerPools.values()) {
             pool.shutdown();
@@ -220,7 +251,10 @@ public class DefaultClientChannelManager implements ClientChannelManager {
     @Override
     public boolean release(final PooledConnection conn) {
 
-        conn.stopRequestTimer();
+        final long responseTime = conn.stopRequestTimer();
+        if (connPoolConfig.usePowerOfTwoChoices()) {
+            serverChooser.noteResponseTime(conn.getServer(), responseTime);
+        }
         releaseConnCounter.increment();
         connsInUse.decrementAndGet();
 
@@ -236,7 +270,9 @@ public class DefaultClientChannelManager implements ClientChannelManager {
 
         if (conn.isShouldClose() ||
                 // if the connection has been around too long (i.e. too many requests), then close it
-                conn.getUsageCount() > connPoolConfig.getMaxRequestsPerConnection()) {
+                conn.getUsageCount() > connPoolConfig.getMaxRequestsPerConnection() ||
+                // or if it has been open too long
+                isExpired(conn)) {
 
             // Close and discard the connection, as it has been flagged (possibly due to receiving a non-channel error like a 503).
             conn.setInPool(false);
@@ -276,6 +312,12 @@ public class DefaultClientChannelManager implements ClientChannelManager {
         return released;
     }
 
+    private boolean isExpired(PooledConnection conn) {
+        final int maxAge = connPoolConfig.getMaxConnectionAge();
+        return maxAge > -1 && conn.isExpired(
+                System.currentTimeMillis(), maxAge, connPoolConfig.getMaxConnectionAgeJitterPercent());
+    }
+
     protected void releaseHandlers(PooledConnection conn) {
         final ChannelPipeline pipeline = conn.getChannel().pipeline();
         removeHandlerFromPipeline(OriginResponseReceiver.CHANNEL_HANDLER_NAME, pipeline);
@@ -334,8 +376,13 @@ public class DefaultClientChannelManager implements ClientChannelManager {
             return promise;
         }
 
+        if (!eventLoops.contains(eventLoop) && eventLoops.add(eventLoop)) {
+            warmer.eventLoopAdded(eventLoop);
+            maintenance.start(eventLoop);
+        }
+
         // Choose the next load-balanced server.
-        final Server chosenServer = loadBalancer.chooseServer(key);
+        final Server chosenServer = chooseServer(key);
         if (chosenServer == null) {
             Promise<PooledConnection> promise = eventLoop.newPromise();
             promise.setFailure(new OriginConnectException("No servers available", OutboundErrorType.NO_AVAILABLE_SERVERS));
@@ -348,22 +395,37 @@ public class DefaultClientChannelManager implements ClientChannelManager {
         selectedServer.set(chosenServer);
 
         // Now get the connection-pool for this server.
-        IConnectionPool pool = perServerPools.computeIfAbsent(chosenServer, s -> {
-            // Get the stats from LB for this server.
-            LoadBalancerStats lbStats = loadBalancer.getLoadBalancerStats();
-            ServerStats stats = lbStats.getSingleServerStat(chosenServer);
+        IConnectionPool pool = perServerPools.computeIfAbsent(
+                chosenServer, s -> newConnectionPool(s, instanceInfo, finalServerAddr));
+
+        return pool.acquire(eventLoop, passport, selectedHostAddr);
+    }
+
+    /**
+     * Chooses with the load balancer's rule, unless the origin is set to use the power of two choices, which ignores
+     * the key.
+     */
+    @Nullable
+    protected Server chooseServer(@Nullable Object key) {
+        if (connPoolConfig.usePowerOfTwoChoices()) {
+            return serverChooser.choose(loadBalancer.getReachableServers());
+        }
+        return loadBalancer.chooseServer(key);
+    }
 
-            final ClientChannelManager clientChannelMgr = this;
-            PooledConnectionFactory pcf = createPooledConnectionFactory(chosenServer, instanceInfo, stats, clientChannelMgr, closeConnCounter, closeWrtBusyConnCounter);
+    private IConnectionPool newConnectionPool(Server chosenServer, InstanceInfo instanceInfo, SocketAddress serverAddr) {
+        // Get the stats from LB for this server.
+        LoadBalancerStats lbStats = loadBalancer.getLoadBalancerStats();
+        ServerStats stats = lbStats.getSingleServerStat(chosenServer);
 
-            // Create a new pool for this server.
-            return createConnectionPool(chosenServer, stats, instanceInfo, finalServerAddr, clientConnFactory, pcf, connPoolConfig,
-                    clientConfig, createNewConnCounter, createConnSucceededCounter, createConnFailedCounter,
-                    requestConnCounter, reuseConnCounter, connTakenFromPoolIsNotOpen, maxConnsPerHostExceededCounter,
-                    connEstablishTimer, connsInPool, connsInUse);
-        });
+        final ClientChannelManager clientChannelMgr = this;
+        PooledConnectionFactory pcf = createPooledConnectionFactory(chosenServer, instanceInfo, stats, clientChannelMgr, closeConnCounter, closeWrtBusyConnCounter);
 
-        return pool.acquire(eventLoop, passport, selectedHostAddr);
+        // Create a new pool for this server.
+        return createConnectionPool(chosenServer, stats, instanceInfo, serverAddr, clientConnFactory, pcf, connPoolConfig,
+                clientConfig, createNewConnCounter, createConnSucceededCounter, createConnFailedCounter,
+                requestConnCounter, reuseConnCounter, connTakenFromPoolIsNotOpen, maxConnsPerHostExceededCounter,
+                connEstablishTimer, connsInPool, connsInUse);
     }
 
     protected PooledConnectionFactory createPooledConnectionFactory(Server chosenServer, InstanceInfo instanceInfo, ServerStats stats, ClientChannelManager clientChannelMgr,
@@ -378,6 +440,52 @@ public class DefaultClientChannelManager implements ClientChannelManager {
             Counter createConnSucceededCounter, Counter createConnFailedCounter, Counter requestConnCounter,
             Counter reuseConnCounter, Counter connTakenFromPoolIsNotOpen, Counter maxConnsPerHostExceededCounter,
             PercentileTimer connEstablishTimer, AtomicInteger connsInPool, AtomicInteger connsInUse) {
+        if (http2) {
+            return new Http2ConnectionPool(
+                    chosenServer,
+                    stats,
+                    instanceInfo,
+                    serverAddr,
+                    clientConnFactory,
+                    pcf,
+                    connPoolConfig,
+                    clientConfig,
+                    createNewConnCounter,
+                    createConnSucceededCounter,
+                    createConnFailedCounter,
+                    requestConnCounter,
+                    reuseConnCounter,
+                    connTakenFromPoolIsNotOpen,
+                    maxConnsPerHostExceededCounter,
+                    connEstablishTimer,
+                    connsInPool,
+                    connsInUse
+            );
+        }
+        if (EVENT_LOOP_CONFINED_POOLS.get()) {
+            return new EventLoopConfinedConnectionPool(
+                    chosenServer,
+                    stats,
+                    instanceInfo,
+                    serverAddr,
+                    clientConnFactory,
+                    pcf,
+                    connPoolConfig,
+                    clientConfig,
+                    createNewConnCounter,
+                    createConnSucceededCounter,
+                    createConnFailedCounter,
+                    requestConnCounter,
+                    reuseConnCounter,
+                    connTakenFromPoolIsNotOpen,
+                    maxConnsPerHostExceededCounter,
+                    connEstablishTimer,
+                    connsInPool,
+                    connsInUse,
+                    connsWaiting,
+                    connWaitTimer
+            );
+        }
         return new PerServerConnectionPool(
                 chosenServer,
                 stats,
@@ -396,7 +504,9 @@ public class DefaultClientChannelManager implements ClientChannelManager {
                 maxConnsPerHostExceededCounter,
                 connEstablishTimer,
                 connsInPool,
-                connsInUse
+                connsInUse,
+                connsWaiting,
+                connWaitTimer
         );
     }
 
@@ -506,4 +616,82 @@ public class DefaultClientChannelManager implements ClientChannelManager {
     protected SocketAddress pickAddress(Server chosenServer) {
         return pickAddressInternal(chosenServer, connPoolConfig.getOriginName());
     }
+
+    /**
+     * Warms up the same per-server pools that requests acquire connections from.
+     */
+    private final class WarmableOrigin implements ConnectionPoolWarmer.Origin {
+        @Override
+        public Collection<EventLoop> eventLoops() {
+            return eventLoops;
+        }
+
+        @Override
+        public Collection<Server> warmableServers() {
+            return loadBalancer.getReachableServers();
+        }
+
+        @Override
+        public boolean isWarmable(Server server) {
+            if (shuttingDown || !loadBalancer.getReachableServers().contains(server)) {
+                return false;
+            }
+            ServerStats stats = loadBalancer.getLoadBalancerStats().getSingleServerStat(server);
+            if (stats.isCircuitBreakerTripped()) {
+                return false;
+            }
+            IConnectionPool pool = poolFor(server);
+            return (pool instanceof PerServerConnectionPool) && ((PerServerConnectionPool) pool).isWarmable();
+        }
+
+        @Override
+        public int idleConnections(Server server, EventLoop eventLoop) {
+            IConnectionPool pool = perServerPools.get(server);
+            return (pool instanceof PerServerConnectionPool)
+                    ? ((PerServerConnectionPool) pool).idleConnectionCount(eventLoop)
+                    : 0;
+        }
+
+        @Override
+        public Future<?> openIdleConnection(Server server, EventLoop eventLoop) {
+            IConnectionPool pool = poolFor(server);
+            if (!(pool instanceof PerServerConnectionPool)) {
+                return eventLoop.newFailedFuture(new UnsupportedOperationException(
+                        "Can't warm up " + pool.getClass().getSimpleName()));
+            }
+
+            Promise<Void> added = eventLoop.newPromise();
+            ((PerServerConnectionPool) pool).openIdleConnection(eventLoop).addListener(
+                    (Future<PooledConnection> f) -> {
+                        if (!f.isSuccess()) {
+                            added.setFailure(f.cause());
+                            return;
+                        }
+                        PooledConnection conn = f.getNow();
+                        if (shuttingDown || perServerPools.get(server) != pool) {
+                            // The server went away while connecting.
+                            conn.close();
+                            added.setFailure(new IllegalStateException("Connection pool was shut down"));
+                            return;
+                        }
+                        releaseHandlers(conn);
+                        if (pool.release(conn)) {
+                            added.setSuccess(null);
+                        }
+                        else {
+                            added.setFailure(new IllegalStateException("Connection pool is already full"));
+                        }
+                    });
+            return added;
+        }
+
+        /**
+         * The pool requests would use for the server, created if it doesn't exist yet.  Only called for servers that
+         * are about to be warmed up, so the pool would be created anyway.
+         */
+        private IConnectionPool poolFor(Server server) {
+            return perServerPools.computeIfAbsent(
+                    server, s -> newConnectionPool(s, deriveInstanceInfo(s), pickAddress(s)));
+        }
+    }
 }
@@ -26,6 +26,11 @@ import com.netflix.zuul.netty.ssl.ClientSslContextFactory;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.SslContext;
@@ -35,11 +40,17 @@ import static com.netflix.zuul.netty.server.BaseZuulChannelInitializer.HTTP_CODE
 /**
  * Default Origin Channel Initializer
  *
+ * For origins talked to over HTTP/2, this sets up both the connections, which only carry the HTTP/2 framing, and the
+ * streams opened on them by {@link Http2ConnectionPool}, which get the same HTTP handlers as HTTP/1 connections.
+ *
  * Author: Arthur Gonigberg
  * Date: December 01, 2017
  */
 public class DefaultOriginChannelInitializer extends OriginChannelInitializer {
+    public static final String HTTP2_MULTIPLEX_HANDLER_NAME = "http2MultiplexHandler";
+
     private final ConnectionPoolConfig connectionPoolConfig;
+    private final boolean http2;
     private final SslContext sslContext;
     protected final ConnectionPoolHandler connectionPoolHandler;
     protected final HttpMetricsChannelHandler httpMetricsHandler;
@@ -47,24 +58,42 @@ public class DefaultOriginChannelInitializer extends OriginChannelInitializer {
 
     public DefaultOriginChannelInitializer(ConnectionPoolConfig connPoolConfig, Registry spectatorRegistry) {
         this.connectionPoolConfig = connPoolConfig;
+        this.http2 = connPoolConfig.isHttp2();
         final String originName = connectionPoolConfig.getOriginName();
         this.connectionPoolHandler = new ConnectionPoolHandler(originName);
         this.httpMetricsHandler = new HttpMetricsChannelHandler(spectatorRegistry, "client", originName);
         this.nettyLogger = new LoggingHandler("zuul.origin.nettylog." + originName, LogLevel.INFO);
-        this.sslContext = getClientSslContext(spectatorRegistry);
+        this.sslContext = http2 ? getClientHttp2SslContext(spectatorRegistry) : getClientSslContext(spectatorRegistry);
     }
 
     @Override
     protected void initChannel(Channel ch) throws Exception {
         final ChannelPipeline pipeline = ch.pipeline();
 
-        pipeline.addLast(new PassportStateOriginHandler.InboundHandler());
-        pipeline.addLast(new PassportStateOriginHandler.OutboundHandler());
+        pipeline.addLast(PassportStateOriginHandler.INBOUND_CHANNEL_HANDLER);
+        pipeline.addLast(PassportStateOriginHandler.OUTBOUND_CHANNEL_HANDLER);
+
+        if (ch instanceof Http2StreamChannel) {
+            pipeline.addLast(HTTP_CODEC_HANDLER_NAME, new Http2StreamFrameToHttpObjectCodec(false));
+            addHttpHandlers(pipeline);
+            return;
+        }
 
         if (connectionPoolConfig.isSecure()) {
             pipeline.addLast("ssl", sslContext.newHandler(ch.alloc()));
         }
 
+        if (http2) {
+            pipeline.addLast(HTTP_CODEC_HANDLER_NAME, Http2FrameCodecBuilder.forClient()
+                    .initialSettings(Http2Settings.defaultSettings().pushEnabled(false))
+                    // Queue up streams beyond the origin's limit, rather than fail them, until its settings arrive.
+                    .encoderEnforceMaxConcurrentStreams(true)
+                    .build());
+            // There are no inbound streams, since push is disabled.
+            pipeline.addLast(HTTP2_MULTIPLEX_HANDLER_NAME, new Http2MultiplexHandler(this));
+            return;
+        }
+
         pipeline.addLast(HTTP_CODEC_HANDLER_NAME, new HttpClientCodec(
                 BaseZuulChannelInitializer.MAX_INITIAL_LINE_LENGTH.get(),
                 BaseZuulChannelInitializer.MAX_HEADER_SIZE.get(),
@@ -72,15 +101,22 @@ public class DefaultOriginChannelInitializer extends OriginChannelInitializer {
                 false,
                 false
         ));
-        pipeline.addLast(new PassportStateHttpClientHandler.InboundHandler());
-        pipeline.addLast(new PassportStateHttpClientHandler.OutboundHandler());
+        addHttpHandlers(pipeline);
+    }
+
+    /**
+     * Adds the handlers that come after the HTTP codec, to either a connection or an HTTP/2 stream.
+     */
+    protected void addHttpHandlers(ChannelPipeline pipeline) {
+        pipeline.addLast(PassportStateHttpClientHandler.INBOUND_CHANNEL_HANDLER);
+        pipeline.addLast(PassportStateHttpClientHandler.OUTBOUND_CHANNEL_HANDLER);
         pipeline.addLast("originNettyLogger", nettyLogger);
         pipeline.addLast(httpMetricsHandler);
         addMethodBindingHandler(pipeline);
         pipeline.addLast(HttpClientLifecycleChannelHandler.INBOUND_CHANNEL_HANDLER);
         pipeline.addLast(HttpClientLifecycleChannelHandler.OUTBOUND_CHANNEL_HANDLER);
-        pipeline.addLast(new ClientTimeoutHandler.InboundHandler());
-        pipeline.addLast(new ClientTimeoutHandler.OutboundHandler());
+        pipeline.addLast(ClientTimeoutHandler.INBOUND_CHANNEL_HANDLER);
+        pipeline.addLast(ClientTimeoutHandler.OUTBOUND_CHANNEL_HANDLER);
         pipeline.addLast("connectionPoolHandler", connectionPoolHandler);
     }
 
@@ -94,6 +130,17 @@ public class DefaultOriginChannelInitializer extends OriginChannelInitializer {
         return new ClientSslContextFactory(spectatorRegistry).getClientSslContext();
     }
 
+    /**
+     * This method can be overridden to create your own custom SSL context for HTTP/2 origins, which must negotiate
+     * HTTP/2 over ALPN.
+     *
+     * @param spectatorRegistry metrics registry
+     * @return Netty SslContext
+     */
+    protected SslContext getClientHttp2SslContext(Registry spectatorRegistry) {
+        return new ClientSslContextFactory(spectatorRegistry).getClientHttp2SslContext();
+    }
+
     /**
      * This method can be overridden to add your own MethodBinding handler for preserving thread locals or thread variables.
      *
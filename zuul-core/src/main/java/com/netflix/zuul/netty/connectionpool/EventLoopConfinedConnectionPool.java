@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Timer;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link PerServerConnectionPool} that keeps the idle connections of each event loop in a plain array-backed stack,
+ * only ever touched from that event loop.  Connections are acquired and released on the event loop of the client
+ * channel they serve, so no atomics or concurrent collections are needed, and the pool size is known without counting.
+ *
+ * <p>Each event loop thread is given a small index the first time it uses any of these pools, held in a
+ * {@link FastThreadLocal}, and every pool looks its stack up by that index rather than through a map.  Connections
+ * remember their position in the stack, so removing one that closed while idle doesn't scan the stack.
+ *
+ * <p>Idle connections are reused most recently released first, which leaves the rest to be trimmed when there is
+ * more capacity than needed.
+ */
+public class EventLoopConfinedConnectionPool extends PerServerConnectionPool {
+
+    private static final AtomicInteger nextLoopIndex = new AtomicInteger();
+    private static final FastThreadLocal<Integer> LOOP_INDEX = new FastThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return nextLoopIndex.getAndIncrement();
+        }
+    };
+
+    private final ConnectionPoolConfig config;
+
+    /** Indexed by {@link #LOOP_INDEX}, and only ever grown.  Each stack is confined to its event loop. */
+    private volatile IdleStack[] stacks = new IdleStack[0];
+
+    public EventLoopConfinedConnectionPool(
+            Server server,
+            ServerStats stats,
+            InstanceInfo instanceInfo,
+            SocketAddress serverAddr,
+            NettyClientConnectionFactory connectionFactory,
+            PooledConnectionFactory pooledConnectionFactory,
+            ConnectionPoolConfig config,
+            IClientConfig niwsClientConfig,
+            Counter createNewConnCounter,
+            Counter createConnSucceededCounter,
+            Counter createConnFailedCounter,
+            Counter requestConnCounter, Counter reuseConnCounter,
+            Counter connTakenFromPoolIsNotOpen,
+            Counter maxConnsPerHostExceededCounter,
+            Timer connEstablishTimer,
+            AtomicInteger connsInPool,
+            AtomicInteger connsInUse,
+            AtomicInteger connsWaiting,
+            Timer connWaitTimer) {
+        super(server, stats, instanceInfo, serverAddr, connectionFactory, pooledConnectionFactory, config,
+                niwsClientConfig, createNewConnCounter, createConnSucceededCounter, createConnFailedCounter,
+                requestConnCounter, reuseConnCounter, connTakenFromPoolIsNotOpen, maxConnsPerHostExceededCounter,
+                connEstablishTimer, connsInPool, connsInUse, connsWaiting, connWaitTimer);
+        this.config = config;
+    }
+
+    @Override
+    @Nullable
+    protected PooledConnection pollIdleConnection(EventLoop eventLoop) {
+        if (!eventLoop.inEventLoop()) {
+            // Only the event loop can touch its stack, so just make a new connection.
+            return null;
+        }
+        final IdleStack stack = currentStack();
+        return (stack != null) ? stack.pop() : null;
+    }
+
+    @Override
+    protected boolean offerIdleConnection(EventLoop eventLoop, PooledConnection conn) {
+        final IdleStack stack = getOrCreateCurrentStack(eventLoop);
+        final int poolWaterline = config.perServerWaterline();
+        if (poolWaterline > -1 && stack.size() >= poolWaterline) {
+            return false;
+        }
+        stack.push(conn);
+        return true;
+    }
+
+    @Override
+    protected boolean removeIdleConnection(EventLoop eventLoop, PooledConnection conn) {
+        final IdleStack stack = currentStack();
+        return stack != null && stack.remove(conn);
+    }
+
+    @Override
+    protected int idleConnectionCount(EventLoop eventLoop) {
+        final IdleStack stack = eventLoop.inEventLoop() ? currentStack() : null;
+        return (stack != null) ? stack.size() : 0;
+    }
+
+    @Override
+    protected List<PooledConnection> listIdleConnections(EventLoop eventLoop) {
+        final IdleStack stack = eventLoop.inEventLoop() ? currentStack() : null;
+        return (stack != null) ? stack.list() : Collections.emptyList();
+    }
+
+    /**
+     * Releases from outside the connection's event loop are handed over to it, and reported as successful.
+     */
+    @Override
+    public boolean release(PooledConnection conn) {
+        if (conn != null && !conn.getChannel().eventLoop().inEventLoop()) {
+            conn.getChannel().eventLoop().execute(() -> super.release(conn));
+            return true;
+        }
+        return super.release(conn);
+    }
+
+    /**
+     * Removals from outside the connection's event loop are handed over to it, and reported as successful if the
+     * connection is in the pool at the time.
+     */
+    @Override
+    public boolean remove(PooledConnection conn) {
+        if (conn != null && !conn.getChannel().eventLoop().inEventLoop()) {
+            final boolean inPool = conn.isInPool();
+            conn.getChannel().eventLoop().execute(() -> super.remove(conn));
+            return inPool;
+        }
+        return super.remove(conn);
+    }
+
+    @Override
+    public void shutdown() {
+        for (IdleStack stack : stacks) {
+            if (stack != null) {
+                if (stack.eventLoop.inEventLoop()) {
+                    stack.closeAll();
+                }
+                else {
+                    stack.eventLoop.execute(stack::closeAll);
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private IdleStack currentStack() {
+        final int index = LOOP_INDEX.get();
+        final IdleStack[] current = stacks;
+        return (index < current.length) ? current[index] : null;
+    }
+
+    private IdleStack getOrCreateCurrentStack(EventLoop eventLoop) {
+        final IdleStack stack = currentStack();
+        return (stack != null) ? stack : addStack(LOOP_INDEX.get(), eventLoop);
+    }
+
+    /**
+     * Only called the first time each event loop releases a connection to this pool, so just locks.
+     */
+    private synchronized IdleStack addStack(int index, EventLoop eventLoop) {
+        IdleStack[] current = stacks;
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, index + 1);
+        }
+        else if (current[index] != null) {
+            return current[index];
+        }
+        else {
+            current = current.clone();
+        }
+        final IdleStack stack = new IdleStack(eventLoop);
+        current[index] = stack;
+        stacks = current;
+        return stack;
+    }
+
+    /**
+     * The idle connections of one event loop, most recently pushed on top.  Removing a connection from the middle leaves
+     * a hole, which is skipped when popping and compacted away when the array is full.
+     */
+    @VisibleForTesting
+    static final class IdleStack {
+        private static final int INITIAL_CAPACITY = 8;
+
+        final EventLoop eventLoop;
+        private PooledConnection[] slots = new PooledConnection[INITIAL_CAPACITY];
+        /** One past the highest used slot. */
+        private int top;
+        private int size;
+
+        IdleStack(EventLoop eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void push(PooledConnection conn) {
+            if (top == slots.length) {
+                if (size < top) {
+                    compact();
+                }
+                else {
+                    slots = Arrays.copyOf(slots, slots.length << 1);
+                }
+            }
+            slots[top] = conn;
+            conn.idleSlot = top++;
+            size++;
+        }
+
+        @Nullable
+        PooledConnection pop() {
+            while (top > 0) {
+                final PooledConnection conn = slots[--top];
+                if (conn != null) {
+                    slots[top] = null;
+                    conn.idleSlot = -1;
+                    size--;
+                    return conn;
+                }
+            }
+            return null;
+        }
+
+        boolean remove(PooledConnection conn) {
+            final int slot = conn.idleSlot;
+            if (slot < 0 || slot >= top || slots[slot] != conn) {
+                return false;
+            }
+            slots[slot] = null;
+            conn.idleSlot = -1;
+            size--;
+            while (top > 0 && slots[top - 1] == null) {
+                top--;
+            }
+            return true;
+        }
+
+        private void compact() {
+            int w = 0;
+            for (int r = 0; r < top; r++) {
+                final PooledConnection conn = slots[r];
+                if (conn != null) {
+                    slots[w] = conn;
+                    conn.idleSlot = w++;
+                }
+            }
+            Arrays.fill(slots, w, top, null);
+            top = w;
+        }
+
+        /** Most recently pushed first. */
+        List<PooledConnection> list() {
+            final List<PooledConnection> list = new ArrayList<>(size);
+            for (int i = top - 1; i >= 0; i--) {
+                if (slots[i] != null) {
+                    list.add(slots[i]);
+                }
+            }
+            return list;
+        }
+
+        /**
+         * Closes the connections without taking them off the stack, so that they're removed from the pool, and counted
+         * out of it, as each channel goes inactive.
+         */
+        void closeAll() {
+            for (PooledConnection conn : list()) {
+                conn.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Timer;
+import com.netflix.zuul.exception.OutboundErrorType;
+import com.netflix.zuul.passport.CurrentPassport;
+import com.netflix.zuul.passport.PassportState;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link PerServerConnectionPool} for origins talked to over HTTP/2, where each request gets a stream of its own on
+ * one of a few connections to the server, rather than a connection of its own.
+ *
+ * <p>Each event loop keeps its own connections to the server, only ever touched from that event loop, and streams are
+ * packed onto the first of them with room for another, so a new connection is only opened when all the others are
+ * full.  A connection is full at {@link ConnectionPoolConfig#getHttp2MaxConcurrentStreams()} streams, or at the
+ * MAX_CONCURRENT_STREAMS the origin sets, whichever is lower.  Until a new connection has the origin's settings, it's
+ * assumed to allow as many streams as the last one did.  {@link ConnectionPoolConfig#maxConnectionsPerHost()}
+ * applies to the connections, across event loops.
+ *
+ * <p>Streams are handed out as {@link PooledConnection}s with the same HTTP handlers as an HTTP/1 connection, and count
+ * as open connections in the {@link ServerStats}.  They are used for a single request, so they are closed on release
+ * rather than pooled.  Connections that the origin has sent a GOAWAY on, or that have outlived
+ * {@link ConnectionPoolConfig#getMaxConnectionAge()}, take no new streams and are closed once the last one is done.
+ * Connections without streams are closed once they have been idle for {@link ConnectionPoolConfig#getIdleTrimWindow()}.
+ */
+public class Http2ConnectionPool extends PerServerConnectionPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Http2ConnectionPool.class);
+
+    private final ConcurrentHashMap<EventLoop, List<Connection>> connectionsPerEventLoop = new ConcurrentHashMap<>();
+
+    private final ServerStats stats;
+    private final SocketAddress serverAddr;
+    private final NettyClientConnectionFactory connectionFactory;
+    private final PooledConnectionFactory pooledConnectionFactory;
+    private final ConnectionPoolConfig config;
+
+    private final Counter createNewConnCounter;
+    private final Counter createConnSucceededCounter;
+    private final Counter createConnFailedCounter;
+    private final Counter requestConnCounter;
+    private final Counter reuseConnCounter;
+    private final Counter maxConnsPerHostExceededCounter;
+    private final Timer connEstablishTimer;
+    private final AtomicInteger connsInUse;
+
+    /** Connections open or being opened, across event loops. */
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    /**
+     * The MAX_CONCURRENT_STREAMS last seen from the server, assumed for new connections until they get its settings.
+     */
+    private volatile int serverMaxConcurrentStreams = Integer.MAX_VALUE;
+
+    public Http2ConnectionPool(
+            Server server,
+            ServerStats stats,
+            InstanceInfo instanceInfo,
+            SocketAddress serverAddr,
+            NettyClientConnectionFactory connectionFactory,
+            PooledConnectionFactory pooledConnectionFactory,
+            ConnectionPoolConfig config,
+            IClientConfig niwsClientConfig,
+            Counter createNewConnCounter,
+            Counter createConnSucceededCounter,
+            Counter createConnFailedCounter,
+            Counter requestConnCounter, Counter reuseConnCounter,
+            Counter connTakenFromPoolIsNotOpen,
+            Counter maxConnsPerHostExceededCounter,
+            Timer connEstablishTimer,
+            AtomicInteger connsInPool,
+            AtomicInteger connsInUse) {
+        super(server, stats, instanceInfo, serverAddr, connectionFactory, pooledConnectionFactory, config,
+                niwsClientConfig, createNewConnCounter, createConnSucceededCounter, createConnFailedCounter,
+                requestConnCounter, reuseConnCounter, connTakenFromPoolIsNotOpen, maxConnsPerHostExceededCounter,
+                connEstablishTimer, connsInPool, connsInUse);
+        this.stats = stats;
+        this.serverAddr = serverAddr;
+        this.connectionFactory = connectionFactory;
+        this.pooledConnectionFactory = pooledConnectionFactory;
+        this.config = config;
+        this.createNewConnCounter = createNewConnCounter;
+        this.createConnSucceededCounter = createConnSucceededCounter;
+        this.createConnFailedCounter = createConnFailedCounter;
+        this.requestConnCounter = requestConnCounter;
+        this.reuseConnCounter = reuseConnCounter;
+        this.maxConnsPerHostExceededCounter = maxConnsPerHostExceededCounter;
+        this.connEstablishTimer = connEstablishTimer;
+        this.connsInUse = connsInUse;
+    }
+
+    @Override
+    public Promise<PooledConnection> acquire(
+            EventLoop eventLoop, CurrentPassport passport, AtomicReference<String> selectedHostAddr) {
+        requestConnCounter.increment();
+        stats.incrementActiveRequestsCount();
+
+        Promise<PooledConnection> promise = eventLoop.newPromise();
+        selectedHostAddr.set(getSelectedHostString(serverAddr));
+        if (eventLoop.inEventLoop()) {
+            acquireStream(eventLoop, promise, passport);
+        }
+        else {
+            eventLoop.execute(() -> acquireStream(eventLoop, promise, passport));
+        }
+        return promise;
+    }
+
+    private void acquireStream(EventLoop eventLoop, Promise<PooledConnection> promise, CurrentPassport passport) {
+        final long nowMillis = System.currentTimeMillis();
+        Connection chosen = null;
+        for (Connection conn : connectionsFor(eventLoop)) {
+            if (conn.canOpenStream(nowMillis)) {
+                chosen = conn;
+                break;
+            }
+        }
+
+        if (chosen != null) {
+            reuseConnCounter.increment();
+        }
+        else {
+            chosen = tryMakingNewConnection(eventLoop, promise, passport);
+            if (chosen == null) {
+                return;
+            }
+        }
+        chosen.streams++;
+        openStream(chosen, promise, passport);
+    }
+
+    private Connection tryMakingNewConnection(
+            EventLoop eventLoop, Promise<PooledConnection> promise, CurrentPassport passport) {
+        int maxConnectionsPerHost = config.maxConnectionsPerHost();
+        int connections = connectionCount.get();
+        if (maxConnectionsPerHost != -1 && connections >= maxConnectionsPerHost) {
+            maxConnsPerHostExceededCounter.increment();
+            stats.decrementActiveRequestsCount();
+            promise.setFailure(new OriginConnectException(
+                    "maxConnectionsPerHost=" + maxConnectionsPerHost + ", connectionsPerHost=" + connections,
+                    OutboundErrorType.ORIGIN_SERVER_MAX_CONNS));
+            return null;
+        }
+
+        createNewConnCounter.increment();
+        connectionCount.incrementAndGet();
+        passport.add(PassportState.ORIGIN_CH_CONNECTING);
+        final long startNanos = System.nanoTime();
+        final ChannelFuture cf;
+        try {
+            // The connection outlives this request, so it gets a passport of its own.
+            cf = connectToServer(eventLoop, CurrentPassport.create(), serverAddr);
+        }
+        catch (Throwable e) {
+            connectionCount.decrementAndGet();
+            stats.decrementActiveRequestsCount();
+            promise.setFailure(e);
+            return null;
+        }
+
+        final Connection conn = new Connection(cf.channel(), eventLoop.newPromise());
+        final List<Connection> eventLoopConnections = connectionsFor(eventLoop);
+        eventLoopConnections.add(conn);
+        cf.addListener((ChannelFuture f) -> {
+            connEstablishTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (f.isSuccess()) {
+                createConnSucceededCounter.increment();
+                // The connection preface is only sent on channelActive, which comes after the connect listeners.
+                eventLoop.execute(() -> conn.ready.trySuccess(null));
+            }
+            else {
+                stats.incrementSuccessiveConnectionFailureCount();
+                stats.addToFailureCount();
+                createConnFailedCounter.increment();
+                conn.ready.tryFailure(f.cause());
+            }
+        });
+        cf.channel().closeFuture().addListener(f -> {
+            eventLoopConnections.remove(conn);
+            connectionCount.decrementAndGet();
+        });
+        return conn;
+    }
+
+    private void openStream(Connection conn, Promise<PooledConnection> promise, CurrentPassport passport) {
+        final Promise<Void> ready = conn.ready;
+        if (!ready.isDone()) {
+            ready.addListener(f -> openStream(conn, promise, passport));
+            return;
+        }
+        if (!ready.isSuccess()) {
+            streamFailed(conn, promise, ready.cause());
+            return;
+        }
+        passport.add(PassportState.ORIGIN_CH_CONNECTED);
+
+        connectionFactory.openStream(conn.channel, passport).addListener((Future<Http2StreamChannel> f) -> {
+            if (!f.isSuccess()) {
+                streamFailed(conn, promise, f.cause());
+                return;
+            }
+            final Http2StreamChannel stream = f.getNow();
+            stream.closeFuture().addListener(closed -> streamClosed(conn));
+
+            stats.incrementOpenConnectionsCount();
+            connsInUse.incrementAndGet();
+
+            final PooledConnection pooledConn = pooledConnectionFactory.create(stream);
+            pooledConn.incrementUsageCount();
+            pooledConn.startRequestTimer();
+            onAcquire(pooledConn, passport);
+            initPooledConnection(pooledConn, promise);
+        });
+    }
+
+    private void streamFailed(Connection conn, Promise<PooledConnection> promise, Throwable cause) {
+        streamClosed(conn);
+        stats.decrementActiveRequestsCount();
+        promise.setFailure(new OriginConnectException(cause.getMessage(), OutboundErrorType.CONNECT_ERROR));
+    }
+
+    private void streamClosed(Connection conn) {
+        if (--conn.streams == 0) {
+            conn.idleSinceMillis = System.currentTimeMillis();
+            if (conn.draining) {
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * Streams are only used once, so they're closed rather than returned to the pool.
+     */
+    @Override
+    public boolean release(PooledConnection conn) {
+        if (conn == null) {
+            return false;
+        }
+        conn.setInPool(false);
+        conn.close();
+        return false;
+    }
+
+    /**
+     * Pools aren't warmed up ahead of demand, as a single connection can take many streams.
+     */
+    @Override
+    public boolean isWarmable() {
+        return false;
+    }
+
+    @Override
+    public Promise<PooledConnection> openIdleConnection(EventLoop eventLoop) {
+        Promise<PooledConnection> promise = eventLoop.newPromise();
+        promise.setFailure(new UnsupportedOperationException("Can't warm up HTTP/2 connections"));
+        return promise;
+    }
+
+    /**
+     * Closes the connections for the given event loop without streams that are no longer open, are draining, have
+     * outlived {@link ConnectionPoolConfig#getMaxConnectionAge()}, or have had no streams for
+     * {@link ConnectionPoolConfig#getIdleTrimWindow()}.  Only called from the event loop.
+     */
+    @Override
+    void maintainIdleConnections(EventLoop eventLoop, long nowMillis, ConnectionPoolMaintenance.Evictions evictions) {
+        final int trimWindow = config.getIdleTrimWindow();
+        for (Connection conn : new ArrayList<>(connectionsFor(eventLoop))) {
+            if (conn.streams > 0 || !conn.ready.isDone()) {
+                continue;
+            }
+            if (!conn.channel.isActive()) {
+                evictions.stale.incrementAndGet();
+            }
+            else if (conn.draining || conn.isExpired(nowMillis)) {
+                evictions.expired.incrementAndGet();
+            }
+            else if (trimWindow > -1 && nowMillis - conn.idleSinceMillis > trimWindow) {
+                evictions.trimmed.incrementAndGet();
+            }
+            else {
+                continue;
+            }
+            conn.close();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        connectionsPerEventLoop.forEach((eventLoop, connections) -> {
+            if (eventLoop.inEventLoop()) {
+                closeAll(connections);
+            }
+            else {
+                eventLoop.execute(() -> closeAll(connections));
+            }
+        });
+    }
+
+    private static void closeAll(List<Connection> connections) {
+        for (Connection conn : new ArrayList<>(connections)) {
+            conn.close();
+        }
+    }
+
+    /**
+     * The connections for the given event loop.  Only used from that event loop.
+     */
+    private List<Connection> connectionsFor(EventLoop eventLoop) {
+        List<Connection> connections = connectionsPerEventLoop.get(eventLoop);
+        if (connections == null) {
+            connections = new ArrayList<>(2);
+            List<Connection> existing = connectionsPerEventLoop.putIfAbsent(eventLoop, connections);
+            if (existing != null) {
+                connections = existing;
+            }
+        }
+        return connections;
+    }
+
+    /**
+     * An HTTP/2 connection to the server, and the number of streams open or being opened on it.  Only used from its
+     * event loop.
+     */
+    private final class Connection {
+        final Channel channel;
+        /** Done once the connection is ready for streams, or failed. */
+        final Promise<Void> ready;
+        final long creationMillis = System.currentTimeMillis();
+        /** Between 0 and 1, as for {@link PooledConnection}. */
+        final float ageJitter = ThreadLocalRandom.current().nextFloat();
+        int streams;
+        long idleSinceMillis = creationMillis;
+        /** Set once the connection should take no more streams. */
+        boolean draining;
+
+        Connection(Channel channel, Promise<Void> ready) {
+            this.channel = channel;
+            this.ready = ready;
+        }
+
+        boolean canOpenStream(long nowMillis) {
+            if (draining) {
+                return false;
+            }
+            int limit = Math.min(config.getHttp2MaxConcurrentStreams(), serverMaxConcurrentStreams);
+            if (ready.isDone()) {
+                final Http2FrameCodec codec = channel.pipeline().get(Http2FrameCodec.class);
+                if (!channel.isActive() || codec == null) {
+                    return false;
+                }
+                final Http2Connection connection = codec.connection();
+                if (connection.goAwayReceived() || isExpired(nowMillis)) {
+                    // Closed by maintenance if it has no streams, or once the last one is done.
+                    LOG.debug("Draining HTTP/2 origin connection. origin={}, channel={}", config.getOriginName(), channel);
+                    draining = true;
+                    return false;
+                }
+                // Unbounded until the server's settings arrive.
+                final int serverMax = connection.local().maxActiveStreams();
+                if (serverMax != Integer.MAX_VALUE) {
+                    serverMaxConcurrentStreams = serverMax;
+                    limit = Math.min(config.getHttp2MaxConcurrentStreams(), serverMax);
+                }
+            }
+            return streams < limit;
+        }
+
+        boolean isExpired(long nowMillis) {
+            final int maxAge = config.getMaxConnectionAge();
+            if (maxAge < 0) {
+                return false;
+            }
+            final int jitterPercent = config.getMaxConnectionAgeJitterPercent();
+            return nowMillis - creationMillis > maxAge - (long) (maxAge * (jitterPercent / 100.0) * ageJitter);
+        }
+
+        void close() {
+            draining = true;
+            channel.close();
+        }
+    }
+}
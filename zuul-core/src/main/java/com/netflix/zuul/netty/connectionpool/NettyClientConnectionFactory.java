@@ -24,6 +24,9 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.util.concurrent.Future;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.Objects;
@@ -34,11 +37,13 @@ public final class NettyClientConnectionFactory {
 
     private final ConnectionPoolConfig connPoolConfig;
     private final ChannelInitializer<? extends Channel> channelInitializer;
+    private final boolean http2;
 
     NettyClientConnectionFactory(final ConnectionPoolConfig connPoolConfig,
                                  final ChannelInitializer<? extends Channel> channelInitializer) {
         this.connPoolConfig = connPoolConfig;
         this.channelInitializer = channelInitializer;
+        this.http2 = connPoolConfig.isHttp2();
     }
 
     public ChannelFuture connect(final EventLoop eventLoop, SocketAddress socketAddress, CurrentPassport passport) {
@@ -59,8 +64,22 @@ public final class NettyClientConnectionFactory {
                 .option(ChannelOption.SO_RCVBUF, connPoolConfig.getTcpReceiveBufferSize())
                 .option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, connPoolConfig.getNettyWriteBufferHighWaterMark())
                 .option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, connPoolConfig.getNettyWriteBufferLowWaterMark())
-                .option(ChannelOption.AUTO_READ, connPoolConfig.getNettyAutoRead())
+                // An HTTP/2 connection always has to read, for the frames of every stream and the connection itself.
+                .option(ChannelOption.AUTO_READ, http2 || connPoolConfig.getNettyAutoRead())
                 .remoteAddress(socketAddress);
         return bootstrap.connect();
     }
+
+    /**
+     * Opens a stream on an HTTP/2 connection made by {@link #connect}, set up by the same channel initializer.
+     */
+    public Future<Http2StreamChannel> openStream(final Channel parent, CurrentPassport passport) {
+        return new Http2StreamChannelBootstrap(parent)
+                .handler(channelInitializer)
+                .attr(CurrentPassport.CHANNEL_ATTR, passport)
+                .option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, connPoolConfig.getNettyWriteBufferHighWaterMark())
+                .option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, connPoolConfig.getNettyWriteBufferLowWaterMark())
+                .option(ChannelOption.AUTO_READ, connPoolConfig.getNettyAutoRead())
+                .open();
+    }
 }
@@ -21,6 +21,7 @@ import com.netflix.client.config.IClientConfig;
 import com.netflix.loadbalancer.Server;
 import com.netflix.loadbalancer.ServerStats;
 import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.NoopRegistry;
 import com.netflix.spectator.api.Timer;
 import com.netflix.zuul.exception.OutboundErrorType;
 import com.netflix.zuul.passport.CurrentPassport;
@@ -29,9 +30,14 @@ import com.netflix.zuul.stats.Timing;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.EventLoop;
 import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
@@ -55,6 +61,11 @@ public class PerServerConnectionPool implements IConnectionPool
     private final ConcurrentHashMap<EventLoop, Deque<PooledConnection>> connectionsPerEventLoop =
             new ConcurrentHashMap<>();
 
+    /** The requests waiting for a connection at maxConnectionsPerHost, oldest first.  Each is confined to its loop. */
+    private final ConcurrentHashMap<EventLoop, Deque<Waiter>> waitersPerEventLoop = new ConcurrentHashMap<>();
+    /** Requests waiting for a connection to this server, on any event loop. */
+    private final AtomicInteger waiting = new AtomicInteger();
+
     private final Server server;
     private final ServerStats stats;
     private final InstanceInfo instanceInfo;
@@ -75,6 +86,8 @@ public class PerServerConnectionPool implements IConnectionPool
     private final Timer connEstablishTimer;
     private final AtomicInteger connsInPool;
     private final AtomicInteger connsInUse;
+    private final AtomicInteger connsWaiting;
+    private final Timer connWaitTimer;
 
     /** 
      * This is the count of connections currently in progress of being established. 
@@ -100,6 +113,32 @@ public class PerServerConnectionPool implements IConnectionPool
             Timer connEstablishTimer,
             AtomicInteger connsInPool,
             AtomicInteger connsInUse) {
+        this(server, stats, instanceInfo, serverAddr, connectionFactory, pooledConnectionFactory, config,
+                niwsClientConfig, createNewConnCounter, createConnSucceededCounter, createConnFailedCounter,
+                requestConnCounter, reuseConnCounter, connTakenFromPoolIsNotOpen, maxConnsPerHostExceededCounter,
+                connEstablishTimer, connsInPool, connsInUse, new AtomicInteger(), new NoopRegistry().timer("wait"));
+    }
+
+    public PerServerConnectionPool(
+            Server server,
+            ServerStats stats,
+            InstanceInfo instanceInfo,
+            SocketAddress serverAddr,
+            NettyClientConnectionFactory connectionFactory,
+            PooledConnectionFactory pooledConnectionFactory,
+            ConnectionPoolConfig config,
+            IClientConfig niwsClientConfig,
+            Counter createNewConnCounter,
+            Counter createConnSucceededCounter,
+            Counter createConnFailedCounter,
+            Counter requestConnCounter, Counter reuseConnCounter,
+            Counter connTakenFromPoolIsNotOpen,
+            Counter maxConnsPerHostExceededCounter,
+            Timer connEstablishTimer,
+            AtomicInteger connsInPool,
+            AtomicInteger connsInUse,
+            AtomicInteger connsWaiting,
+            Timer connWaitTimer) {
         this.server = server;
         this.stats = stats;
         this.instanceInfo = instanceInfo;
@@ -119,6 +158,8 @@ public class PerServerConnectionPool implements IConnectionPool
         this.connEstablishTimer = connEstablishTimer;
         this.connsInPool = connsInPool;
         this.connsInUse = connsInUse;
+        this.connsWaiting = connsWaiting;
+        this.connWaitTimer = connWaitTimer;
         
         this.connCreationsInProgress = new AtomicInteger(0);
     }
@@ -141,7 +182,7 @@ public class PerServerConnectionPool implements IConnectionPool
     }
 
     /** function to run when a connection is acquired before returning it to caller. */
-    private void onAcquire(final PooledConnection conn, CurrentPassport passport)
+    protected void onAcquire(final PooledConnection conn, CurrentPassport passport)
     {
         passport.setOnChannel(conn.getChannel());
         removeIdleStateHandler(conn);
@@ -184,8 +225,7 @@ public class PerServerConnectionPool implements IConnectionPool
     public PooledConnection tryGettingFromConnectionPool(EventLoop eventLoop)
     {
         PooledConnection conn;
-        Deque<PooledConnection> connections = getPoolForEventLoop(eventLoop);
-        while ((conn = connections.poll()) != null) {
+        while ((conn = pollIdleConnection(eventLoop)) != null) {
 
             conn.setInPool(false);
 
@@ -214,6 +254,95 @@ public class PerServerConnectionPool implements IConnectionPool
         promise.setSuccess(conn);
     }
 
+    /**
+     * Takes the most suitable idle connection for the given event loop out of the pool, or returns null if there are
+     * none.  The connection is still marked as in the pool.
+     *
+     * <p>The most recently released connection is the most likely to still be open, and reusing it first leaves the
+     * rest of the pool idle long enough to be trimmed when there's more capacity than needed.
+     */
+    @Nullable
+    protected PooledConnection pollIdleConnection(EventLoop eventLoop) {
+        return getPoolForEventLoop(eventLoop).pollFirst();
+    }
+
+    /**
+     * Adds a connection to the idle connections for its event loop, unless there are already
+     * {@link ConnectionPoolConfig#perServerWaterline()} of them.
+     *
+     * @return whether the connection was added.
+     */
+    protected boolean offerIdleConnection(EventLoop eventLoop, PooledConnection conn) {
+        Deque<PooledConnection> connections = getPoolForEventLoop(eventLoop);
+
+        // Discard conn if already at least above waterline in the pool already for this server.
+        int poolWaterline = config.perServerWaterline();
+        if (poolWaterline > -1 && connections.size() >= poolWaterline) {
+            return false;
+        }
+        return connections.offerFirst(conn);
+    }
+
+    /**
+     * Removes a connection from the idle connections for its event loop.
+     *
+     * @return whether the connection was found.
+     */
+    protected boolean removeIdleConnection(EventLoop eventLoop, PooledConnection conn) {
+        return getPoolForEventLoop(eventLoop).remove(conn);
+    }
+
+    /**
+     * Counts the idle connections for the given event loop.  Only called from that event loop.
+     */
+    protected int idleConnectionCount(EventLoop eventLoop) {
+        return getPoolForEventLoop(eventLoop).size();
+    }
+
+    /**
+     * Lists the idle connections for the given event loop, in the order they would be reused.  Only called from that
+     * event loop.
+     */
+    protected List<PooledConnection> listIdleConnections(EventLoop eventLoop) {
+        return new ArrayList<>(getPoolForEventLoop(eventLoop));
+    }
+
+    /**
+     * Closes the idle connections for the given event loop that are no longer open, have outlived
+     * {@link ConnectionPoolConfig#getMaxConnectionAge()}, or haven't been reused for
+     * {@link ConnectionPoolConfig#getIdleTrimWindow()}.  Since the most recently released connections are reused first,
+     * the ones left unused for the window are those beyond the peak concurrency in it.  Trimming still leaves
+     * {@link ConnectionPoolConfig#perServerWarmTarget()} connections in the pool.  Only called from the event loop.
+     */
+    void maintainIdleConnections(EventLoop eventLoop, long nowMillis, ConnectionPoolMaintenance.Evictions evictions) {
+        final int trimWindow = config.getIdleTrimWindow();
+        final int maxAge = config.getMaxConnectionAge();
+        final int jitterPercent = config.getMaxConnectionAgeJitterPercent();
+        final int keep = config.perServerWarmTarget();
+
+        int kept = 0;
+        for (PooledConnection conn : listIdleConnections(eventLoop)) {
+            final AtomicInteger evicted;
+            if (!isValidFromPool(conn)) {
+                evicted = evictions.stale;
+            }
+            else if (conn.isExpired(nowMillis, maxAge, jitterPercent)) {
+                evicted = evictions.expired;
+            }
+            else if (trimWindow > -1 && nowMillis - conn.getIdleSinceTS() > trimWindow && kept >= keep) {
+                evicted = evictions.trimmed;
+            }
+            else {
+                kept++;
+                continue;
+            }
+            if (remove(conn)) {
+                evicted.incrementAndGet();
+                conn.close();
+            }
+        }
+    }
+
     protected Deque<PooledConnection> getPoolForEventLoop(EventLoop eventLoop)
     {
         // We don't want to block under any circumstances, so can't use CHM.computeIfAbsent().
@@ -231,15 +360,16 @@ public class PerServerConnectionPool implements IConnectionPool
             EventLoop eventLoop, Promise<PooledConnection> promise, CurrentPassport passport,
             AtomicReference<String> selectedHostAddr) {
         // Enforce MaxConnectionsPerHost config.
-        int maxConnectionsPerHost = config.maxConnectionsPerHost();
-        int openAndOpeningConnectionCount = stats.getOpenConnectionsCount() + connCreationsInProgress.get(); 
-        if (maxConnectionsPerHost != -1 && openAndOpeningConnectionCount >= maxConnectionsPerHost) {
+        int openAndOpeningConnectionCount = openAndOpeningConnectionCount();
+        if (isAtMaxConnections(openAndOpeningConnectionCount)) {
+            if (addWaiter(eventLoop, promise, passport, selectedHostAddr)) {
+                return;
+            }
             maxConnsPerHostExceededCounter.increment();
-            promise.setFailure(new OriginConnectException(
-                "maxConnectionsPerHost=" + maxConnectionsPerHost + ", connectionsPerHost=" + openAndOpeningConnectionCount,
-                    OutboundErrorType.ORIGIN_SERVER_MAX_CONNS));
+            stats.decrementActiveRequestsCount();
+            promise.setFailure(maxConnectionsExceeded(openAndOpeningConnectionCount));
             LOG.warn("Unable to create new connection because at MaxConnectionsPerHost! "
-                            + "maxConnectionsPerHost=" + maxConnectionsPerHost
+                            + "maxConnectionsPerHost=" + config.maxConnectionsPerHost()
                             + ", connectionsPerHost=" + openAndOpeningConnectionCount
                             + ", host=" + instanceInfo.getId()
                             + "origin=" + config.getOriginName()
@@ -247,24 +377,17 @@ public class PerServerConnectionPool implements IConnectionPool
             return;
         }
 
-        Timing timing = startConnEstablishTimer();
         try {
-            createNewConnCounter.increment();
-            connCreationsInProgress.incrementAndGet();
-            passport.add(PassportState.ORIGIN_CH_CONNECTING);
-
             selectedHostAddr.set(getSelectedHostString(serverAddr));
 
-            final ChannelFuture cf = connectToServer(eventLoop, passport, serverAddr);
+            final ChannelFuture cf = startConnection(eventLoop, passport);
 
             if (cf.isDone()) {
-                endConnEstablishTimer(timing);
                 handleConnectCompletion(cf, promise, passport);
             }
             else {
                 cf.addListener(future -> {
                     try {
-                        endConnEstablishTimer(timing);
                         handleConnectCompletion((ChannelFuture) future, promise, passport);
                     }
                     catch (Throwable e) {
@@ -280,11 +403,104 @@ public class PerServerConnectionPool implements IConnectionPool
             }
         }
         catch (Throwable e) {
-            endConnEstablishTimer(timing);
             promise.setFailure(e);
         }
     }
 
+    /**
+     * Whether the pool can be warmed up ahead of demand with {@link #openIdleConnection(EventLoop)}.
+     */
+    public boolean isWarmable() {
+        return true;
+    }
+
+    /**
+     * Opens a new connection on the given event loop ahead of any request for it, to warm up the pool.  The connection
+     * is neither in use nor in the pool, so the caller should {@link #release(PooledConnection)} it.
+     */
+    public Promise<PooledConnection> openIdleConnection(EventLoop eventLoop) {
+        Promise<PooledConnection> promise = eventLoop.newPromise();
+
+        int openAndOpeningConnectionCount = openAndOpeningConnectionCount();
+        if (isAtMaxConnections(openAndOpeningConnectionCount)) {
+            promise.setFailure(maxConnectionsExceeded(openAndOpeningConnectionCount));
+            return promise;
+        }
+
+        try {
+            CurrentPassport passport = CurrentPassport.create();
+            startConnection(eventLoop, passport).addListener((ChannelFuture cf) -> {
+                if (recordConnectCompletion(cf, passport)) {
+                    promise.setSuccess(pooledConnectionFactory.create(cf.channel()));
+                }
+                else {
+                    promise.setFailure(new OriginConnectException(cf.cause().getMessage(), OutboundErrorType.CONNECT_ERROR));
+                }
+            });
+        }
+        catch (Throwable e) {
+            promise.tryFailure(e);
+        }
+        return promise;
+    }
+
+    private int openAndOpeningConnectionCount() {
+        return stats.getOpenConnectionsCount() + connCreationsInProgress.get();
+    }
+
+    private boolean isAtMaxConnections(int openAndOpeningConnectionCount) {
+        int maxConnectionsPerHost = config.maxConnectionsPerHost();
+        return maxConnectionsPerHost != -1 && openAndOpeningConnectionCount >= maxConnectionsPerHost;
+    }
+
+    private OriginConnectException maxConnectionsExceeded(int openAndOpeningConnectionCount) {
+        return new OriginConnectException(
+                "maxConnectionsPerHost=" + config.maxConnectionsPerHost()
+                        + ", connectionsPerHost=" + openAndOpeningConnectionCount,
+                OutboundErrorType.ORIGIN_SERVER_MAX_CONNS);
+    }
+
+    /**
+     * Starts opening a new connection to the server, which counts as in progress until its result is passed to
+     * {@link #recordConnectCompletion(ChannelFuture, CurrentPassport)}.
+     */
+    private ChannelFuture startConnection(EventLoop eventLoop, CurrentPassport passport) {
+        Timing timing = startConnEstablishTimer();
+        createNewConnCounter.increment();
+        connCreationsInProgress.incrementAndGet();
+        passport.add(PassportState.ORIGIN_CH_CONNECTING);
+        final ChannelFuture cf;
+        try {
+            cf = connectToServer(eventLoop, passport, serverAddr);
+        }
+        catch (Throwable e) {
+            endConnEstablishTimer(timing);
+            connCreationsInProgress.decrementAndGet();
+            throw e;
+        }
+        cf.addListener(future -> endConnEstablishTimer(timing));
+        return cf;
+    }
+
+    /**
+     * Records the result of a connection opened with {@link #startConnection(EventLoop, CurrentPassport)}, and returns
+     * whether it succeeded.
+     */
+    private boolean recordConnectCompletion(ChannelFuture cf, CurrentPassport passport) {
+        connCreationsInProgress.decrementAndGet();
+        if (cf.isSuccess()) {
+            passport.add(PassportState.ORIGIN_CH_CONNECTED);
+            stats.incrementOpenConnectionsCount();
+            createConnSucceededCounter.increment();
+            cf.channel().closeFuture().addListener(closed -> onConnectionClosed());
+            return true;
+        }
+        stats.incrementSuccessiveConnectionFailureCount();
+        stats.addToFailureCount();
+        createConnFailedCounter.increment();
+        return false;
+    }
+
     protected ChannelFuture connectToServer(EventLoop eventLoop, CurrentPassport passport, SocketAddress serverAddr) {
         return connectionFactory.connect(eventLoop, serverAddr, passport);
     }
@@ -304,23 +520,12 @@ public class PerServerConnectionPool implements IConnectionPool
 
     protected void handleConnectCompletion(
             ChannelFuture cf, Promise<PooledConnection> callerPromise, CurrentPassport passport) {
-        connCreationsInProgress.decrementAndGet();
-        
-        if (cf.isSuccess()) {
-            
-            passport.add(PassportState.ORIGIN_CH_CONNECTED);
-            
-            stats.incrementOpenConnectionsCount();
-            createConnSucceededCounter.increment();
+        if (recordConnectCompletion(cf, passport)) {
             connsInUse.incrementAndGet();
-
             createConnection(cf, callerPromise, passport);
         }
         else {
-            stats.incrementSuccessiveConnectionFailureCount();
-            stats.addToFailureCount();
             stats.decrementActiveRequestsCount();
-            createConnFailedCounter.increment();
             callerPromise.setFailure(new OriginConnectException(cf.cause().getMessage(), OutboundErrorType.CONNECT_ERROR));
         }
     }
@@ -348,19 +553,16 @@ public class PerServerConnectionPool implements IConnectionPool
 
         // Get the eventloop for this channel.
         EventLoop eventLoop = conn.getChannel().eventLoop();
-        Deque<PooledConnection> connections = getPoolForEventLoop(eventLoop);
-        
-        CurrentPassport passport = CurrentPassport.fromChannel(conn.getChannel());
 
-        // Discard conn if already at least above waterline in the pool already for this server.
-        int poolWaterline = config.perServerWaterline();
-        if (poolWaterline > -1 && connections.size() >= poolWaterline) {
-            conn.close();
-            conn.setInPool(false);
-            return false;
+        // Hand the connection straight to a request waiting for one, if any.
+        if (handOverToWaiter(eventLoop, conn)) {
+            return true;
         }
+
+        CurrentPassport passport = CurrentPassport.fromChannel(conn.getChannel());
+
         // Attempt to return connection to the pool.
-        else if (connections.offer(conn)) {
+        if (offerIdleConnection(eventLoop, conn)) {
             conn.setInPool(true);
             connsInPool.incrementAndGet();
             passport.add(PassportState.ORIGIN_CH_POOL_RETURNED);
@@ -374,6 +576,119 @@ public class PerServerConnectionPool implements IConnectionPool
         }
     }
 
+    /**
+     * Queues a request for a connection at maxConnectionsPerHost until one is released on its event loop, or another
+     * one closes, for up to {@link ConnectionPoolConfig#getConnectionWaitTimeout()}.  Only requests made on the event
+     * loop wait, and only up to {@link ConnectionPoolConfig#getMaxConnectionWaiters()} of them per event loop.
+     *
+     * @return whether the request was queued.
+     */
+    private boolean addWaiter(
+            EventLoop eventLoop, Promise<PooledConnection> promise, CurrentPassport passport,
+            AtomicReference<String> selectedHostAddr) {
+        final int maxWaiters = config.getMaxConnectionWaiters();
+        if (maxWaiters <= 0 || !eventLoop.inEventLoop()) {
+            return false;
+        }
+        final Deque<Waiter> waiters = getWaitersForEventLoop(eventLoop);
+        if (waiters.size() >= maxWaiters) {
+            return false;
+        }
+
+        final Waiter waiter = new Waiter(promise, passport, selectedHostAddr);
+        waiters.addLast(waiter);
+        waiting.incrementAndGet();
+        connsWaiting.incrementAndGet();
+        final int timeout = config.getConnectionWaitTimeout();
+        waiter.timeout = eventLoop.schedule(() -> {
+            if (waiters.remove(waiter)) {
+                removedWaiter(waiter);
+                maxConnsPerHostExceededCounter.increment();
+                stats.decrementActiveRequestsCount();
+                promise.tryFailure(new OriginConnectException(
+                        "Timed out after " + timeout + "ms waiting for a connection at maxConnectionsPerHost="
+                                + config.maxConnectionsPerHost(), OutboundErrorType.ORIGIN_SERVER_MAX_CONNS));
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    @Nullable
+    private Waiter pollWaiter(Deque<Waiter> waiters) {
+        Waiter waiter;
+        while ((waiter = waiters.pollFirst()) != null) {
+            removedWaiter(waiter);
+            if (!waiter.promise.isDone()) {
+                return waiter;
+            }
+            // Given up on by the caller.
+            stats.decrementActiveRequestsCount();
+        }
+        return null;
+    }
+
+    private void removedWaiter(Waiter waiter) {
+        waiter.timeout.cancel(false);
+        waiting.decrementAndGet();
+        connsWaiting.decrementAndGet();
+        connWaitTimer.record(System.nanoTime() - waiter.startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean handOverToWaiter(EventLoop eventLoop, PooledConnection conn) {
+        if (!eventLoop.inEventLoop()) {
+            return false;
+        }
+        final Deque<Waiter> waiters = waitersPerEventLoop.get(eventLoop);
+        final Waiter waiter = (waiters != null) ? pollWaiter(waiters) : null;
+        if (waiter == null) {
+            return false;
+        }
+
+        reuseConnCounter.increment();
+        connsInUse.incrementAndGet();
+        conn.startRequestTimer();
+        conn.incrementUsageCount();
+        conn.getChannel().read();
+        onAcquire(conn, waiter.passport);
+        initPooledConnection(conn, waiter.promise);
+        waiter.selectedHostAddr.set(getSelectedHostString(serverAddr));
+        return true;
+    }
+
+    /**
+     * A connection closing makes room for another one, so lets a waiting request on each event loop try to connect.
+     */
+    private void onConnectionClosed() {
+        if (waiting.get() == 0) {
+            return;
+        }
+        for (Map.Entry<EventLoop, Deque<Waiter>> entry : waitersPerEventLoop.entrySet()) {
+            final EventLoop eventLoop = entry.getKey();
+            final Deque<Waiter> waiters = entry.getValue();
+            eventLoop.execute(() -> {
+                if (waiters.isEmpty() || isAtMaxConnections(openAndOpeningConnectionCount())) {
+                    return;
+                }
+                final Waiter waiter = pollWaiter(waiters);
+                if (waiter != null) {
+                    tryMakingNewConnection(eventLoop, waiter.promise, waiter.passport, waiter.selectedHostAddr);
+                }
+            });
+        }
+    }
+
+    private Deque<Waiter> getWaitersForEventLoop(EventLoop eventLoop) {
+        Deque<Waiter> waiters = waitersPerEventLoop.get(eventLoop);
+        if (waiters == null) {
+            waiters = new ArrayDeque<>();
+            final Deque<Waiter> existing = waitersPerEventLoop.putIfAbsent(eventLoop, waiters);
+            if (existing != null) {
+                waiters = existing;
+            }
+        }
+        return waiters;
+    }
+
     @Override
     public boolean remove(PooledConnection conn)
     {
@@ -387,9 +702,8 @@ public class PerServerConnectionPool implements IConnectionPool
         // Get the eventloop for this channel.
         EventLoop eventLoop = conn.getChannel().eventLoop();
 
-        // Attempt to return connection to the pool.
-        Deque<PooledConnection> connections = getPoolForEventLoop(eventLoop);
-        if (connections.remove(conn)) {
+        // Attempt to remove the connection from the pool.
+        if (removeIdleConnection(eventLoop, conn)) {
             conn.setInPool(false);
             connsInPool.decrementAndGet();
             return true;
@@ -419,7 +733,7 @@ public class PerServerConnectionPool implements IConnectionPool
         return connsInUse.get();
     }
 
-    private static String getSelectedHostString(SocketAddress addr) {
+    protected static String getSelectedHostString(SocketAddress addr) {
         if (addr instanceof InetSocketAddress) {
             // This is used for logging mainly.  TODO(carl-mastrangelo): consider passing the whole address back
             // rather than the string form.
@@ -430,4 +744,18 @@ public class PerServerConnectionPool implements IConnectionPool
         }
     }
 
+    private static final class Waiter {
+        final Promise<PooledConnection> promise;
+        final CurrentPassport passport;
+        final AtomicReference<String> selectedHostAddr;
+        final long startNanos = System.nanoTime();
+        ScheduledFuture<?> timeout;
+
+        Waiter(Promise<PooledConnection> promise, CurrentPassport passport, AtomicReference<String> selectedHostAddr) {
+            this.promise = promise;
+            this.passport = passport;
+            this.selectedHostAddr = selectedHostAddr;
+        }
+    }
+
 }
@@ -29,6 +29,7 @@ import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -71,6 +72,11 @@ public class PooledConnection {
     private boolean inPool = false;
     private boolean shouldClose = false;
     private boolean released = false;
+    /** Position in the idle connection stack of an {@link EventLoopConfinedConnectionPool}, or -1 if not there. */
+    int idleSlot = -1;
+    private long idleSinceTS;
+    /** Between 0 and 1, for shortening the max age of this connection by a random part of the allowed jitter. */
+    private final float ageJitter = ThreadLocalRandom.current().nextFloat();
 
     public PooledConnection(final Channel channel, final Server server, final ClientChannelManager channelManager,
                      final InstanceInfo serverKey,
@@ -169,9 +175,30 @@ public class PooledConnection {
 
     public void setInPool(boolean inPool)
     {
+        if (inPool && !this.inPool) {
+            this.idleSinceTS = System.currentTimeMillis();
+        }
         this.inPool = inPool;
     }
 
+    /**
+     * When this connection was last put in the pool.
+     */
+    public long getIdleSinceTS() {
+        return idleSinceTS;
+    }
+
+    /**
+     * Whether this connection has been open longer than the given max age, shortened by up to the given percentage.
+     */
+    public boolean isExpired(long nowMillis, int maxAgeMillis, int jitterPercent) {
+        if (maxAgeMillis < 0) {
+            return false;
+        }
+        final long maxAge = maxAgeMillis - (long) (maxAgeMillis * (jitterPercent / 100.0) * ageJitter);
+        return nowMillis - creationTS > maxAge;
+    }
+
     public boolean isShouldClose()
     {
         return shouldClose;
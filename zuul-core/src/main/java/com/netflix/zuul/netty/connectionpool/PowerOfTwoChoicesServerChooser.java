@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Chooses a server by picking two at random and taking the one expected to answer sooner: the one with the lower
+ * requests in flight, plus the one being chosen for, times a moving average of its response times.  Servers with a
+ * tripped circuit breaker are only chosen if both picks have one.
+ *
+ * <p>Requests in flight are the active request counts the connection pools keep in each server's {@link ServerStats}.
+ * The average is peak sensitive: a response slower than the average replaces it outright, while faster ones only pull
+ * it down gradually.  It also decays towards zero while a server isn't answering any requests, so a server that was
+ * slow for a while is tried again later rather than avoided for good.  Until a server has answered a request, only
+ * requests in flight are compared.
+ *
+ * <p>Nothing here takes a lock, so it can be called on every request from any event loop.  Zones are not considered.
+ */
+public class PowerOfTwoChoicesServerChooser {
+
+    /** How long it takes for an old response time to lose most of its weight. */
+    private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Function<Server, ServerStats> statsLookup;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<Server, AtomicReference<ResponseTime>> responseTimes = new ConcurrentHashMap<>();
+
+    public PowerOfTwoChoicesServerChooser(Function<Server, ServerStats> statsLookup) {
+        this(statsLookup, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    PowerOfTwoChoicesServerChooser(Function<Server, ServerStats> statsLookup, LongSupplier nanoClock) {
+        this.statsLookup = statsLookup;
+        this.nanoClock = nanoClock;
+    }
+
+    @Nullable
+    public Server choose(List<Server> servers) {
+        final int size = servers.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return servers.get(0);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(size);
+        // Any of the others, so the two are never the same.
+        final int second = (first + 1 + random.nextInt(size - 1)) % size;
+        return better(servers.get(first), servers.get(second));
+    }
+
+    /**
+     * Notes how long a request to the given server took, from acquiring the connection to releasing it.
+     */
+    public void noteResponseTime(Server server, long responseTimeMillis) {
+        AtomicReference<ResponseTime> ref = responseTimes.get(server);
+        if (ref == null) {
+            ref = responseTimes.computeIfAbsent(server, s -> new AtomicReference<>());
+        }
+        final long now = nanoClock.getAsLong();
+        final double sample = (double) responseTimeMillis;
+        ResponseTime current;
+        do {
+            current = ref.get();
+        } while (!ref.compareAndSet(current, update(current, sample, now)));
+    }
+
+    public void removeServer(Server server) {
+        responseTimes.remove(server);
+    }
+
+    private Server better(Server a, Server b) {
+        final long nowMillis = System.currentTimeMillis();
+        final ServerStats statsA = statsLookup.apply(a);
+        final ServerStats statsB = statsLookup.apply(b);
+        final boolean trippedA = statsA.isCircuitBreakerTripped(nowMillis);
+        if (trippedA != statsB.isCircuitBreakerTripped(nowMillis)) {
+            return trippedA ? b : a;
+        }
+
+        final int inflightA = statsA.getActiveRequestsCount(nowMillis);
+        final int inflightB = statsB.getActiveRequestsCount(nowMillis);
+        final long now = nanoClock.getAsLong();
+        final double latencyA = responseTimeMillis(a, now);
+        final double latencyB = responseTimeMillis(b, now);
+        if (latencyA < 0 || latencyB < 0) {
+            return (inflightB < inflightA) ? b : a;
+        }
+        return ((inflightB + 1) * latencyB < (inflightA + 1) * latencyA) ? b : a;
+    }
+
+    /**
+     * The decayed moving average of the server's response times, or -1 if it hasn't answered a request yet.
+     */
+    @VisibleForTesting
+    double responseTimeMillis(Server server, long nowNanos) {
+        final AtomicReference<ResponseTime> ref = responseTimes.get(server);
+        final ResponseTime current = (ref != null) ? ref.get() : null;
+        if (current == null) {
+            return -1;
+        }
+        return current.millis * weight(nowNanos - current.nanoTime);
+    }
+
+    private static ResponseTime update(@Nullable ResponseTime current, double sample, long now) {
+        if (current == null || sample > current.millis) {
+            return new ResponseTime(sample, now);
+        }
+        final double weight = weight(now - current.nanoTime);
+        return new ResponseTime(current.millis * weight + sample * (1 - weight), now);
+    }
+
+    private static double weight(long elapsedNanos) {
+        return Math.exp(-(double) Math.max(elapsedNanos, 0) / DECAY_NANOS);
+    }
+
+    private static final class ResponseTime {
+        final double millis;
+        final long nanoTime;
+
+        ResponseTime(double millis, long nanoTime) {
+            this.millis = millis;
+            this.nanoTime = nanoTime;
+        }
+    }
+}
@@ -37,6 +37,9 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.HttpContent;
 import io.perfmark.Link;
 import io.perfmark.PerfMark;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,8 +71,13 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
     private final FilterUsageNotifier usageNotifier;
     private final FilterRunner<O, ? extends ZuulMessage> nextStage;
 
-    private final String RUNNING_FILTER_IDX_SESSION_CTX_KEY;
-    private final String AWAITING_BODY_FLAG_SESSION_CTX_KEY;
+    private static final Map<FilterType, SessionContext.Key<AtomicInteger>> RUNNING_FILTER_IDX_SESSION_CTX_KEYS =
+            sessionContextKeys("RunningFilterIndex");
+    private static final Map<FilterType, SessionContext.Key<Boolean>> AWAITING_BODY_FLAG_SESSION_CTX_KEYS =
+            sessionContextKeys("IsAwaitingBody");
+
+    private final SessionContext.Key<AtomicInteger> RUNNING_FILTER_IDX_SESSION_CTX_KEY;
+    private final SessionContext.Key<Boolean> AWAITING_BODY_FLAG_SESSION_CTX_KEY;
     private static final Logger logger = LoggerFactory.getLogger(BaseZuulFilterRunner.class);
 
     private static final CachedDynamicIntProperty FILTER_EXCESSIVE_EXEC_TIME = new CachedDynamicIntProperty("zuul.filters.excessive.execTime", 500);
@@ -78,8 +86,20 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
     protected BaseZuulFilterRunner(FilterType filterType, FilterUsageNotifier usageNotifier, FilterRunner<O, ?> nextStage) {
         this.usageNotifier = Preconditions.checkNotNull(usageNotifier, "filter usage notifier");
         this.nextStage = nextStage;
-        this.RUNNING_FILTER_IDX_SESSION_CTX_KEY = filterType + "RunningFilterIndex";
-        this.AWAITING_BODY_FLAG_SESSION_CTX_KEY = filterType + "IsAwaitingBody";
+        this.RUNNING_FILTER_IDX_SESSION_CTX_KEY = RUNNING_FILTER_IDX_SESSION_CTX_KEYS.get(filterType);
+        this.AWAITING_BODY_FLAG_SESSION_CTX_KEY = AWAITING_BODY_FLAG_SESSION_CTX_KEYS.get(filterType);
+    }
+
+    /**
+     * Creates one session context key per filter type, named {@code filterType + suffix}.  Keys are shared by all
+     * runners of the same type, since context slots are never reclaimed.
+     */
+    static <T> Map<FilterType, SessionContext.Key<T>> sessionContextKeys(String suffix) {
+        final Map<FilterType, SessionContext.Key<T>> keys = new EnumMap<>(FilterType.class);
+        for (FilterType filterType : FilterType.values()) {
+            keys.put(filterType, SessionContext.Key.newKey(filterType + suffix));
+        }
+        return Collections.unmodifiableMap(keys);
     }
 
     public static final ChannelHandlerContext getChannelHandlerContext(final ZuulMessage mesg) {
@@ -93,13 +113,13 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
 
     protected final AtomicInteger initRunningFilterIndex(I zuulMesg) {
         final AtomicInteger idx = new AtomicInteger(0);
-        zuulMesg.getContext().put(RUNNING_FILTER_IDX_SESSION_CTX_KEY, idx);
+        zuulMesg.getContext().set(RUNNING_FILTER_IDX_SESSION_CTX_KEY, idx);
         return idx;
     }
 
     protected final AtomicInteger getRunningFilterIndex(I zuulMesg) {
         final SessionContext ctx = zuulMesg.getContext();
-        return (AtomicInteger) Preconditions.checkNotNull(ctx.get(RUNNING_FILTER_IDX_SESSION_CTX_KEY), "runningFilterIndex");
+        return Preconditions.checkNotNull(ctx.get(RUNNING_FILTER_IDX_SESSION_CTX_KEY), "runningFilterIndex");
     }
 
     protected final boolean isFilterAwaitingBody(I zuulMesg) {
@@ -108,7 +128,7 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
 
     protected final void setFilterAwaitingBody(I zuulMesg, boolean flag) {
         if (flag) {
-            zuulMesg.getContext().put(AWAITING_BODY_FLAG_SESSION_CTX_KEY, Boolean.TRUE);
+            zuulMesg.getContext().set(AWAITING_BODY_FLAG_SESSION_CTX_KEY, Boolean.TRUE);
         }
         else {
             zuulMesg.getContext().remove(AWAITING_BODY_FLAG_SESSION_CTX_KEY);
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.filter;
+
+import com.netflix.zuul.Filter;
+import com.netflix.zuul.filters.ZuulFilter;
+import com.netflix.zuul.message.ZuulMessage;
+import com.netflix.zuul.message.http.HttpRequestInfo;
+import com.netflix.zuul.message.http.HttpResponseMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Narrows a filter chain down to the filters that can apply to a given request, based on their
+ * {@link Filter.AppliesTo} annotation.  Filters without the annotation are always part of the plan.
+ *
+ * <p>Each filter's scope is matched against the request, and the resulting set of excluded filters is used as the key
+ * for a cached, specialized filter array.  The number of distinct plans is bounded by the combinations of scopes that
+ * actually occur, and is capped regardless.
+ */
+@ThreadSafe
+final class ZuulFilterChainPlanner<T extends ZuulMessage> {
+
+    private static final int MAX_CACHED_PLANS = 256;
+
+    private final ZuulFilter<T, T>[] filters;
+    /** Positions in {@link #filters} of the filters that declare a scope. */
+    private final int[] scopedPositions;
+    private final Scope[] scopes;
+    private final ConcurrentMap<BitSet, ZuulFilter<T, T>[]> plans = new ConcurrentHashMap<>();
+
+    ZuulFilterChainPlanner(ZuulFilter<T, T>[] filters) {
+        this.filters = filters;
+        List<Integer> positions = new ArrayList<>();
+        List<Scope> scopeList = new ArrayList<>();
+        for (int i = 0; i < filters.length; i++) {
+            Filter.AppliesTo appliesTo = filters[i].getClass().getAnnotation(Filter.AppliesTo.class);
+            if (appliesTo != null) {
+                positions.add(i);
+                scopeList.add(new Scope(appliesTo));
+            }
+        }
+        this.scopedPositions = positions.stream().mapToInt(Integer::intValue).toArray();
+        this.scopes = scopeList.toArray(new Scope[0]);
+    }
+
+    /**
+     * Returns the filters that can apply to the given message, in chain order.  Returns the full chain if no filter
+     * can be excluded.
+     */
+    ZuulFilter<T, T>[] planFor(T mesg) {
+        if (scopes.length == 0) {
+            return filters;
+        }
+        final HttpRequestInfo req = requestInfo(mesg);
+        if (req == null) {
+            return filters;
+        }
+
+        BitSet excluded = null;
+        for (int k = 0; k < scopes.length; k++) {
+            if (!scopes[k].matches(req)) {
+                if (excluded == null) {
+                    excluded = new BitSet(scopes.length);
+                }
+                excluded.set(k);
+            }
+        }
+        if (excluded == null) {
+            return filters;
+        }
+
+        ZuulFilter<T, T>[] plan = plans.get(excluded);
+        if (plan == null) {
+            plan = buildPlan(excluded);
+            if (plans.size() < MAX_CACHED_PLANS) {
+                plans.putIfAbsent(excluded, plan);
+            }
+        }
+        return plan;
+    }
+
+    private ZuulFilter<T, T>[] buildPlan(BitSet excluded) {
+        final ZuulFilter<T, T>[] plan = Arrays.copyOf(filters, filters.length - excluded.cardinality());
+        int w = 0;
+        int k = 0;
+        for (int i = 0; i < filters.length; i++) {
+            if (k < scopedPositions.length && scopedPositions[k] == i) {
+                if (excluded.get(k++)) {
+                    continue;
+                }
+            }
+            plan[w++] = filters[i];
+        }
+        return plan;
+    }
+
+    @Nullable
+    private static HttpRequestInfo requestInfo(ZuulMessage mesg) {
+        if (mesg instanceof HttpRequestInfo) {
+            return (HttpRequestInfo) mesg;
+        }
+        if (mesg instanceof HttpResponseMessage) {
+            return ((HttpResponseMessage) mesg).getInboundRequest();
+        }
+        return null;
+    }
+
+    /**
+     * A copy of a {@link Filter.AppliesTo}, since annotation attributes return a new array on every call.
+     */
+    static final class Scope {
+        private final String[] methods;
+        private final String[] pathPrefixes;
+        private final int[] ports;
+
+        Scope(Filter.AppliesTo appliesTo) {
+            this.methods = appliesTo.methods();
+            this.pathPrefixes = appliesTo.pathPrefixes();
+            this.ports = appliesTo.ports();
+        }
+
+        boolean matches(HttpRequestInfo req) {
+            if (methods.length > 0) {
+                final String method = req.getMethod();
+                boolean found = false;
+                for (String m : methods) {
+                    if (m.equalsIgnoreCase(method)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+
+            if (ports.length > 0) {
+                final int port = req.getPort();
+                boolean found = false;
+                for (int p : ports) {
+                    if (p == port) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+
+            if (pathPrefixes.length > 0) {
+                final String path = req.getPath();
+                if (path == null) {
+                    return false;
+                }
+                for (String prefix : pathPrefixes) {
+                    if (path.startsWith(prefix)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+}
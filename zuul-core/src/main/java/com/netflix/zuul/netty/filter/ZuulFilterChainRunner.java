@@ -16,8 +16,11 @@
 
 package com.netflix.zuul.netty.filter;
 
+import com.netflix.config.CachedDynamicBooleanProperty;
 import com.netflix.spectator.impl.Preconditions;
 import com.netflix.zuul.FilterUsageNotifier;
+import com.netflix.zuul.context.SessionContext;
+import com.netflix.zuul.filters.FilterType;
 import com.netflix.zuul.filters.ZuulFilter;
 import com.netflix.zuul.message.ZuulMessage;
 import com.netflix.zuul.message.http.HttpRequestMessage;
@@ -28,6 +31,7 @@ import io.netty.handler.codec.http.HttpContent;
 
 import io.perfmark.PerfMark;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -37,11 +41,27 @@ import java.util.concurrent.atomic.AtomicInteger;
 @ThreadSafe
 public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilterRunner<T, T> {
 
+    private static final CachedDynamicBooleanProperty ENABLE_FILTER_CHAIN_PLANS =
+            new CachedDynamicBooleanProperty("zuul.filters.chain.plans.enabled", false);
+
+    private static final Map<FilterType, SessionContext.Key<ZuulFilter<?, ?>[]>> FILTER_PLAN_SESSION_CTX_KEYS =
+            sessionContextKeys("FilterChainPlan");
+
     private final ZuulFilter<T, T>[] filters;
+    /** Non-null when filter chain plans are enabled.  See {@link com.netflix.zuul.Filter.AppliesTo}. */
+    private final ZuulFilterChainPlanner<T> planner;
+    private final SessionContext.Key<ZuulFilter<?, ?>[]> FILTER_PLAN_SESSION_CTX_KEY;
 
     public ZuulFilterChainRunner(ZuulFilter<T, T>[] zuulFilters, FilterUsageNotifier usageNotifier, FilterRunner<T, ?> nextStage) {
+        this(zuulFilters, usageNotifier, nextStage, ENABLE_FILTER_CHAIN_PLANS.get());
+    }
+
+    public ZuulFilterChainRunner(ZuulFilter<T, T>[] zuulFilters, FilterUsageNotifier usageNotifier,
+                                 FilterRunner<T, ?> nextStage, boolean enableFilterChainPlans) {
         super(zuulFilters[0].filterType(), usageNotifier, nextStage);
         this.filters = zuulFilters;
+        this.planner = enableFilterChainPlans ? new ZuulFilterChainPlanner<>(zuulFilters) : null;
+        this.FILTER_PLAN_SESSION_CTX_KEY = FILTER_PLAN_SESSION_CTX_KEYS.get(zuulFilters[0].filterType());
     }
 
     public ZuulFilterChainRunner(ZuulFilter<T, T>[] zuulFilters, FilterUsageNotifier usageNotifier) {
@@ -53,7 +73,7 @@ public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilter
         PerfMark.startTask(this, s -> s.getClass().getSimpleName() + ".filter");
         try {
             addPerfMarkTags(inMesg);
-            runFilters(inMesg, initRunningFilterIndex(inMesg));
+            runFilters(inMesg, initFilterPlan(inMesg), initRunningFilterIndex(inMesg));
         } finally {
             PerfMark.stopTask();
         }
@@ -65,13 +85,37 @@ public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilter
         try {
             final AtomicInteger runningFilterIdx = getRunningFilterIndex(inMesg);
             runningFilterIdx.incrementAndGet();
-            runFilters(inMesg, runningFilterIdx);
+            runFilters(inMesg, getFilterPlan(inMesg), runningFilterIdx);
         } finally {
             PerfMark.stopTask();
         }
     }
 
-    private final void runFilters(final T mesg, final AtomicInteger runningFilterIdx) {
+    /**
+     * Picks the filters to run for this message, and remembers the choice so that resumed runs and body chunks go
+     * through the same filters.
+     */
+    private ZuulFilter<T, T>[] initFilterPlan(final T mesg) {
+        if (planner == null) {
+            return filters;
+        }
+        final ZuulFilter<T, T>[] plan = planner.planFor(mesg);
+        if (plan != filters) {
+            mesg.getContext().set(FILTER_PLAN_SESSION_CTX_KEY, plan);
+        }
+        return plan;
+    }
+
+    @SuppressWarnings("unchecked") // Only ever set by initFilterPlan
+    private ZuulFilter<T, T>[] getFilterPlan(final T mesg) {
+        if (planner == null) {
+            return filters;
+        }
+        final ZuulFilter<T, T>[] plan = (ZuulFilter<T, T>[]) mesg.getContext().get(FILTER_PLAN_SESSION_CTX_KEY);
+        return plan != null ? plan : filters;
+    }
+
+    private final void runFilters(final T mesg, final ZuulFilter<T, T>[] filters, final AtomicInteger runningFilterIdx) {
         T inMesg = mesg;
         String filterName = "-";
         try {
@@ -105,6 +149,7 @@ public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilter
             addPerfMarkTags(inMesg);
             Preconditions.checkNotNull(inMesg, "input message");
 
+            final ZuulFilter<T, T>[] filters = getFilterPlan(inMesg);
             final AtomicInteger runningFilterIdx = getRunningFilterIndex(inMesg);
             final int limit = runningFilterIdx.get();
             for (int i = 0; i < limit; i++) {
@@ -153,7 +198,7 @@ public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilter
 
                 if (isAwaitingBody && inMesg.hasCompleteBody()) {
                     //whole body has arrived, resume filter chain
-                    runFilters(inMesg, runningFilterIdx);
+                    runFilters(inMesg, filters, runningFilterIdx);
                 }
             }
         }
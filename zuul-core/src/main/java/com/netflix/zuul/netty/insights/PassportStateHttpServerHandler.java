@@ -19,6 +19,7 @@ package com.netflix.zuul.netty.insights;
 import com.netflix.netty.common.HttpLifecycleChannelHandler;
 import com.netflix.zuul.passport.CurrentPassport;
 import com.netflix.zuul.passport.PassportState;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -34,12 +35,16 @@ import io.netty.handler.codec.http.LastHttpContent;
  * Time: 2:41 PM
  */
 public final class PassportStateHttpServerHandler {
+    public static final ChannelHandler INBOUND_CHANNEL_HANDLER = new InboundHandler();
+    public static final ChannelHandler OUTBOUND_CHANNEL_HANDLER = new OutboundHandler();
+
 
     private static CurrentPassport passport(ChannelHandlerContext ctx)
     {
         return CurrentPassport.fromChannel(ctx.channel());
     }
     
+    @ChannelHandler.Sharable
     public static final class InboundHandler extends ChannelInboundHandlerAdapter
     {
         @Override
@@ -53,7 +58,7 @@ public final class PassportStateHttpServerHandler {
                 // we know it's used, so discard and create a new one.
                 // NOTE: we do this because we want to include the initial conn estab + ssl handshake into the passport
                 // of the 1st request on a channel, but not on subsequent requests.
-                if (passport.findState(PassportState.IN_REQ_HEADERS_RECEIVED) != null) {
+                if (passport.hasState(PassportState.IN_REQ_HEADERS_RECEIVED)) {
                     passport = CurrentPassport.createForChannel(ctx.channel());
                 }
                 
@@ -84,6 +89,7 @@ public final class PassportStateHttpServerHandler {
         }
     }
 
+    @ChannelHandler.Sharable
     public static final class OutboundHandler extends ChannelOutboundHandlerAdapter
     {
         @Override
@@ -18,6 +18,7 @@ package com.netflix.zuul.netty.insights;
 
 import com.netflix.zuul.passport.CurrentPassport;
 import com.netflix.zuul.passport.PassportState;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -31,11 +32,15 @@ import java.net.SocketAddress;
  * Time: 2:41 PM
  */
 public final class PassportStateOriginHandler {
+    public static final ChannelHandler INBOUND_CHANNEL_HANDLER = new InboundHandler();
+    public static final ChannelHandler OUTBOUND_CHANNEL_HANDLER = new OutboundHandler();
+
     private static CurrentPassport passport(ChannelHandlerContext ctx)
     {
         return CurrentPassport.fromChannel(ctx.channel());
     }
 
+    @ChannelHandler.Sharable
     public static final class InboundHandler extends ChannelInboundHandlerAdapter {
 
         @Override
@@ -60,6 +65,7 @@ public final class PassportStateOriginHandler {
         }
     }
 
+    @ChannelHandler.Sharable
     public static final class OutboundHandler extends ChannelOutboundHandlerAdapter {
 
         @Override
@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkState;
 import com.netflix.zuul.passport.CurrentPassport;
 import com.netflix.zuul.passport.PassportState;
 import com.netflix.spectator.api.Registry;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -38,6 +39,9 @@ import org.slf4j.LoggerFactory;
  * Time: 2:41 PM
  */
 public final class PassportStateServerHandler {
+    public static final ChannelHandler INBOUND_CHANNEL_HANDLER = new InboundHandler();
+    public static final ChannelHandler OUTBOUND_CHANNEL_HANDLER = new OutboundHandler();
+
     private static final Logger LOG = LoggerFactory.getLogger(PassportStateServerHandler.class);
 
     private static Registry registry;
@@ -63,6 +67,7 @@ public final class PassportStateServerHandler {
                 .increment();
     }
 
+    @ChannelHandler.Sharable
     public static final class InboundHandler extends ChannelInboundHandlerAdapter
     {
         @Override
@@ -104,6 +109,7 @@ public final class PassportStateServerHandler {
         }
     }
 
+    @ChannelHandler.Sharable
     public static final class OutboundHandler extends ChannelOutboundHandlerAdapter
     {
         @Override
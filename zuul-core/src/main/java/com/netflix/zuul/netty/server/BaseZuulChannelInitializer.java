@@ -120,8 +120,10 @@ public abstract class BaseZuulChannelInitializer extends ChannelInitializer<Chan
     protected final PerEventLoopMetricsChannelHandler.HttpRequests perEventLoopRequestsMetricsHandler;
     protected final MaxInboundConnectionsHandler maxConnectionsHandler;
     protected final AccessLogPublisher accessLogPublisher;
+    protected final ChannelHandler accessLogHandler;
     protected final PassportLoggingHandler passportLoggingHandler;
     protected final boolean withProxyProtocol;
+    protected final ElbProxyProtocolChannelHandler proxyProtocolHandler;
     protected final StripUntrustedProxyHeadersHandler stripInboundProxyHeadersHandler;
     // TODO
     //protected final HttpRequestThrottleChannelHandler requestThrottleHandler;
@@ -174,6 +176,9 @@ public abstract class BaseZuulChannelInitializer extends ChannelInitializer<Chan
         this.channels = channels;
 
         this.accessLogPublisher = channelDependencies.get(ZuulDependencyKeys.accessLogPublisher);
+        this.accessLogHandler = accessLogPublisher != null
+                ? new AccessLogChannelHandler.AccessLogInboundChannelHandler(accessLogPublisher)
+                : null;
 
         this.withProxyProtocol = channelConfig.get(CommonChannelConfigKeys.withProxyProtocol);
 
@@ -203,6 +208,7 @@ public abstract class BaseZuulChannelInitializer extends ChannelInitializer<Chan
         this.sslClientCertCheckChannelHandler = channelDependencies.get(ZuulDependencyKeys.sslClientCertCheckChannelHandlerProvider).get();
 
         this.passportLoggingHandler = new PassportLoggingHandler(registry);
+        this.proxyProtocolHandler = new ElbProxyProtocolChannelHandler(registry, withProxyProtocol);
 
         this.sessionContextDecorator = channelDependencies.get(ZuulDependencyKeys.sessionCtxDecorator);
         this.requestCompleteHandler = channelDependencies.get(ZuulDependencyKeys.requestCompleteHandler);
@@ -225,8 +231,8 @@ public abstract class BaseZuulChannelInitializer extends ChannelInitializer<Chan
 
     protected void addPassportHandler(ChannelPipeline pipeline) {
         PassportStateServerHandler.setRegistry(registry);
-        pipeline.addLast(new PassportStateServerHandler.InboundHandler());
-        pipeline.addLast(new PassportStateServerHandler.OutboundHandler());
+        pipeline.addLast(PassportStateServerHandler.INBOUND_CHANNEL_HANDLER);
+        pipeline.addLast(PassportStateServerHandler.OUTBOUND_CHANNEL_HANDLER);
     }
     
     protected void addTcpRelatedHandlers(ChannelPipeline pipeline)
@@ -235,7 +241,7 @@ public abstract class BaseZuulChannelInitializer extends ChannelInitializer<Chan
         pipeline.addLast("channelMetrics", channelMetrics);
         pipeline.addLast(perEventLoopConnectionMetricsHandler);
 
-        new ElbProxyProtocolChannelHandler(registry, withProxyProtocol).addProxyProtocol(pipeline);
+        proxyProtocolHandler.addProxyProtocol(pipeline);
 
         pipeline.addLast(maxConnectionsHandler);
     }
@@ -261,21 +267,21 @@ public abstract class BaseZuulChannelInitializer extends ChannelInitializer<Chan
     
     protected void addHttpRelatedHandlers(ChannelPipeline pipeline)
     {
-        pipeline.addLast(new PassportStateHttpServerHandler.InboundHandler());
-        pipeline.addLast(new PassportStateHttpServerHandler.OutboundHandler());
+        pipeline.addLast(PassportStateHttpServerHandler.INBOUND_CHANNEL_HANDLER);
+        pipeline.addLast(PassportStateHttpServerHandler.OUTBOUND_CHANNEL_HANDLER);
         if (httpRequestReadTimeout > -1) {
             HttpRequestReadTimeoutHandler.addLast(pipeline, httpRequestReadTimeout, TimeUnit.MILLISECONDS, httpRequestReadTimeoutCounter);
         }
-        pipeline.addLast(new HttpServerLifecycleChannelHandler.HttpServerLifecycleInboundChannelHandler());
-        pipeline.addLast(new HttpServerLifecycleChannelHandler.HttpServerLifecycleOutboundChannelHandler());
-        pipeline.addLast(new HttpBodySizeRecordingChannelHandler.InboundChannelHandler());
-        pipeline.addLast(new HttpBodySizeRecordingChannelHandler.OutboundChannelHandler());
+        pipeline.addLast(HttpServerLifecycleChannelHandler.INBOUND_CHANNEL_HANDLER);
+        pipeline.addLast(HttpServerLifecycleChannelHandler.OUTBOUND_CHANNEL_HANDLER);
+        pipeline.addLast(HttpBodySizeRecordingChannelHandler.INBOUND_CHANNEL_HANDLER);
+        pipeline.addLast(HttpBodySizeRecordingChannelHandler.OUTBOUND_CHANNEL_HANDLER);
         pipeline.addLast(httpMetricsHandler);
         pipeline.addLast(perEventLoopRequestsMetricsHandler);
 
         if (accessLogPublisher != null) {
-            pipeline.addLast(new AccessLogChannelHandler.AccessLogInboundChannelHandler(accessLogPublisher));
-            pipeline.addLast(new AccessLogChannelHandler.AccessLogOutboundChannelHandler());
+            pipeline.addLast(accessLogHandler);
+            pipeline.addLast(AccessLogChannelHandler.OUTBOUND_CHANNEL_HANDLER);
         }
 
         pipeline.addLast(stripInboundProxyHeadersHandler);
@@ -289,7 +295,7 @@ public abstract class BaseZuulChannelInitializer extends ChannelInitializer<Chan
 
     protected void addTimeoutHandlers(ChannelPipeline pipeline) {
         pipeline.addLast(new IdleStateHandler(0, 0, idleTimeout, TimeUnit.MILLISECONDS));
-        pipeline.addLast(new CloseOnIdleStateHandler());
+        pipeline.addLast(CloseOnIdleStateHandler.INSTANCE);
     }
 
     protected void addSslInfoHandlers(ChannelPipeline pipeline, boolean isSSlFromIntermediary) {
@@ -64,7 +64,6 @@ import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
 import java.net.SocketAddress;
 import java.util.List;
-import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -183,7 +182,7 @@ public class ClientRequestReceiver extends ChannelDuplexHandler {
                 zuulRequest.getContext().cancel();
                 zuulRequest.disposeBufferedBody();
                 final CurrentPassport passport = CurrentPassport.fromSessionContext(zuulRequest.getContext());
-                if ((passport != null) && (passport.findState(PassportState.OUT_RESP_LAST_CONTENT_SENT) == null)) {
+                if ((passport != null) && (!passport.hasState(PassportState.OUT_RESP_LAST_CONTENT_SENT))) {
                     // Only log this state if the response does not seem to have completed normally.
                     passport.add(PassportState.IN_REQ_CANCELLED);
                 }
@@ -240,8 +239,8 @@ public class ClientRequestReceiver extends ChannelDuplexHandler {
                     throw new ZuulException(s.cause(), "Failed while writing 100-continue response", true);
                 }
             });
-            // Remove the Expect: 100-Continue header from request as we don't want to proxy it downstream.
-            req.headers().remove(HttpHeaderNames.EXPECT);
+            // Remove the Expect: 100-Continue header from request as we don't want to proxy it downstream.  The native
+            // request is left alone, as the zuul request headers are lazily copied from it.
             zuulRequest.getHeaders().remove(HttpHeaderNames.EXPECT.toString());
         }
     }
@@ -298,7 +297,7 @@ public class ClientRequestReceiver extends ChannelDuplexHandler {
                 nativeRequest.method().asciiName().toString().toLowerCase(),
                 path,
                 copyQueryParams(nativeRequest),
-                copyHeaders(nativeRequest),
+                Headers.lazyCopyOf(nativeRequest.headers()),
                 clientIp,
                 scheme,
                 port,
@@ -332,14 +331,6 @@ public class ClientRequestReceiver extends ChannelDuplexHandler {
         return request;
     }
 
-    private static Headers copyHeaders(final HttpRequest req) {
-        final Headers headers = new Headers();
-        for (Map.Entry<String, String> entry : req.headers().entries()) {
-            headers.add(entry.getKey(), entry.getValue());
-        }
-        return headers;
-    }
-
     public static HttpQueryParams copyQueryParams(final HttpRequest nativeRequest) {
         final String uri = nativeRequest.uri();
         int queryStart = uri.indexOf('?');
@@ -22,7 +22,6 @@ import com.netflix.spectator.api.Registry;
 import com.netflix.zuul.RequestCompleteHandler;
 import com.netflix.zuul.context.CommonContextKeys;
 import com.netflix.zuul.exception.ZuulException;
-import com.netflix.zuul.message.Header;
 import com.netflix.zuul.message.http.HttpRequestInfo;
 import com.netflix.zuul.message.http.HttpRequestMessage;
 import com.netflix.zuul.message.http.HttpResponseMessage;
@@ -39,7 +38,6 @@ import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
-import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
@@ -185,10 +183,7 @@ public class ClientResponseWriter extends ChannelInboundHandlerAdapter {
                 HttpResponseStatus.valueOf(zuulResp.getStatus()), false, false);
 
         // Now set all of the response headers - note this is a multi-set in keeping with HTTP semantics
-        final HttpHeaders nativeHeaders = nativeResponse.headers();
-        for (Header entry : zuulResp.getHeaders().entries()) {
-            nativeHeaders.add(entry.getKey(), entry.getValue());
-        }
+        zuulResp.getHeaders().copyInto(nativeResponse.headers());
 
         // Netty does not automatically add Content-Length or Transfer-Encoding: chunked. So we add here if missing.
         if (! HttpUtil.isContentLengthSet(nativeResponse) && ! HttpUtil.isTransferEncodingChunked(nativeResponse)) {
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.server;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The io_uring transport from Netty's incubator, if it's on the classpath.
+ *
+ * <p>It's loaded by name rather than linked against, as the incubator releases are built against newer versions of
+ * Netty than Zuul uses.  Deployments that want to use it add the incubator jar, and a matching Netty, themselves.
+ */
+final class IoUringTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IoUringTransport.class);
+
+    private static final String PACKAGE = "io.netty.incubator.channel.uring.";
+
+    private IoUringTransport() {}
+
+    static boolean isAvailable() {
+        boolean available;
+        try {
+            Class<?> ioUring = Class.forName(PACKAGE + "IOUring");
+            available = (Boolean) ioUring.getMethod("isAvailable").invoke(null);
+            if (!available) {
+                LOG.debug("io_uring is unavailable, skipping", (Throwable) ioUring.getMethod("unavailabilityCause").invoke(null));
+            }
+        } catch (ClassNotFoundException | NoClassDefFoundError e) {
+            LOG.debug("io_uring is unavailable, skipping", e);
+            return false;
+        } catch (ReflectiveOperationException | RuntimeException | Error e) {
+            LOG.warn("io_uring is unavailable, skipping", e);
+            return false;
+        }
+        return available;
+    }
+
+    static EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return newInstance("IOUringEventLoopGroup", new Class<?>[] {int.class, ThreadFactory.class}, threads, threadFactory);
+    }
+
+    static EventLoopGroup newEventLoopGroup(int threads, Executor executor) {
+        return newInstance("IOUringEventLoopGroup", new Class<?>[] {int.class, Executor.class}, threads, executor);
+    }
+
+    static Class<? extends ServerChannel> serverChannelType() {
+        return load("IOUringServerSocketChannel").asSubclass(ServerChannel.class);
+    }
+
+    static Class<? extends Channel> socketChannelType() {
+        return load("IOUringSocketChannel").asSubclass(Channel.class);
+    }
+
+    private static Class<?> load(String className) {
+        try {
+            return Class.forName(PACKAGE + className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("io_uring transport is not on the classpath", e);
+        }
+    }
+
+    private static EventLoopGroup newInstance(String className, Class<?>[] parameterTypes, Object... args) {
+        try {
+            return (EventLoopGroup) load(className).getConstructor(parameterTypes).newInstance(args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create " + className, e);
+        }
+    }
+}
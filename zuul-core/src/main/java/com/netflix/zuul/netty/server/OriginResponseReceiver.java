@@ -18,7 +18,6 @@ package com.netflix.zuul.netty.server;
 
 import com.netflix.zuul.exception.OutboundException;
 import com.netflix.zuul.exception.ZuulException;
-import com.netflix.zuul.message.Header;
 import com.netflix.zuul.message.http.HttpQueryParams;
 import com.netflix.zuul.message.http.HttpRequestMessage;
 import com.netflix.zuul.netty.ChannelUtils;
@@ -152,9 +151,7 @@ public class OriginResponseReceiver extends ChannelDuplexHandler {
 
         final DefaultHttpRequest nettyReq = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.valueOf(method), uri, false);
         // Copy headers across.
-        for (final Header h : zuulRequest.getHeaders().entries()) {
-            nettyReq.headers().add(h.getKey(), h.getValue());
-        }
+        zuulRequest.getHeaders().copyInto(nettyReq.headers());
 
         return nettyReq;
     }
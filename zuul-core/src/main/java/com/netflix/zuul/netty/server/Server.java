@@ -22,13 +22,16 @@ import com.netflix.config.DynamicBooleanProperty;
 import com.netflix.netty.common.CategorizedThreadFactory;
 import com.netflix.netty.common.LeastConnsEventLoopChooserFactory;
 import com.netflix.netty.common.metrics.EventLoopGroupMetrics;
+import com.netflix.netty.common.metrics.ListenerMetrics;
 import com.netflix.netty.common.status.ServerStatusManager;
+import com.netflix.spectator.api.Spectator;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultSelectStrategyFactory;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.epoll.Epoll;
@@ -94,6 +97,21 @@ public class Server
     private static final DynamicBooleanProperty FORCE_NIO =
             new DynamicBooleanProperty("zuul.server.netty.socket.force_nio", false);
 
+    /**
+     * If {@code true}, the Zuul server will use the io_uring transport for both client and origin connections, when
+     * it's on the classpath and the kernel supports it.  Otherwise it falls back to autodetecting the transport.
+     */
+    private static final DynamicBooleanProperty USE_IO_URING =
+            new DynamicBooleanProperty("zuul.server.netty.socket.io_uring", false);
+
+    /**
+     * If {@code true} and the transport is epoll, each address is listened on by a server channel per event loop,
+     * bound with {@code SO_REUSEPORT}, which accepts connections onto its own event loop.  The kernel then spreads new
+     * connections across the listeners, rather than a single acceptor handing them out to event loops.
+     */
+    private static final DynamicBooleanProperty USE_REUSEPORT_LISTENERS =
+            new DynamicBooleanProperty("zuul.server.netty.socket.reuseport", false);
+
     private static final Logger LOG = LoggerFactory.getLogger(Server.class);
 
     private static final DynamicBooleanProperty USE_LEASTCONNS_FOR_EVENTLOOPS =
@@ -181,9 +199,10 @@ public class Server
             // Setup each of the channel initializers on requested ports.
             for (Map.Entry<? extends SocketAddress, ? extends ChannelInitializer<?>> entry
                     : addressesToInitializers.entrySet()) {
-                ChannelFuture nettyServerFuture = setupServerBootstrap(entry.getKey(), entry.getValue());
-                serverGroup.addListeningServer(nettyServerFuture.channel());
-                allBindFutures.add(nettyServerFuture);
+                for (ChannelFuture nettyServerFuture : setupServerBootstraps(entry.getKey(), entry.getValue())) {
+                    serverGroup.addListeningServer(nettyServerFuture.channel());
+                    allBindFutures.add(nettyServerFuture);
+                }
             }
 
             // Once all server bootstraps are successfully initialized, then bind to each port.
@@ -224,10 +243,32 @@ public class Server
         clientConnectionsShutdown.gracefullyShutdownClientChannels();
     }
 
-    private ChannelFuture setupServerBootstrap(
+    private List<ChannelFuture> setupServerBootstraps(
             SocketAddress listenAddress, ChannelInitializer<?> channelInitializer) throws InterruptedException {
-        ServerBootstrap serverBootstrap =
-                new ServerBootstrap().group(serverGroup.clientToProxyBossPool, serverGroup.clientToProxyWorkerPool);
+        if (!serverGroup.reusePort) {
+            return Collections.singletonList(setupServerBootstrap(
+                    listenAddress, channelInitializer, serverGroup.clientToProxyBossPool,
+                    serverGroup.clientToProxyWorkerPool, 0));
+        }
+
+        // A listener per event loop, which accepts connections onto that same event loop.
+        List<ChannelFuture> bindFutures = new ArrayList<>();
+        SocketAddress address = listenAddress;
+        int listener = 0;
+        for (EventExecutor loop : serverGroup.clientToProxyWorkerPool) {
+            ChannelFuture bindFuture = setupServerBootstrap(
+                    address, channelInitializer, (EventLoop) loop, (EventLoop) loop, listener++);
+            // If the port is chosen when binding, the rest of the listeners share the one chosen for the first.
+            address = bindFuture.channel().localAddress();
+            bindFutures.add(bindFuture);
+        }
+        return bindFutures;
+    }
+
+    private ChannelFuture setupServerBootstrap(
+            SocketAddress listenAddress, ChannelInitializer<?> channelInitializer, EventLoopGroup parentGroup,
+            EventLoopGroup childGroup, int listener) throws InterruptedException {
+        ServerBootstrap serverBootstrap = new ServerBootstrap().group(parentGroup, childGroup);
 
         // Choose socket options.
         Map<ChannelOption, Object> channelOptions = new HashMap<>();
@@ -248,6 +289,7 @@ public class Server
             serverBootstrap = serverBootstrap.option(optionEntry.getKey(), optionEntry.getValue());
         }
 
+        serverBootstrap.handler(new ListenerMetrics(listenAddress.toString(), listener, Spectator.globalRegistry()));
         serverBootstrap.childHandler(channelInitializer);
         serverBootstrap.validate();
 
@@ -292,6 +334,7 @@ public class Server
         private EventLoopGroup clientToProxyWorkerPool;
         private Class<? extends ServerChannel> channelType;
         private Map<ChannelOption, ?> transportChannelOptions;
+        private boolean reusePort;
 
         private volatile boolean stopped = false;
 
@@ -320,11 +363,12 @@ public class Server
             if (stopped) {
                 return Collections.emptyList();
             }
-            List<SocketAddress> listeningAddresses = new ArrayList<>(nettyServers.size());
+            // Listeners sharing a port with SO_REUSEPORT have the same address.
+            Set<SocketAddress> listeningAddresses = new LinkedHashSet<>(nettyServers.size());
             for (Channel nettyServer : nettyServers) {
                 listeningAddresses.add(nettyServer.localAddress());
             }
-            return Collections.unmodifiableList(listeningAddresses);
+            return Collections.unmodifiableList(new ArrayList<>(listeningAddresses));
         }
 
         private void initializeTransport()
@@ -342,10 +386,22 @@ public class Server
 
             Map<ChannelOption, Object> extraOptions = new HashMap<>();
             boolean useNio = FORCE_NIO.get();
-            if (!useNio && epollIsAvailable()) {
+            if (!useNio && USE_IO_URING.get() && IoUringTransport.isAvailable()) {
+                channelType = IoUringTransport.serverChannelType();
+                defaultOutboundChannelType.set(IoUringTransport.socketChannelType());
+                clientToProxyBossPool = IoUringTransport.newEventLoopGroup(
+                        acceptorThreads,
+                        new CategorizedThreadFactory(name + "-ClientToZuulAcceptor"));
+                // The io_uring event loop group takes no chooser, so use_leastconns has no effect with it.
+                clientToProxyWorkerPool = IoUringTransport.newEventLoopGroup(workerThreads, workerExecutor);
+            } else if (!useNio && epollIsAvailable()) {
                 channelType = EpollServerSocketChannel.class;
                 defaultOutboundChannelType.set(EpollSocketChannel.class);
                 extraOptions.put(EpollChannelOption.TCP_DEFER_ACCEPT, -1);
+                if (USE_REUSEPORT_LISTENERS.get()) {
+                    reusePort = true;
+                    extraOptions.put(EpollChannelOption.SO_REUSEPORT, true);
+                }
                 clientToProxyBossPool = new EpollEventLoopGroup(
                         acceptorThreads,
                         new CategorizedThreadFactory(name + "-ClientToZuulAcceptor"));
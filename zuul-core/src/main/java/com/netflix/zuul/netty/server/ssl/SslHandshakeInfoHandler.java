@@ -26,6 +26,7 @@ import com.netflix.zuul.passport.PassportState;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
 import io.netty.handler.ssl.SniCompletionEvent;
 import io.netty.handler.ssl.SslCloseCompletionEvent;
 import io.netty.handler.ssl.SslHandler;
@@ -37,11 +38,14 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSession;
 import javax.security.cert.X509Certificate;
+import java.lang.reflect.Method;
 import java.nio.channels.ClosedChannelException;
 import java.security.cert.Certificate;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Stores info about the client and server's SSL certificates in the context, after a successful handshake.
@@ -55,8 +59,16 @@ public class SslHandshakeInfoHandler extends ChannelInboundHandlerAdapter
     public static final AttributeKey<SslHandshakeInfo> ATTR_SSL_INFO = AttributeKey.newInstance("_ssl_handshake_info");
     private static final Logger LOG = LoggerFactory.getLogger(SslHandshakeInfoHandler.class);
 
+    /**
+     * tcnative's {@code SSL.isSessionReused(long)}, looked up by name as tcnative is only a runtime dependency and
+     * that class is internal to it.  Null if it can't be found.
+     */
+    @Nullable
+    private static final Method IS_SESSION_REUSED = findIsSessionReused();
+
     private final Registry spectatorRegistry;
     private final boolean isSSlFromIntermediary;
+    private long handshakeStartNanos;
 
     public SslHandshakeInfoHandler(@Nullable Registry spectatorRegistry, boolean isSSlFromIntermediary)
     {
@@ -70,6 +82,13 @@ public class SslHandshakeInfoHandler extends ChannelInboundHandlerAdapter
         isSSlFromIntermediary = false;
     }
 
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception
+    {
+        handshakeStartNanos = System.nanoTime();
+        super.handlerAdded(ctx);
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception
     {
@@ -101,6 +120,7 @@ public class SslHandshakeInfoHandler extends ChannelInboundHandlerAdapter
 
                     // Metrics.
                     incrementCounters(sslEvent, info);
+                    recordHandshakeTime(sessionResumption(sslhandler.engine()));
 
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("Successful SSL Handshake: " + String.valueOf(info));
@@ -212,6 +232,56 @@ public class SslHandshakeInfoHandler extends ChannelInboundHandlerAdapter
         return clientAuth;
     }
 
+    /**
+     * Whether the engine's handshake resumed an earlier session, from a session ticket or the session cache.  Only
+     * OpenSSL engines can tell.
+     */
+    @VisibleForTesting
+    static String sessionResumption(SSLEngine engine)
+    {
+        if (IS_SESSION_REUSED != null && engine instanceof ReferenceCountedOpenSslEngine) {
+            // Hold the engine's lock so it can't be freed while its SSL pointer is in use.
+            synchronized (engine) {
+                long ssl = ((ReferenceCountedOpenSslEngine) engine).sslPointer();
+                if (ssl != 0) {
+                    try {
+                        return String.valueOf(IS_SESSION_REUSED.invoke(null, ssl));
+                    }
+                    catch (ReflectiveOperationException | RuntimeException e) {
+                        LOG.debug("Unable to tell whether the session was resumed", e);
+                    }
+                }
+            }
+        }
+        return "unknown";
+    }
+
+    @Nullable
+    private static Method findIsSessionReused()
+    {
+        try {
+            return Class.forName("io.netty.internal.tcnative.SSL").getMethod("isSessionReused", long.class);
+        }
+        catch (ClassNotFoundException | NoClassDefFoundError | NoSuchMethodException e) {
+            LOG.debug("Session resumption won't be recorded, as tcnative's SSL.isSessionReused is unavailable", e);
+            return null;
+        }
+    }
+
+    /**
+     * Records the time from the connection being set up to its handshake completing.  The ratio of counts with
+     * {@code resumed=true} to all counts is the session resumption rate.
+     */
+    private void recordHandshakeTime(String resumed)
+    {
+        if (spectatorRegistry == null) {
+            // May be null for testing.
+            return;
+        }
+        spectatorRegistry.timer("server.ssl.handshake.time", "resumed", resumed)
+                .record(System.nanoTime() - handshakeStartNanos, TimeUnit.NANOSECONDS);
+    }
+
     private void incrementCounters(
             SslHandshakeCompletionEvent sslHandshakeCompletionEvent, SslHandshakeInfo handshakeInfo) {
         if (spectatorRegistry == null) {
@@ -35,6 +35,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -46,6 +47,7 @@ import java.util.Base64;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.ToDoubleFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,6 +71,8 @@ public class BaseSslContextFactory implements SslContextFactory {
     protected final Registry spectatorRegistry;
     protected final ServerSslConfig serverSslConfig;
 
+    private SessionTicketKeyManager sessionTicketKeyManager;
+
     public BaseSslContextFactory(Registry spectatorRegistry, ServerSslConfig serverSslConfig) {
         this.spectatorRegistry = Objects.requireNonNull(spectatorRegistry);
         this.serverSslConfig = Objects.requireNonNull(serverSslConfig);
@@ -85,6 +89,7 @@ public class BaseSslContextFactory implements SslContextFactory {
             SslContextBuilder builder = newBuilderForServer()
                     .ciphers(getCiphers(), getCiphersFilter())
                     .sessionTimeout(serverSslConfig.getSessionTimeout())
+                    .sessionCacheSize(serverSslConfig.getSessionCacheSize())
                     .sslProvider(sslProvider);
 
             if (serverSslConfig.getClientAuth() != null && trustedCerts != null && !trustedCerts.isEmpty()) {
@@ -113,9 +118,38 @@ public class BaseSslContextFactory implements SslContextFactory {
         }
     }
 
+    /**
+     * Encrypts the context's session tickets with keys from the {@link SessionTicketKeyManager}, which is shared by
+     * every context this factory enables tickets on.  Only OpenSSL contexts can have their keys set; JDK contexts
+     * manage their own.
+     */
     @Override
     public void enableSessionTickets(SslContext sslContext) {
-        // TODO
+        if (!serverSslConfig.sessionTicketsEnabled()) {
+            return;
+        }
+        if (!(sslContext instanceof ReferenceCountedOpenSslContext)) {
+            LOG.debug("Not managing session ticket keys for non-OpenSSL context {}", sslContext);
+            return;
+        }
+        getSessionTicketKeyManager().register((ReferenceCountedOpenSslContext) sslContext);
+    }
+
+    private synchronized SessionTicketKeyManager getSessionTicketKeyManager() {
+        if (sessionTicketKeyManager == null) {
+            SessionTicketKeyManager manager = new SessionTicketKeyManager(
+                    serverSslConfig.getSessionTicketKeysFile(),
+                    TimeUnit.SECONDS.toMillis(serverSslConfig.getSessionTicketKeyRotation()),
+                    TimeUnit.SECONDS.toMillis(serverSslConfig.getSessionTicketKeyGrace()),
+                    spectatorRegistry);
+            try {
+                manager.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error loading session ticket keys!", e);
+            }
+            sessionTicketKeyManager = manager;
+        }
+        return sessionTicketKeyManager;
     }
 
     public void configureOpenSslStatsMetrics(SslContext sslContext, String sslContextId) {
@@ -19,6 +19,8 @@ package com.netflix.zuul.netty.ssl;
 import com.netflix.config.DynamicBooleanProperty;
 import com.netflix.netty.common.ssl.ServerSslConfig;
 import com.netflix.spectator.api.Registry;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import org.slf4j.Logger;
@@ -68,6 +70,32 @@ public final class ClientSslContextFactory extends BaseSslContextFactory {
         }
     }
 
+    /**
+     * Same as {@link #getClientSslContext()}, but only offers HTTP/2 over ALPN.
+     */
+    public SslContext getClientHttp2SslContext() {
+        ApplicationProtocolConfig apn = new ApplicationProtocolConfig(
+                ApplicationProtocolConfig.Protocol.ALPN,
+                // NO_ADVERTISE is currently the only mode supported by both OpenSsl and JDK providers.
+                ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                // ACCEPT is currently the only mode supported by both OpenSsl and JDK providers.
+                ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                ApplicationProtocolNames.HTTP_2);
+        try {
+            return SslContextBuilder
+                    .forClient()
+                    .sslProvider(chooseSslProvider())
+                    .ciphers(getCiphers(), getCiphersFilter())
+                    .protocols(getProtocols())
+                    .applicationProtocolConfig(apn)
+                    .build();
+        }
+        catch (Exception e) {
+            log.error("Error loading HTTP/2 SslContext client request.", e);
+            throw new RuntimeException("Error configuring HTTP/2 SslContext for client request!", e);
+        }
+    }
+
     static String[] maybeAddTls13(boolean enableTls13, String ... defaultProtocols) {
         if (enableTls13) {
             String[] protocols = new String[defaultProtocols.length + 1];
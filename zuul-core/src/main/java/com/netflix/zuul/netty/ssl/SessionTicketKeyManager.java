@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.ssl;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.spectator.api.Registry;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.ReferenceCountedOpenSslContext;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages the keys that OpenSSL server contexts encrypt and decrypt TLS session tickets with, so that clients can
+ * resume their sessions across restarts, and across every server that shares the same keys.
+ *
+ * <p>Keys are {@value OpenSslSessionTicketKey#TICKET_KEY_SIZE} bytes each: a 16 byte name, then a 16 byte AES key and
+ * a 16 byte HMAC key, the same layout as nginx's 48 byte {@code ssl_session_ticket_key} files.  They're read from a
+ * file holding one or more keys back to back, or from a directory of such files taken in descending name order, so
+ * files named by the time they were created put the newest first.  The first key encrypts new tickets, and the rest
+ * only decrypt.  Without a source, a random key is generated on each rotation, which only lets clients resume with
+ * this server.
+ *
+ * <p>On each rotation the source is read again.  Keys that drop out of the source, or that stop being the generated
+ * key, keep decrypting tickets for the grace window, so tickets issued just before a rotation stay resumable.
+ *
+ * <p>Registered contexts are only weakly held, and are dropped once they've been released, so that contexts replaced
+ * by newer ones aren't kept alive.
+ */
+public final class SessionTicketKeyManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionTicketKeyManager.class);
+
+    private static final ScheduledExecutorService ROTATOR = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ssl-ticket-keys-%d").build());
+
+    @Nullable
+    private final File source;
+    private final long rotationMillis;
+    private final long graceMillis;
+    private final LongSupplier clock;
+    private final Registry registry;
+    private final SecureRandom random = new SecureRandom();
+
+    private final List<WeakReference<ReferenceCountedOpenSslContext>> contexts = new ArrayList<>();
+
+    // The keys in use, keyed by name, with the current source's keys first.
+    private final Map<ByteBuffer, Key> keys = new LinkedHashMap<>();
+    private OpenSslSessionTicketKey[] ticketKeys = new OpenSslSessionTicketKey[0];
+
+    @Nullable
+    private ScheduledFuture<?> rotation;
+
+    public SessionTicketKeyManager(
+            @Nullable File source, long rotationMillis, long graceMillis, Registry registry) {
+        this(source, rotationMillis, graceMillis, registry, System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    SessionTicketKeyManager(
+            @Nullable File source, long rotationMillis, long graceMillis, Registry registry, LongSupplier clock) {
+        if (rotationMillis <= 0) {
+            throw new IllegalArgumentException("rotationMillis must be positive: " + rotationMillis);
+        }
+        if (graceMillis < 0) {
+            throw new IllegalArgumentException("graceMillis must not be negative: " + graceMillis);
+        }
+        this.source = source;
+        this.rotationMillis = rotationMillis;
+        this.graceMillis = graceMillis;
+        this.registry = Objects.requireNonNull(registry);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Loads the first keys, failing if the source can't be read, and starts rotating them.
+     */
+    public synchronized void start() throws IOException {
+        if (rotation != null) {
+            return;
+        }
+        update();
+        rotation = ROTATOR.scheduleWithFixedDelay(this::rotate, rotationMillis, rotationMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (rotation != null) {
+            rotation.cancel(false);
+            rotation = null;
+        }
+    }
+
+    /**
+     * Applies the current keys to the context, and every later rotation's keys too until the context is released.
+     */
+    public synchronized void register(ReferenceCountedOpenSslContext context) {
+        contexts.add(new WeakReference<>(context));
+        if (ticketKeys.length > 0) {
+            context.sessionContext().setTicketKeys(ticketKeys);
+        }
+    }
+
+    @VisibleForTesting
+    void rotate() {
+        try {
+            update();
+            registry.counter("server.ssl.ticket_keys.rotation", "success", "true").increment();
+        } catch (IOException | RuntimeException e) {
+            // Keep the keys already in use, as they're still better than none.
+            LOG.warn("Failed to rotate session ticket keys from {}", source, e);
+            registry.counter("server.ssl.ticket_keys.rotation", "success", "false").increment();
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void update() throws IOException {
+        long now = clock.getAsLong();
+        List<byte[]> loaded = source != null ? load(source) : Arrays.asList(generate());
+
+        Map<ByteBuffer, Key> updated = new LinkedHashMap<>();
+        for (byte[] bytes : loaded) {
+            ByteBuffer name = ByteBuffer.wrap(bytes, 0, OpenSslSessionTicketKey.NAME_SIZE).slice();
+            updated.putIfAbsent(name, new Key(bytes));
+        }
+        for (Map.Entry<ByteBuffer, Key> entry : keys.entrySet()) {
+            if (updated.containsKey(entry.getKey())) {
+                continue;
+            }
+            Key retired = entry.getValue();
+            if (retired.retiredAtMillis < 0) {
+                retired.retiredAtMillis = now;
+            }
+            if (now - retired.retiredAtMillis < graceMillis) {
+                updated.put(entry.getKey(), retired);
+            }
+        }
+        keys.clear();
+        keys.putAll(updated);
+
+        OpenSslSessionTicketKey[] current = new OpenSslSessionTicketKey[keys.size()];
+        int i = 0;
+        for (Key key : keys.values()) {
+            current[i++] = key.ticketKey;
+        }
+        ticketKeys = current;
+        for (Iterator<WeakReference<ReferenceCountedOpenSslContext>> it = contexts.iterator(); it.hasNext(); ) {
+            ReferenceCountedOpenSslContext context = it.next().get();
+            if (context == null || context.refCnt() == 0) {
+                it.remove();
+                continue;
+            }
+            try {
+                context.sessionContext().setTicketKeys(current);
+            } catch (RuntimeException e) {
+                // Most likely released since it was checked.
+                LOG.debug("Dropping session ticket keys for context {}", context, e);
+                it.remove();
+            }
+        }
+        LOG.debug("Applied {} session ticket keys to {} contexts", current.length, contexts.size());
+    }
+
+    @VisibleForTesting
+    synchronized int contextCount() {
+        return contexts.size();
+    }
+
+    @VisibleForTesting
+    synchronized OpenSslSessionTicketKey[] ticketKeys() {
+        return ticketKeys.clone();
+    }
+
+    private byte[] generate() {
+        byte[] bytes = new byte[OpenSslSessionTicketKey.TICKET_KEY_SIZE];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    @VisibleForTesting
+    static List<byte[]> load(File source) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (source.isDirectory()) {
+            File[] children = source.listFiles(File::isFile);
+            if (children == null) {
+                throw new IOException("Unable to list " + source);
+            }
+            Arrays.sort(children, (a, b) -> b.getName().compareTo(a.getName()));
+            files.addAll(Arrays.asList(children));
+        } else {
+            files.add(source);
+        }
+
+        List<byte[]> loaded = new ArrayList<>();
+        for (File file : files) {
+            byte[] contents = Files.readAllBytes(file.toPath());
+            if (contents.length == 0 || contents.length % OpenSslSessionTicketKey.TICKET_KEY_SIZE != 0) {
+                throw new IOException("Session ticket key file " + file + " is " + contents.length
+                        + " bytes, which is not a multiple of " + OpenSslSessionTicketKey.TICKET_KEY_SIZE);
+            }
+            for (int i = 0; i < contents.length; i += OpenSslSessionTicketKey.TICKET_KEY_SIZE) {
+                loaded.add(Arrays.copyOfRange(contents, i, i + OpenSslSessionTicketKey.TICKET_KEY_SIZE));
+            }
+        }
+        if (loaded.isEmpty()) {
+            throw new IOException("No session ticket keys in " + source);
+        }
+        return loaded;
+    }
+
+    private static final class Key {
+        final OpenSslSessionTicketKey ticketKey;
+        long retiredAtMillis = -1;
+
+        Key(byte[] bytes) {
+            int aesEnd = OpenSslSessionTicketKey.NAME_SIZE + OpenSslSessionTicketKey.AES_KEY_SIZE;
+            this.ticketKey = new OpenSslSessionTicketKey(
+                    Arrays.copyOfRange(bytes, 0, OpenSslSessionTicketKey.NAME_SIZE),
+                    Arrays.copyOfRange(bytes, aesEnd, OpenSslSessionTicketKey.TICKET_KEY_SIZE),
+                    Arrays.copyOfRange(bytes, OpenSslSessionTicketKey.NAME_SIZE, aesEnd));
+        }
+    }
+}
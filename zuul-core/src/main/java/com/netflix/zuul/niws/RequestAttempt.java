@@ -58,6 +58,7 @@ public class RequestAttempt
     private int readTimeout;
     private int connectTimeout;
     private int maxRetries;
+    private boolean hedge;
 
     public RequestAttempt(int attemptNumber, InstanceInfo server, String targetVip, String chosenWarmupLB, int status, String error, String exceptionType,
                           int readTimeout, int connectTimeout, int maxRetries)
@@ -232,6 +233,14 @@ public class RequestAttempt
         return maxRetries;
     }
 
+    /**
+     * Whether this attempt was a hedge, sent while an earlier attempt was still waiting for a response.
+     */
+    public boolean isHedge()
+    {
+        return hedge;
+    }
+
     public void setStatus(int status)
     {
         this.status = status;
@@ -343,6 +352,11 @@ public class RequestAttempt
         this.maxRetries = maxRetries;
     }
 
+    public void setHedge(boolean hedge)
+    {
+        this.hedge = hedge;
+    }
+
     @Override
     public String toString()
     {
@@ -374,6 +388,10 @@ public class RequestAttempt
             root.put("connectTimeout", connectTimeout);
         }
 
+        if (hedge) {
+            root.put("hedge", true);
+        }
+
         return root;
     }
 
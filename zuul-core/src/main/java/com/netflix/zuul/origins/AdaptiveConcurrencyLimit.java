@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.origins;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * A limit on concurrent requests to an origin that adapts to how many it can handle, in the style of TCP Vegas.
+ *
+ * <p>Comparing each response time to the origin's response time without load gives an estimate of how many requests
+ * are queued at the origin: {@code limit * (1 - noLoadRtt / rtt)}.  The limit grows while the queue is short and
+ * shrinks while it's long, so it settles a little above what the origin can handle concurrently.  Responses that show
+ * the origin is overloaded, such as 503s and timeouts, cut the limit by a tenth instead.  Like TCP Vegas, the limit
+ * changes at most once per no load response time, going by the fastest response since it last changed, so that it
+ * doesn't overshoot before the origin's response times catch up with it.
+ *
+ * <p>The response time without load can only be seen while nothing is queued, so every so often the limit is halved
+ * until a few responses have come back from requests sent within it, and the fastest of those is taken as the new
+ * no load response time.
+ *
+ * <p>Checking the limit is a read of an {@link AtomicInteger}, and recording a drop is a write to an
+ * {@link AtomicBoolean}.  Only one thread updates the estimate at a time, and response times that arrive while another
+ * thread is updating are skipped rather than waited on, so event loops never block on each other.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double DROP_FACTOR = 0.9;
+    private static final int PROBE_SAMPLES = 10;
+
+    private final IntSupplier minLimit;
+    private final IntSupplier maxLimit;
+    private final LongSupplier probeIntervalMillis;
+    private final LongSupplier clock;
+
+    private final AtomicInteger limit;
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private final AtomicBoolean dropped = new AtomicBoolean();
+
+    // Only accessed by the thread that set updating.
+    private double estimatedLimit;
+    private long noLoadRtt;
+    private long windowStart;
+    private long windowRtt = Long.MAX_VALUE;
+    private int windowInflight;
+    private long nextProbeAt;
+    private int probeLimit;
+    private long probeRtt;
+    private int probeSamples;
+
+    /**
+     * @param initialLimit to start with, until there are response times to go by.
+     * @param minLimit the limit never goes below.
+     * @param maxLimit the limit never goes above.
+     * @param probeIntervalMillis between measuring the origin's response time without load.
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, IntSupplier minLimit, IntSupplier maxLimit,
+                                    LongSupplier probeIntervalMillis) {
+        this(initialLimit, minLimit, maxLimit, probeIntervalMillis, System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    AdaptiveConcurrencyLimit(int initialLimit, IntSupplier minLimit, IntSupplier maxLimit,
+                             LongSupplier probeIntervalMillis, LongSupplier clock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.clock = clock;
+        this.limit = new AtomicInteger(initialLimit);
+        this.estimatedLimit = initialLimit;
+        // Until the first probe, the fastest response seen stands in for the no load response time.  Probing any
+        // sooner would halve the limit as soon as the origin starts taking traffic.
+        this.nextProbeAt = clock.getAsLong() + probeIntervalMillis.getAsLong();
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * Records the response time of a request, along with the number of requests in flight when it completed.
+     */
+    public void onSample(long rttMillis, int inflight) {
+        if (!updating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final long rtt = Math.max(1, rttMillis);
+            final long now = clock.getAsLong();
+            if (probeLimit > 0) {
+                continueProbe(rtt, inflight, now);
+            } else if (now >= nextProbeAt) {
+                startProbe();
+            } else {
+                adjust(rtt, inflight, now);
+            }
+        } finally {
+            updating.set(false);
+        }
+    }
+
+    /**
+     * Records a request that failed because the origin was overloaded.
+     */
+    public void onDropped() {
+        dropped.set(true);
+    }
+
+    private void adjust(long rtt, int inflight, long now) {
+        if (noLoadRtt == 0) {
+            noLoadRtt = rtt;
+            windowStart = now;
+            return;
+        }
+        windowRtt = Math.min(windowRtt, rtt);
+        windowInflight = Math.max(windowInflight, inflight);
+        if (now - windowStart < noLoadRtt) {
+            return;
+        }
+        noLoadRtt = Math.min(noLoadRtt, windowRtt);
+
+        final double queued = estimatedLimit * (1 - (double) noLoadRtt / windowRtt);
+        final double step = Math.log10(Math.max(10, estimatedLimit));
+        if (dropped.getAndSet(false)) {
+            setLimit(estimatedLimit * DROP_FACTOR);
+        } else if (queued > 6 * step) {
+            setLimit(estimatedLimit - step);
+        } else if (queued < 3 * step && windowInflight * 2 >= estimatedLimit) {
+            // Only grow the limit while it's being used, otherwise it says nothing about what the origin can handle.
+            setLimit(estimatedLimit + step);
+        }
+
+        windowStart = now;
+        windowRtt = Long.MAX_VALUE;
+        windowInflight = 0;
+    }
+
+    private void startProbe() {
+        probeLimit = Math.max(minLimit.getAsInt(), (int) estimatedLimit / 2);
+        probeRtt = Long.MAX_VALUE;
+        probeSamples = 0;
+        limit.set(probeLimit);
+    }
+
+    private void continueProbe(long rtt, int inflight, long now) {
+        // Requests sent before the limit was lowered may still have been queued.
+        if (inflight > probeLimit) {
+            return;
+        }
+        probeRtt = Math.min(probeRtt, rtt);
+        if (++probeSamples < PROBE_SAMPLES) {
+            return;
+        }
+        noLoadRtt = probeRtt;
+        nextProbeAt = now + probeIntervalMillis.getAsLong();
+        windowStart = now;
+        windowRtt = Long.MAX_VALUE;
+        windowInflight = 0;
+        dropped.set(false);
+        // Carry on from the halved limit, which grows back quickly if the origin isn't queueing.
+        final int halved = probeLimit;
+        probeLimit = 0;
+        setLimit(halved);
+    }
+
+    private void setLimit(double newLimit) {
+        estimatedLimit = Math.max(minLimit.getAsInt(), Math.min(maxLimit.getAsInt(), newLimit));
+        if (probeLimit == 0) {
+            limit.set((int) estimatedLimit);
+        }
+    }
+}
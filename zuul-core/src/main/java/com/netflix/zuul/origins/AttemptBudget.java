@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.origins;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.zuul.util.WindowedCounters;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Allows extra attempts at requests, such as hedges or retries, up to a ratio of the requests recorded recently plus a
+ * fixed allowance, so that they can't multiply the load on an origin.  Requests and attempts are counted in one second
+ * windows, and the budget covers the current window and the one before it.
+ *
+ * <p>The counts are {@link LongAdder}s, so recording requests from every event loop doesn't contend on a single
+ * counter.  Acquiring checks the budget and then counts the attempt, so concurrent attempts can overspend by a few.
+ */
+public class AttemptBudget {
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    private final DoubleSupplier ratio;
+    private final IntSupplier allowance;
+    private final WindowedCounters<Counts> windows;
+
+    /**
+     * @param ratio of attempts to requests, e.g. 0.1 for at most one attempt per ten requests.
+     * @param allowance of attempts on top of the ratio, for when there are few requests.
+     */
+    public AttemptBudget(DoubleSupplier ratio, IntSupplier allowance) {
+        this(ratio, allowance, System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    AttemptBudget(DoubleSupplier ratio, IntSupplier allowance, LongSupplier clock) {
+        this.ratio = ratio;
+        this.allowance = allowance;
+        this.windows = new WindowedCounters<>(WINDOW_MILLIS, Counts::new, clock);
+    }
+
+    public void recordRequest() {
+        windows.current().counters().requests.increment();
+    }
+
+    /**
+     * Takes an attempt out of the budget, if there's one left.
+     */
+    public boolean tryAcquire() {
+        final WindowedCounters.Window<Counts> window = windows.current();
+        final Counts counts = window.counters();
+        final Counts previous = window.previousCounters();
+        long requests = counts.requests.sum();
+        long attempts = counts.attempts.sum();
+        if (previous != null) {
+            requests += previous.requests.sum();
+            attempts += previous.attempts.sum();
+        }
+        if (attempts >= requests * ratio.getAsDouble() + allowance.getAsInt()) {
+            return false;
+        }
+        counts.attempts.increment();
+        return true;
+    }
+
+    private static final class Counts {
+        final LongAdder requests = new LongAdder();
+        final LongAdder attempts = new LongAdder();
+    }
+}
@@ -20,20 +20,25 @@ import static com.netflix.zuul.stats.status.ZuulStatusCategory.FAILURE_ORIGIN;
 import static com.netflix.zuul.stats.status.ZuulStatusCategory.FAILURE_ORIGIN_THROTTLED;
 import static com.netflix.zuul.stats.status.ZuulStatusCategory.SUCCESS;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.netflix.client.config.CommonClientConfigKey;
 import com.netflix.client.config.DefaultClientConfigImpl;
 import com.netflix.client.config.IClientConfig;
 import com.netflix.config.CachedDynamicBooleanProperty;
 import com.netflix.config.CachedDynamicIntProperty;
+import com.netflix.config.CachedDynamicLongProperty;
 import com.netflix.loadbalancer.Server;
 import com.netflix.loadbalancer.reactive.ExecutionContext;
 import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Spectator;
+import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.zuul.context.CommonContextKeys;
 import com.netflix.zuul.context.SessionContext;
 import com.netflix.zuul.exception.ErrorType;
+import com.netflix.zuul.exception.OutboundErrorType;
 import com.netflix.zuul.message.http.HttpRequestMessage;
 import com.netflix.zuul.message.http.HttpResponseMessage;
 import com.netflix.zuul.netty.NettyRequestAttemptFactory;
@@ -41,6 +46,7 @@ import com.netflix.zuul.netty.SpectatorUtils;
 import com.netflix.zuul.netty.connectionpool.ClientChannelManager;
 import com.netflix.zuul.netty.connectionpool.DefaultClientChannelManager;
 import com.netflix.zuul.netty.connectionpool.PooledConnection;
+import com.netflix.zuul.netty.connectionpool.RequestStat;
 import com.netflix.zuul.niws.RequestAttempt;
 import com.netflix.zuul.passport.CurrentPassport;
 import com.netflix.zuul.stats.Timing;
@@ -71,6 +77,12 @@ public class BasicNettyOrigin implements NettyOrigin {
     private final Counter rejectedRequests;
     private final CachedDynamicIntProperty concurrencyMax;
     private final CachedDynamicBooleanProperty concurrencyProtectionEnabled;
+    private final AdaptiveConcurrencyLimit adaptiveConcurrencyLimit;
+    private final CachedDynamicBooleanProperty adaptiveConcurrencyEnabled;
+
+    private final AttemptBudget retryBudget;
+    private final Counter rejectedRetries;
+    private final CachedDynamicBooleanProperty retryBudgetEnabled;
 
     public BasicNettyOrigin(String name, String vip, Registry registry) {
         this.name = name;
@@ -85,6 +97,25 @@ public class BasicNettyOrigin implements NettyOrigin {
         this.rejectedRequests = SpectatorUtils.newCounter("zuul.origin.rejected.requests", name);
         this.concurrencyMax = new CachedDynamicIntProperty("zuul.origin." + name + ".concurrency.max.requests", 200);
         this.concurrencyProtectionEnabled = new CachedDynamicBooleanProperty("zuul.origin." + name + ".concurrency.protect.enabled", true);
+
+        final CachedDynamicIntProperty adaptiveMin = new CachedDynamicIntProperty("zuul.origin." + name + ".concurrency.adaptive.min.requests", 10);
+        // The adaptive limit starts at the static one, and can grow past it up to this.  0 or less keeps it at or below
+        // the static one.
+        final CachedDynamicIntProperty adaptiveMax = new CachedDynamicIntProperty("zuul.origin." + name + ".concurrency.adaptive.max.requests", 1000);
+        final CachedDynamicLongProperty adaptiveProbeInterval = new CachedDynamicLongProperty("zuul.origin." + name + ".concurrency.adaptive.probe.interval.ms", 30_000);
+        this.adaptiveConcurrencyLimit = new AdaptiveConcurrencyLimit(concurrencyMax.get(), adaptiveMin::get,
+                () -> adaptiveMax.get() > 0 ? adaptiveMax.get() : concurrencyMax.get(), adaptiveProbeInterval::get);
+        this.adaptiveConcurrencyEnabled = new CachedDynamicBooleanProperty("zuul.origin." + name + ".concurrency.adaptive.enabled", false);
+        PolledMeter.using(Spectator.globalRegistry())
+                .withName("zuul.origin.concurrency.limit")
+                .withTag("id", name)
+                .monitorValue(this, BasicNettyOrigin::getConcurrencyLimit);
+
+        final CachedDynamicIntProperty retryBudgetPercent = new CachedDynamicIntProperty("zuul.origin." + name + ".retry.budget.percent", 20);
+        final CachedDynamicIntProperty retryBudgetAllowance = new CachedDynamicIntProperty("zuul.origin." + name + ".retry.budget.allowance", 10);
+        this.retryBudget = new AttemptBudget(() -> retryBudgetPercent.get() / 100.0, retryBudgetAllowance::get);
+        this.rejectedRetries = SpectatorUtils.newCounter("zuul.origin.rejected.retries", name);
+        this.retryBudgetEnabled = new CachedDynamicBooleanProperty("zuul.origin." + name + ".retry.budget.enabled", false);
     }
 
     protected IClientConfig setupClientConfig(String name) {
@@ -191,6 +222,10 @@ public class BasicNettyOrigin implements NettyOrigin {
 
         // Choose StatusCategory based on the ErrorType.
         final ErrorType et = requestAttemptFactory.mapNettyToOutboundErrorType(throwable);
+        if (adaptiveConcurrencyEnabled.get()
+                && (et == OutboundErrorType.READ_TIMEOUT || et == OutboundErrorType.SERVICE_UNAVAILABLE)) {
+            adaptiveConcurrencyLimit.onDropped();
+        }
         final StatusCategory nfs = et.getStatusCategory();
         zuulCtx.set(CommonContextKeys.STATUS_CATGEORY, nfs);
         zuulCtx.set(CommonContextKeys.ORIGIN_STATUS_CATEGORY, nfs);
@@ -219,12 +254,32 @@ public class BasicNettyOrigin implements NettyOrigin {
             // Choose the zuul StatusCategory based on the origin one...
             // ... but only if existing one has not already been set to a non-success value.
             StatusCategoryUtils.storeStatusCategoryIfNotAlreadyFailure(zuulCtx, originNfs);
+
+            recordConcurrencySample(zuulCtx, originNfs);
         }
     }
 
+    private void recordConcurrencySample(SessionContext zuulCtx, StatusCategory originNfs) {
+        if (!adaptiveConcurrencyEnabled.get()) {
+            return;
+        }
+        if (originNfs == FAILURE_ORIGIN_THROTTLED) {
+            adaptiveConcurrencyLimit.onDropped();
+            return;
+        }
+        final RequestStat stat = RequestStat.getFromSessionContext(zuulCtx);
+        if (stat != null) {
+            adaptiveConcurrencyLimit.onSample(stat.duration(), concurrentRequests.get());
+        }
+    }
+
+    /**
+     * Rejects the request if the origin already has more requests in flight than its {@link #getConcurrencyLimit()
+     * limit}.
+     */
     @Override
     public void preRequestChecks(HttpRequestMessage zuulRequest) {
-        if (concurrencyProtectionEnabled.get() && concurrentRequests.get() > concurrencyMax.get()) {
+        if (concurrencyProtectionEnabled.get() && isConcurrencyExceeded()) {
             rejectedRequests.increment();
             throw new OriginConcurrencyExceededException(getName());
         }
@@ -232,11 +287,37 @@ public class BasicNettyOrigin implements NettyOrigin {
         concurrentRequests.incrementAndGet();
     }
 
+    private boolean isConcurrencyExceeded() {
+        return concurrentRequests.get() > getConcurrencyLimit();
+    }
+
+    /**
+     * The limit on concurrent requests in force, which is the adaptive limit unless it's disabled, in which case it's
+     * the static {@code concurrency.max.requests}.
+     */
+    @VisibleForTesting
+    int getConcurrencyLimit() {
+        return adaptiveConcurrencyEnabled.get() ? adaptiveConcurrencyLimit.getLimit() : concurrencyMax.get();
+    }
+
     @Override
     public void recordProxyRequestEnd() {
         concurrentRequests.decrementAndGet();
     }
 
+    /**
+     * Retries are limited to a percentage of the requests in the last second or two, plus a few, so that when the
+     * origin is failing most requests, retrying them doesn't add much to its load.
+     */
+    @Override
+    public boolean tryAcquireRetry() {
+        if (!retryBudgetEnabled.get() || retryBudget.tryAcquire()) {
+            return true;
+        }
+        rejectedRetries.increment();
+        return false;
+    }
+
     /* Not required for basic operation */
 
     @Override
@@ -251,6 +332,7 @@ public class BasicNettyOrigin implements NettyOrigin {
 
     @Override
     public void onRequestExecutionStart(HttpRequestMessage zuulReq) {
+        retryBudget.recordRequest();
     }
 
     @Override
@@ -75,4 +75,12 @@ public interface NettyOrigin extends InstrumentedOrigin {
     Registry getSpectatorRegistry();
 
     ExecutionContext<?> getExecutionContext(HttpRequestMessage zuulRequest);
+
+    /**
+     * Called before retrying a failed request, to check that the origin isn't getting too many retries lately.  If it
+     * returns false the request isn't retried, and fails with the error or response it would have been retried for.
+     */
+    default boolean tryAcquireRetry() {
+        return true;
+    }
 }
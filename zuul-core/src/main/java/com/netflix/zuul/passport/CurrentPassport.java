@@ -17,8 +17,8 @@
 package com.netflix.zuul.passport;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Ticker;
-import com.google.common.collect.Sets;
 import com.netflix.config.CachedDynamicBooleanProperty;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Spectator;
@@ -28,15 +28,22 @@ import io.netty.channel.Channel;
 import io.netty.util.AttributeKey;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
+/**
+ * The history of states that a channel or request has passed through, and the ticker time at which each was entered.
+ *
+ * The history is kept as parallel arrays of state ordinals and times, so recording a state does not allocate.
+ * {@link PassportItem}s are only created when a caller asks for them.
+ */
 public class CurrentPassport
 {
     private static final CachedDynamicBooleanProperty COUNT_STATES = new CachedDynamicBooleanProperty(
@@ -44,7 +51,7 @@ public class CurrentPassport
 
     public static final AttributeKey<CurrentPassport> CHANNEL_ATTR = AttributeKey.newInstance("_current_passport");
     private static final Ticker SYSTEM_TICKER = Ticker.systemTicker();
-    private static final Set<PassportState> CONTENT_STATES = Sets.newHashSet(
+    private static final Set<PassportState> CONTENT_STATES = EnumSet.of(
             PassportState.IN_REQ_CONTENT_RECEIVED,
             PassportState.IN_RESP_CONTENT_RECEIVED,
             PassportState.OUT_REQ_CONTENT_SENDING,
@@ -55,31 +62,52 @@ public class CurrentPassport
     private static final CachedDynamicBooleanProperty CONTENT_STATE_ENABLED = new CachedDynamicBooleanProperty(
             "zuul.passport.state.content.enabled", false);
 
+    private static final PassportState[] STATES = PassportState.values();
+    static {
+        Preconditions.checkState(STATES.length <= Byte.MAX_VALUE, "Too many passport states to store as bytes");
+    }
+    @VisibleForTesting
+    static final int DEFAULT_CAPACITY = 32;
+
     private final Ticker ticker;
-    private final LinkedList<PassportItem> history;
-    private final HashSet<PassportState> statesAdded;
+    /** Ordinals of the states in the history, in the order they were added. */
+    private byte[] states;
+    private long[] times;
+    private int size;
+    private final EnumSet<PassportState> statesAdded;
     private final long creationTimeSinceEpochMs;
 
     CurrentPassport()
     {
-        this(SYSTEM_TICKER);
+        this(SYSTEM_TICKER, DEFAULT_CAPACITY);
     }
 
     @VisibleForTesting
     public CurrentPassport(Ticker ticker)
+    {
+        this(ticker, DEFAULT_CAPACITY);
+    }
+
+    CurrentPassport(Ticker ticker, int initialCapacity)
     {
         this.ticker = ticker;
-        this.history = new LinkedList<>();
-        this.statesAdded = new HashSet<>();
+        this.states = new byte[Math.max(initialCapacity, 1)];
+        this.times = new long[states.length];
+        this.statesAdded = EnumSet.noneOf(PassportState.class);
         this.creationTimeSinceEpochMs = System.currentTimeMillis();
     }
 
     public static CurrentPassport create()
+    {
+        return create(DEFAULT_CAPACITY);
+    }
+
+    private static CurrentPassport create(int initialCapacity)
     {
         if (COUNT_STATES.get()) {
-            return new CountingCurrentPassport();
+            return new CountingCurrentPassport(initialCapacity);
         }
-        return new CurrentPassport();
+        return new CurrentPassport(SYSTEM_TICKER, initialCapacity);
     }
 
     public static CurrentPassport fromSessionContext(SessionContext ctx)
@@ -87,9 +115,15 @@ public class CurrentPassport
         return (CurrentPassport) ctx.get(CommonContextKeys.PASSPORT);
     }
 
+    /**
+     * Creates a passport and sets it on the channel, replacing any existing one.  The new passport is sized for the
+     * history of the one it replaces, so requests after the first on a connection don't have to grow their arrays.
+     * The arrays themselves are not reused, since the previous passport can still be referenced by its request.
+     */
     public static CurrentPassport createForChannel(Channel ch)
     {
-        CurrentPassport passport = create();
+        CurrentPassport previous = fromChannelOrNull(ch);
+        CurrentPassport passport = create(previous != null ? previous.size : DEFAULT_CAPACITY);
         passport.setOnChannel(ch);
         return passport;
     }
@@ -118,16 +152,60 @@ public class CurrentPassport
         ch.attr(CHANNEL_ATTR).set(null);
     }
 
+    /**
+     * Returns the most recently added state, or null if none have been added.
+     */
     public PassportState getState()
     {
-        return history.peekLast().getState();
+        return size > 0 ? stateAt(size - 1) : null;
     }
 
+    /**
+     * Returns a snapshot of the history.  This used to be the passport's own list, but it's now a copy, so adding to or
+     * trimming the returned list no longer changes this passport.
+     *
+     * @deprecated allocates an item per state, and is only a snapshot; use {@link #add(PassportState)} to record states
+     * and the find and calculate methods to read them.
+     */
+    @Deprecated
     public LinkedList<PassportItem> getHistory()
     {
+        LinkedList<PassportItem> history = new LinkedList<>();
+        for (int i = 0; i < size; i++) {
+            history.add(itemAt(i));
+        }
         return history;
     }
 
+    @VisibleForTesting
+    int size()
+    {
+        return size;
+    }
+
+    private PassportState stateAt(int i)
+    {
+        return STATES[states[i]];
+    }
+
+    private PassportItem itemAt(int i)
+    {
+        return new PassportItem(stateAt(i), times[i]);
+    }
+
+    private void append(PassportState state, long time)
+    {
+        if (size == states.length) {
+            int newCapacity = states.length << 1;
+            states = Arrays.copyOf(states, newCapacity);
+            times = Arrays.copyOf(times, newCapacity);
+        }
+        states[size] = (byte) state.ordinal();
+        times[size] = time;
+        size++;
+        statesAdded.add(state);
+    }
+
     public void add(PassportState state)
     {
         if (! CONTENT_STATE_ENABLED.get()) {
@@ -137,8 +215,7 @@ public class CurrentPassport
             }
         }
         
-        history.addLast(new PassportItem(state, now()));
-        statesAdded.add(state);
+        append(state, now());
     }
 
     public void addIfNotAlready(PassportState state)
@@ -151,9 +228,10 @@ public class CurrentPassport
     public long calculateTimeBetweenFirstAnd(PassportState endState)
     {
         long startTime = firstTime();
-        for (PassportItem item : history) {
-            if (item.getState() == endState) {
-                return item.getTime() - startTime;
+        int ordinal = endState.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (states[i] == ordinal) {
+                return times[i] - startTime;
             }
         }
         return now() - startTime;
@@ -164,7 +242,10 @@ public class CurrentPassport
      */
     public long firstTime()
     {
-        return history.getFirst().getTime();
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return times[0];
     }
 
     public long creationTimeSinceEpochMs()
@@ -197,12 +278,14 @@ public class CurrentPassport
     public StartAndEnd findStartAndEndStates(PassportState startState, PassportState endState)
     {
         StartAndEnd sae = new StartAndEnd();
-        for (PassportItem item : history) {
-            if (item.getState() == startState) {
-                sae.startTime = item.getTime();
+        int start = startState.ordinal();
+        int end = endState.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (states[i] == start) {
+                sae.startTime = times[i];
             }
-            else if (item.getState() == endState) {
-                sae.endTime = item.getTime();
+            else if (states[i] == end) {
+                sae.endTime = times[i];
             }
         }
         return sae;
@@ -211,12 +294,14 @@ public class CurrentPassport
     public StartAndEnd findFirstStartAndLastEndStates(PassportState startState, PassportState endState)
     {
         StartAndEnd sae = new StartAndEnd();
-        for (PassportItem item : history) {
-            if (sae.startNotFound() && item.getState() == startState) {
-                sae.startTime = item.getTime();
+        int start = startState.ordinal();
+        int end = endState.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (sae.startNotFound() && states[i] == start) {
+                sae.startTime = times[i];
             }
-            else if (item.getState() == endState) {
-                sae.endTime = item.getTime();
+            else if (states[i] == end) {
+                sae.endTime = times[i];
             }
         }
         return sae;
@@ -225,12 +310,14 @@ public class CurrentPassport
     public StartAndEnd findLastStartAndFirstEndStates(PassportState startState, PassportState endState)
     {
         StartAndEnd sae = new StartAndEnd();
-        for (PassportItem item : history) {
-            if (item.getState() == startState) {
-                sae.startTime = item.getTime();
+        int start = startState.ordinal();
+        int end = endState.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (states[i] == start) {
+                sae.startTime = times[i];
             }
-            else if (sae.endNotFound() && item.getState() == endState) {
-                sae.endTime = item.getTime();
+            else if (sae.endNotFound() && states[i] == end) {
+                sae.endTime = times[i];
             }
         }
         return sae;
@@ -241,18 +328,20 @@ public class CurrentPassport
         ArrayList<StartAndEnd> items = new ArrayList<>();
 
         StartAndEnd currentPair = null;
+        int start = startState.ordinal();
+        int end = endState.ordinal();
 
-        for (PassportItem item : history) {
+        for (int i = 0; i < size; i++) {
 
-            if (item.getState() == startState) {
+            if (states[i] == start) {
                 if (currentPair == null) {
                     currentPair = new StartAndEnd();
-                    currentPair.startTime = item.getTime();
+                    currentPair.startTime = times[i];
                 }
             }
-            else if (item.getState() == endState) {
+            else if (states[i] == end) {
                 if (currentPair != null) {
-                    currentPair.endTime = item.getTime();
+                    currentPair.endTime = times[i];
                     items.add(currentPair);
                     currentPair = null;
                 }
@@ -264,9 +353,10 @@ public class CurrentPassport
 
     public PassportItem findState(PassportState state)
     {
-        for (PassportItem item : history) {
-            if (item.getState() == state) {
-                return item;
+        int ordinal = state.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (states[i] == ordinal) {
+                return itemAt(i);
             }
         }
         return null;
@@ -274,22 +364,30 @@ public class CurrentPassport
 
     public PassportItem findStateBackwards(PassportState state)
     {
-        Iterator itr = history.descendingIterator();
-        while (itr.hasNext()) {
-            PassportItem item = (PassportItem) itr.next();
-            if (item.getState() == state) {
-                return item;
+        int ordinal = state.ordinal();
+        for (int i = size - 1; i >= 0; i--) {
+            if (states[i] == ordinal) {
+                return itemAt(i);
             }
         }
         return null;
     }
 
+    /**
+     * Returns whether the state has been added to this passport.  Unlike {@link #findState}, this does not allocate.
+     */
+    public boolean hasState(PassportState state)
+    {
+        return statesAdded.contains(state);
+    }
+
     public List<PassportItem> findStates(PassportState state)
     {
         ArrayList<PassportItem> items = new ArrayList<>();
-        for (PassportItem item : history) {
-            if (item.getState() == state) {
-                items.add(item);
+        int ordinal = state.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (states[i] == ordinal) {
+                items.add(itemAt(i));
             }
         }
         return items;
@@ -299,9 +397,10 @@ public class CurrentPassport
     {
         long startTick = firstTime();
         ArrayList<Long> items = new ArrayList<>();
-        for (PassportItem item : history) {
-            if (item.getState() == state) {
-                items.add(item.getTime() - startTick);
+        int ordinal = state.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (states[i] == ordinal) {
+                items.add(times[i] - startTick);
             }
         }
         return items;
@@ -311,7 +410,7 @@ public class CurrentPassport
     {
         // If an attempt was made to send outbound request headers on this session, then assume it was an
         // attempt to proxy.
-        return findState(PassportState.OUT_REQ_HEADERS_SENDING) != null;
+        return hasState(PassportState.OUT_REQ_HEADERS_SENDING);
     }
     
     private long now()
@@ -322,7 +421,7 @@ public class CurrentPassport
     @Override
     public String toString()
     {
-        long startTime = history.size() > 0 ? firstTime() : 0;
+        long startTime = size > 0 ? firstTime() : 0;
         long now = now();
         
         StringBuilder sb = new StringBuilder();
@@ -330,8 +429,8 @@ public class CurrentPassport
         sb.append("start_ms=").append(creationTimeSinceEpochMs()).append(", ");
         
         sb.append('[');
-        for (PassportItem item : history) {
-            sb.append('+').append(item.getTime() - startTime).append('=').append(item.getState().name()).append(", ");
+        for (int i = 0; i < size; i++) {
+            sb.append('+').append(times[i] - startTime).append('=').append(stateAt(i).name()).append(", ");
         }
         sb.append('+').append(now - startTime).append('=').append("NOW");
         sb.append(']');
@@ -357,14 +456,13 @@ public class CurrentPassport
                 if (stateMatch.matches()) {
                     String stateName = stateMatch.group(2);
                     if (stateName.equals("NOW")) {
-                        long startTime = passport.getHistory().size() > 0 ? passport.firstTime() : 0;
+                        long startTime = passport.size > 0 ? passport.firstTime() : 0;
                         long now = Long.valueOf(stateMatch.group(1)) + startTime;
                         ticker.setNow(now);
                     }
                     else {
                         PassportState state = PassportState.valueOf(stateName);
-                        PassportItem item = new PassportItem(state, Long.valueOf(stateMatch.group(1)));
-                        passport.getHistory().add(item);
+                        passport.append(state, Long.valueOf(stateMatch.group(1)));
                     }
                 }
             }
@@ -413,8 +511,12 @@ class CountingCurrentPassport extends CurrentPassport
 
     public CountingCurrentPassport()
     {
-        super();
-        incrementStateCounter(getState());
+        this(DEFAULT_CAPACITY);
+    }
+
+    CountingCurrentPassport(int initialCapacity)
+    {
+        super(Ticker.systemTicker(), initialCapacity);
     }
 
     @Override
@@ -88,4 +88,8 @@ public enum PassportState
     ORIGIN_CH_READ_TIMEOUT,
     ORIGIN_CH_IO_EX,
     ORIGIN_RETRY_START,
+    ORIGIN_RETRY_BUDGET_EXHAUSTED,
+    ORIGIN_HEDGE_START,
+    ORIGIN_HEDGE_WON,
+    ORIGIN_HEDGE_CANCELLED,
 }
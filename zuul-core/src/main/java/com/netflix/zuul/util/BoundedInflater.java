@@ -0,0 +1,445 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.util.ArrayDeque;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Inflates a gzip or deflate encoded stream of {@link ByteBuf}s into buffers from a {@link ByteBufAllocator}, failing
+ * as soon as the inflated size goes over a limit rather than after inflating the whole stream.
+ *
+ * <p>"deflate" is zlib wrapped according to the HTTP spec, but raw deflate streams are also accepted since some clients
+ * send those instead.  {@link Inflater}s are pooled per thread in the same way as {@link GzipCompressor}'s deflaters.
+ */
+@NotThreadSafe
+public final class BoundedInflater implements AutoCloseable {
+
+    public enum Format {
+        GZIP,
+        DEFLATE
+    }
+
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+    private static final int RESERVED_FLAGS = 0xE0;
+
+    // States, in stream order.
+    private static final int HEADER = 0;
+    private static final int EXTRA_LENGTH = 1;
+    private static final int EXTRA = 2;
+    private static final int NAME = 3;
+    private static final int COMMENT = 4;
+    private static final int HEADER_CRC = 5;
+    private static final int BODY = 6;
+    private static final int TRAILER = 7;
+    private static final int DONE = 8;
+
+    private static final int GZIP_HEADER_LENGTH = 10;
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    private static final int ZLIB_HEADER_LENGTH = 2;
+
+    private static final int MAX_INITIAL_CAPACITY = 65536;
+
+    private static final int MAX_POOLED_INFLATERS = 32;
+    private static final FastThreadLocal<ArrayDeque<Inflater>> ZLIB_INFLATERS = newPool();
+    private static final FastThreadLocal<ArrayDeque<Inflater>> RAW_INFLATERS = newPool();
+
+    private static final int SCRATCH_SIZE = 8192;
+    private static final FastThreadLocal<byte[]> SCRATCH = new FastThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SCRATCH_SIZE];
+        }
+    };
+
+    private final ByteBufAllocator alloc;
+    private final Format format;
+    private final long maxInflatedBytes;
+
+    private Inflater inflater;
+    private boolean rawInflater;
+    private CRC32 crc;
+
+    private int state;
+    /** The fixed length header or trailer being read, or the first bytes of a deflate stream. */
+    private final byte[] pending = new byte[GZIP_HEADER_LENGTH];
+    private int pendingLength;
+    private int flags;
+    private int skip;
+
+    private long totalIn;
+    private long totalOut;
+    private boolean failed;
+
+    /**
+     * @param maxInflatedBytes the largest inflated size allowed, past which {@link #inflate} fails with a
+     *        {@link SizeLimitExceededException}.
+     */
+    public BoundedInflater(ByteBufAllocator alloc, Format format, long maxInflatedBytes) {
+        if (maxInflatedBytes < 0) {
+            throw new IllegalArgumentException("Invalid max inflated bytes: " + maxInflatedBytes);
+        }
+        this.alloc = alloc;
+        this.format = format;
+        this.maxInflatedBytes = maxInflatedBytes;
+        this.state = (format == Format.GZIP) ? HEADER : BODY;
+        if (format == Format.GZIP) {
+            crc = new CRC32();
+        }
+    }
+
+    /**
+     * Inflates the readable bytes of {@code in}, without consuming or releasing it.  If {@code last} is true the
+     * compressed stream must end within {@code in}.  Any bytes after the end of the compressed stream are ignored.
+     *
+     * <p>Once this has thrown, the inflater is closed and any further calls throw too.
+     *
+     * @return a new buffer owned by the caller, which may be empty.
+     * @throws SizeLimitExceededException if the inflated stream is larger than the limit.
+     * @throws ZipException if the stream is malformed or truncated.
+     */
+    public ByteBuf inflate(ByteBuf in, boolean last) throws ZipException {
+        if (failed) {
+            throw new ZipException("Inflater has already failed");
+        }
+
+        final int length = in.readableBytes();
+        final ByteBuf out = alloc.heapBuffer(initialCapacity(length));
+        try {
+            if (in.hasArray()) {
+                process(in.array(), in.arrayOffset() + in.readerIndex(), length, out);
+            }
+            else {
+                final byte[] scratch = SCRATCH.get();
+                int index = in.readerIndex();
+                final int end = index + length;
+                while (index < end && state != DONE) {
+                    final int n = Math.min(scratch.length, end - index);
+                    in.getBytes(index, scratch, 0, n);
+                    process(scratch, 0, n, out);
+                    index += n;
+                }
+            }
+            totalIn += length;
+
+            if (last && state != DONE && totalIn > 0) {
+                throw new ZipException("Truncated " + format + " stream");
+            }
+            if (last || state == DONE) {
+                close();
+            }
+            return out;
+        }
+        catch (ZipException | RuntimeException e) {
+            out.release();
+            failed = true;
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of inflated bytes so far.
+     */
+    public long inflatedBytes() {
+        return totalOut;
+    }
+
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    private int initialCapacity(int length) {
+        // Assume a typical ratio, the buffer grows if the data compresses better than that.
+        return withinLimit((int) Math.min(Math.max(256L, 4L * length), MAX_INITIAL_CAPACITY));
+    }
+
+    /**
+     * Caps a buffer size to what can still be inflated, plus one byte to be able to tell that the limit was exceeded.
+     */
+    private int withinLimit(int size) {
+        final long headroom = maxInflatedBytes - totalOut;
+        return (size <= headroom) ? size : (int) headroom + 1;
+    }
+
+    private void process(byte[] in, int offset, int length, ByteBuf out) throws ZipException {
+        final int end = offset + length;
+        while (offset < end) {
+            switch (state) {
+                case HEADER:
+                    offset = readHeader(in, offset, end);
+                    break;
+                case EXTRA_LENGTH:
+                    offset = readExtraLength(in, offset, end);
+                    break;
+                case EXTRA:
+                case HEADER_CRC:
+                    final int n = Math.min(skip, end - offset);
+                    offset += n;
+                    skip -= n;
+                    if (skip == 0) {
+                        state = nextHeaderState(state);
+                    }
+                    break;
+                case NAME:
+                case COMMENT:
+                    while (offset < end) {
+                        if (in[offset++] == 0) {
+                            state = nextHeaderState(state);
+                            break;
+                        }
+                    }
+                    break;
+                case BODY:
+                    offset = (inflater == null) ? start(in, offset, end, out) : inflate(in, offset, end, out);
+                    break;
+                case TRAILER:
+                    offset = readTrailer(in, offset, end);
+                    break;
+                case DONE:
+                    return;
+                default:
+                    throw new IllegalStateException("Unknown state " + state);
+            }
+        }
+    }
+
+    private int readHeader(byte[] in, int offset, int end) throws ZipException {
+        final int n = Math.min(GZIP_HEADER_LENGTH - pendingLength, end - offset);
+        System.arraycopy(in, offset, pending, pendingLength, n);
+        pendingLength += n;
+        if (pendingLength == GZIP_HEADER_LENGTH) {
+            if (pending[0] != (byte) 0x1f || pending[1] != (byte) 0x8b) {
+                throw new ZipException("Not in gzip format");
+            }
+            if (pending[2] != 8) {
+                throw new ZipException("Unsupported gzip compression method " + pending[2]);
+            }
+            flags = pending[3] & 0xff;
+            if ((flags & RESERVED_FLAGS) != 0) {
+                throw new ZipException("Reserved gzip flags are set");
+            }
+            pendingLength = 0;
+            state = nextHeaderState(HEADER);
+        }
+        return offset + n;
+    }
+
+    private int readExtraLength(byte[] in, int offset, int end) {
+        final int n = Math.min(2 - pendingLength, end - offset);
+        System.arraycopy(in, offset, pending, pendingLength, n);
+        pendingLength += n;
+        if (pendingLength == 2) {
+            skip = (pending[0] & 0xff) | ((pending[1] & 0xff) << 8);
+            pendingLength = 0;
+            state = (skip > 0) ? EXTRA : nextHeaderState(EXTRA);
+        }
+        return offset + n;
+    }
+
+    private int nextHeaderState(int current) {
+        switch (current) {
+            case HEADER:
+                if ((flags & FEXTRA) != 0) {
+                    return EXTRA_LENGTH;
+                }
+                // fall through
+            case EXTRA:
+                if ((flags & FNAME) != 0) {
+                    return NAME;
+                }
+                // fall through
+            case NAME:
+                if ((flags & FCOMMENT) != 0) {
+                    return COMMENT;
+                }
+                // fall through
+            case COMMENT:
+                if ((flags & FHCRC) != 0) {
+                    // The header CRC is optional and rarely sent, so it is skipped rather than checked.
+                    skip = 2;
+                    return HEADER_CRC;
+                }
+                // fall through
+            default:
+                return BODY;
+        }
+    }
+
+    /**
+     * Picks the inflater for the stream.  For deflate, this needs the first two bytes to tell a zlib header apart from
+     * the start of a raw stream.
+     */
+    private int start(byte[] in, int offset, int end, ByteBuf out) throws ZipException {
+        if (format == Format.GZIP) {
+            acquireInflater(true);
+            return inflate(in, offset, end, out);
+        }
+
+        final int n = Math.min(ZLIB_HEADER_LENGTH - pendingLength, end - offset);
+        System.arraycopy(in, offset, pending, pendingLength, n);
+        pendingLength += n;
+        if (pendingLength < ZLIB_HEADER_LENGTH) {
+            return end;
+        }
+        final int cmf = pending[0] & 0xff;
+        final int flg = pending[1] & 0xff;
+        final boolean zlib = (cmf & 0x0f) == 8 && (cmf >> 4) <= 7 && ((cmf << 8) | flg) % 31 == 0;
+        acquireInflater(!zlib);
+        pendingLength = 0;
+        // The header bytes have to go through the inflater too, since they are part of the stream.
+        final int consumed = inflate(pending, 0, ZLIB_HEADER_LENGTH, out);
+        if (consumed < ZLIB_HEADER_LENGTH) {
+            // The stream ended within its first two bytes.
+            return end;
+        }
+        return offset + n;
+    }
+
+    /**
+     * Feeds the inflater until it has consumed the input or reached the end of the stream.
+     *
+     * @return the offset of the first byte not consumed by the inflater.
+     */
+    private int inflate(byte[] in, int offset, int end, ByteBuf out) throws ZipException {
+        inflater.setInput(in, offset, end - offset);
+        try {
+            while (true) {
+                if (!out.isWritable()) {
+                    out.ensureWritable(withinLimit(Math.max(256, out.writerIndex())));
+                }
+                final int writerIndex = out.writerIndex();
+                final int n = inflater.inflate(out.array(), out.arrayOffset() + writerIndex, out.writableBytes());
+                if (n > 0) {
+                    if (crc != null) {
+                        crc.update(out.array(), out.arrayOffset() + writerIndex, n);
+                    }
+                    out.writerIndex(writerIndex + n);
+                    totalOut += n;
+                    if (totalOut > maxInflatedBytes) {
+                        throw new SizeLimitExceededException(maxInflatedBytes);
+                    }
+                }
+                if (inflater.finished()) {
+                    state = (format == Format.GZIP) ? TRAILER : DONE;
+                    return end - inflater.getRemaining();
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("Preset dictionaries are not supported");
+                }
+                if (inflater.needsInput()) {
+                    return end;
+                }
+            }
+        }
+        catch (DataFormatException e) {
+            final ZipException ze = new ZipException("Invalid " + format + " stream: " + e.getMessage());
+            ze.initCause(e);
+            throw ze;
+        }
+    }
+
+    private int readTrailer(byte[] in, int offset, int end) throws ZipException {
+        final int n = Math.min(GZIP_TRAILER_LENGTH - pendingLength, end - offset);
+        System.arraycopy(in, offset, pending, pendingLength, n);
+        pendingLength += n;
+        if (pendingLength == GZIP_TRAILER_LENGTH) {
+            if (readIntLE(pending, 0) != (int) crc.getValue()) {
+                throw new ZipException("Corrupt gzip trailer: CRC mismatch");
+            }
+            if (readIntLE(pending, 4) != (int) totalOut) {
+                throw new ZipException("Corrupt gzip trailer: size mismatch");
+            }
+            state = DONE;
+        }
+        return offset + n;
+    }
+
+    private static int readIntLE(byte[] b, int offset) {
+        return (b[offset] & 0xff)
+                | (b[offset + 1] & 0xff) << 8
+                | (b[offset + 2] & 0xff) << 16
+                | (b[offset + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Returns the inflater to the pool.  Called automatically when the stream ends or fails.  A stream that's abandoned
+     * part way, e.g. because the client went away, doesn't have to be closed: its inflater just isn't reused, and is
+     * freed when it's garbage collected like any other.
+     */
+    @Override
+    public void close() {
+        if (inflater != null) {
+            releaseInflater(inflater, rawInflater);
+            inflater = null;
+        }
+    }
+
+    private void acquireInflater(boolean raw) {
+        final Inflater pooled = (raw ? RAW_INFLATERS : ZLIB_INFLATERS).get().pollFirst();
+        inflater = (pooled != null) ? pooled : new Inflater(raw);
+        rawInflater = raw;
+    }
+
+    private static void releaseInflater(Inflater inflater, boolean raw) {
+        final ArrayDeque<Inflater> pool = (raw ? RAW_INFLATERS : ZLIB_INFLATERS).get();
+        if (pool.size() < MAX_POOLED_INFLATERS) {
+            inflater.reset();
+            pool.addFirst(inflater);
+        }
+        else {
+            inflater.end();
+        }
+    }
+
+    private static FastThreadLocal<ArrayDeque<Inflater>> newPool() {
+        return new FastThreadLocal<ArrayDeque<Inflater>>() {
+            @Override
+            protected ArrayDeque<Inflater> initialValue() {
+                return new ArrayDeque<>();
+            }
+        };
+    }
+
+    /**
+     * Thrown when the inflated stream is larger than the limit given to the {@link BoundedInflater}.
+     */
+    public static final class SizeLimitExceededException extends ZipException {
+        private static final long serialVersionUID = 1L;
+
+        private final long limit;
+
+        SizeLimitExceededException(long limit) {
+            super("Inflated size exceeds " + limit + " bytes");
+            this.limit = limit;
+        }
+
+        public long getLimit() {
+            return limit;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.util.ArrayDeque;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Gzips a stream of {@link ByteBuf}s into buffers from a {@link ByteBufAllocator}, in the same way as Netty's
+ * {@code JdkZlibEncoder} but without needing a channel pipeline.
+ *
+ * <p>{@link Deflater}s are pooled per thread, normally the event loop, and are returned to the pool when the stream
+ * is finished or {@link #close() closed}.
+ */
+@NotThreadSafe
+public final class GzipCompressor implements AutoCloseable {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private static final int MAX_POOLED_DEFLATERS = 32;
+    private static final FastThreadLocal<ArrayDeque<Deflater>> DEFLATERS = new FastThreadLocal<ArrayDeque<Deflater>>() {
+        @Override
+        protected ArrayDeque<Deflater> initialValue() {
+            return new ArrayDeque<>();
+        }
+    };
+
+    /** Deflater only accepts arrays before Java 11, so direct buffers are copied through this in pieces. */
+    private static final int SCRATCH_SIZE = 8192;
+    private static final FastThreadLocal<byte[]> SCRATCH = new FastThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SCRATCH_SIZE];
+        }
+    };
+
+    private final ByteBufAllocator alloc;
+    private final int level;
+    private final boolean flushEveryChunk;
+    private final CRC32 crc = new CRC32();
+
+    private Deflater deflater;
+    private boolean headerWritten;
+    private boolean finished;
+    private long totalIn;
+
+    /**
+     * @param level the {@link Deflater} compression level, or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param flushEveryChunk whether each call to {@link #compress} should emit all of its input, rather than
+     *        letting the deflater hold on to it for a better ratio.
+     */
+    public GzipCompressor(ByteBufAllocator alloc, int level, boolean flushEveryChunk) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.alloc = alloc;
+        this.level = level;
+        this.flushEveryChunk = flushEveryChunk;
+    }
+
+    /**
+     * Compresses the readable bytes of {@code in}, without consuming or releasing it.  If {@code last} is true the
+     * gzip stream is finished, and the returned buffer ends with the gzip trailer.
+     *
+     * @return a new buffer owned by the caller, which may be empty if the deflater is holding on to the input.
+     */
+    public ByteBuf compress(ByteBuf in, boolean last) {
+        if (finished) {
+            throw new IllegalStateException("Gzip stream already finished");
+        }
+        if (deflater == null) {
+            deflater = acquireDeflater(level);
+        }
+
+        final int length = in.readableBytes();
+        int estimate = (int) Math.ceil(length * 1.001) + 12;
+        if (!headerWritten) {
+            estimate += GZIP_HEADER.length;
+        }
+        if (last) {
+            estimate += GZIP_TRAILER_LENGTH;
+        }
+        final ByteBuf out = alloc.heapBuffer(estimate);
+        try {
+            if (!headerWritten) {
+                out.writeBytes(GZIP_HEADER);
+                headerWritten = true;
+            }
+
+            if (length > 0) {
+                write(in, out);
+            }
+            if (last) {
+                finish(out);
+            }
+            else if (flushEveryChunk) {
+                deflate(out, Deflater.SYNC_FLUSH);
+            }
+            return out;
+        }
+        catch (RuntimeException e) {
+            out.release();
+            close();
+            throw e;
+        }
+    }
+
+    private void write(ByteBuf in, ByteBuf out) {
+        final int length = in.readableBytes();
+        if (in.hasArray()) {
+            final int offset = in.arrayOffset() + in.readerIndex();
+            crc.update(in.array(), offset, length);
+            deflater.setInput(in.array(), offset, length);
+            deflate(out, Deflater.NO_FLUSH);
+        }
+        else {
+            final byte[] scratch = SCRATCH.get();
+            int index = in.readerIndex();
+            final int end = index + length;
+            while (index < end) {
+                final int n = Math.min(scratch.length, end - index);
+                in.getBytes(index, scratch, 0, n);
+                crc.update(scratch, 0, n);
+                deflater.setInput(scratch, 0, n);
+                deflate(out, Deflater.NO_FLUSH);
+                index += n;
+            }
+        }
+        totalIn += length;
+    }
+
+    /**
+     * Runs the deflater until it has consumed its input, and for flushes, until it has emitted all of it.
+     */
+    private void deflate(ByteBuf out, int flush) {
+        while (true) {
+            if (!out.isWritable()) {
+                out.ensureWritable(Math.max(64, out.writerIndex() >> 1));
+            }
+            final int writerIndex = out.writerIndex();
+            final int n = deflater.deflate(out.array(), out.arrayOffset() + writerIndex, out.writableBytes(), flush);
+            out.writerIndex(writerIndex + n);
+            if (flush == Deflater.NO_FLUSH ? deflater.needsInput() : out.isWritable()) {
+                return;
+            }
+        }
+    }
+
+    private void finish(ByteBuf out) {
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (!out.isWritable()) {
+                out.ensureWritable(Math.max(64, out.writerIndex() >> 1));
+            }
+            final int writerIndex = out.writerIndex();
+            final int n = deflater.deflate(out.array(), out.arrayOffset() + writerIndex, out.writableBytes());
+            out.writerIndex(writerIndex + n);
+        }
+        out.writeIntLE((int) crc.getValue());
+        out.writeIntLE((int) totalIn);
+        finished = true;
+        close();
+    }
+
+    /**
+     * Returns the deflater to the pool.  Called automatically when the stream is finished or fails.  A stream that's
+     * abandoned part way, e.g. because the client went away, doesn't have to be closed: its deflater just isn't
+     * reused, and is freed when it's garbage collected like any other.
+     */
+    @Override
+    public void close() {
+        if (deflater != null) {
+            releaseDeflater(deflater);
+            deflater = null;
+        }
+    }
+
+    private static Deflater acquireDeflater(int level) {
+        final Deflater deflater = DEFLATERS.get().pollFirst();
+        if (deflater == null) {
+            return new Deflater(level, true);
+        }
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    private static void releaseDeflater(Deflater deflater) {
+        final ArrayDeque<Deflater> pool = DEFLATERS.get();
+        if (pool.size() < MAX_POOLED_DEFLATERS) {
+            deflater.reset();
+            pool.addFirst(deflater);
+        }
+        else {
+            deflater.end();
+        }
+    }
+}
@@ -28,10 +28,13 @@ import java.util.zip.GZIPOutputStream;
 /**
  * Refactored this out of our GZipResponseFilter
  *
+ * @deprecated copies every chunk through heap arrays; use {@link GzipCompressor} instead.
+ *
  * User: michaels@netflix.com
  * Date: 5/10/16
  * Time: 12:31 PM
  */
+@Deprecated
 public class Gzipper
 {
     private final ByteArrayOutputStream baos;
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Counters kept for fixed windows of time, along with the counters for the window before, so that together they cover
+ * between one and two windows of recent history.
+ *
+ * <p>Windows are rotated without locking: the first caller to see that the current window is over swaps in a new one,
+ * and callers that lose the race use the winner's.  The window before only links back one step, so older windows can
+ * be collected.
+ *
+ * @param <T> the counters kept for each window, which must be safe to update from several threads.
+ */
+public final class WindowedCounters<T> {
+
+    private final long windowMillis;
+    private final Supplier<T> newCounters;
+    private final LongSupplier clock;
+    private final AtomicReference<Window<T>> current;
+
+    public WindowedCounters(long windowMillis, Supplier<T> newCounters, LongSupplier clock) {
+        this.windowMillis = windowMillis;
+        this.newCounters = newCounters;
+        this.clock = clock;
+        this.current = new AtomicReference<>(new Window<>(clock.getAsLong(), newCounters.get(), null));
+    }
+
+    /**
+     * Returns the current window, starting a new one if it's over.
+     */
+    public Window<T> current() {
+        final long now = clock.getAsLong();
+        final Window<T> window = current.get();
+        if (now - window.start < windowMillis) {
+            return window;
+        }
+        // Only keep the window before if it ended just now.
+        final Window<T> previous = (now - window.start < 2 * windowMillis) ? window : null;
+        final Window<T> next = new Window<>(now, newCounters.get(), previous);
+        if (current.compareAndSet(window, next)) {
+            window.previous = null;
+            return next;
+        }
+        return current.get();
+    }
+
+    public static final class Window<T> {
+        private final long start;
+        private final T counters;
+        private volatile Window<T> previous;
+
+        private Window(long start, T counters, @Nullable Window<T> previous) {
+            this.start = start;
+            this.counters = counters;
+            this.previous = previous;
+        }
+
+        public T counters() {
+            return counters;
+        }
+
+        /**
+         * The counters for the window before this one, or {@code null} if there wasn't one just before it.
+         */
+        @Nullable
+        public T previousCounters() {
+            final Window<T> previous = this.previous;
+            return (previous != null) ? previous.counters : null;
+        }
+    }
+}
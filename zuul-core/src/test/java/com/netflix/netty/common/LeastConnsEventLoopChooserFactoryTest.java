@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.netty.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.netflix.netty.common.metrics.EventLoopConnections;
+import com.netflix.netty.common.metrics.EventLoopGroupMetrics;
+import com.netflix.spectator.api.DefaultRegistry;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory.EventExecutorChooser;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link LeastConnsEventLoopChooserFactory}.
+ */
+@RunWith(JUnit4.class)
+public class LeastConnsEventLoopChooserFactoryTest {
+
+    private final EventExecutor[] executors = new EventExecutor[8];
+    private final EventLoopGroupMetrics groupMetrics = new EventLoopGroupMetrics(new DefaultRegistry());
+
+    {
+        for (int i = 0; i < executors.length; i++) {
+            executors[i] = new DefaultEventLoop();
+        }
+    }
+
+    @After
+    public void shutdown() {
+        for (EventExecutor executor : executors) {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void countsConnectionsOnEachEventLoop() throws Exception {
+        EventExecutorChooser chooser = new LeastConnsEventLoopChooserFactory(groupMetrics).newChooser(executors);
+        EventExecutor chosen = chooser.next();
+
+        chosen.submit(() -> groupMetrics.getForCurrentEventLoop().incrementCurrentConnections()).get();
+
+        // The event loop with a connection is never chosen over one without.
+        for (int i = 0; i < 100; i++) {
+            assertThat(chooser.next()).isNotSameInstanceAs(chosen);
+        }
+    }
+
+    @Test
+    public void balancesConnectionsWithSkewedLifetimes() {
+        EventExecutorChooser chooser = new LeastConnsEventLoopChooserFactory(groupMetrics).newChooser(executors);
+        EventLoopConnections connections = groupMetrics.getEventLoopConnections();
+
+        Random random = new Random(42);
+        // Pairs of when each connection closes, and the index of its event loop.
+        PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        long maxSpread = 0;
+        for (long now = 0; now < 200_000; now++) {
+            while (!open.isEmpty() && open.peek()[0] <= now) {
+                connections.decrement((int) open.poll()[1]);
+            }
+            int index = connections.indexOf(chooser.next());
+            connections.increment(index);
+            // Most connections are short, but a few are open for a long time.
+            long lifetime = (random.nextInt(10) == 0) ? 1_000 + random.nextInt(10_000) : 1 + random.nextInt(10);
+            open.add(new long[] {now + lifetime, index});
+
+            if (now > 20_000) {
+                long min = Long.MAX_VALUE;
+                long max = 0;
+                for (int i = 0; i < executors.length; i++) {
+                    min = Math.min(min, connections.get(i));
+                    max = Math.max(max, connections.get(i));
+                }
+                maxSpread = Math.max(maxSpread, max - min);
+            }
+        }
+
+        // Out of about 75 connections per event loop, where choosing at random spreads them by several times as many.
+        assertThat(maxSpread).isAtMost(20);
+    }
+}
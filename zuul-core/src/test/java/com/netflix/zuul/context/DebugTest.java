@@ -84,6 +84,16 @@ public class DebugTest {
         assertTrue(getRequestDebug(ctx).contains("test2"));
     }
 
+    @Test
+    public void debugListsAreVisibleInContextMap() {
+        addRoutingDebug(ctx, "test1");
+        addRequestDebug(ctx, "test2");
+
+        // Legacy filters read these straight out of the context.
+        assertEquals(getRoutingDebug(ctx), ctx.get("routingDebug"));
+        assertEquals(getRequestDebug(ctx), ctx.get("requestDebug"));
+    }
+
     @Test
     public void testWriteInboundRequestDebug() {
         ctx.setDebugRequest(true);
@@ -15,8 +15,11 @@
  */
 package com.netflix.zuul.context;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -30,4 +33,79 @@ public class SessionContextTest {
         assertEquals(context.getBoolean("boolean_test"), Boolean.FALSE);
         assertEquals(context.getBoolean("boolean_test", true), true);
     }
+
+    @Test
+    public void keys_storeValuesOutsideMapView() {
+        SessionContext.Key<String> key = SessionContext.Key.newKey("foo");
+        SessionContext context = new SessionContext();
+        int mapSize = context.size();
+
+        assertThat(context.get(key)).isNull();
+        assertThat(context.containsKey(key)).isFalse();
+
+        context.set(key, "bar");
+
+        assertThat(context.get(key)).isEqualTo("bar");
+        assertThat(context.containsKey(key)).isTrue();
+        assertThat(context.containsKey("foo")).isFalse();
+        assertThat(context.size()).isEqualTo(mapSize);
+
+        assertThat(context.remove(key)).isEqualTo("bar");
+        assertThat(context.get(key)).isNull();
+        assertThat(context.remove(key)).isNull();
+    }
+
+    @Test
+    public void keys_nullValueRemoves() {
+        SessionContext.Key<String> key = SessionContext.Key.newKey("foo");
+        SessionContext context = new SessionContext();
+
+        context.set(key, null);
+        assertThat(context.containsKey(key)).isFalse();
+
+        context.set(key, "bar");
+        context.set(key, null);
+        assertThat(context.containsKey(key)).isFalse();
+    }
+
+    @Test
+    public void keys_createdAfterSlotsAllocated() {
+        SessionContext.Key<String> first = SessionContext.Key.newKey("first");
+        SessionContext context = new SessionContext();
+        context.set(first, "1");
+
+        SessionContext.Key<String> second = SessionContext.Key.newKey("second");
+        assertThat(context.get(second)).isNull();
+        context.set(second, "2");
+
+        assertThat(context.get(first)).isEqualTo("1");
+        assertThat(context.get(second)).isEqualTo("2");
+    }
+
+    @Test
+    public void keys_cloneHasIndependentSlots() {
+        SessionContext.Key<String> key = SessionContext.Key.newKey("foo");
+        SessionContext context = new SessionContext();
+        context.set(key, "bar");
+
+        SessionContext clone = context.clone();
+        clone.set(key, "baz");
+
+        assertThat(context.get(key)).isEqualTo("bar");
+        assertThat(clone.get(key)).isEqualTo("baz");
+    }
+
+    @Test
+    public void keys_copyDeepCopiesSlots() {
+        SessionContext.Key<List<String>> key = SessionContext.Key.newKey("foo");
+        SessionContext context = new SessionContext();
+        List<String> list = new ArrayList<>();
+        list.add("bar");
+        context.set(key, list);
+
+        SessionContext copy = context.copy();
+
+        assertThat(copy.get(key)).containsExactly("bar");
+        assertThat(copy.get(key)).isNotSameInstanceAs(list);
+    }
 }
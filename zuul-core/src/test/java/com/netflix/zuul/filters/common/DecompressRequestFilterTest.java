@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.filters.common;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.zuul.context.SessionContext;
+import com.netflix.zuul.exception.ZuulException;
+import com.netflix.zuul.message.Headers;
+import com.netflix.zuul.message.http.HttpQueryParams;
+import com.netflix.zuul.message.http.HttpRequestMessage;
+import com.netflix.zuul.message.http.HttpRequestMessageImpl;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link DecompressRequestFilter} and {@link RecompressRequestFilter}.
+ */
+@RunWith(JUnit4.class)
+public class DecompressRequestFilterTest {
+
+    private final DecompressRequestFilter filter = new DecompressRequestFilter();
+
+    @Test
+    public void shouldFilter_onlyCompressedBodies() {
+        assertThat(filter.shouldFilter(request("gzip", 1000))).isTrue();
+        assertThat(filter.shouldFilter(request("Deflate", 1000))).isTrue();
+        assertThat(filter.shouldFilter(request("br", 1000))).isFalse();
+        assertThat(filter.shouldFilter(request("gzip, br", 1000))).isFalse();
+        assertThat(filter.shouldFilter(request(null, 1000))).isFalse();
+
+        HttpRequestMessage noBody = request("gzip", 1000);
+        noBody.setHasBody(false);
+        assertThat(filter.shouldFilter(noBody)).isFalse();
+    }
+
+    @Test
+    public void inflatesBody() throws IOException {
+        HttpRequestMessage request = request("gzip", 1000);
+        request.getHeaders().set("Content-Length", "30");
+        byte[] compressed = gzip("hello hello hello hello hello".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(filter.shouldFilter(request)).isTrue();
+        HttpRequestMessage result = filter.apply(request);
+        // The headers no longer say the body is compressed, but the remaining chunks still need inflating.
+        assertThat(filter.shouldFilter(request)).isTrue();
+
+        HttpContent first = filter.processContentChunk(request, chunk(compressed, 0, 10, false));
+        HttpContent last = filter.processContentChunk(request, chunk(compressed, 10, compressed.length - 10, true));
+
+        assertThat(last).isInstanceOf(LastHttpContent.class);
+        assertThat(ByteBufUtil.getBytes(Unpooled.wrappedBuffer(first.content(), last.content())))
+                .isEqualTo("hello hello hello hello hello".getBytes(StandardCharsets.UTF_8));
+        assertThat(result.getHeaders().getFirst("Content-Encoding")).isNull();
+        assertThat(result.getHeaders().getFirst("Content-Length")).isNull();
+        assertThat(result.getHeaders().getFirst("Transfer-Encoding")).isEqualTo("chunked");
+    }
+
+    @Test
+    public void rejectsBodyTooLargeOnceInflated() throws IOException {
+        HttpRequestMessage request = request("gzip", 1000);
+        byte[] compressed = gzip(new byte[100_000]);
+        assertThat(compressed.length).isLessThan(1000);
+        assertThat(filter.shouldFilter(request)).isTrue();
+
+        try {
+            filter.processContentChunk(request, chunk(compressed, 0, compressed.length, true));
+            fail();
+        } catch (ZuulException e) {
+            assertThat(e.getStatusCode()).isEqualTo(413);
+        }
+        SessionContext context = request.getContext();
+        assertThat(context.getError()).isInstanceOf(ZuulException.class);
+        assertThat(context.shouldSendErrorResponse()).isTrue();
+
+        // Anything still arriving is dropped.
+        HttpContent late = filter.processContentChunk(request, chunk(compressed, 0, 10, false));
+        assertThat(late.content().readableBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void rejectsCorruptBody() {
+        HttpRequestMessage request = request("deflate", 1000);
+        assertThat(filter.shouldFilter(request)).isTrue();
+        byte[] garbage = "not compressed at all".getBytes(StandardCharsets.UTF_8);
+
+        try {
+            filter.processContentChunk(request, chunk(garbage, 0, garbage.length, true));
+            fail();
+        } catch (ZuulException e) {
+            assertThat(e.getStatusCode()).isEqualTo(400);
+        }
+    }
+
+    @Test
+    public void recompressesGzippedBodies() throws IOException {
+        ConfigurationManager.getConfigInstance().setProperty("zuul.request.recompress.filter.enabled", true);
+        try {
+            RecompressRequestFilter recompress = new RecompressRequestFilter();
+            HttpRequestMessage gzipped = request("gzip", 1000);
+            HttpRequestMessage deflated = request("deflate", 1000);
+            assertThat(filter.shouldFilter(gzipped)).isTrue();
+            assertThat(filter.shouldFilter(deflated)).isTrue();
+            filter.apply(gzipped);
+            filter.apply(deflated);
+
+            assertThat(recompress.shouldFilter(deflated)).isFalse();
+            assertThat(recompress.shouldFilter(gzipped)).isTrue();
+            HttpRequestMessage result = recompress.apply(gzipped);
+            assertThat(result.getHeaders().getFirst("Content-Encoding")).isEqualTo("gzip");
+
+            byte[] body = "some body some body".getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = gzip(body);
+            HttpContent chunk = chunk(compressed, 0, compressed.length, true);
+            chunk = filter.processContentChunk(gzipped, chunk);
+            chunk = recompress.processContentChunk(gzipped, chunk);
+
+            assertThat(gunzip(ByteBufUtil.getBytes(chunk.content()))).isEqualTo(body);
+            chunk.release();
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("zuul.request.recompress.filter.enabled");
+        }
+    }
+
+    private static HttpRequestMessage request(String contentEncoding, int maxBodySize) {
+        Headers headers = new Headers();
+        if (contentEncoding != null) {
+            headers.set("Content-Encoding", contentEncoding);
+        }
+        HttpRequestMessage request = new HttpRequestMessageImpl(new SessionContext(), "HTTP/1.1", "POST", "/upload",
+                new HttpQueryParams(), headers, "127.0.0.1", "http", 7001, "localhost") {
+            @Override
+            public int getMaxBodySize() {
+                return maxBodySize;
+            }
+        };
+        request.setHasBody(true);
+        return request;
+    }
+
+    private static HttpContent chunk(byte[] bytes, int offset, int length, boolean last) {
+        return last
+                ? new DefaultLastHttpContent(Unpooled.wrappedBuffer(bytes, offset, length))
+                : new DefaultHttpContent(Unpooled.wrappedBuffer(bytes, offset, length));
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+                ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -18,15 +18,18 @@ package com.netflix.zuul.filters.common;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
+import com.netflix.zuul.context.CommonContextKeys;
 import com.netflix.zuul.context.SessionContext;
 import com.netflix.zuul.message.Headers;
 import com.netflix.zuul.message.http.HttpHeaderNames;
 import com.netflix.zuul.message.http.HttpRequestMessage;
 import com.netflix.zuul.message.http.HttpResponseMessage;
 import com.netflix.zuul.message.http.HttpResponseMessageImpl;
+import com.netflix.zuul.util.Gzipper;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
@@ -118,4 +121,20 @@ public class GZipResponseFilterTest {
         response.setHasBody(true);
         assertTrue(filter.shouldFilter(response));
     }
+
+    @Test
+    public void overriddenGetGzipperIsStillUsed() {
+        final Gzipper gzipper = new Gzipper();
+        filter = new GZipResponseFilter() {
+            @Override
+            protected Gzipper getGzipper() {
+                return gzipper;
+            }
+        };
+        originalRequestHeaders.set("Accept-Encoding", "gzip");
+        response.getHeaders().set("Transfer-Encoding", "chunked");
+        response.setHasBody(true);
+        assertTrue(filter.shouldFilter(response));
+        assertSame(gzipper, context.get(CommonContextKeys.GZIPPER));
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.filters.endpoint;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.netflix.zuul.context.CommonContextKeys;
+import com.netflix.zuul.context.SessionContext;
+import com.netflix.zuul.message.Headers;
+import com.netflix.zuul.message.http.HttpQueryParams;
+import com.netflix.zuul.message.http.HttpRequestMessage;
+import com.netflix.zuul.message.http.HttpRequestMessageImpl;
+import com.netflix.zuul.message.http.HttpResponseMessage;
+import com.netflix.zuul.netty.server.MethodBinding;
+import com.netflix.zuul.origins.NettyOrigin;
+import com.netflix.zuul.passport.CurrentPassport;
+import com.netflix.zuul.passport.PassportState;
+import com.netflix.zuul.stats.Timing;
+import com.netflix.zuul.stats.status.StatusCategoryUtils;
+import com.netflix.zuul.stats.status.ZuulStatusCategory;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.timeout.ReadTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ProxyEndpoint}.
+ */
+@RunWith(JUnit4.class)
+public class ProxyEndpointTest {
+
+    private final NettyOrigin origin = mock(NettyOrigin.class);
+    private final List<HttpResponseMessage> responses = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        when(origin.getName()).thenReturn("proxyEndpointTest");
+        when(origin.getMaxRetriesForRequest(any())).thenReturn(3);
+        when(origin.getProxyTiming(any())).thenReturn(mock(Timing.class));
+    }
+
+    @Test
+    public void exhaustedRetryBudgetKeepsOriginError() {
+        when(origin.tryAcquireRetry()).thenReturn(false);
+        ProxyEndpoint endpoint = endpoint("GET");
+        SessionContext context = endpoint.getZuulRequest().getContext();
+
+        endpoint.errorFromOrigin(ReadTimeoutException.INSTANCE);
+
+        verify(origin).tryAcquireRetry();
+        assertThat(endpoint.getPassport().hasState(PassportState.ORIGIN_RETRY_BUDGET_EXHAUSTED)).isTrue();
+        assertThat(endpoint.getPassport().hasState(PassportState.ORIGIN_RETRY_START)).isFalse();
+        assertThat(context.getError()).isSameInstanceAs(ReadTimeoutException.INSTANCE);
+        assertThat(StatusCategoryUtils.getStatusCategory(context))
+                .isEqualTo(ZuulStatusCategory.FAILURE_ORIGIN_READ_TIMEOUT);
+        verify(origin).recordFinalError(endpoint.getZuulRequest(), ReadTimeoutException.INSTANCE);
+        assertThat(responses).hasSize(1);
+        assertThat(responses.get(0).getStatus()).isEqualTo(504);
+    }
+
+    @Test
+    public void retryBudgetOnlyCheckedForRetryableErrors() {
+        // Read timeouts are only retried for idempotent requests.
+        ProxyEndpoint endpoint = endpoint("POST");
+
+        endpoint.errorFromOrigin(ReadTimeoutException.INSTANCE);
+
+        verify(origin, never()).tryAcquireRetry();
+        assertThat(endpoint.getPassport().hasState(PassportState.ORIGIN_RETRY_BUDGET_EXHAUSTED)).isFalse();
+        assertThat(responses).hasSize(1);
+        assertThat(responses.get(0).getStatus()).isEqualTo(504);
+    }
+
+    private ProxyEndpoint endpoint(String method) {
+        SessionContext context = new SessionContext();
+        context.set(CommonContextKeys.PASSPORT, CurrentPassport.create());
+        HttpRequestMessage request = new HttpRequestMessageImpl(context, "HTTP/1.1", method, "/", new HttpQueryParams(),
+                new Headers(), "192.168.0.2", "https", 7002, "localhost");
+        request.storeInboundRequest();
+        return new ProxyEndpoint(request, mock(ChannelHandlerContext.class), null, MethodBinding.NO_OP_BINDING) {
+            @Override
+            protected NettyOrigin getOrigin(HttpRequestMessage request) {
+                return ProxyEndpointTest.this.origin;
+            }
+
+            @Override
+            public void invokeNext(HttpResponseMessage zuulResponse) {
+                responses.add(zuulResponse);
+            }
+        };
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.filters.endpoint;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.netflix.config.ConfigurationManager;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ReplayBuffer}.
+ */
+@RunWith(JUnit4.class)
+public class ReplayBufferTest {
+
+    private final ReplayBuffer buffer = new ReplayBuffer();
+    private final List<HttpContent> allocated = new ArrayList<>();
+
+    @After
+    public void release() {
+        buffer.release();
+        for (HttpContent chunk : allocated) {
+            assertThat(chunk.refCnt()).isEqualTo(1);
+            chunk.release();
+        }
+    }
+
+    @Test
+    public void replaysBufferedBodyThatWasConsumed() {
+        List<HttpContent> body = Arrays.asList(chunk("hello "), lastChunk("world"));
+
+        assertThat(written(body)).isEqualTo("hello world");
+        // As the SSL handler does with what's written.
+        for (HttpContent chunk : body) {
+            chunk.content().skipBytes(chunk.content().readableBytes());
+        }
+
+        assertThat(written(body)).isEqualTo("hello world");
+    }
+
+    @Test
+    public void replaysStreamedChunksInOrder() {
+        List<HttpContent> body = new ArrayList<>(Collections.singletonList(chunk("a")));
+        assertThat(written(body)).isEqualTo("a");
+
+        HttpContent streamed = new DefaultHttpContent(buf("b"));
+        buffer.addStreamed(streamed);
+        // The origin consumes and releases what's streamed to it.
+        streamed.content().skipBytes(1);
+        streamed.release();
+
+        // Buffered while connecting to retry.
+        body.add(lastChunk("c"));
+        assertThat(written(body)).isEqualTo("abc");
+        assertThat(written(body)).isEqualTo("abc");
+        assertThat(buffer.isReplayable()).isTrue();
+        assertThat(buffer.streamedBytes()).isEqualTo(1);
+    }
+
+    @Test
+    public void givesUpPastTheLimit() {
+        long globalBefore = ReplayBuffer.globalBytes();
+        ConfigurationManager.getConfigInstance().setProperty("zuul.retry.replay.buffer.max.bytes", 4);
+        try {
+            buffer.addStreamed(chunk("abc"));
+            assertThat(ReplayBuffer.globalBytes()).isEqualTo(globalBefore + 3);
+            assertThat(buffer.isReplayable()).isTrue();
+
+            buffer.addStreamed(chunk("de"));
+            assertThat(buffer.isReplayable()).isFalse();
+            assertThat(buffer.streamedBytes()).isEqualTo(0);
+            assertThat(ReplayBuffer.globalBytes()).isEqualTo(globalBefore);
+
+            // Nothing more is kept.
+            buffer.addStreamed(chunk("f"));
+            assertThat(buffer.streamedBytes()).isEqualTo(0);
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("zuul.retry.replay.buffer.max.bytes");
+        }
+    }
+
+    @Test
+    public void givesUpPastTheGlobalLimit() {
+        ReplayBuffer other = new ReplayBuffer();
+        ConfigurationManager.getConfigInstance().setProperty(
+                "zuul.retry.replay.buffer.global.max.bytes", ReplayBuffer.globalBytes() + 4);
+        try {
+            other.addStreamed(chunk("abc"));
+            buffer.addStreamed(chunk("de"));
+
+            assertThat(other.isReplayable()).isTrue();
+            assertThat(buffer.isReplayable()).isFalse();
+        } finally {
+            other.release();
+            ConfigurationManager.getConfigInstance().clearProperty("zuul.retry.replay.buffer.global.max.bytes");
+        }
+    }
+
+    private String written(List<HttpContent> body) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        buffer.writeBody(body, channel);
+        channel.flush();
+
+        StringBuilder sb = new StringBuilder();
+        HttpContent chunk;
+        while ((chunk = channel.readOutbound()) != null) {
+            sb.append(chunk.content().toString(UTF_8));
+            chunk.release();
+        }
+        channel.finishAndReleaseAll();
+        return sb.toString();
+    }
+
+    private HttpContent chunk(String s) {
+        HttpContent chunk = new DefaultHttpContent(buf(s));
+        allocated.add(chunk);
+        return chunk;
+    }
+
+    private HttpContent lastChunk(String s) {
+        LastHttpContent chunk = new DefaultLastHttpContent(buf(s));
+        allocated.add(chunk);
+        return chunk;
+    }
+
+    private static ByteBuf buf(String s) {
+        return PooledByteBufAllocator.DEFAULT.directBuffer().writeBytes(s.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.filters.endpoint;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.netflix.config.ConfigurationManager;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link RequestHedging}.
+ */
+@RunWith(JUnit4.class)
+public class RequestHedgingTest {
+
+    private long now = 100_000;
+    private final RequestHedging hedging = new RequestHedging("hedgingTest", () -> now);
+
+    @Test
+    public void disabledByDefault() {
+        assertThat(hedging.isEnabled()).isFalse();
+        assertThat(RequestHedging.forOrigin("hedgingTest")).isSameInstanceAs(RequestHedging.forOrigin("hedgingTest"));
+    }
+
+    @Test
+    public void noDelayUntilThereAreEnoughResponses() {
+        for (int i = 0; i < 99; i++) {
+            hedging.recordResponseTime(10);
+        }
+        assertThat(hedging.hedgeDelayMillis()).isEqualTo(-1);
+
+        hedging.recordResponseTime(10);
+        now += 1000;
+        assertThat(hedging.hedgeDelayMillis()).isAtLeast(10);
+    }
+
+    @Test
+    public void delayIsAPercentileOfResponseTimes() {
+        for (int i = 0; i < 97; i++) {
+            hedging.recordResponseTime(10);
+        }
+        for (int i = 0; i < 3; i++) {
+            hedging.recordResponseTime(1000);
+        }
+        long delay = hedging.hedgeDelayMillis();
+        assertThat(delay).isAtLeast(10);
+        assertThat(delay).isLessThan(100);
+
+        ConfigurationManager.getConfigInstance().setProperty("zuul.origin.hedgingTest.hedge.percentile", 99);
+        try {
+            now += 1000;
+            assertThat(hedging.hedgeDelayMillis()).isAtLeast(500);
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("zuul.origin.hedgingTest.hedge.percentile");
+        }
+    }
+
+    @Test
+    public void delayIsAtLeastTheMinimum() {
+        for (int i = 0; i < 100; i++) {
+            hedging.recordResponseTime(0);
+        }
+        assertThat(hedging.hedgeDelayMillis()).isEqualTo(5);
+    }
+
+    @Test
+    public void forgetsOldResponseTimes() {
+        for (int i = 0; i < 100; i++) {
+            hedging.recordResponseTime(10);
+        }
+        assertThat(hedging.hedgeDelayMillis()).isAtLeast(10);
+
+        // Still within the window before.
+        now += 10_000;
+        assertThat(hedging.hedgeDelayMillis()).isAtLeast(10);
+
+        now += 10_000;
+        assertThat(hedging.hedgeDelayMillis()).isEqualTo(-1);
+    }
+}
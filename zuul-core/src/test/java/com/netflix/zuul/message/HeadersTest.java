@@ -23,6 +23,8 @@ import static org.junit.Assert.assertTrue;
 
 import com.google.common.truth.Truth;
 import com.netflix.zuul.exception.ZuulException;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -31,6 +33,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -555,4 +558,150 @@ public class HeadersTest {
         assertThrows(ZuulException.class, () -> headers.addAndValidate("x-test-br\r\neak1", "a\r\nb\r\nc"));
         assertThrows(ZuulException.class, () -> headers.setAndValidate("x-test-br\r\neak2", "a\r\nb\r\nc"));
     }
+
+    @Test
+    public void largeHeaders_preservesOrderAcrossIndexedLookups() {
+        Headers headers = new Headers();
+        for (int i = 0; i < 80; i++) {
+            headers.add("X-Header-" + (i % 40), "v" + i);
+        }
+
+        Truth.assertThat(headers.getFirst("x-header-7")).isEqualTo("v7");
+        Truth.assertThat(headers.getAll(new HeaderName("X-HEADER-7"))).containsExactly("v7", "v47").inOrder();
+        Truth.assertThat(headers.contains("x-header-39", "v79")).isTrue();
+        Truth.assertThat(headers.contains("x-header-40")).isFalse();
+
+        Truth.assertThat(headers.remove("x-header-0")).containsExactly("v0", "v40").inOrder();
+        Truth.assertThat(headers.getFirst("x-header-1")).isEqualTo("v1");
+        Truth.assertThat(headers.getAll("x-header-39")).containsExactly("v39", "v79").inOrder();
+
+        headers.set("X-Header-5", "replaced");
+        Truth.assertThat(headers.getAll("x-header-5")).containsExactly("replaced");
+        Truth.assertThat(headers.size()).isEqualTo(77);
+        Truth.assertThat(headers.entries().iterator().next().getValue()).isEqualTo("v1");
+    }
+
+    @Test
+    public void largeHeaders_mixedOperationsMatchReference() {
+        Random random = new Random(42);
+        Headers headers = new Headers();
+        List<String[]> reference = new ArrayList<>();
+
+        for (int op = 0; op < 5000; op++) {
+            String name = "Header-" + random.nextInt(60);
+            String normal = name.toLowerCase();
+            String value = Integer.toString(op);
+            switch (random.nextInt(4)) {
+                case 0:
+                    headers.add(name, value);
+                    reference.add(new String[] {normal, value});
+                    break;
+                case 1:
+                    headers.set(name, value);
+                    int first = -1;
+                    for (int i = 0; i < reference.size(); i++) {
+                        if (reference.get(i)[0].equals(normal)) {
+                            first = i;
+                            break;
+                        }
+                    }
+                    if (first == -1) {
+                        reference.add(new String[] {normal, value});
+                    } else {
+                        reference.get(first)[1] = value;
+                        for (int i = reference.size() - 1; i > first; i--) {
+                            if (reference.get(i)[0].equals(normal)) {
+                                reference.remove(i);
+                            }
+                        }
+                    }
+                    break;
+                case 2:
+                    headers.remove(name);
+                    reference.removeIf(entry -> entry[0].equals(normal));
+                    break;
+                default:
+                    List<String> expected = new ArrayList<>();
+                    for (String[] entry : reference) {
+                        if (entry[0].equals(normal)) {
+                            expected.add(entry[1]);
+                        }
+                    }
+                    assertEquals(expected, headers.getAll(name));
+                    assertEquals(expected.isEmpty() ? null : expected.get(0), headers.getFirst(name));
+            }
+            assertEquals(reference.size(), headers.size());
+        }
+
+        List<String> expectedValues = new ArrayList<>();
+        for (String[] entry : reference) {
+            expectedValues.add(entry[1]);
+        }
+        List<String> actualValues = new ArrayList<>();
+        headers.forEachNormalised((k, v) -> actualValues.add(v));
+        assertEquals(expectedValues, actualValues);
+    }
+
+    @Test
+    public void lazyCopyOf_readsFromNettyHeaders() {
+        HttpHeaders nettyHeaders = new DefaultHttpHeaders();
+        nettyHeaders.add("Via", "duct");
+        nettyHeaders.add("Cookie", "this=that");
+        nettyHeaders.add("Cookie", "frizzle=frazzle");
+
+        Headers headers = Headers.lazyCopyOf(nettyHeaders);
+
+        Truth.assertThat(headers.size()).isEqualTo(3);
+        Truth.assertThat(headers.getFirst("cOOkIE")).isEqualTo("this=that");
+        Truth.assertThat(headers.getAll(new HeaderName("Cookie")))
+                .containsExactly("this=that", "frizzle=frazzle").inOrder();
+        Truth.assertThat(headers.getAll("Absent")).isEmpty();
+        Truth.assertThat(headers.contains("via")).isTrue();
+        Truth.assertThat(headers.contains("cookie", "frizzle=frazzle")).isTrue();
+        Truth.assertThat(headers.contains("cookie", "FRIZZLE=frazzle")).isFalse();
+    }
+
+    @Test
+    public void lazyCopyOf_copiesOnWrite() {
+        HttpHeaders nettyHeaders = new DefaultHttpHeaders();
+        nettyHeaders.add("Via", "duct");
+        nettyHeaders.add("Cookie", "this=that");
+
+        Headers headers = Headers.lazyCopyOf(nettyHeaders);
+        Headers copy = Headers.copyOf(headers);
+        headers.set("Via", "pipe");
+        headers.add("X-Forwarded-For", "10.0.0.1");
+
+        Truth.assertThat(nettyHeaders.getAll("Via")).containsExactly("duct");
+        Truth.assertThat(nettyHeaders.contains("X-Forwarded-For")).isFalse();
+        Truth.assertThat(copy.getFirst("Via")).isEqualTo("duct");
+        Truth.assertThat(headers.getFirst("Via")).isEqualTo("pipe");
+        Truth.assertThat(headers.size()).isEqualTo(3);
+
+        List<String> names = new ArrayList<>();
+        for (Header header : headers.entries()) {
+            names.add(header.getKey());
+        }
+        Truth.assertThat(names).containsExactly("Via", "Cookie", "X-Forwarded-For").inOrder();
+    }
+
+    @Test
+    public void copyInto() {
+        HttpHeaders nettyHeaders = new DefaultHttpHeaders();
+        nettyHeaders.add("Via", "duct");
+        nettyHeaders.add("Cookie", "this=that");
+
+        HttpHeaders unmodified = new DefaultHttpHeaders();
+        Headers.lazyCopyOf(nettyHeaders).copyInto(unmodified);
+        Truth.assertThat(unmodified.names()).containsExactly("Via", "Cookie");
+        Truth.assertThat(unmodified.get("cookie")).isEqualTo("this=that");
+
+        Headers headers = Headers.lazyCopyOf(nettyHeaders);
+        headers.remove("cookie");
+        headers.add("X-Forwarded-For", "10.0.0.1");
+        HttpHeaders modified = new DefaultHttpHeaders();
+        headers.copyInto(modified);
+        Truth.assertThat(modified.names()).containsExactly("Via", "X-Forwarded-For");
+        Truth.assertThat(modified.get("x-forwarded-for")).isEqualTo("10.0.0.1");
+    }
 }
@@ -17,14 +17,21 @@
 package com.netflix.zuul.message;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.netflix.zuul.context.SessionContext;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -144,4 +151,55 @@ public class ZuulMessageImplTest {
         assertTrue(msg.hasCompleteBody());
         assertEquals("Goodbye World!", body);
     }
+
+    @Test
+    public void testGetBodyViewWithoutBody() {
+        final ZuulMessage msg = new ZuulMessageImpl(new SessionContext(), new Headers());
+        assertNull(msg.getBodyView());
+        assertNull(msg.getBody());
+        assertNull(msg.getBodyAsText());
+    }
+
+    @Test
+    public void testBufferBody3GetBodyView() {
+        final ZuulMessage msg = new ZuulMessageImpl(new SessionContext(), new Headers());
+        msg.bufferBodyContents(new DefaultHttpContent(Unpooled.copiedBuffer("Hello ".getBytes())));
+        msg.bufferBodyContents(new DefaultHttpContent(Unpooled.copiedBuffer("World!".getBytes())));
+        msg.bufferBodyContents(new DefaultLastHttpContent());
+
+        final ByteBuf view = msg.getBodyView();
+        assertEquals(12, view.readableBytes());
+        assertEquals("Hello World!", view.readCharSequence(12, StandardCharsets.UTF_8).toString());
+
+        // Reading the view must not consume the buffered chunks.
+        assertEquals("Hello World!", msg.getBodyAsText());
+        for (HttpContent chunk : msg.getBodyContents()) {
+            assertEquals(1, chunk.refCnt());
+        }
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testGetBodyViewIsReadOnly() {
+        final ZuulMessage msg = new ZuulMessageImpl(new SessionContext(), new Headers());
+        msg.setBodyAsText("Hello World!");
+
+        final ByteBuf view = msg.getBodyView();
+        assertFalse(view.isWritable());
+        view.setByte(0, 'J');
+    }
+
+    @Test
+    public void testDefaultGetBodyView() {
+        final ZuulMessage msg = new ZuulMessageImpl(new SessionContext(), new Headers());
+        msg.bufferBodyContents(new DefaultHttpContent(Unpooled.copiedBuffer("Hello ".getBytes())));
+        msg.bufferBodyContents(new DefaultLastHttpContent(Unpooled.copiedBuffer("World!".getBytes())));
+
+        // Other implementations get the view built from their body contents.
+        final ZuulMessage wrapper = Mockito.mock(ZuulMessage.class, Mockito.CALLS_REAL_METHODS);
+        Mockito.doReturn(msg.getBodyContents()).when(wrapper).getBodyContents();
+
+        final ByteBuf view = wrapper.getBodyView();
+        assertFalse(view.isWritable());
+        assertEquals("Hello World!", view.toString(StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.message.http;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import io.netty.handler.codec.http.Cookie;
+import io.netty.handler.codec.http.DefaultCookie;
+import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link Cookies}.
+ */
+@RunWith(JUnit4.class)
+public class CookiesTest {
+
+    @Test
+    public void lookupByName() {
+        Cookies cookies = new Cookies(Collections.singletonList("a=1; b=\"two\"; a=3; c="));
+
+        assertThat(cookies.getFirstValue("a")).isEqualTo("1");
+        assertThat(cookies.get("a")).hasSize(1);
+        assertThat(cookies.getFirstValue("b")).isEqualTo("two");
+        assertThat(cookies.getFirst("b").wrap()).isTrue();
+        assertThat(cookies.getFirstValue("c")).isEmpty();
+        assertThat(cookies.getFirst("d")).isNull();
+        assertThat(cookies.get("d")).isNull();
+    }
+
+    @Test
+    public void lookupReturnsSameCookieAsGetAll() {
+        Cookies cookies = new Cookies(Arrays.asList("b=1; a=2", "a=3"));
+        Cookie first = cookies.getFirst("a");
+
+        assertThat(names(cookies.getAll())).containsExactly("a", "b", "a").inOrder();
+        assertThat(cookies.getAll().get(0)).isSameInstanceAs(first);
+        assertThat(cookies.get("a")).hasSize(2);
+        assertThat(cookies.getFirst("a")).isSameInstanceAs(first);
+    }
+
+    @Test
+    public void addAfterIndexing() {
+        Cookies cookies = new Cookies(Collections.singletonList("a=1"));
+        cookies.add(new DefaultCookie("b", "2"));
+
+        assertThat(names(cookies.getAll())).containsExactly("a", "b").inOrder();
+        assertThat(cookies.getFirstValue("b")).isEqualTo("2");
+    }
+
+    @Test
+    public void skipsRfc2965Attributes() {
+        Cookies cookies = new Cookies(Collections.singletonList("$Version=1; a=1; $Path=/; $Domain=x; b=2"));
+
+        assertThat(names(cookies.getAll())).containsExactly("a", "b").inOrder();
+    }
+
+    @Test
+    public void matchesServerCookieDecoder() {
+        Random random = new Random(42);
+        char[] alphabet = {'a', 'b', 'c', '=', ';', ' ', ',', '"', '\t', '$'};
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder header = new StringBuilder();
+            if (random.nextInt(10) == 0) {
+                header.append("$Version=1;");
+            }
+            int length = random.nextInt(30);
+            for (int i = 0; i < length; i++) {
+                header.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+
+            List<String> expected = new ArrayList<>();
+            try {
+                for (io.netty.handler.codec.http.cookie.Cookie c : ServerCookieDecoder.LAX.decode(header.toString())) {
+                    expected.add(c.name() + "=" + c.value() + (c.wrap() ? " wrapped" : ""));
+                }
+            } catch (IllegalArgumentException e) {
+                // The decoder rejects names that are empty after trimming; the index skips them.
+                continue;
+            }
+            List<String> actual = new ArrayList<>();
+            for (Cookie c : new Cookies(Collections.singletonList(header.toString())).getAll()) {
+                actual.add(c.name() + "=" + c.value() + (c.wrap() ? " wrapped" : ""));
+            }
+
+            assertWithMessage(header.toString()).that(actual).containsExactlyElementsIn(expected).inOrder();
+        }
+    }
+
+    private static List<String> names(List<Cookie> cookies) {
+        List<String> names = new ArrayList<>();
+        for (Cookie cookie : cookies) {
+            names.add(cookie.name());
+        }
+        return names;
+    }
+}
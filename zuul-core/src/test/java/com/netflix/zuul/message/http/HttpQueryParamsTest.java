@@ -18,7 +18,9 @@ package com.netflix.zuul.message.http;
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import java.util.Iterator;
 import java.util.Locale;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -145,4 +147,92 @@ public class HttpQueryParamsTest {
 
         assertTrue(queryParams.containsIgnoreCase(camelCaseKey));
     }
+
+    @Test
+    public void toEncodedStringKeepsUnmodifiedQuery() {
+        HttpQueryParams actual = HttpQueryParams.parse("k1=%7e&k2=a%20b&k3=~");
+
+        assertEquals("k1=%7e&k2=a%20b&k3=~", actual.toEncodedString());
+        assertEquals("~", actual.getFirst("k1"));
+        assertEquals("a b", actual.getFirst("k2"));
+        assertEquals("k1=%7e&k2=a%20b&k3=~", actual.toEncodedString());
+    }
+
+    @Test
+    public void toEncodedStringReencodesModifiedQuery() {
+        HttpQueryParams actual = HttpQueryParams.parse("k1=%7e&k2=a%20b");
+        actual.add("k3", "v3");
+
+        assertEquals("k1=%7E&k2=a+b&k3=v3", actual.toEncodedString());
+    }
+
+    @Test
+    public void toEncodedStringReencodesRemovalThroughViews() {
+        HttpQueryParams actual = HttpQueryParams.parse("k1=v1&k2=v2");
+        actual.keySet().remove("k1");
+
+        assertEquals("k2=v2", actual.toEncodedString());
+    }
+
+    @Test
+    public void toEncodedStringReencodesChangesThroughGet() {
+        HttpQueryParams actual = HttpQueryParams.parse("k1=v1&k2=v2");
+        actual.get("k1").set(0, "x");
+
+        assertEquals("k1=x&k2=v2", actual.toEncodedString());
+
+        actual = HttpQueryParams.parse("k1=v1&k2=v2");
+        Iterator<String> values = actual.get("k2").iterator();
+        values.next();
+        values.remove();
+        actual.get("k1").add("v3");
+
+        assertEquals("k1=v1&k1=v3", actual.toEncodedString());
+    }
+
+    @Test
+    public void toEncodedStringDropsEmptyParams() {
+        assertEquals("k1&k2=v2", HttpQueryParams.parse("&k1&&k2=v2&").toEncodedString());
+        assertEquals("", HttpQueryParams.parse("").toEncodedString());
+    }
+
+    @Test
+    public void parseDecodesEscapes() {
+        HttpQueryParams actual = HttpQueryParams.parse("a%26b=c%3Dd&e+f=g+h&i=j=k&bad=%zz");
+
+        assertEquals("c=d", actual.getFirst("a&b"));
+        assertEquals("g h", actual.getFirst("e f"));
+        assertEquals("j=k", actual.getFirst("i"));
+        assertEquals("%zz", actual.getFirst("bad"));
+        assertEquals(4, actual.entries().size());
+    }
+
+    @Test
+    public void immutableCopyOfUnparsedParams() {
+        HttpQueryParams copy = HttpQueryParams.parse("k1=v1&k2=").immutableCopy();
+
+        assertTrue(copy.isImmutable());
+        assertEquals("v1", copy.getFirst("k1"));
+        assertTrue(copy.isTrailingEquals("k2"));
+        assertEquals("k1=v1&k2=", copy.toEncodedString());
+        try {
+            copy.add("k3", "v3");
+        }
+        catch (UnsupportedOperationException expected) {
+            assertEquals("k1=v1&k2=", copy.toEncodedString());
+            return;
+        }
+        throw new AssertionError("expected immutable copy");
+    }
+
+    @Test
+    public void cloneIsIndependent() {
+        HttpQueryParams original = HttpQueryParams.parse("k1=v1");
+        HttpQueryParams copy = original.clone();
+        copy.set("k1", "v2");
+
+        assertEquals("k1=v1", original.toEncodedString());
+        assertEquals("k1=v2", copy.toEncodedString());
+        assertFalse(original.contains("k1", "v2"));
+    }
 }
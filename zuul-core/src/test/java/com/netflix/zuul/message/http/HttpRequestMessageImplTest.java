@@ -348,6 +348,23 @@ public class HttpRequestMessageImplTest {
         assertEquals("", HttpRequestMessageImpl.cleanCookieHeader(""));
     }
 
+    @Test
+    public void parseCookies_readsAllCookieHeaders() {
+        Headers headers = new Headers();
+        headers.add("Cookie", "a=1; b=2");
+        headers.add("Cookie", "a=3");
+        request = new HttpRequestMessageImpl(new SessionContext(), "HTTP/1.1", "GET", "/some/where",
+                new HttpQueryParams(), headers, "192.168.0.2", "https", 7002, "localhost");
+
+        Cookies cookies = request.parseCookies();
+
+        assertEquals("1", cookies.getFirstValue("a"));
+        assertEquals(2, cookies.get("a").size());
+        assertEquals("2", cookies.getFirstValue("b"));
+        assertEquals(3, cookies.getAll().size());
+        assertTrue(cookies == request.parseCookies());
+    }
+
     @Test
     public void shouldPreferClientDestPortWhenInitialized() {
         HttpRequestMessageImpl message = new HttpRequestMessageImpl(new SessionContext(), "HTTP/1.1", "POST",
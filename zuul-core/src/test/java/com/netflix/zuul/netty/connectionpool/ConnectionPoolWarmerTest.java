@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.Server;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ConnectionPoolWarmer}.
+ */
+@RunWith(JUnit4.class)
+public class ConnectionPoolWarmerTest {
+
+    private final Server server1 = new Server("10.0.0.1", 7001);
+    private final Server server2 = new Server("10.0.0.2", 7001);
+    private final DefaultEventLoop loop1 = new DefaultEventLoop();
+    private final DefaultEventLoop loop2 = new DefaultEventLoop();
+
+    @After
+    public void tearDown() {
+        loop1.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        loop2.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void warmsEachServerOnEachEventLoopUpToTarget() throws Exception {
+        FakeOrigin origin = new FakeOrigin(server1, server2);
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(origin, config(3, 4, 0));
+        assertThat(warmer.isWarming()).isFalse();
+
+        origin.add(warmer, loop1);
+        origin.add(warmer, loop2);
+        // Being told about an event loop again doesn't start over.
+        warmer.eventLoopAdded(loop1);
+        assertThat(warmer.isWarming()).isTrue();
+        awaitWarm(warmer);
+
+        assertThat(origin.idle(server1, loop1)).isEqualTo(3);
+        assertThat(origin.idle(server2, loop1)).isEqualTo(3);
+        assertThat(origin.idle(server1, loop2)).isEqualTo(3);
+        assertThat(origin.idle(server2, loop2)).isEqualTo(3);
+        assertThat(origin.opened.size()).isEqualTo(12);
+    }
+
+    @Test
+    public void targetIsCappedAtWaterline() throws Exception {
+        FakeOrigin origin = new FakeOrigin(server1);
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(origin, config(10, 2, 0));
+
+        origin.add(warmer, loop1);
+        awaitWarm(warmer);
+
+        assertThat(origin.idle(server1, loop1)).isEqualTo(2);
+    }
+
+    @Test
+    public void disabledByDefault() {
+        FakeOrigin origin = new FakeOrigin(server1);
+        ConnectionPoolWarmer warmer =
+                new ConnectionPoolWarmer(origin, new ConnectionPoolConfigImpl("origin", new DefaultClientConfigImpl()));
+
+        origin.add(warmer, loop1);
+        warmer.serversAdded(Collections.singletonList(server2));
+
+        assertThat(warmer.isWarming()).isFalse();
+        assertThat(origin.opened).isEmpty();
+    }
+
+    @Test
+    public void addedServersAreWarmedOnKnownEventLoops() throws Exception {
+        FakeOrigin origin = new FakeOrigin(server1);
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(origin, config(2, 4, 0));
+        origin.add(warmer, loop1);
+        awaitWarm(warmer);
+
+        origin.servers.add(server2);
+        warmer.serversAdded(Collections.singletonList(server2));
+        awaitWarm(warmer);
+
+        assertThat(origin.idle(server2, loop1)).isEqualTo(2);
+        assertThat(origin.idle(server2, loop2)).isEqualTo(0);
+    }
+
+    @Test
+    public void connectsAreRateLimited() throws Exception {
+        FakeOrigin origin = new FakeOrigin(server1, server2);
+        // One connect every 100ms.
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(origin, config(2, 4, 10));
+
+        long start = System.nanoTime();
+        origin.add(warmer, loop1);
+        awaitWarm(warmer);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(origin.opened.size()).isEqualTo(4);
+        assertThat(elapsedMillis).isAtLeast(250);
+    }
+
+    @Test
+    public void stopsOnFailedConnect() throws Exception {
+        FakeOrigin origin = new FakeOrigin(server1);
+        origin.failing = true;
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(origin, config(3, 4, 0));
+
+        origin.add(warmer, loop1);
+        awaitWarm(warmer);
+
+        assertThat(origin.opened.size()).isEqualTo(1);
+        assertThat(origin.idle(server1, loop1)).isEqualTo(0);
+    }
+
+    @Test
+    public void stopsWhenConnectionsDontStayOpen() throws Exception {
+        FakeOrigin origin = new FakeOrigin(server1);
+        origin.closing = true;
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(origin, config(3, 4, 0));
+
+        origin.add(warmer, loop1);
+        awaitWarm(warmer);
+
+        assertThat(origin.opened.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void skipsServersThatArentWarmable() throws Exception {
+        FakeOrigin origin = new FakeOrigin(server1, server2);
+        origin.unwarmable.add(server2);
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(origin, config(3, 4, 0));
+
+        origin.add(warmer, loop1);
+        awaitWarm(warmer);
+
+        assertThat(origin.idle(server1, loop1)).isEqualTo(3);
+        assertThat(origin.opened).doesNotContain(server2);
+    }
+
+    @Test
+    public void stopsAfterShutdown() throws Exception {
+        FakeOrigin origin = new FakeOrigin(server1);
+        ConnectionPoolWarmer warmer = new ConnectionPoolWarmer(origin, config(3, 4, 10));
+
+        warmer.shutdown();
+        origin.add(warmer, loop1);
+        awaitWarm(warmer);
+
+        assertThat(origin.opened).isEmpty();
+    }
+
+    private static ConnectionPoolConfig config(int warmTarget, int waterline, int connectsPerSecond) {
+        return new ConnectionPoolConfigImpl("origin", new DefaultClientConfigImpl()) {
+            @Override
+            public int perServerWarmTarget() {
+                return warmTarget;
+            }
+
+            @Override
+            public int perServerWaterline() {
+                return waterline;
+            }
+
+            @Override
+            public int getWarmUpConnectsPerSecond() {
+                return connectsPerSecond;
+            }
+        };
+    }
+
+    private static void awaitWarm(ConnectionPoolWarmer warmer) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (warmer.isWarming()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static final class FakeOrigin implements ConnectionPoolWarmer.Origin {
+        final List<EventLoop> eventLoops = new ArrayList<>();
+        final List<Server> servers;
+        final Map<String, Integer> idle = new ConcurrentHashMap<>();
+        final List<Server> opened = Collections.synchronizedList(new ArrayList<>());
+        final List<Server> unwarmable = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean failing;
+        volatile boolean closing;
+
+        FakeOrigin(Server... servers) {
+            this.servers = Collections.synchronizedList(new ArrayList<>(Arrays.asList(servers)));
+        }
+
+        void add(ConnectionPoolWarmer warmer, EventLoop eventLoop) {
+            eventLoops.add(eventLoop);
+            warmer.eventLoopAdded(eventLoop);
+        }
+
+        int idle(Server server, EventLoop eventLoop) {
+            return idle.getOrDefault(server.getId() + eventLoop, 0);
+        }
+
+        @Override
+        public Collection<EventLoop> eventLoops() {
+            return eventLoops;
+        }
+
+        @Override
+        public Collection<Server> warmableServers() {
+            return new ArrayList<>(servers);
+        }
+
+        @Override
+        public boolean isWarmable(Server server) {
+            return servers.contains(server) && !unwarmable.contains(server);
+        }
+
+        @Override
+        public int idleConnections(Server server, EventLoop eventLoop) {
+            assertThat(eventLoop.inEventLoop()).isTrue();
+            return idle(server, eventLoop);
+        }
+
+        @Override
+        public Future<?> openIdleConnection(Server server, EventLoop eventLoop) {
+            assertThat(eventLoop.inEventLoop()).isTrue();
+            opened.add(server);
+            if (failing) {
+                return eventLoop.newFailedFuture(new RuntimeException("connect failed"));
+            }
+            if (!closing) {
+                idle.merge(server.getId() + eventLoop, 1, Integer::sum);
+            }
+            return eventLoop.newSucceededFuture(null);
+        }
+    }
+}
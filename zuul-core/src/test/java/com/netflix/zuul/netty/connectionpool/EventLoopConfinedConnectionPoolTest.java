@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.spectator.api.Registry;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalChannel;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link EventLoopConfinedConnectionPool}.
+ */
+@RunWith(JUnit4.class)
+public class EventLoopConfinedConnectionPoolTest {
+
+    private static final Registry registry = new NoopRegistry();
+
+    private final Server server = new Server("localhost", 7001);
+    private final ServerStats stats = new ServerStats();
+    private final AtomicInteger connsInPool = new AtomicInteger();
+    private final DefaultEventLoop loop1 = new DefaultEventLoop();
+    private final DefaultEventLoop loop2 = new DefaultEventLoop();
+
+    @After
+    public void tearDown() {
+        loop1.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        loop2.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void idleStack_popsMostRecentFirst() {
+        EventLoopConfinedConnectionPool.IdleStack stack = new EventLoopConfinedConnectionPool.IdleStack(null);
+        PooledConnection a = embeddedConnection();
+        PooledConnection b = embeddedConnection();
+        PooledConnection c = embeddedConnection();
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+
+        assertThat(stack.size()).isEqualTo(3);
+        assertThat(stack.pop()).isSameInstanceAs(c);
+        assertThat(stack.pop()).isSameInstanceAs(b);
+        assertThat(stack.pop()).isSameInstanceAs(a);
+        assertThat(stack.pop()).isNull();
+        assertThat(stack.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void idleStack_removeFromMiddle() {
+        EventLoopConfinedConnectionPool.IdleStack stack = new EventLoopConfinedConnectionPool.IdleStack(null);
+        PooledConnection a = embeddedConnection();
+        PooledConnection b = embeddedConnection();
+        PooledConnection c = embeddedConnection();
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+
+        assertThat(stack.remove(b)).isTrue();
+        assertThat(stack.remove(b)).isFalse();
+        assertThat(stack.size()).isEqualTo(2);
+        assertThat(stack.pop()).isSameInstanceAs(c);
+        assertThat(stack.pop()).isSameInstanceAs(a);
+        assertThat(stack.remove(a)).isFalse();
+    }
+
+    @Test
+    public void idleStack_compactsHolesInsteadOfGrowing() {
+        EventLoopConfinedConnectionPool.IdleStack stack = new EventLoopConfinedConnectionPool.IdleStack(null);
+        List<PooledConnection> conns = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            PooledConnection conn = embeddedConnection();
+            conns.add(conn);
+            stack.push(conn);
+        }
+        // Punch holes below the top, then keep pushing past the initial capacity.
+        for (int i = 0; i < 7; i += 2) {
+            assertThat(stack.remove(conns.get(i))).isTrue();
+        }
+        List<PooledConnection> more = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            PooledConnection conn = embeddedConnection();
+            more.add(conn);
+            stack.push(conn);
+        }
+
+        assertThat(stack.size()).isEqualTo(8);
+        // Removal still works after connections have moved.
+        assertThat(stack.remove(conns.get(3))).isTrue();
+        List<PooledConnection> popped = new ArrayList<>();
+        PooledConnection conn;
+        while ((conn = stack.pop()) != null) {
+            popped.add(conn);
+        }
+        assertThat(popped).containsExactly(
+                more.get(3), more.get(2), more.get(1), more.get(0), conns.get(7), conns.get(5), conns.get(1))
+                .inOrder();
+    }
+
+    @Test
+    public void releaseAndPoll_confinedToEventLoop() throws Exception {
+        EventLoopConfinedConnectionPool pool = pool(-1);
+        PooledConnection conn1 = connection(loop1);
+        PooledConnection conn2 = connection(loop2);
+
+        assertThat(on(loop1, () -> pool.release(conn1))).isTrue();
+        assertThat(on(loop2, () -> pool.release(conn2))).isTrue();
+        assertThat(connsInPool.get()).isEqualTo(2);
+        assertThat(conn1.isInPool()).isTrue();
+
+        assertThat(on(loop1, () -> pool.pollIdleConnection(loop1))).isSameInstanceAs(conn1);
+        assertThat(on(loop1, () -> pool.pollIdleConnection(loop1))).isNull();
+        assertThat(on(loop2, () -> pool.pollIdleConnection(loop2))).isSameInstanceAs(conn2);
+        // Not from outside the event loop.
+        assertThat(pool.pollIdleConnection(loop1)).isNull();
+    }
+
+    @Test
+    public void release_respectsWaterline() throws Exception {
+        EventLoopConfinedConnectionPool pool = pool(2);
+        PooledConnection conn1 = connection(loop1);
+        PooledConnection conn2 = connection(loop1);
+        PooledConnection conn3 = connection(loop1);
+
+        assertThat(on(loop1, () -> pool.release(conn1))).isTrue();
+        assertThat(on(loop1, () -> pool.release(conn2))).isTrue();
+        assertThat(on(loop1, () -> pool.release(conn3))).isFalse();
+        assertThat(conn3.isInPool()).isFalse();
+        assertThat(conn3.getChannel().isOpen()).isFalse();
+        assertThat(connsInPool.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void remove() throws Exception {
+        EventLoopConfinedConnectionPool pool = pool(-1);
+        PooledConnection conn1 = connection(loop1);
+        PooledConnection conn2 = connection(loop1);
+        on(loop1, () -> pool.release(conn1));
+        on(loop1, () -> pool.release(conn2));
+
+        assertThat(on(loop1, () -> pool.remove(conn1))).isTrue();
+        assertThat(conn1.isInPool()).isFalse();
+        assertThat(connsInPool.get()).isEqualTo(1);
+        assertThat(on(loop1, () -> pool.pollIdleConnection(loop1))).isSameInstanceAs(conn2);
+        assertThat(on(loop1, () -> pool.pollIdleConnection(loop1))).isNull();
+    }
+
+    @Test
+    public void releaseAndRemove_fromOutsideEventLoopAreHandedOver() throws Exception {
+        EventLoopConfinedConnectionPool pool = pool(-1);
+        PooledConnection conn = connection(loop1);
+
+        assertThat(pool.release(conn)).isTrue();
+        // Wait for the event loop to run the release.
+        on(loop1, () -> null);
+        assertThat(conn.isInPool()).isTrue();
+
+        assertThat(pool.remove(conn)).isTrue();
+        on(loop1, () -> null);
+        assertThat(conn.isInPool()).isFalse();
+        assertThat(connsInPool.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void shutdown_closesIdleConnections() throws Exception {
+        EventLoopConfinedConnectionPool pool = pool(-1);
+        PooledConnection conn1 = connection(loop1);
+        PooledConnection conn2 = connection(loop2);
+        on(loop1, () -> pool.release(conn1));
+        on(loop2, () -> pool.release(conn2));
+
+        pool.shutdown();
+        on(loop1, () -> null);
+        on(loop2, () -> null);
+
+        assertThat(conn1.getChannel().isOpen()).isFalse();
+        assertThat(conn2.getChannel().isOpen()).isFalse();
+
+        // As the connection pool handler does when each channel goes inactive.
+        assertThat(on(loop1, () -> pool.remove(conn1))).isTrue();
+        assertThat(on(loop2, () -> pool.remove(conn2))).isTrue();
+        assertThat(conn1.isInPool()).isFalse();
+        assertThat(conn2.isInPool()).isFalse();
+        assertThat(connsInPool.get()).isEqualTo(0);
+    }
+
+    private EventLoopConfinedConnectionPool pool(int waterline) {
+        ConnectionPoolConfig config = new ConnectionPoolConfigImpl("origin", new DefaultClientConfigImpl()) {
+            @Override
+            public int perServerWaterline() {
+                return waterline;
+            }
+        };
+        return new EventLoopConfinedConnectionPool(server, stats, null, new InetSocketAddress("localhost", 7001),
+                null, null, config, null, registry.counter("create"), registry.counter("createSuccess"),
+                registry.counter("createFail"), registry.counter("request"), registry.counter("reuse"),
+                registry.counter("notOpen"), registry.counter("maxConns"), registry.timer("establish"),
+                connsInPool, new AtomicInteger(), new AtomicInteger(), registry.timer("wait"));
+    }
+
+    private PooledConnection connection(EventLoop loop) throws InterruptedException {
+        LocalChannel channel = new LocalChannel();
+        loop.register(channel).sync();
+        return new PooledConnection(channel, server, null, null, stats, registry.counter("close"),
+                registry.counter("closeBusy"));
+    }
+
+    private PooledConnection embeddedConnection() {
+        return new PooledConnection(new EmbeddedChannel(), server, null, null, stats, registry.counter("close"),
+                registry.counter("closeBusy"));
+    }
+
+    private static <T> T on(EventLoop loop, Callable<T> task) throws Exception {
+        return loop.submit(task).get();
+    }
+}
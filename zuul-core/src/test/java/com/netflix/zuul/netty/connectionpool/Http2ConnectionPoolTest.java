@@ -0,0 +1,360 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.zuul.exception.OutboundErrorType;
+import com.netflix.zuul.passport.CurrentPassport;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link Http2ConnectionPool}, against an HTTP/2 origin on the loopback interface.
+ */
+@RunWith(JUnit4.class)
+public class Http2ConnectionPoolTest {
+
+    private static final Registry registry = new NoopRegistry();
+
+    private final NioEventLoopGroup serverGroup = new NioEventLoopGroup(1);
+    private final NioEventLoopGroup clientGroup = new NioEventLoopGroup(1);
+    private final AtomicInteger serverConnections = new AtomicInteger();
+    private final ServerStats stats = new ServerStats();
+    private final AtomicInteger connsInUse = new AtomicInteger();
+
+    private Class<? extends Channel> previousChannelType;
+    private Channel serverChannel;
+    private Server server;
+    private int originMaxStreams = 100;
+    private int maxStreams = 100;
+    private int maxConnections = -1;
+    private int trimWindow = -1;
+
+    @Before
+    public void setUp() {
+        previousChannelType = com.netflix.zuul.netty.server.Server.defaultOutboundChannelType.get();
+        com.netflix.zuul.netty.server.Server.defaultOutboundChannelType.set(NioSocketChannel.class);
+    }
+
+    @After
+    public void tearDown() {
+        com.netflix.zuul.netty.server.Server.defaultOutboundChannelType.set(previousChannelType);
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        serverGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void multiplexesRequestsOverOneConnection() throws Exception {
+        startOrigin();
+        Http2ConnectionPool pool = pool();
+        EventLoop loop = clientGroup.next();
+
+        List<PooledConnection> conns = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            conns.add(acquire(pool, loop));
+        }
+        for (int i = 0; i < conns.size(); i++) {
+            HttpResponse response = get(conns.get(i), "/path" + i);
+            assertThat(response.status()).isEqualTo(HttpResponseStatus.OK);
+            assertThat(response.headers().get("x-path")).isEqualTo("/path" + i);
+            assertThat(response.headers().get("x-authority")).isEqualTo("origin.example.com");
+        }
+
+        assertThat(serverConnections.get()).isEqualTo(1);
+        assertThat(stats.getOpenConnectionsCount()).isEqualTo(5);
+        assertThat(connsInUse.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void streamsCanBeWrittenToAsSoonAsAcquired() throws Exception {
+        startOrigin();
+        Http2ConnectionPool pool = pool();
+        EventLoop loop = clientGroup.next();
+
+        // The connection preface has to go out before the first stream's frames, even on a new connection.
+        Promise<Promise<HttpResponse>> sent = loop.newPromise();
+        loop.execute(() -> pool.acquire(loop, CurrentPassport.create(), new AtomicReference<>())
+                .addListener((Future<PooledConnection> f) -> sent.setSuccess(send(f.getNow(), "/"))));
+
+        HttpResponse response = sent.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS);
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.OK);
+    }
+
+    @Test
+    public void respectsOriginMaxConcurrentStreams() throws Exception {
+        originMaxStreams = 2;
+        startOrigin();
+        Http2ConnectionPool pool = pool();
+        EventLoop loop = clientGroup.next();
+
+        // Once a response is back, the origin's settings are known.  The stream is done by then, so doesn't count.
+        get(acquire(pool, loop), "/");
+        List<PooledConnection> conns = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            conns.add(acquire(pool, loop));
+        }
+
+        assertThat(parents(conns)).hasSize(3);
+        for (PooledConnection conn : conns) {
+            assertThat(get(conn, "/").status()).isEqualTo(HttpResponseStatus.OK);
+        }
+    }
+
+    @Test
+    public void respectsConfiguredMaxConcurrentStreams() throws Exception {
+        maxStreams = 2;
+        startOrigin();
+        Http2ConnectionPool pool = pool();
+        EventLoop loop = clientGroup.next();
+
+        List<PooledConnection> conns = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            conns.add(acquire(pool, loop));
+        }
+
+        assertThat(parents(conns)).hasSize(2);
+    }
+
+    @Test
+    public void failsAtMaxConnectionsPerHost() throws Exception {
+        maxStreams = 1;
+        maxConnections = 1;
+        startOrigin();
+        Http2ConnectionPool pool = pool();
+        EventLoop loop = clientGroup.next();
+        acquire(pool, loop);
+
+        try {
+            acquire(pool, loop);
+            fail();
+        }
+        catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(OriginConnectException.class);
+            assertThat(((OriginConnectException) e.getCause()).getErrorType())
+                    .isEqualTo(OutboundErrorType.ORIGIN_SERVER_MAX_CONNS);
+        }
+        assertThat(stats.getActiveRequestsCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void isNotWarmable() throws Exception {
+        startOrigin();
+
+        assertThat(pool().isWarmable()).isFalse();
+    }
+
+    @Test
+    public void releaseClosesStreamAndFreesItsSlot() throws Exception {
+        maxStreams = 1;
+        startOrigin();
+        Http2ConnectionPool pool = pool();
+        EventLoop loop = clientGroup.next();
+
+        PooledConnection conn = acquire(pool, loop);
+        get(conn, "/");
+        assertThat(pool.release(conn)).isFalse();
+        conn.getChannel().closeFuture().sync();
+        PooledConnection next = acquire(pool, loop);
+
+        assertThat(next.getChannel()).isNotSameInstanceAs(conn.getChannel());
+        assertThat(next.getChannel().parent()).isSameInstanceAs(conn.getChannel().parent());
+        assertThat(serverConnections.get()).isEqualTo(1);
+        assertThat(stats.getOpenConnectionsCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void maintenance_closesConnectionsWithoutStreams() throws Exception {
+        trimWindow = 1000;
+        startOrigin();
+        Http2ConnectionPool pool = pool();
+        EventLoop loop = clientGroup.next();
+        PooledConnection busy = acquire(pool, loop);
+        maxStreams = 1;
+        PooledConnection idle = acquire(pool, loop);
+        Channel idleParent = idle.getChannel().parent();
+        assertThat(idleParent).isNotSameInstanceAs(busy.getChannel().parent());
+        pool.release(idle);
+        idle.getChannel().closeFuture().sync();
+
+        ConnectionPoolMaintenance.Evictions evictions = new ConnectionPoolMaintenance.Evictions();
+        long now = System.currentTimeMillis() + 5000;
+        loop.submit(() -> pool.maintainIdleConnections(loop, now, evictions)).get();
+
+        assertThat(evictions.trimmed.get()).isEqualTo(1);
+        idleParent.closeFuture().sync();
+        assertThat(busy.getChannel().parent().isActive()).isTrue();
+    }
+
+    private void startOrigin() throws InterruptedException {
+        serverChannel = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        serverConnections.incrementAndGet();
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forServer()
+                                .initialSettings(Http2Settings.defaultSettings().maxConcurrentStreams(originMaxStreams))
+                                .build());
+                        ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+                            @Override
+                            protected void initChannel(Channel stream) {
+                                stream.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+                                stream.pipeline().addLast(new HttpObjectAggregator(1024));
+                                stream.pipeline().addLast(new EchoHandler());
+                            }
+                        }));
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .sync()
+                .channel();
+        InetSocketAddress address = (InetSocketAddress) serverChannel.localAddress();
+        server = new Server("127.0.0.1", address.getPort());
+    }
+
+    private Http2ConnectionPool pool() {
+        ConnectionPoolConfig config = new ConnectionPoolConfigImpl("origin", new DefaultClientConfigImpl()) {
+            @Override
+            public boolean isHttp2() {
+                return true;
+            }
+
+            @Override
+            public int getHttp2MaxConcurrentStreams() {
+                return maxStreams;
+            }
+
+            @Override
+            public int maxConnectionsPerHost() {
+                return maxConnections;
+            }
+
+            @Override
+            public int getIdleTrimWindow() {
+                return trimWindow;
+            }
+        };
+        NettyClientConnectionFactory connectionFactory =
+                new NettyClientConnectionFactory(config, new DefaultOriginChannelInitializer(config, registry));
+        ClientChannelManager channelManager = mock(ClientChannelManager.class);
+        return new Http2ConnectionPool(server, stats, DefaultClientChannelManager.deriveInstanceInfoInternal(server),
+                new InetSocketAddress(server.getHost(), server.getPort()), connectionFactory,
+                ch -> new PooledConnection(ch, server, channelManager, null, stats, registry.counter("close"),
+                        registry.counter("closeBusy")),
+                config, null, registry.counter("create"), registry.counter("createSuccess"),
+                registry.counter("createFail"), registry.counter("request"), registry.counter("reuse"),
+                registry.counter("notOpen"), registry.counter("maxConns"), registry.timer("establish"),
+                new AtomicInteger(), connsInUse);
+    }
+
+    private static PooledConnection acquire(Http2ConnectionPool pool, EventLoop loop) throws Exception {
+        return pool.acquire(loop, CurrentPassport.create(), new AtomicReference<>()).get(10, TimeUnit.SECONDS);
+    }
+
+    private static Set<Channel> parents(List<PooledConnection> conns) {
+        return conns.stream().map(conn -> conn.getChannel().parent()).collect(Collectors.toSet());
+    }
+
+    private static HttpResponse get(PooledConnection conn, String path) throws Exception {
+        return send(conn, path).get(10, TimeUnit.SECONDS);
+    }
+
+    private static Promise<HttpResponse> send(PooledConnection conn, String path) {
+        Channel ch = conn.getChannel();
+        Promise<HttpResponse> response = ch.eventLoop().newPromise();
+        ch.pipeline().addBefore("connectionPoolHandler", "responseReceiver", new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                if (msg instanceof HttpResponse) {
+                    response.trySuccess((HttpResponse) msg);
+                }
+                if (msg instanceof LastHttpContent) {
+                    ctx.pipeline().remove(this);
+                }
+                ReferenceCountUtil.release(msg);
+            }
+        });
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path);
+        request.headers().set(HttpHeaderNames.HOST, "origin.example.com");
+        ch.writeAndFlush(request);
+        ch.read();
+        return response;
+    }
+
+    private static final class EchoHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            DefaultFullHttpResponse response =
+                    new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            response.headers().set("x-path", request.uri());
+            response.headers().set("x-authority", String.valueOf(request.headers().get(HttpHeaderNames.HOST)));
+            response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+            ctx.writeAndFlush(response);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.zuul.exception.OutboundErrorType;
+import com.netflix.zuul.passport.CurrentPassport;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.channel.local.LocalChannel;
+import io.netty.util.concurrent.Promise;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link PerServerConnectionPool} and {@link ConnectionPoolMaintenance}.
+ */
+@RunWith(JUnit4.class)
+public class PerServerConnectionPoolTest {
+
+    private static final Registry registry = new NoopRegistry();
+
+    private final Server server = new Server("localhost", 7001);
+    private final ServerStats stats = new ServerStats();
+    private final AtomicInteger connsInPool = new AtomicInteger();
+    private final AtomicInteger connsWaiting = new AtomicInteger();
+    private final DefaultEventLoop loop1 = new DefaultEventLoop();
+    private final DefaultEventLoop loop2 = new DefaultEventLoop();
+
+    private int warmTarget = 0;
+    private int trimWindow = -1;
+    private int maxAge = -1;
+    private int maxConnections = -1;
+    private int maxWaiters = 0;
+    private int waitTimeout = 10_000;
+
+    @After
+    public void tearDown() {
+        loop1.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        loop2.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void reusesMostRecentlyReleasedFirst() throws Exception {
+        PerServerConnectionPool pool = pool();
+        PooledConnection conn1 = connection(loop1);
+        PooledConnection conn2 = connection(loop1);
+        on(loop1, () -> pool.release(conn1));
+        on(loop1, () -> pool.release(conn2));
+
+        assertThat(on(loop1, () -> pool.tryGettingFromConnectionPool(loop1))).isSameInstanceAs(conn2);
+        assertThat(on(loop1, () -> pool.tryGettingFromConnectionPool(loop1))).isSameInstanceAs(conn1);
+    }
+
+    @Test
+    public void maintenance_trimsConnectionsUnusedForWindow() throws Exception {
+        trimWindow = 1000;
+        for (PerServerConnectionPool pool : pools()) {
+            connsInPool.set(0);
+            PooledConnection cold = connection(loop1);
+            PooledConnection hot = connection(loop1);
+            on(loop1, () -> pool.release(cold));
+            on(loop1, () -> pool.release(hot));
+            long now = System.currentTimeMillis();
+
+            ConnectionPoolMaintenance.Evictions evictions = maintain(pool, loop1, now);
+            assertThat(evictions.trimmed.get()).isEqualTo(0);
+            assertThat(connsInPool.get()).isEqualTo(2);
+
+            // Only the connection that was reused since stays.
+            Thread.sleep(5);
+            on(loop1, () -> pool.release(pool.tryGettingFromConnectionPool(loop1)));
+            evictions = maintain(pool, loop1, hot.getIdleSinceTS() + 1000);
+
+            assertThat(evictions.trimmed.get()).isEqualTo(1);
+            assertThat(cold.getChannel().isOpen()).isFalse();
+            assertThat(cold.isInPool()).isFalse();
+            assertThat(hot.isInPool()).isTrue();
+            assertThat(connsInPool.get()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void maintenance_trimmingKeepsWarmTarget() throws Exception {
+        trimWindow = 1000;
+        warmTarget = 2;
+        PerServerConnectionPool pool = pool();
+        for (int i = 0; i < 5; i++) {
+            PooledConnection conn = connection(loop1);
+            on(loop1, () -> pool.release(conn));
+        }
+
+        ConnectionPoolMaintenance.Evictions evictions = maintain(pool, loop1, System.currentTimeMillis() + 5000);
+
+        assertThat(evictions.trimmed.get()).isEqualTo(3);
+        assertThat(connsInPool.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void maintenance_closesExpiredAndStaleConnections() throws Exception {
+        maxAge = 10_000;
+        PerServerConnectionPool pool = pool();
+        PooledConnection fresh = connection(loop1);
+        PooledConnection stale = connection(loop1);
+        on(loop1, () -> pool.release(fresh));
+        on(loop1, () -> pool.release(stale));
+        stale.getChannel().close().sync();
+        long now = System.currentTimeMillis();
+
+        ConnectionPoolMaintenance.Evictions evictions = maintain(pool, loop1, now);
+        assertThat(evictions.stale.get()).isEqualTo(1);
+        assertThat(evictions.expired.get()).isEqualTo(0);
+        assertThat(fresh.isInPool()).isTrue();
+
+        evictions = maintain(pool, loop1, now + 10_001);
+        assertThat(evictions.expired.get()).isEqualTo(1);
+        assertThat(fresh.getChannel().isOpen()).isFalse();
+        assertThat(connsInPool.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void isExpired_appliesJitter() {
+        PooledConnection conn = connection();
+        long created = conn.getCreationTS();
+
+        assertThat(conn.isExpired(created + 1_000_000, -1, 10)).isFalse();
+        assertThat(conn.isExpired(created + 10_000, 10_000, 0)).isFalse();
+        assertThat(conn.isExpired(created + 10_001, 10_000, 0)).isTrue();
+        // Never later than the max age, nor earlier than the jitter allows.
+        assertThat(conn.isExpired(created + 10_001, 10_000, 50)).isTrue();
+        assertThat(conn.isExpired(created + 5_000, 10_000, 50)).isFalse();
+    }
+
+    @Test
+    public void maintenance_runsOnEveryEventLoop() throws Exception {
+        trimWindow = 0;
+        PerServerConnectionPool pool = pool();
+        PooledConnection conn1 = connection(loop1);
+        PooledConnection conn2 = connection(loop2);
+        on(loop1, () -> pool.release(conn1));
+        on(loop2, () -> pool.release(conn2));
+        Thread.sleep(5);
+
+        ConnectionPoolMaintenance maintenance = new ConnectionPoolMaintenance(config(),
+                () -> Arrays.asList(loop1, loop2), () -> Collections.singletonList(pool), connsInPool, "test");
+        CountDownLatch done = new CountDownLatch(1);
+        maintenance.runOnce(done::countDown);
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(connsInPool.get()).isEqualTo(0);
+        assertThat(conn1.getChannel().isOpen()).isFalse();
+        assertThat(conn2.getChannel().isOpen()).isFalse();
+    }
+
+    @Test
+    public void atMaxConnections_waitsForReleasedConnection() throws Exception {
+        maxConnections = 1;
+        maxWaiters = 10;
+        PerServerConnectionPool pool = connectingPool();
+        PooledConnection first = acquire(pool, loop1).get(10, TimeUnit.SECONDS);
+
+        Promise<PooledConnection> second = acquire(pool, loop1);
+        assertThat(second.isDone()).isFalse();
+        assertThat(connsWaiting.get()).isEqualTo(1);
+
+        assertThat(on(loop1, () -> pool.release(first))).isTrue();
+        assertThat(second.get(10, TimeUnit.SECONDS)).isSameInstanceAs(first);
+        assertThat(first.isInPool()).isFalse();
+        assertThat(connsWaiting.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void atMaxConnections_waitsForConnectionToClose() throws Exception {
+        maxConnections = 1;
+        maxWaiters = 10;
+        PerServerConnectionPool pool = connectingPool();
+        PooledConnection first = acquire(pool, loop1).get(10, TimeUnit.SECONDS);
+        Promise<PooledConnection> second = acquire(pool, loop2);
+
+        // Makes room for a new connection on the other event loop.
+        on(loop1, first::close);
+
+        PooledConnection conn = second.get(10, TimeUnit.SECONDS);
+        assertThat(conn).isNotSameInstanceAs(first);
+        assertThat(conn.getChannel().eventLoop()).isSameInstanceAs(loop2);
+        assertThat(connsWaiting.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void atMaxConnections_waitingTimesOut() throws Exception {
+        maxConnections = 1;
+        maxWaiters = 10;
+        waitTimeout = 20;
+        PerServerConnectionPool pool = connectingPool();
+        acquire(pool, loop1).get(10, TimeUnit.SECONDS);
+
+        Promise<PooledConnection> second = acquire(pool, loop1);
+
+        assertMaxConnsFailure(second);
+        assertThat(connsWaiting.get()).isEqualTo(0);
+        assertThat(stats.getActiveRequestsCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void atMaxConnections_failsWhenTooManyWaiting() throws Exception {
+        maxConnections = 1;
+        PerServerConnectionPool pool = connectingPool();
+        acquire(pool, loop1).get(10, TimeUnit.SECONDS);
+        // Without waiters, fails straight away.
+        assertMaxConnsFailure(acquire(pool, loop1));
+
+        maxWaiters = 1;
+        Promise<PooledConnection> waiting = acquire(pool, loop1);
+        Promise<PooledConnection> tooMany = acquire(pool, loop1);
+
+        assertThat(waiting.isDone()).isFalse();
+        assertMaxConnsFailure(tooMany);
+        // Only the connection in use and the waiting request are active.
+        assertThat(stats.getActiveRequestsCount()).isEqualTo(2);
+    }
+
+    private static void assertMaxConnsFailure(Promise<PooledConnection> promise) throws Exception {
+        try {
+            promise.get(10, TimeUnit.SECONDS);
+            throw new AssertionError("Expected to fail");
+        }
+        catch (ExecutionException e) {
+            assertThat(((OriginConnectException) e.getCause()).getErrorType())
+                    .isEqualTo(OutboundErrorType.ORIGIN_SERVER_MAX_CONNS);
+        }
+    }
+
+    private static Promise<PooledConnection> acquire(PerServerConnectionPool pool, EventLoop loop) throws Exception {
+        return on(loop, () -> pool.acquire(loop, CurrentPassport.create(), new AtomicReference<>()));
+    }
+
+    private ConnectionPoolMaintenance.Evictions maintain(PerServerConnectionPool pool, EventLoop loop, long now)
+            throws Exception {
+        ConnectionPoolMaintenance.Evictions evictions = new ConnectionPoolMaintenance.Evictions();
+        on(loop, () -> {
+            pool.maintainIdleConnections(loop, now, evictions);
+            return null;
+        });
+        return evictions;
+    }
+
+    private ConnectionPoolConfig config() {
+        return new ConnectionPoolConfigImpl("origin", new DefaultClientConfigImpl()) {
+            @Override
+            public int perServerWaterline() {
+                return -1;
+            }
+
+            @Override
+            public int perServerWarmTarget() {
+                return warmTarget;
+            }
+
+            @Override
+            public int getIdleTrimWindow() {
+                return trimWindow;
+            }
+
+            @Override
+            public int getMaxConnectionAge() {
+                return maxAge;
+            }
+
+            @Override
+            public int getMaxConnectionAgeJitterPercent() {
+                return 0;
+            }
+
+            @Override
+            public int maxConnectionsPerHost() {
+                return maxConnections;
+            }
+
+            @Override
+            public int getMaxConnectionWaiters() {
+                return maxWaiters;
+            }
+
+            @Override
+            public int getConnectionWaitTimeout() {
+                return waitTimeout;
+            }
+        };
+    }
+
+    private Collection<PerServerConnectionPool> pools() {
+        return Arrays.asList(pool(), confinedPool());
+    }
+
+    private PerServerConnectionPool pool() {
+        return new PerServerConnectionPool(server, stats, null, new InetSocketAddress("localhost", 7001),
+                null, null, config(), null, registry.counter("create"), registry.counter("createSuccess"),
+                registry.counter("createFail"), registry.counter("request"), registry.counter("reuse"),
+                registry.counter("notOpen"), registry.counter("maxConns"), registry.timer("establish"),
+                connsInPool, new AtomicInteger()) {
+            @Override
+            protected boolean isValidFromPool(PooledConnection conn) {
+                // The channels aren't connected to anything.
+                return conn.getChannel().isOpen();
+            }
+        };
+    }
+
+    private PerServerConnectionPool confinedPool() {
+        return new EventLoopConfinedConnectionPool(server, stats, null, new InetSocketAddress("localhost", 7001),
+                null, null, config(), null, registry.counter("create"), registry.counter("createSuccess"),
+                registry.counter("createFail"), registry.counter("request"), registry.counter("reuse"),
+                registry.counter("notOpen"), registry.counter("maxConns"), registry.timer("establish"),
+                connsInPool, new AtomicInteger(), new AtomicInteger(), registry.timer("wait")) {
+            @Override
+            protected boolean isValidFromPool(PooledConnection conn) {
+                return conn.getChannel().isOpen();
+            }
+        };
+    }
+
+    /**
+     * A pool whose new connections are local channels that aren't connected to anything.
+     */
+    private PerServerConnectionPool connectingPool() {
+        return new PerServerConnectionPool(server, stats, DefaultClientChannelManager.deriveInstanceInfoInternal(server),
+                new InetSocketAddress("localhost", 7001), null,
+                ch -> new PooledConnection(ch, server, null, null, stats, registry.counter("close"),
+                        registry.counter("closeBusy")),
+                config(), null, registry.counter("create"), registry.counter("createSuccess"),
+                registry.counter("createFail"), registry.counter("request"), registry.counter("reuse"),
+                registry.counter("notOpen"), registry.counter("maxConns"), registry.timer("establish"),
+                connsInPool, new AtomicInteger(), connsWaiting, registry.timer("wait")) {
+            @Override
+            protected ChannelFuture connectToServer(
+                    EventLoop eventLoop, CurrentPassport passport, SocketAddress serverAddr) {
+                return eventLoop.register(new LocalChannel());
+            }
+        };
+    }
+
+    private PooledConnection connection(EventLoop loop) throws InterruptedException {
+        LocalChannel channel = new LocalChannel();
+        loop.register(channel).sync();
+        return new PooledConnection(channel, server, null, null, stats, registry.counter("close"),
+                registry.counter("closeBusy"));
+    }
+
+    private PooledConnection connection() {
+        return new PooledConnection(new LocalChannel(), server, null, null, stats, registry.counter("close"),
+                registry.counter("closeBusy"));
+    }
+
+    private static <T> T on(EventLoop loop, Callable<T> task) throws Exception {
+        return loop.submit(task).get();
+    }
+}
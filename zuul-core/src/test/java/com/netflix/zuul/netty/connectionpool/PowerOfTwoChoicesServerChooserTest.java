@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.connectionpool;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link PowerOfTwoChoicesServerChooser}.
+ */
+@RunWith(JUnit4.class)
+public class PowerOfTwoChoicesServerChooserTest {
+
+    private final Server server1 = new Server("server1", 7001);
+    private final Server server2 = new Server("server2", 7001);
+    private final Map<Server, ServerStats> stats = new HashMap<>();
+    private long nanoTime;
+    private final PowerOfTwoChoicesServerChooser chooser =
+            new PowerOfTwoChoicesServerChooser(this::stats, () -> nanoTime);
+
+    @Test
+    public void choosesNothingWithoutServers() {
+        assertThat(chooser.choose(Collections.emptyList())).isNull();
+        assertThat(chooser.choose(Collections.singletonList(server1))).isSameInstanceAs(server1);
+    }
+
+    @Test
+    public void prefersFewerRequestsInFlightUntilResponseTimesAreKnown() {
+        stats(server1).incrementActiveRequestsCount();
+        chooser.noteResponseTime(server1, 1);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(chooser.choose(Arrays.asList(server1, server2))).isSameInstanceAs(server2);
+        }
+    }
+
+    @Test
+    public void weighsRequestsInFlightByResponseTime() {
+        chooser.noteResponseTime(server1, 10);
+        chooser.noteResponseTime(server2, 1);
+        stats(server2).incrementActiveRequestsCount();
+        stats(server2).incrementActiveRequestsCount();
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(chooser.choose(Arrays.asList(server1, server2))).isSameInstanceAs(server2);
+        }
+    }
+
+    @Test
+    public void avoidsTrippedCircuitBreakers() {
+        chooser.noteResponseTime(server1, 1);
+        chooser.noteResponseTime(server2, 100);
+        for (int i = 0; i < 10; i++) {
+            stats(server1).incrementSuccessiveConnectionFailureCount();
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(chooser.choose(Arrays.asList(server1, server2))).isSameInstanceAs(server2);
+        }
+    }
+
+    @Test
+    public void responseTimeFollowsPeaksAndDecays() {
+        chooser.noteResponseTime(server1, 10);
+        chooser.noteResponseTime(server1, 100);
+        assertThat(chooser.responseTimeMillis(server1, nanoTime)).isEqualTo(100.0);
+
+        nanoTime += TimeUnit.SECONDS.toNanos(1);
+        chooser.noteResponseTime(server1, 10);
+        double average = chooser.responseTimeMillis(server1, nanoTime);
+        assertThat(average).isLessThan(100.0);
+        assertThat(average).isGreaterThan(10.0);
+
+        // Without responses, it decays towards nothing so the server gets tried again.
+        assertThat(chooser.responseTimeMillis(server1, nanoTime + TimeUnit.SECONDS.toNanos(60)))
+                .isLessThan(1.0);
+        assertThat(chooser.responseTimeMillis(server2, nanoTime)).isEqualTo(-1.0);
+    }
+
+    /**
+     * Four servers answering in 5ms and one in 25ms, each handling a request at a time in order, with a request every
+     * 2ms: round robin gives the slow server more than it can handle, and its queue grows for as long as the test runs.
+     */
+    @Test
+    public void simulation_lowerTailLatencyThanRoundRobin() {
+        List<Server> servers = new ArrayList<>();
+        Map<Server, Long> serviceTimes = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            Server server = new Server("origin" + i, 7001);
+            servers.add(server);
+            serviceTimes.put(server, (i == 0) ? 25L : 5L);
+        }
+
+        int[] next = new int[1];
+        long roundRobinP99 = simulate(servers, serviceTimes, s -> s.get(next[0]++ % s.size()), null);
+        stats.clear();
+        long p2cP99 = simulate(servers, serviceTimes, chooser::choose, chooser);
+
+        assertThat(p2cP99).isLessThan(100L);
+        assertThat(p2cP99 * 10).isLessThan(roundRobinP99);
+    }
+
+    /**
+     * Returns the 99th percentile latency in (simulated) millis.
+     */
+    private long simulate(
+            List<Server> servers,
+            Map<Server, Long> serviceTimes,
+            Function<List<Server>, Server> choose,
+            PowerOfTwoChoicesServerChooser responseTimes) {
+        final int requests = 5000;
+        final long interval = 2;
+        Map<Server, Long> busyUntil = new HashMap<>();
+        // {done at, latency, server index}
+        PriorityQueue<long[]> inflight = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        List<Long> latencies = new ArrayList<>();
+
+        for (int i = 0; i < requests; i++) {
+            long now = i * interval;
+            while (!inflight.isEmpty() && inflight.peek()[0] <= now) {
+                long[] done = inflight.poll();
+                Server server = servers.get((int) done[2]);
+                stats(server).decrementActiveRequestsCount();
+                nanoTime = TimeUnit.MILLISECONDS.toNanos(done[0]);
+                if (responseTimes != null) {
+                    responseTimes.noteResponseTime(server, done[1]);
+                }
+                latencies.add(done[1]);
+            }
+
+            nanoTime = TimeUnit.MILLISECONDS.toNanos(now);
+            Server server = choose.apply(servers);
+            stats(server).incrementActiveRequestsCount();
+            long doneAt = Math.max(now, busyUntil.getOrDefault(server, 0L)) + serviceTimes.get(server);
+            busyUntil.put(server, doneAt);
+            inflight.add(new long[] {doneAt, doneAt - now, servers.indexOf(server)});
+        }
+        while (!inflight.isEmpty()) {
+            latencies.add(inflight.poll()[1]);
+        }
+
+        Collections.sort(latencies);
+        return latencies.get((int) (latencies.size() * 0.99));
+    }
+
+    private ServerStats stats(Server server) {
+        return stats.computeIfAbsent(server, s -> new ServerStats());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.filter;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.netflix.zuul.Filter;
+import com.netflix.zuul.context.SessionContext;
+import com.netflix.zuul.filters.ZuulFilter;
+import com.netflix.zuul.filters.http.HttpInboundSyncFilter;
+import com.netflix.zuul.message.Headers;
+import com.netflix.zuul.message.http.HttpQueryParams;
+import com.netflix.zuul.message.http.HttpRequestMessage;
+import com.netflix.zuul.message.http.HttpRequestMessageImpl;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ZuulFilterChainPlanner}.
+ */
+@RunWith(JUnit4.class)
+public class ZuulFilterChainPlannerTest {
+
+    private final ZuulFilter<HttpRequestMessage, HttpRequestMessage> global = new GlobalFilter();
+    private final ZuulFilter<HttpRequestMessage, HttpRequestMessage> apiGets = new ApiGetFilter();
+    private final ZuulFilter<HttpRequestMessage, HttpRequestMessage> adminPort = new AdminPortFilter();
+
+    @Test
+    public void planFor_keepsMatchingFiltersInOrder() {
+        ZuulFilterChainPlanner<HttpRequestMessage> planner = new ZuulFilterChainPlanner<>(chain());
+
+        assertThat(planner.planFor(request("get", "/api/v1", 7001))).asList()
+                .containsExactly(global, apiGets).inOrder();
+        assertThat(planner.planFor(request("GET", "/api/v1", 8077))).asList()
+                .containsExactly(global, apiGets, adminPort).inOrder();
+        assertThat(planner.planFor(request("post", "/api/v1", 7001))).asList()
+                .containsExactly(global);
+        assertThat(planner.planFor(request("get", "/other", 8077))).asList()
+                .containsExactly(global, adminPort).inOrder();
+    }
+
+    @Test
+    public void planFor_returnsFullChainWhenNothingExcluded() {
+        ZuulFilter<HttpRequestMessage, HttpRequestMessage>[] chain = chain();
+        ZuulFilterChainPlanner<HttpRequestMessage> planner = new ZuulFilterChainPlanner<>(chain);
+
+        assertThat(planner.planFor(request("get", "/api/v1", 8077))).isSameInstanceAs(chain);
+    }
+
+    @Test
+    public void planFor_reusesPlans() {
+        ZuulFilterChainPlanner<HttpRequestMessage> planner = new ZuulFilterChainPlanner<>(chain());
+
+        assertThat(planner.planFor(request("get", "/api/v1", 7001)))
+                .isSameInstanceAs(planner.planFor(request("get", "/api/v2", 7001)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ZuulFilter<HttpRequestMessage, HttpRequestMessage>[] chain() {
+        return new ZuulFilter[] {global, apiGets, adminPort};
+    }
+
+    private static HttpRequestMessage request(String method, String path, int port) {
+        return new HttpRequestMessageImpl(new SessionContext(), "HTTP/1.1", method, path, new HttpQueryParams(),
+                new Headers(), "127.0.0.1", "http", port, "localhost");
+    }
+
+    private static class GlobalFilter extends HttpInboundSyncFilter {
+        @Override
+        public int filterOrder() {
+            return 0;
+        }
+
+        @Override
+        public boolean shouldFilter(HttpRequestMessage msg) {
+            return true;
+        }
+
+        @Override
+        public HttpRequestMessage apply(HttpRequestMessage input) {
+            return input;
+        }
+    }
+
+    @Filter.AppliesTo(methods = {"get", "head"}, pathPrefixes = "/api/")
+    private static final class ApiGetFilter extends GlobalFilter {}
+
+    @Filter.AppliesTo(ports = 8077)
+    private static final class AdminPortFilter extends GlobalFilter {}
+}
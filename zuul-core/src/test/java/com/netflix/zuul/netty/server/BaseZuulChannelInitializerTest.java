@@ -26,6 +26,7 @@ import com.netflix.netty.common.throttle.MaxInboundConnectionsHandler;
 import com.netflix.spectator.api.NoopRegistry;
 import com.netflix.zuul.netty.ratelimiting.NullChannelHandlerProvider;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
@@ -35,7 +36,9 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Unit tests for {@link BaseZuulChannelInitializer}.
@@ -97,4 +100,46 @@ public class BaseZuulChannelInitializerTest {
         assertNotNull(channel.pipeline().context(ElbProxyProtocolChannelHandler.NAME));
         assertNotNull(channel.pipeline().context(MaxInboundConnectionsHandler.class));
     }
+
+    @Test
+    public void sharableHandlersSharedAcrossChannels() {
+        ChannelConfig channelConfig = new ChannelConfig();
+        ChannelConfig channelDependencies = new ChannelConfig();
+        channelDependencies.set(ZuulDependencyKeys.registry, new NoopRegistry());
+        channelDependencies.set(
+                ZuulDependencyKeys.rateLimitingChannelHandlerProvider, new NullChannelHandlerProvider());
+        channelDependencies.set(
+                ZuulDependencyKeys.sslClientCertCheckChannelHandlerProvider, new NullChannelHandlerProvider());
+        ChannelGroup channelGroup = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        BaseZuulChannelInitializer init =
+                new BaseZuulChannelInitializer("1234", channelConfig, channelDependencies, channelGroup) {
+
+                    @Override
+                    protected void initChannel(Channel ch) {}
+                };
+        EmbeddedChannel channel1 = new EmbeddedChannel();
+        EmbeddedChannel channel2 = new EmbeddedChannel();
+        for (EmbeddedChannel channel : new EmbeddedChannel[] {channel1, channel2}) {
+            init.addPassportHandler(channel.pipeline());
+            init.addTcpRelatedHandlers(channel.pipeline());
+            init.addHttp1Handlers(channel.pipeline());
+            init.addHttpRelatedHandlers(channel.pipeline());
+            init.addTimeoutHandlers(channel.pipeline());
+        }
+
+        for (String name : channel1.pipeline().names()) {
+            ChannelHandler handler = channel1.pipeline().get(name);
+            if (handler == null) {
+                continue;
+            }
+            if (handler.getClass().isAnnotationPresent(ChannelHandler.Sharable.class)) {
+                assertSame(name, handler, channel2.pipeline().get(name));
+            } else {
+                assertNotSame(name, handler, channel2.pipeline().get(name));
+            }
+        }
+        assertSame(
+                channel1.pipeline().get(ElbProxyProtocolChannelHandler.NAME),
+                channel2.pipeline().get(ElbProxyProtocolChannelHandler.NAME));
+    }
 }
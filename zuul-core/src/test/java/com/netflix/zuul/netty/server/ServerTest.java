@@ -19,20 +19,29 @@ package com.netflix.zuul.netty.server;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.mock;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.netty.common.metrics.EventLoopGroupMetrics;
 import com.netflix.netty.common.status.ServerStatusManager;
 import com.netflix.spectator.api.Spectator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.epoll.Epoll;
 import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.SocketAddress;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -85,4 +94,56 @@ public class ServerTest {
 
         s.stop();
     }
+
+    @Test
+    public void reusePortListenersAcceptOnTheirOwnEventLoops() throws Exception {
+        assumeTrue(Epoll.isAvailable());
+        ConfigurationManager.getConfigInstance().setProperty("zuul.server.netty.socket.reuseport", true);
+        try {
+            int connections = 64;
+            Set<EventLoop> acceptingLoops = ConcurrentHashMap.newKeySet();
+            CountDownLatch accepted = new CountDownLatch(connections);
+            Map<SocketAddress, ChannelInitializer<?>> initializers = new HashMap<>();
+            initializers.put(new InetSocketAddress("127.0.0.1", 0), new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    acceptingLoops.add(ch.eventLoop());
+                    accepted.countDown();
+                }
+            });
+            Server s = new Server(mock(ServerStatusManager.class), initializers,
+                    new ClientConnectionsShutdown(
+                            new DefaultChannelGroup(GlobalEventExecutor.INSTANCE),
+                            GlobalEventExecutor.INSTANCE,
+                            /* discoveryClient= */ null),
+                    new EventLoopGroupMetrics(Spectator.globalRegistry()),
+                    new EventLoopConfig() {
+                        @Override
+                        public int eventLoopCount() {
+                            return 4;
+                        }
+
+                        @Override
+                        public int acceptorCount() {
+                            return 1;
+                        }
+                    });
+            s.start(/* sync= */ false);
+            try {
+                List<SocketAddress> addrs = s.getListeningAddresses();
+                assertEquals(1, addrs.size());
+
+                for (int i = 0; i < connections; i++) {
+                    new Socket(InetAddress.getLoopbackAddress(), ((InetSocketAddress) addrs.get(0)).getPort()).close();
+                }
+                assertTrue(accepted.await(10, TimeUnit.SECONDS));
+                // The kernel spreads connections across the listeners, each with its own event loop.
+                assertTrue(acceptingLoops.size() > 1);
+            } finally {
+                s.stop();
+            }
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("zuul.server.netty.socket.reuseport");
+        }
+    }
 }
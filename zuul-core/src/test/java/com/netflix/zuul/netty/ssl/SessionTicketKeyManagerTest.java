@@ -0,0 +1,336 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.netty.ssl;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeTrue;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.zuul.netty.server.ssl.SslHandshakeInfoHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.ReferenceCountedOpenSslContext;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.ReferenceCountUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link SessionTicketKeyManager}.
+ */
+@RunWith(JUnit4.class)
+public class SessionTicketKeyManagerTest {
+
+    private static final long ROTATION = 1000;
+    private static final long GRACE = 1500;
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private final Registry registry = new DefaultRegistry();
+    private final AtomicLong now = new AtomicLong();
+    private final Random random = new Random(42);
+
+    @Test
+    public void generatedKeysKeepDecryptingForGraceWindow() throws Exception {
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(null, ROTATION, GRACE, registry, now::get);
+
+        manager.update();
+        OpenSslSessionTicketKey[] first = manager.ticketKeys();
+        assertThat(first).hasLength(1);
+
+        now.addAndGet(ROTATION);
+        manager.update();
+        OpenSslSessionTicketKey[] second = manager.ticketKeys();
+        assertThat(second).hasLength(2);
+        assertThat(second[0].name()).isNotEqualTo(first[0].name());
+        assertThat(second[1].name()).isEqualTo(first[0].name());
+
+        now.addAndGet(ROTATION);
+        manager.update();
+        OpenSslSessionTicketKey[] third = manager.ticketKeys();
+        // The first key was retired a whole rotation ago, so it's still within the grace window.
+        assertThat(third).hasLength(3);
+        assertThat(names(third).subList(1, 3)).containsExactlyElementsIn(names(second)).inOrder();
+
+        now.addAndGet(ROTATION);
+        manager.update();
+        OpenSslSessionTicketKey[] fourth = manager.ticketKeys();
+        assertThat(fourth).hasLength(3);
+        assertThat(names(fourth)).containsNoneIn(names(first));
+    }
+
+    @Test
+    public void loadsKeysFromFile() throws Exception {
+        byte[] a = key();
+        byte[] b = key();
+        File file = tmp.newFile("keys");
+        Files.write(file.toPath(), concat(a, b));
+
+        List<byte[]> loaded = SessionTicketKeyManager.load(file);
+
+        assertThat(loaded).hasSize(2);
+        assertThat(loaded.get(0)).isEqualTo(a);
+        assertThat(loaded.get(1)).isEqualTo(b);
+    }
+
+    @Test
+    public void keysAreNameThenAesThenHmac() throws Exception {
+        byte[] bytes = key();
+        File file = tmp.newFile("keys");
+        Files.write(file.toPath(), bytes);
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(file, ROTATION, GRACE, registry, now::get);
+
+        manager.update();
+        OpenSslSessionTicketKey key = manager.ticketKeys()[0];
+
+        assertThat(key.name()).isEqualTo(Arrays.copyOfRange(bytes, 0, 16));
+        assertThat(key.aesKey()).isEqualTo(Arrays.copyOfRange(bytes, 16, 32));
+        assertThat(key.hmacKey()).isEqualTo(Arrays.copyOfRange(bytes, 32, 48));
+    }
+
+    @Test
+    public void loadsKeysFromDirectoryNewestNameFirst() throws Exception {
+        byte[] older = key();
+        byte[] newer = key();
+        File dir = tmp.newFolder("keys");
+        Files.write(new File(dir, "20200101").toPath(), older);
+        Files.write(new File(dir, "20200102").toPath(), newer);
+
+        List<byte[]> loaded = SessionTicketKeyManager.load(dir);
+
+        assertThat(loaded).hasSize(2);
+        assertThat(loaded.get(0)).isEqualTo(newer);
+        assertThat(loaded.get(1)).isEqualTo(older);
+    }
+
+    @Test
+    public void rejectsTruncatedKeys() throws Exception {
+        File file = tmp.newFile("keys");
+        Files.write(file.toPath(), Arrays.copyOf(key(), OpenSslSessionTicketKey.TICKET_KEY_SIZE - 1));
+
+        assertThrows(IOException.class, () -> SessionTicketKeyManager.load(file));
+    }
+
+    @Test
+    public void removedKeysKeepDecryptingForGraceWindow() throws Exception {
+        byte[] a = key();
+        byte[] b = key();
+        File file = tmp.newFile("keys");
+        Files.write(file.toPath(), a);
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(file, ROTATION, GRACE, registry, now::get);
+        manager.update();
+
+        Files.write(file.toPath(), b);
+        now.addAndGet(ROTATION);
+        manager.update();
+        assertThat(names(manager.ticketKeys())).containsExactly(name(b), name(a)).inOrder();
+
+        now.addAndGet(GRACE);
+        manager.update();
+        assertThat(names(manager.ticketKeys())).containsExactly(name(b));
+    }
+
+    @Test
+    public void failedRotationKeepsKeys() throws Exception {
+        byte[] a = key();
+        File file = tmp.newFile("keys");
+        Files.write(file.toPath(), a);
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(file, ROTATION, GRACE, registry, now::get);
+        manager.update();
+
+        Files.write(file.toPath(), new byte[0]);
+        now.addAndGet(GRACE * 2);
+        manager.rotate();
+
+        assertThat(names(manager.ticketKeys())).containsExactly(name(a));
+        assertThat(registry.counter("server.ssl.ticket_keys.rotation", "success", "false").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void releasedContextsAreDropped() throws Exception {
+        assumeTrue("OpenSSL is unavailable", OpenSsl.isAvailable());
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(null, ROTATION, GRACE, registry, now::get);
+        SelfSignedCertificate cert = new SelfSignedCertificate("localhost");
+        SslContext kept;
+        SslContext released;
+        try {
+            kept = serverContext(cert);
+            released = serverContext(cert);
+        } finally {
+            cert.delete();
+        }
+        manager.register((ReferenceCountedOpenSslContext) kept);
+        manager.register((ReferenceCountedOpenSslContext) released);
+
+        ReferenceCountUtil.release(released);
+        manager.update();
+
+        assertThat(manager.contextCount()).isEqualTo(1);
+        ReferenceCountUtil.release(kept);
+    }
+
+    @Test
+    public void sharedKeysResumeSessionsAcrossServers() throws Exception {
+        assumeTicketsSupported();
+        File file = tmp.newFile("keys");
+        Files.write(file.toPath(), key());
+
+        double resumptionRate = resumptionRate(
+                new SessionTicketKeyManager(file, ROTATION, GRACE, registry, now::get),
+                new SessionTicketKeyManager(file, ROTATION, GRACE, registry, now::get));
+
+        // All but the first connection resume, however they're spread across the servers.
+        assertThat(resumptionRate).isEqualTo(19 / 20.0);
+    }
+
+    @Test
+    public void separateKeysCantResumeSessionsAcrossServers() throws Exception {
+        assumeTicketsSupported();
+
+        double resumptionRate = resumptionRate(
+                new SessionTicketKeyManager(null, ROTATION, GRACE, registry, now::get),
+                new SessionTicketKeyManager(null, ROTATION, GRACE, registry, now::get));
+
+        assertThat(resumptionRate).isEqualTo(0);
+    }
+
+    /**
+     * Makes 20 connections from one client, alternating between two servers, and returns the fraction of them that
+     * resumed an earlier session, as recorded by {@link SslHandshakeInfoHandler}.
+     */
+    private double resumptionRate(SessionTicketKeyManager... managers) throws Exception {
+        SelfSignedCertificate cert = new SelfSignedCertificate("localhost");
+        List<SslContext> servers = new ArrayList<>();
+        for (SessionTicketKeyManager manager : managers) {
+            SslContext server = serverContext(cert);
+            manager.update();
+            manager.register((ReferenceCountedOpenSslContext) server);
+            servers.add(server);
+        }
+        SslContext client = SslContextBuilder.forClient()
+                .sslProvider(SslProvider.JDK)
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .protocols("TLSv1.2")
+                .build();
+
+        try {
+            for (int i = 0; i < 20; i++) {
+                handshake(client, servers.get(i % servers.size()));
+            }
+        } finally {
+            for (SslContext server : servers) {
+                ReferenceCountUtil.release(server);
+            }
+            cert.delete();
+        }
+
+        Timer resumed = registry.timer("server.ssl.handshake.time", "resumed", "true");
+        Timer full = registry.timer("server.ssl.handshake.time", "resumed", "false");
+        assertThat(resumed.count() + full.count()).isEqualTo(20);
+        return resumed.count() / 20.0;
+    }
+
+    private static SslContext serverContext(SelfSignedCertificate cert) throws SSLException {
+        return SslContextBuilder.forServer(cert.key(), cert.cert())
+                .sslProvider(SslProvider.OPENSSL)
+                .protocols("TLSv1.2")
+                .build();
+    }
+
+    private void handshake(SslContext client, SslContext server) {
+        EmbeddedChannel clientChannel = new EmbeddedChannel();
+        EmbeddedChannel serverChannel = new EmbeddedChannel();
+        serverChannel.pipeline().addLast(new SslHandler(server.newEngine(serverChannel.alloc())));
+        serverChannel.pipeline().addLast(new SslHandshakeInfoHandler(registry, false));
+        // The same peer for every connection, so the client offers its cached session to each server.
+        SslHandler clientSslHandler = new SslHandler(client.newEngine(clientChannel.alloc(), "localhost", 443));
+        clientChannel.pipeline().addLast(clientSslHandler);
+
+        boolean moved;
+        do {
+            moved = move(clientChannel, serverChannel) | move(serverChannel, clientChannel);
+        } while (moved);
+
+        assertThat(clientSslHandler.handshakeFuture().isSuccess()).isTrue();
+        clientChannel.finishAndReleaseAll();
+        serverChannel.finishAndReleaseAll();
+    }
+
+    private static boolean move(EmbeddedChannel from, EmbeddedChannel to) {
+        boolean moved = false;
+        Object msg;
+        while ((msg = from.readOutbound()) != null) {
+            to.writeInbound(msg);
+            moved = true;
+        }
+        return moved;
+    }
+
+    private static void assumeTicketsSupported() {
+        assumeTrue("OpenSSL is unavailable", OpenSsl.isAvailable());
+        // The JDK's client only sends TLS 1.2 session tickets from Java 13 on.
+        String version = System.getProperty("java.specification.version");
+        assumeTrue("JDK client doesn't support session tickets",
+                !version.startsWith("1.") && Integer.parseInt(version) >= 13);
+    }
+
+    private byte[] key() {
+        byte[] key = new byte[OpenSslSessionTicketKey.TICKET_KEY_SIZE];
+        random.nextBytes(key);
+        return key;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] both = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        return both;
+    }
+
+    private static String name(byte[] key) {
+        return Arrays.toString(Arrays.copyOf(key, OpenSslSessionTicketKey.NAME_SIZE));
+    }
+
+    private static List<String> names(OpenSslSessionTicketKey[] keys) {
+        List<String> names = new ArrayList<>();
+        for (OpenSslSessionTicketKey key : keys) {
+            names.add(Arrays.toString(key.name()));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.origins;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link AdaptiveConcurrencyLimit}.
+ */
+@RunWith(JUnit4.class)
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long BASE_RTT = 20;
+
+    private long now = 100_000;
+    private final AdaptiveConcurrencyLimit limit =
+            new AdaptiveConcurrencyLimit(200, () -> 10, () -> 1000, () -> 10_000, () -> now);
+
+    @Test
+    public void keepsInitialLimitUntilFirstProbe() {
+        // Probing halves the limit, which mustn't happen as soon as the origin starts taking traffic.
+        for (int i = 0; i < 90; i++) {
+            simulate(1000, 200, 100);
+            assertThat(limit.getLimit()).isAtLeast(200);
+        }
+    }
+
+    @Test
+    public void convergesToOriginCapacity() {
+        simulate(50, 1000, 120_000);
+
+        assertThat(limit.getLimit()).isAtLeast(50);
+        assertThat(limit.getLimit()).isAtMost(75);
+    }
+
+    @Test
+    public void followsOriginCapacityUpAndDown() {
+        simulate(50, 1000, 120_000);
+
+        simulate(300, 1000, 120_000);
+        assertThat(limit.getLimit()).isAtLeast(300);
+        assertThat(limit.getLimit()).isAtMost(400);
+
+        simulate(100, 1000, 120_000);
+        assertThat(limit.getLimit()).isAtLeast(100);
+        assertThat(limit.getLimit()).isAtMost(150);
+    }
+
+    @Test
+    public void doesNotGrowWhenUnused() {
+        simulate(1000, 20, 60_000);
+
+        assertThat(limit.getLimit()).isAtMost(200);
+    }
+
+    @Test
+    public void shrinksWhenRequestsAreDropped() {
+        simulate(50, 1000, 120_000);
+        int before = limit.getLimit();
+
+        limit.onDropped();
+        simulate(50, 1000, 2 * BASE_RTT);
+
+        assertThat(limit.getLimit()).isLessThan(before);
+    }
+
+    @Test
+    public void staysWithinBounds() {
+        for (int i = 0; i < 100; i++) {
+            limit.onDropped();
+            simulate(50, 1000, BASE_RTT);
+        }
+        assertThat(limit.getLimit()).isEqualTo(10);
+
+        // Never above the maximum, though it's halved every so often to measure the no load response time.
+        simulate(5000, 5000, 120_000);
+        assertThat(limit.getLimit()).isAtLeast(500);
+        assertThat(limit.getLimit()).isAtMost(1000);
+    }
+
+    /**
+     * Runs an origin that handles up to {@code capacity} requests at once in {@link #BASE_RTT}, and queues any more,
+     * with {@code clients} each sending a request whenever the last one completes.
+     */
+    private void simulate(int capacity, int clients, long durationMillis) {
+        final long end = now + durationMillis;
+        while (now < end) {
+            final int inflight = Math.min(clients, limit.getLimit());
+            final long rtt = BASE_RTT * Math.max(capacity, inflight) / capacity;
+            for (int i = 0; i < inflight; i++) {
+                limit.onSample(rtt, inflight);
+            }
+            now += rtt;
+        }
+    }
+}
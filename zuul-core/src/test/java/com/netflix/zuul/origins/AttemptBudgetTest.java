@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.origins;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link AttemptBudget}.
+ */
+@RunWith(JUnit4.class)
+public class AttemptBudgetTest {
+
+    private long now = 10_000;
+    private final AttemptBudget budget = new AttemptBudget(() -> 0.1, () -> 2, () -> now);
+
+    @Test
+    public void allowanceWithoutRequests() {
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void ratioOfRequests() {
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+        }
+
+        int acquired = 0;
+        while (budget.tryAcquire()) {
+            acquired++;
+        }
+        assertThat(acquired).isEqualTo(12);
+    }
+
+    @Test
+    public void coversTheWindowBefore() {
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+        }
+        for (int i = 0; i < 10; i++) {
+            assertThat(budget.tryAcquire()).isTrue();
+        }
+
+        now += 1000;
+        // Attempts from the window before still count.
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isFalse();
+
+        // Only the allowance is left, and that was used in the window before.
+        now += 1000;
+        assertThat(budget.tryAcquire()).isFalse();
+
+        now += 1000;
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void forgetsOldWindowsAfterAPause() {
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+            budget.tryAcquire();
+        }
+
+        now += 5000;
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isFalse();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.origins;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link BasicNettyOrigin}.
+ */
+@RunWith(JUnit4.class)
+public class BasicNettyOriginTest {
+
+    private static final int MAX_RETRIES = 3;
+
+    @Test
+    public void retryBudgetBoundsAmplificationWhenEveryRequestFails() {
+        ConfigurationManager.getConfigInstance().setProperty("zuul.origin.retryBudgetTest.retry.budget.enabled", true);
+        try {
+            BasicNettyOrigin origin = new BasicNettyOrigin("retryBudgetTest", "retryBudgetTest-vip", new DefaultRegistry());
+
+            int requests = 10_000;
+            int attempts = sendFailingRequests(origin, requests);
+
+            // 20% of requests, plus an allowance of 10 for each of the one second windows the test spans.
+            assertThat(attempts).isAtMost(requests + requests / 5 + 50);
+            assertThat(attempts).isAtLeast(requests + requests / 5);
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("zuul.origin.retryBudgetTest.retry.budget.enabled");
+        }
+    }
+
+    @Test
+    public void retriesAreUnboundedByDefault() {
+        BasicNettyOrigin origin = new BasicNettyOrigin("retryBudgetOffTest", "retryBudgetOffTest-vip", new DefaultRegistry());
+
+        int requests = 1000;
+        assertThat(sendFailingRequests(origin, requests)).isEqualTo(requests * (1 + MAX_RETRIES));
+    }
+
+    @Test
+    public void adaptiveConcurrencyLimitAdmitsAsManyRequestsAsStatic() {
+        String prefix = "zuul.origin.concurrencyLimitTest.concurrency.";
+        ConfigurationManager.getConfigInstance().setProperty(prefix + "max.requests", 5);
+        try {
+            BasicNettyOrigin origin =
+                    new BasicNettyOrigin("concurrencyLimitTest", "concurrencyLimitTest-vip", new DefaultRegistry());
+            assertThat(origin.getConcurrencyLimit()).isEqualTo(5);
+            int admittedStatic = admitRequests(origin);
+
+            ConfigurationManager.getConfigInstance().setProperty(prefix + "adaptive.enabled", true);
+            // The adaptive limit starts at the static one.
+            assertThat(origin.getConcurrencyLimit()).isEqualTo(5);
+            assertThat(admitRequests(origin)).isEqualTo(admittedStatic);
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(prefix + "max.requests");
+            ConfigurationManager.getConfigInstance().clearProperty(prefix + "adaptive.enabled");
+        }
+    }
+
+    /**
+     * Starts requests until the origin rejects one, then ends them all, and returns how many were admitted.
+     */
+    private static int admitRequests(BasicNettyOrigin origin) {
+        int admitted = 0;
+        try {
+            while (true) {
+                origin.preRequestChecks(null);
+                admitted++;
+            }
+        } catch (OriginConcurrencyExceededException e) {
+            for (int i = 0; i < admitted; i++) {
+                origin.recordProxyRequestEnd();
+            }
+        }
+        return admitted;
+    }
+
+    /**
+     * Records requests that fail on every attempt, retrying each while the budget allows, and returns how many attempts
+     * were made.
+     */
+    private static int sendFailingRequests(BasicNettyOrigin origin, int requests) {
+        int attempts = 0;
+        for (int i = 0; i < requests; i++) {
+            origin.onRequestExecutionStart(null);
+            attempts++;
+            for (int retry = 0; retry < MAX_RETRIES && origin.tryAcquireRetry(); retry++) {
+                attempts++;
+            }
+        }
+        return attempts;
+    }
+}
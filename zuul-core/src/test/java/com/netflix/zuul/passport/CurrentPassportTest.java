@@ -16,12 +16,19 @@
 
 package com.netflix.zuul.passport;
 
+import com.google.common.base.Ticker;
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 
 import java.util.List;
 
 import static com.netflix.zuul.passport.PassportState.MISC_IO_START;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class CurrentPassportTest
 {
@@ -89,4 +96,88 @@ public class CurrentPassportTest
 
         assertEquals(200, passport.findStateBackwards(MISC_IO_START).getTime());
     }
+
+    @Test
+    public void addGrowsPastInitialCapacity()
+    {
+        CurrentPassport passport = new CurrentPassport(new StepTicker(), 2);
+        for (int i = 0; i < 5; i++) {
+            passport.add(MISC_IO_START);
+            passport.add(PassportState.MISC_IO_STOP);
+        }
+
+        assertEquals(10, passport.size());
+        assertEquals(5, passport.findEachPairOf(MISC_IO_START, PassportState.MISC_IO_STOP).size());
+        assertEquals(PassportState.MISC_IO_STOP, passport.getState());
+        assertEquals(8, passport.findStateBackwards(MISC_IO_START).getTime());
+        assertEquals(1, passport.calculateTimeBetweenFirstAnd(PassportState.MISC_IO_STOP));
+    }
+
+    @Test
+    public void getStateAndHasState()
+    {
+        CurrentPassport passport = new CurrentPassport(new StepTicker());
+        assertNull(passport.getState());
+        assertFalse(passport.hasState(PassportState.IN_REQ_HEADERS_RECEIVED));
+
+        passport.add(PassportState.IN_REQ_HEADERS_RECEIVED);
+
+        assertEquals(PassportState.IN_REQ_HEADERS_RECEIVED, passport.getState());
+        assertTrue(passport.hasState(PassportState.IN_REQ_HEADERS_RECEIVED));
+        assertFalse(passport.wasProxyAttempt());
+    }
+
+    @Test
+    public void getHistoryReturnsCopy()
+    {
+        CurrentPassport passport = new CurrentPassport(new StepTicker());
+        passport.add(PassportState.IN_REQ_HEADERS_RECEIVED);
+        passport.add(PassportState.FILTERS_INBOUND_START);
+
+        List<PassportItem> history = passport.getHistory();
+        assertEquals(2, history.size());
+        assertEquals(PassportState.FILTERS_INBOUND_START, history.get(1).getState());
+        assertEquals(1, history.get(1).getTime());
+
+        history.clear();
+        assertEquals(2, passport.size());
+    }
+
+    @Test
+    public void toStringRoundTrips()
+    {
+        String states = "[+0=IN_REQ_HEADERS_RECEIVED, +5=FILTERS_INBOUND_START, +50=NOW]";
+        CurrentPassport passport = CurrentPassport.parseFromToString("CurrentPassport {start_ms=0, " + states + "}");
+
+        assertTrue(passport.toString().endsWith(states + "}"));
+    }
+
+    @Test
+    public void createForChannelReplacesPassport()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        CurrentPassport first = CurrentPassport.createForChannel(channel);
+        for (int i = 0; i < CurrentPassport.DEFAULT_CAPACITY * 2; i++) {
+            first.add(MISC_IO_START);
+        }
+
+        CurrentPassport second = CurrentPassport.createForChannel(channel);
+
+        assertNotSame(first, second);
+        assertSame(second, CurrentPassport.fromChannel(channel));
+        assertEquals(0, second.size());
+        assertEquals(CurrentPassport.DEFAULT_CAPACITY * 2, first.size());
+    }
+
+    /** Advances by one on every read. */
+    private static final class StepTicker extends Ticker
+    {
+        private long now;
+
+        @Override
+        public long read()
+        {
+            return now++;
+        }
+    }
 }
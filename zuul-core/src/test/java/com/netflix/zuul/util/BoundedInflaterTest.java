@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link BoundedInflater}.
+ */
+@RunWith(JUnit4.class)
+public class BoundedInflaterTest {
+
+    private final PooledByteBufAllocator alloc = new PooledByteBufAllocator(false);
+
+    @Test
+    public void inflate_gzipInChunksOfAnySize() throws IOException {
+        byte[] body = body(50_000);
+        byte[] compressed = gzip(body);
+        for (int chunkSize : new int[] {1, 3, 11, 4096, compressed.length}) {
+            assertWithMessage("chunk size %s", chunkSize)
+                    .that(inflate(BoundedInflater.Format.GZIP, compressed, chunkSize, Long.MAX_VALUE))
+                    .isEqualTo(body);
+        }
+    }
+
+    @Test
+    public void inflate_gzipWithOptionalHeaderFields() throws IOException {
+        byte[] body = body(1000);
+        byte[] plain = gzip(body);
+
+        ByteArrayOutputStream withFields = new ByteArrayOutputStream();
+        withFields.write(plain, 0, 3);
+        withFields.write(0x02 | 0x04 | 0x08 | 0x10);
+        withFields.write(plain, 4, 6);
+        withFields.write(new byte[] {3, 0, 'a', 'b', 'c'});
+        withFields.write("name.txt\0".getBytes("US-ASCII"));
+        withFields.write("a comment\0".getBytes("US-ASCII"));
+        withFields.write(new byte[] {0x12, 0x34});
+        withFields.write(plain, 10, plain.length - 10);
+
+        for (int chunkSize : new int[] {1, 5, 1 << 20}) {
+            assertWithMessage("chunk size %s", chunkSize)
+                    .that(inflate(BoundedInflater.Format.GZIP, withFields.toByteArray(), chunkSize, Long.MAX_VALUE))
+                    .isEqualTo(body);
+        }
+    }
+
+    @Test
+    public void inflate_zlibAndRawDeflate() throws IOException {
+        byte[] body = body(20_000);
+        for (boolean raw : new boolean[] {false, true}) {
+            byte[] compressed = deflate(body, raw);
+            for (int chunkSize : new int[] {1, 2, 100, compressed.length}) {
+                assertWithMessage("raw %s, chunk size %s", raw, chunkSize)
+                        .that(inflate(BoundedInflater.Format.DEFLATE, compressed, chunkSize, Long.MAX_VALUE))
+                        .isEqualTo(body);
+            }
+        }
+    }
+
+    @Test
+    public void inflate_directBuffers() throws IOException {
+        byte[] body = body(40_000);
+        byte[] compressed = gzip(body);
+        BoundedInflater inflater = new BoundedInflater(alloc, BoundedInflater.Format.GZIP, Long.MAX_VALUE);
+
+        ByteBuf in = Unpooled.directBuffer(compressed.length).writeBytes(compressed);
+        ByteBuf out = inflater.inflate(in, true);
+        in.release();
+
+        assertThat(ByteBufUtil.getBytes(out)).isEqualTo(body);
+        out.release();
+    }
+
+    @Test
+    public void inflate_emptyBody() throws ZipException {
+        BoundedInflater inflater = new BoundedInflater(alloc, BoundedInflater.Format.GZIP, 0);
+        ByteBuf out = inflater.inflate(Unpooled.EMPTY_BUFFER, true);
+
+        assertThat(out.readableBytes()).isEqualTo(0);
+        out.release();
+    }
+
+    @Test
+    public void inflate_ignoresBytesAfterStream() throws IOException {
+        byte[] body = body(100);
+        byte[] compressed = gzip(body);
+        byte[] padded = Arrays.copyOf(compressed, compressed.length + 10);
+
+        assertThat(inflate(BoundedInflater.Format.GZIP, padded, 7, Long.MAX_VALUE)).isEqualTo(body);
+    }
+
+    @Test
+    public void inflate_stopsAtLimit() throws IOException {
+        byte[] bomb = gzip(new byte[10 << 20]);
+        BoundedInflater inflater = new BoundedInflater(alloc, BoundedInflater.Format.GZIP, 64 << 10);
+        try {
+            inflater.inflate(Unpooled.wrappedBuffer(bomb), true);
+            fail();
+        } catch (BoundedInflater.SizeLimitExceededException e) {
+            assertThat(e.getLimit()).isEqualTo(64 << 10);
+        }
+        // Inflating stops soon after the limit, rather than at the end of the stream.
+        assertThat(inflater.inflatedBytes()).isAtMost(2 * (64 << 10) + 1);
+        assertThat(inflater.hasFailed()).isTrue();
+    }
+
+    @Test
+    public void inflate_bodyAtLimitIsAllowed() throws IOException {
+        byte[] body = body(1000);
+        assertThat(inflate(BoundedInflater.Format.GZIP, gzip(body), 100, body.length)).isEqualTo(body);
+    }
+
+    @Test
+    public void inflate_failsOnBadCrc() throws IOException {
+        byte[] compressed = gzip(body(1000));
+        compressed[compressed.length - 8] ^= 1;
+
+        try {
+            inflate(BoundedInflater.Format.GZIP, compressed, 100, Long.MAX_VALUE);
+            fail();
+        } catch (ZipException e) {
+            assertThat(e).hasMessageThat().contains("CRC");
+        }
+    }
+
+    @Test
+    public void inflate_failsOnTruncatedStream() throws IOException {
+        byte[] compressed = gzip(body(1000));
+
+        try {
+            inflate(BoundedInflater.Format.GZIP, Arrays.copyOf(compressed, compressed.length - 3), 100, Long.MAX_VALUE);
+            fail();
+        } catch (ZipException e) {
+            assertThat(e).hasMessageThat().contains("Truncated");
+        }
+    }
+
+    @Test
+    public void inflate_failsOnGarbage() {
+        byte[] garbage = "definitely not compressed".getBytes();
+        for (BoundedInflater.Format format : BoundedInflater.Format.values()) {
+            try {
+                inflate(format, garbage, 100, Long.MAX_VALUE);
+                fail();
+            } catch (ZipException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void inflate_afterFailureFails() throws IOException {
+        BoundedInflater inflater = new BoundedInflater(alloc, BoundedInflater.Format.GZIP, Long.MAX_VALUE);
+        try {
+            inflater.inflate(Unpooled.wrappedBuffer(new byte[20]), false);
+            fail();
+        } catch (ZipException e) {
+            // expected
+        }
+
+        try {
+            inflater.inflate(Unpooled.wrappedBuffer(gzip(body(10))), true);
+            fail();
+        } catch (ZipException e) {
+            assertThat(e).hasMessageThat().contains("already failed");
+        }
+    }
+
+    private byte[] inflate(BoundedInflater.Format format, byte[] compressed, int chunkSize, long limit)
+            throws ZipException {
+        BoundedInflater inflater = new BoundedInflater(alloc, format, limit);
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        for (int offset = 0; offset < compressed.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, compressed.length - offset);
+            ByteBuf out = inflater.inflate(
+                    Unpooled.wrappedBuffer(compressed, offset, length), offset + length == compressed.length);
+            inflated.write(ByteBufUtil.getBytes(out), 0, out.readableBytes());
+            out.release();
+        }
+        assertThat(inflater.inflatedBytes()).isEqualTo(inflated.size());
+        return inflated.toByteArray();
+    }
+
+    private static byte[] body(int length) {
+        Random random = new Random(11);
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return body;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] body, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate =
+                new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflate.write(body);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link GzipCompressor}.
+ */
+@RunWith(JUnit4.class)
+public class GzipCompressorTest {
+
+    private final PooledByteBufAllocator alloc = new PooledByteBufAllocator(false);
+
+    @Test
+    public void compress_heapAndDirectChunks() throws IOException {
+        byte[] body = body(100_000);
+        for (boolean flushEveryChunk : new boolean[] {true, false}) {
+            GzipCompressor compressor = new GzipCompressor(alloc, Deflater.DEFAULT_COMPRESSION, flushEveryChunk);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            for (int offset = 0; offset < body.length; offset += 10_000) {
+                ByteBuf chunk = (offset / 10_000) % 2 == 0
+                        ? Unpooled.wrappedBuffer(body, offset, 10_000)
+                        : Unpooled.directBuffer(10_000).writeBytes(body, offset, 10_000);
+                drain(compressor.compress(chunk, false), compressed);
+                chunk.release();
+            }
+            drain(compressor.compress(Unpooled.EMPTY_BUFFER, true), compressed);
+
+            assertThat(gunzip(compressed.toByteArray())).isEqualTo(body);
+        }
+    }
+
+    @Test
+    public void compress_flushEveryChunkEmitsAllInput() throws IOException {
+        byte[] body = body(1000);
+        GzipCompressor compressor = new GzipCompressor(alloc, Deflater.BEST_SPEED, true);
+        ByteBuf out = compressor.compress(Unpooled.wrappedBuffer(body), false);
+        byte[] compressed = ByteBufUtil.getBytes(out);
+        out.release();
+
+        // A sync flushed stream can be inflated up to the flush point.
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] read = new byte[body.length];
+            int n = 0;
+            while (n < read.length) {
+                n += in.read(read, n, read.length - n);
+            }
+            assertThat(read).isEqualTo(body);
+        }
+        compressor.close();
+    }
+
+    @Test
+    public void compress_emptyBody() throws IOException {
+        GzipCompressor compressor = new GzipCompressor(alloc, 9, false);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        drain(compressor.compress(Unpooled.EMPTY_BUFFER, true), compressed);
+
+        assertThat(gunzip(compressed.toByteArray())).isEmpty();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void compress_afterLastChunkFails() {
+        GzipCompressor compressor = new GzipCompressor(alloc, Deflater.DEFAULT_COMPRESSION, true);
+        compressor.compress(Unpooled.EMPTY_BUFFER, true).release();
+        compressor.compress(Unpooled.EMPTY_BUFFER, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLevel() {
+        new GzipCompressor(alloc, 10, true);
+    }
+
+    private static byte[] body(int length) {
+        Random random = new Random(7);
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return body;
+    }
+
+    private static void drain(ByteBuf buf, ByteArrayOutputStream out) {
+        out.write(ByteBufUtil.getBytes(buf), 0, buf.readableBytes());
+        buf.release();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+                ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
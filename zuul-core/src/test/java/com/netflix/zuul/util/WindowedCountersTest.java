@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ */
+
+package com.netflix.zuul.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link WindowedCounters}.
+ */
+@RunWith(JUnit4.class)
+public class WindowedCountersTest {
+
+    private long now = 10_000;
+    private final WindowedCounters<LongAdder> windows = new WindowedCounters<>(1000, LongAdder::new, () -> now);
+
+    @Test
+    public void sameWindowUntilItEnds() {
+        windows.current().counters().increment();
+        now += 999;
+
+        assertThat(windows.current().counters().sum()).isEqualTo(1);
+        assertThat(windows.current().previousCounters()).isNull();
+    }
+
+    @Test
+    public void keepsTheWindowBefore() {
+        windows.current().counters().increment();
+        now += 1500;
+
+        WindowedCounters.Window<LongAdder> window = windows.current();
+        assertThat(window.counters().sum()).isEqualTo(0);
+        assertThat(window.previousCounters().sum()).isEqualTo(1);
+    }
+
+    @Test
+    public void onlyLinksBackOneWindow() {
+        windows.current().counters().increment();
+        now += 1000;
+        WindowedCounters.Window<LongAdder> second = windows.current();
+        second.counters().add(2);
+        now += 1000;
+
+        WindowedCounters.Window<LongAdder> third = windows.current();
+        assertThat(third.previousCounters().sum()).isEqualTo(2);
+        assertThat(second.previousCounters()).isNull();
+    }
+
+    @Test
+    public void dropsTheWindowBeforeIfItEndedAWhileAgo() {
+        windows.current().counters().increment();
+        now += 2000;
+
+        assertThat(windows.current().previousCounters()).isNull();
+    }
+}